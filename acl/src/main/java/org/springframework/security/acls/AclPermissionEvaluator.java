@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,15 +17,21 @@
 package org.springframework.security.acls;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.core.log.LogMessage;
-import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.access.BulkPermissionEvaluator;
 import org.springframework.security.acls.domain.DefaultPermissionFactory;
 import org.springframework.security.acls.domain.ObjectIdentityRetrievalStrategyImpl;
 import org.springframework.security.acls.domain.PermissionFactory;
@@ -40,6 +46,7 @@ import org.springframework.security.acls.model.Permission;
 import org.springframework.security.acls.model.Sid;
 import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.springframework.security.core.Authentication;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * Used by Spring Security's expression-based access control implementation to evaluate
@@ -49,7 +56,7 @@ import org.springframework.security.core.Authentication;
  * @author Luke Taylor
  * @since 3.0
  */
-public class AclPermissionEvaluator implements PermissionEvaluator {
+public class AclPermissionEvaluator implements BulkPermissionEvaluator {
 
 	private final Log logger = LogFactory.getLog(getClass());
 
@@ -63,8 +70,14 @@ public class AclPermissionEvaluator implements PermissionEvaluator {
 
 	private PermissionFactory permissionFactory = new DefaultPermissionFactory();
 
+	private final boolean bulkEvaluationSupported;
+
 	public AclPermissionEvaluator(AclService aclService) {
 		this.aclService = aclService;
+		// subclasses customizing single object evaluation keep being called per object
+		this.bulkEvaluationSupported = ReflectionUtils
+				.findMethod(getClass(), "hasPermission", Authentication.class, Object.class, Object.class)
+				.getDeclaringClass() == AclPermissionEvaluator.class;
 	}
 
 	/**
@@ -88,6 +101,67 @@ public class AclPermissionEvaluator implements PermissionEvaluator {
 		return checkPermission(authentication, objectIdentity, permission);
 	}
 
+	/**
+	 * Determines for each of the domain objects whether the user has the given
+	 * permission(s) using the ACL configuration. The SIDs of the user are retrieved once
+	 * and the ACLs of all domain objects are read with a single
+	 * {@link AclService#readExistingAclsById(List, List)} call. Null domain objects are
+	 * never granted. If a subclass overrides
+	 * {@link #hasPermission(Authentication, Object, Object)}, that method is called for
+	 * each domain object instead.
+	 * @since 5.8
+	 */
+	@Override
+	public BitSet hasPermissions(Authentication authentication, Collection<?> domainObjects, Object permission) {
+		BitSet granted = new BitSet(domainObjects.size());
+		if (!this.bulkEvaluationSupported) {
+			int i = 0;
+			for (Object domainObject : domainObjects) {
+				if (hasPermission(authentication, domainObject, permission)) {
+					granted.set(i);
+				}
+				i++;
+			}
+			return granted;
+		}
+		List<ObjectIdentity> objectIdentities = new ArrayList<>(domainObjects.size());
+		Set<ObjectIdentity> toRead = new LinkedHashSet<>();
+		for (Object domainObject : domainObjects) {
+			ObjectIdentity objectIdentity = (domainObject != null)
+					? this.objectIdentityRetrievalStrategy.getObjectIdentity(domainObject) : null;
+			objectIdentities.add(objectIdentity);
+			if (domainObject != null) {
+				toRead.add(objectIdentity);
+			}
+		}
+		if (toRead.isEmpty()) {
+			return granted;
+		}
+		List<Sid> sids = this.sidRetrievalStrategy.getSids(authentication);
+		List<Permission> requiredPermission = resolvePermission(permission);
+		this.logger.debug(LogMessage.of(() -> "Checking permission '" + permission + "' for " + toRead.size()
+				+ " objects"));
+		Map<ObjectIdentity, Acl> acls = this.aclService.readExistingAclsById(new ArrayList<>(toRead), sids);
+		for (int i = 0; i < objectIdentities.size(); i++) {
+			Acl acl = acls.get(objectIdentities.get(i));
+			if (acl != null && isGranted(acl, requiredPermission, sids)) {
+				granted.set(i);
+			}
+		}
+		this.logger.debug(LogMessage.of(() -> "Access is granted for " + granted.cardinality() + " of "
+				+ domainObjects.size() + " objects"));
+		return granted;
+	}
+
+	private boolean isGranted(Acl acl, List<Permission> requiredPermission, List<Sid> sids) {
+		try {
+			return acl.isGranted(requiredPermission, sids, false);
+		}
+		catch (NotFoundException ex) {
+			return false;
+		}
+	}
+
 	private boolean checkPermission(Authentication authentication, ObjectIdentity oid, Object permission) {
 		// Obtain the SIDs applicable to the principal
 		List<Sid> sids = this.sidRetrievalStrategy.getSids(authentication);
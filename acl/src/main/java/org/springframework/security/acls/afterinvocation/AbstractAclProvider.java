@@ -16,7 +16,12 @@
 
 package org.springframework.security.acls.afterinvocation;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.security.access.AfterInvocationProvider;
 import org.springframework.security.access.ConfigAttribute;
@@ -33,6 +38,7 @@ import org.springframework.security.acls.model.SidRetrievalStrategy;
 import org.springframework.security.core.Authentication;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
 
 /**
  * Abstract {@link AfterInvocationProvider} which provides commonly-used ACL-related
@@ -54,6 +60,8 @@ public abstract class AbstractAclProvider implements AfterInvocationProvider {
 
 	protected final List<Permission> requirePermission;
 
+	private final boolean bulkPermissionCheckSupported;
+
 	public AbstractAclProvider(AclService aclService, String processConfigAttribute,
 			List<Permission> requirePermission) {
 		Assert.hasText(processConfigAttribute, "A processConfigAttribute is mandatory");
@@ -62,6 +70,10 @@ public abstract class AbstractAclProvider implements AfterInvocationProvider {
 		this.aclService = aclService;
 		this.processConfigAttribute = processConfigAttribute;
 		this.requirePermission = requirePermission;
+		// subclasses customizing single object checks keep being called per object
+		this.bulkPermissionCheckSupported = ReflectionUtils
+				.findMethod(getClass(), "hasPermission", Authentication.class, Object.class)
+				.getDeclaringClass() == AbstractAclProvider.class;
 	}
 
 	protected Class<?> getProcessDomainObjectClass() {
@@ -85,6 +97,58 @@ public abstract class AbstractAclProvider implements AfterInvocationProvider {
 		}
 	}
 
+	/**
+	 * Determines for each of the domain objects whether the principal is granted the
+	 * {@link #requirePermission}, retrieving the SIDs once and reading all ACLs with a
+	 * single {@link AclService#readExistingAclsById(List, List)} call. If a subclass
+	 * overrides {@link #hasPermission(Authentication, Object)}, that method is called for
+	 * each domain object instead.
+	 * @param authentication the principal
+	 * @param domainObjects the domain objects to check
+	 * @return a {@link BitSet} in which bit {@code i} is set if the permission is granted
+	 * for the {@code i}th domain object, in iteration order
+	 * @since 5.8
+	 */
+	protected BitSet hasPermissions(Authentication authentication, Collection<?> domainObjects) {
+		BitSet granted = new BitSet(domainObjects.size());
+		if (domainObjects.isEmpty()) {
+			return granted;
+		}
+		if (!this.bulkPermissionCheckSupported) {
+			int i = 0;
+			for (Object domainObject : domainObjects) {
+				if (hasPermission(authentication, domainObject)) {
+					granted.set(i);
+				}
+				i++;
+			}
+			return granted;
+		}
+		List<ObjectIdentity> objectIdentities = new ArrayList<>(domainObjects.size());
+		for (Object domainObject : domainObjects) {
+			objectIdentities.add(this.objectIdentityRetrievalStrategy.getObjectIdentity(domainObject));
+		}
+		List<Sid> sids = this.sidRetrievalStrategy.getSids(authentication);
+		Map<ObjectIdentity, Acl> acls = this.aclService
+				.readExistingAclsById(new ArrayList<>(new LinkedHashSet<>(objectIdentities)), sids);
+		for (int i = 0; i < objectIdentities.size(); i++) {
+			Acl acl = acls.get(objectIdentities.get(i));
+			if (acl != null && isGranted(acl, sids)) {
+				granted.set(i);
+			}
+		}
+		return granted;
+	}
+
+	private boolean isGranted(Acl acl, List<Sid> sids) {
+		try {
+			return acl.isGranted(this.requirePermission, sids, false);
+		}
+		catch (NotFoundException ex) {
+			return false;
+		}
+	}
+
 	public void setObjectIdentityRetrievalStrategy(ObjectIdentityRetrievalStrategy objectIdentityRetrievalStrategy) {
 		Assert.notNull(objectIdentityRetrievalStrategy, "ObjectIdentityRetrievalStrategy required");
 		this.objectIdentityRetrievalStrategy = objectIdentityRetrievalStrategy;
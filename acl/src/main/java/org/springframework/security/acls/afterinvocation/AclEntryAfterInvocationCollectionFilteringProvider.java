@@ -16,6 +16,8 @@
 
 package org.springframework.security.acls.afterinvocation;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 
@@ -89,14 +91,20 @@ public class AclEntryAfterInvocationCollectionFilteringProvider extends Abstract
 			// Need to process the Collection for this invocation
 			Filterer filterer = getFilterer(returnedObject);
 
-			// Locate unauthorised Collection elements
+			List<Object> domainObjects = new ArrayList<>();
 			for (Object domainObject : filterer) {
 				// Ignore nulls or entries which aren't instances of the configured domain
 				// object class
-				if (domainObject == null || !getProcessDomainObjectClass().isAssignableFrom(domainObject.getClass())) {
-					continue;
+				if (domainObject != null && getProcessDomainObjectClass().isAssignableFrom(domainObject.getClass())) {
+					domainObjects.add(domainObject);
 				}
-				if (!hasPermission(authentication, domainObject)) {
+			}
+
+			// Locate unauthorised Collection elements, evaluating all of them at once
+			BitSet granted = hasPermissions(authentication, domainObjects);
+			for (int i = 0; i < domainObjects.size(); i++) {
+				if (!granted.get(i)) {
+					Object domainObject = domainObjects.get(i);
 					filterer.remove(domainObject);
 					logger.debug(LogMessage.of(() -> "Principal is NOT authorised for element: " + domainObject));
 				}
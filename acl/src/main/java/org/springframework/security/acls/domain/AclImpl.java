@@ -61,6 +61,8 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 
 	private boolean entriesInheriting = true;
 
+	private transient volatile IndexedPermissionGrantingStrategy.AceIndex aceIndex;
+
 	/**
 	 * Minimal constructor, which should be used
 	 * {@link org.springframework.security.acls.model.MutableAclService#createAcl(ObjectIdentity)}
@@ -127,6 +129,7 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		verifyAceIndexExists(aceIndex);
 		synchronized (this.aces) {
 			this.aces.remove(aceIndex);
+			this.aceIndex = null;
 		}
 	}
 
@@ -156,6 +159,7 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		AccessControlEntryImpl ace = new AccessControlEntryImpl(null, this, sid, permission, granting, false, false);
 		synchronized (this.aces) {
 			this.aces.add(atIndexLocation, ace);
+			this.aceIndex = null;
 		}
 	}
 
@@ -166,6 +170,24 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		return new ArrayList<>(this.aces);
 	}
 
+	/**
+	 * Returns the index of the entries used by the
+	 * {@link IndexedPermissionGrantingStrategy}, building it on first use.
+	 */
+	IndexedPermissionGrantingStrategy.AceIndex getAceIndex() {
+		IndexedPermissionGrantingStrategy.AceIndex aceIndex = this.aceIndex;
+		if (aceIndex == null) {
+			synchronized (this.aces) {
+				aceIndex = this.aceIndex;
+				if (aceIndex == null) {
+					aceIndex = new IndexedPermissionGrantingStrategy.AceIndex(this.aces);
+					this.aceIndex = aceIndex;
+				}
+			}
+		}
+		return aceIndex;
+	}
+
 	@Override
 	public Serializable getId() {
 		return this.id;
@@ -261,6 +283,7 @@ public class AclImpl implements Acl, MutableAcl, AuditableAcl, OwnershipAcl {
 		synchronized (this.aces) {
 			AccessControlEntryImpl ace = (AccessControlEntryImpl) this.aces.get(aceIndex);
 			ace.setPermission(permission);
+			this.aceIndex = null;
 		}
 	}
 
@@ -0,0 +1,860 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.AuditableAccessControlEntry;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.util.FieldUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * An in-memory {@link AclCache} storing ACLs in a compact form instead of as
+ * {@link AclImpl} graphs.
+ * <p>
+ * {@link Sid}s and {@link Permission}s are interned and referenced by an int, and
+ * released once no cached ACL references them. The entries of an ACL are packed into
+ * primitive arrays and each ACL is stored once, indexed both by its primary key and its
+ * {@link ObjectIdentity}. Parents are referenced by their primary key, so an ACL whose
+ * parent has been evicted is a cache miss.
+ * <p>
+ * An ACL is turned back into an {@link AclImpl} the first time it is read, and that
+ * instance is returned by later reads until the ACL or one of its ancestors is replaced
+ * or evicted. As with the other {@link AclCache} implementations, callers share the
+ * returned instance and should only modify it to update the ACL through a
+ * {@link org.springframework.security.acls.model.MutableAclService}, which evicts it.
+ * <p>
+ * The ACLs are spread over segments by {@link ObjectIdentity}, each with its own lock,
+ * so that reads and writes of different ACLs rarely contend. Each segment evicts its
+ * least recently used ACLs, approximated with the CLOCK algorithm, once their estimated
+ * size exceeds its share of the {@link #setMaxMemory(DataSize) memory bound}. ACLs which
+ * are read less often than the CLOCK hand goes round only keep their compact form. Hits,
+ * misses and evictions are counted.
+ * <p>
+ * Primary keys must be {@link Long}s, as is the case with the
+ * {@link org.springframework.security.acls.jdbc.BasicLookupStrategy}.
+ *
+ * @since 5.8
+ */
+public class CompactAclCache implements AclCache {
+
+	private static final int SEGMENT_COUNT = 16;
+
+	private static final int MAX_ANCESTORS = 1000;
+
+	private static final long ENTRY_MEMORY = 160;
+
+	private static final long ACE_MEMORY = 17;
+
+	private static final long VIEW_MEMORY = 200;
+
+	private static final long VIEW_ACE_MEMORY = 56;
+
+	private static final long INTERNED_MEMORY = 96;
+
+	private static final long NULL_ACE_ID = Long.MIN_VALUE;
+
+	private static final byte GRANTING = 1;
+
+	private static final byte AUDIT_SUCCESS = 2;
+
+	private static final byte AUDIT_FAILURE = 4;
+
+	private final PermissionGrantingStrategy permissionGrantingStrategy;
+
+	private final AclAuthorizationStrategy aclAuthorizationStrategy;
+
+	private final Field fieldAces = FieldUtils.getField(AclImpl.class, "aces");
+
+	private final Field fieldLoadedSids = FieldUtils.getField(AclImpl.class, "loadedSids");
+
+	private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+	private final Object internLock = new Object();
+
+	private final Interner<Sid> sids = new Interner<>();
+
+	private final Interner<Permission> permissions = new Interner<>();
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	private volatile long maxMemory = DataSize.ofMegabytes(64).toBytes();
+
+	private volatile long internedMemory;
+
+	public CompactAclCache(PermissionGrantingStrategy permissionGrantingStrategy,
+			AclAuthorizationStrategy aclAuthorizationStrategy) {
+		Assert.notNull(permissionGrantingStrategy, "PermissionGrantingStrategy required");
+		Assert.notNull(aclAuthorizationStrategy, "AclAuthorizationStrategy required");
+		this.permissionGrantingStrategy = permissionGrantingStrategy;
+		this.aclAuthorizationStrategy = aclAuthorizationStrategy;
+		this.fieldAces.setAccessible(true);
+		this.fieldLoadedSids.setAccessible(true);
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			this.segments[i] = new Segment();
+		}
+	}
+
+	@Override
+	public void evictFromCache(Serializable pk) {
+		Assert.notNull(pk, "Primary key (identifier) required");
+		if (!(pk instanceof Long)) {
+			return;
+		}
+		Entry entry = findById((Long) pk);
+		if (entry != null) {
+			remove(entry);
+		}
+	}
+
+	@Override
+	public void evictFromCache(ObjectIdentity objectIdentity) {
+		Assert.notNull(objectIdentity, "ObjectIdentity required");
+		Segment segment = segmentFor(objectIdentity.hashCode());
+		segment.lock.writeLock().lock();
+		try {
+			Entry entry = segment.entriesByObjectIdentity.get(objectIdentity);
+			if (entry != null) {
+				remove(segment, entry);
+			}
+		}
+		finally {
+			segment.lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public MutableAcl getFromCache(ObjectIdentity objectIdentity) {
+		Assert.notNull(objectIdentity, "ObjectIdentity required");
+		return read(segmentFor(objectIdentity.hashCode()).get(objectIdentity));
+	}
+
+	@Override
+	public MutableAcl getFromCache(Serializable pk) {
+		Assert.notNull(pk, "Primary key (identifier) required");
+		if (!(pk instanceof Long)) {
+			this.missCount.increment();
+			return null;
+		}
+		return read(findById((Long) pk));
+	}
+
+	@Override
+	public void putInCache(MutableAcl acl) {
+		Assert.notNull(acl, "Acl required");
+		Assert.notNull(acl.getObjectIdentity(), "ObjectIdentity required");
+		Assert.notNull(acl.getId(), "ID required");
+		Assert.isInstanceOf(Long.class, acl.getId(), "ID must be a Long");
+		if ((acl.getParentAcl() != null) && (acl.getParentAcl() instanceof MutableAcl)) {
+			putInCache((MutableAcl) acl.getParentAcl());
+		}
+		Entry entry = compact(acl);
+		Segment segment = segmentFor(entry.objectIdentityHash);
+		Entry existing = findById(entry.id);
+		if (existing != null && segmentFor(existing.objectIdentityHash) != segment) {
+			remove(existing);
+		}
+		segment.lock.writeLock().lock();
+		try {
+			existing = segment.entriesById.get(entry.id);
+			if (existing != null && existing.sameAs(entry)) {
+				// keep the existing entry, and its view, when an ancestor is put again
+				release(entry);
+				return;
+			}
+			if (existing != null) {
+				remove(segment, existing);
+			}
+			existing = segment.entriesByObjectIdentity.get(entry.objectIdentity);
+			if (existing != null) {
+				remove(segment, existing);
+			}
+			segment.entriesById.put(entry);
+			segment.entriesByObjectIdentity.put(entry);
+			segment.memory.addAndGet(entry.memory);
+			evictIfNecessary(segment);
+		}
+		finally {
+			segment.lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void clearCache() {
+		for (Segment segment : this.segments) {
+			segment.lock.writeLock().lock();
+			try {
+				for (Entry entry : segment.entriesById.entries) {
+					if (entry != null) {
+						discard(segment, entry);
+					}
+				}
+				segment.entriesById.clear();
+				segment.entriesByObjectIdentity.clear();
+			}
+			finally {
+				segment.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Sets the estimated memory the cached ACLs may take before the least recently used
+	 * ones are evicted, including the interned {@link Sid}s and {@link Permission}s they
+	 * share. Defaults to 64 megabytes.
+	 * @param maxMemory the memory bound
+	 */
+	public void setMaxMemory(DataSize maxMemory) {
+		Assert.notNull(maxMemory, "maxMemory cannot be null");
+		Assert.isTrue(!maxMemory.isNegative(), "maxMemory cannot be negative");
+		this.maxMemory = maxMemory.toBytes();
+		for (Segment segment : this.segments) {
+			segment.lock.writeLock().lock();
+			try {
+				evictIfNecessary(segment);
+			}
+			finally {
+				segment.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * The number of reads which found a cached ACL.
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * The number of reads which found no cached ACL, including those where an ancestor of
+	 * the ACL had been evicted.
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * The number of ACLs evicted to stay within the memory bound.
+	 * @return the eviction count
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.sum();
+	}
+
+	/**
+	 * The number of cached ACLs.
+	 * @return the number of cached ACLs
+	 */
+	public int getSize() {
+		int size = 0;
+		for (Segment segment : this.segments) {
+			segment.lock.readLock().lock();
+			try {
+				size += segment.entriesById.size;
+			}
+			finally {
+				segment.lock.readLock().unlock();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * The estimated memory taken by the cached ACLs, the {@link AclImpl}s built from them
+	 * and the {@link Sid}s and {@link Permission}s they reference, in bytes.
+	 * @return the estimated memory
+	 */
+	public long getEstimatedMemory() {
+		long memory = this.internedMemory;
+		for (Segment segment : this.segments) {
+			memory += segment.memory.get();
+		}
+		return memory;
+	}
+
+	private Segment segmentFor(int objectIdentityHash) {
+		return this.segments[EntryTable.spread(objectIdentityHash) >>> 28];
+	}
+
+	private Entry findById(long id) {
+		for (Segment segment : this.segments) {
+			Entry entry = segment.get(id);
+			if (entry != null) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	private Entry compact(MutableAcl acl) {
+		Acl parent = acl.getParentAcl();
+		Long parentId = null;
+		if (parent instanceof MutableAcl) {
+			Assert.isInstanceOf(Long.class, ((MutableAcl) parent).getId(), "Parent ID must be a Long");
+			parentId = (Long) ((MutableAcl) parent).getId();
+		}
+		List<AccessControlEntry> aces = acl.getEntries();
+		int aceCount = aces.size();
+		long[] aceIds = new long[aceCount];
+		int[] aceSids = new int[aceCount];
+		int[] acePermissions = new int[aceCount];
+		byte[] aceFlags = new byte[aceCount];
+		for (AccessControlEntry ace : aces) {
+			Serializable aceId = ace.getId();
+			Assert.isTrue(aceId == null || aceId instanceof Long, "ACE IDs must be Longs");
+		}
+		List<Sid> sids = (acl instanceof AclImpl) ? readLoadedSids((AclImpl) acl) : null;
+		int[] loadedSids = (sids != null) ? new int[sids.size()] : null;
+		int owner;
+		// interned values are only referenced once nothing can fail anymore
+		synchronized (this.internLock) {
+			int interned = this.sids.size() + this.permissions.size();
+			for (int i = 0; i < aceCount; i++) {
+				AccessControlEntry ace = aces.get(i);
+				Serializable aceId = ace.getId();
+				aceIds[i] = (aceId != null) ? (Long) aceId : NULL_ACE_ID;
+				aceSids[i] = this.sids.intern(ace.getSid());
+				acePermissions[i] = this.permissions.intern(ace.getPermission());
+				byte flags = ace.isGranting() ? GRANTING : 0;
+				if (ace instanceof AuditableAccessControlEntry) {
+					AuditableAccessControlEntry auditable = (AuditableAccessControlEntry) ace;
+					flags |= auditable.isAuditSuccess() ? AUDIT_SUCCESS : 0;
+					flags |= auditable.isAuditFailure() ? AUDIT_FAILURE : 0;
+				}
+				aceFlags[i] = flags;
+			}
+			if (loadedSids != null) {
+				for (int i = 0; i < loadedSids.length; i++) {
+					loadedSids[i] = this.sids.intern(sids.get(i));
+				}
+			}
+			owner = (acl.getOwner() != null) ? this.sids.intern(acl.getOwner()) : -1;
+			this.internedMemory += INTERNED_MEMORY * (this.sids.size() + this.permissions.size() - interned);
+		}
+		return new Entry((Long) acl.getId(), acl.getObjectIdentity(), parentId, acl.isEntriesInheriting(), owner,
+				loadedSids, aceIds, aceSids, acePermissions, aceFlags);
+	}
+
+	private MutableAcl read(Entry entry) {
+		AclImpl acl = (entry != null) ? view(entry, 0) : null;
+		if (acl == null) {
+			this.missCount.increment();
+			return null;
+		}
+		this.hitCount.increment();
+		return acl;
+	}
+
+	/**
+	 * Returns the {@link AclImpl} built from the entry, building it if the entry has none
+	 * yet or if the one it has no longer references the view of its parent.
+	 * @return the view, or {@code null} if the entry or one of its ancestors is no longer
+	 * cached
+	 */
+	private AclImpl view(Entry entry, int depth) {
+		AclImpl parent = null;
+		if (entry.parentId != null) {
+			Entry parentEntry = (depth < MAX_ANCESTORS) ? findParent(entry) : null;
+			parent = (parentEntry != null) ? view(parentEntry, depth + 1) : null;
+			if (parent == null) {
+				return null;
+			}
+		}
+		entry.referenced = true;
+		AclImpl view = entry.view;
+		if (view != null && view.getParentAcl() == parent) {
+			return view;
+		}
+		AclImpl built = toAcl(entry, parent);
+		if (built != null && entry.replaceView(view, built)) {
+			if (view == null) {
+				segmentFor(entry.objectIdentityHash).memory.addAndGet(entry.viewMemory);
+			}
+			if (entry.removed) {
+				dropView(entry);
+			}
+		}
+		return built;
+	}
+
+	private Entry findParent(Entry entry) {
+		Entry parent = entry.parent;
+		if (parent == null || parent.removed) {
+			parent = findById(entry.parentId);
+			entry.parent = parent;
+		}
+		return parent;
+	}
+
+	private AclImpl toAcl(Entry entry, Acl parent) {
+		int aceCount = entry.aceIds.length;
+		List<Sid> loadedSids = null;
+		Sid owner;
+		Sid[] aceSids = new Sid[aceCount];
+		Permission[] acePermissions = new Permission[aceCount];
+		synchronized (this.internLock) {
+			// the interned values of a removed entry may have been released
+			if (entry.removed) {
+				return null;
+			}
+			if (entry.loadedSids != null) {
+				loadedSids = new ArrayList<>(entry.loadedSids.length);
+				for (int sid : entry.loadedSids) {
+					loadedSids.add(this.sids.get(sid));
+				}
+			}
+			owner = (entry.owner != -1) ? this.sids.get(entry.owner) : null;
+			for (int i = 0; i < aceCount; i++) {
+				aceSids[i] = this.sids.get(entry.aceSids[i]);
+				acePermissions[i] = this.permissions.get(entry.acePermissions[i]);
+			}
+		}
+		AclImpl acl = new AclImpl(entry.objectIdentity, entry.id, this.aclAuthorizationStrategy,
+				this.permissionGrantingStrategy, parent, loadedSids, entry.entriesInheriting, owner);
+		List<AccessControlEntry> aces = readAces(acl);
+		for (int i = 0; i < aceCount; i++) {
+			Long aceId = (entry.aceIds[i] != NULL_ACE_ID) ? entry.aceIds[i] : null;
+			byte flags = entry.aceFlags[i];
+			aces.add(new AccessControlEntryImpl(aceId, acl, aceSids[i], acePermissions[i], (flags & GRANTING) != 0,
+					(flags & AUDIT_SUCCESS) != 0, (flags & AUDIT_FAILURE) != 0));
+		}
+		return acl;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<AccessControlEntry> readAces(AclImpl acl) {
+		try {
+			return (List<AccessControlEntry>) this.fieldAces.get(acl);
+		}
+		catch (IllegalAccessException ex) {
+			throw new IllegalStateException("Could not obtain AclImpl.aces field", ex);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Sid> readLoadedSids(AclImpl acl) {
+		try {
+			return (List<Sid>) this.fieldLoadedSids.get(acl);
+		}
+		catch (IllegalAccessException ex) {
+			throw new IllegalStateException("Could not obtain AclImpl.loadedSids field", ex);
+		}
+	}
+
+	private void dropView(Entry entry) {
+		AclImpl view = entry.view;
+		if (view != null && entry.replaceView(view, null)) {
+			segmentFor(entry.objectIdentityHash).memory.addAndGet(-entry.viewMemory);
+		}
+	}
+
+	private void remove(Entry entry) {
+		Segment segment = segmentFor(entry.objectIdentityHash);
+		segment.lock.writeLock().lock();
+		try {
+			remove(segment, entry);
+		}
+		finally {
+			segment.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Must be called with the write lock of the segment held.
+	 */
+	private void remove(Segment segment, Entry entry) {
+		if (entry.removed) {
+			return;
+		}
+		segment.entriesById.remove(entry);
+		segment.entriesByObjectIdentity.remove(entry);
+		discard(segment, entry);
+	}
+
+	/**
+	 * Marks the entry as removed and releases what it references. Must be called with the
+	 * write lock of the segment held.
+	 */
+	private void discard(Segment segment, Entry entry) {
+		entry.removed = true;
+		dropView(entry);
+		segment.memory.addAndGet(-entry.memory);
+		release(entry);
+	}
+
+	private void release(Entry entry) {
+		synchronized (this.internLock) {
+			int released = 0;
+			for (int i = 0; i < entry.aceSids.length; i++) {
+				released += this.sids.release(entry.aceSids[i]) ? 1 : 0;
+				released += this.permissions.release(entry.acePermissions[i]) ? 1 : 0;
+			}
+			if (entry.loadedSids != null) {
+				for (int sid : entry.loadedSids) {
+					released += this.sids.release(sid) ? 1 : 0;
+				}
+			}
+			if (entry.owner != -1) {
+				released += this.sids.release(entry.owner) ? 1 : 0;
+			}
+			this.internedMemory -= INTERNED_MEMORY * released;
+		}
+	}
+
+	/**
+	 * Evicts entries of the segment with the CLOCK algorithm until it meets its share of
+	 * the memory bound, giving entries read since the hand last passed them a second
+	 * chance. Entries passed that way drop their view. Must be called with the write lock
+	 * of the segment held.
+	 */
+	private void evictIfNecessary(Segment segment) {
+		long maxMemory = this.maxMemory / SEGMENT_COUNT;
+		while (segment.memory.get() + this.internedMemory / SEGMENT_COUNT > maxMemory
+				&& segment.entriesById.size > 0) {
+			Entry[] entries = segment.entriesById.entries;
+			segment.clockHand = (segment.clockHand + 1) & (entries.length - 1);
+			Entry entry = entries[segment.clockHand];
+			if (entry == null) {
+				continue;
+			}
+			if (entry.referenced) {
+				entry.referenced = false;
+				dropView(entry);
+				continue;
+			}
+			remove(segment, entry);
+			this.evictionCount.increment();
+		}
+	}
+
+	/**
+	 * The ACLs whose {@link ObjectIdentity} hashes to the same segment, guarded by their
+	 * own lock.
+	 */
+	private static final class Segment {
+
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		private final EntryTable entriesById = new EntryTable(true);
+
+		private final EntryTable entriesByObjectIdentity = new EntryTable(false);
+
+		private final AtomicLong memory = new AtomicLong();
+
+		private int clockHand;
+
+		private Entry get(long id) {
+			this.lock.readLock().lock();
+			try {
+				return this.entriesById.get(id);
+			}
+			finally {
+				this.lock.readLock().unlock();
+			}
+		}
+
+		private Entry get(ObjectIdentity objectIdentity) {
+			this.lock.readLock().lock();
+			try {
+				return this.entriesByObjectIdentity.get(objectIdentity);
+			}
+			finally {
+				this.lock.readLock().unlock();
+			}
+		}
+
+	}
+
+	/**
+	 * A cached ACL.
+	 */
+	private static final class Entry {
+
+		private static final AtomicReferenceFieldUpdater<Entry, AclImpl> VIEW = AtomicReferenceFieldUpdater
+				.newUpdater(Entry.class, AclImpl.class, "view");
+
+		private final long id;
+
+		private final ObjectIdentity objectIdentity;
+
+		private final int objectIdentityHash;
+
+		private final Long parentId;
+
+		private final boolean entriesInheriting;
+
+		private final int owner;
+
+		private final int[] loadedSids;
+
+		private final long[] aceIds;
+
+		private final int[] aceSids;
+
+		private final int[] acePermissions;
+
+		private final byte[] aceFlags;
+
+		private final long memory;
+
+		private final long viewMemory;
+
+		private volatile boolean referenced = true;
+
+		private volatile boolean removed;
+
+		private volatile Entry parent;
+
+		private volatile AclImpl view;
+
+		private Entry(long id, ObjectIdentity objectIdentity, Long parentId, boolean entriesInheriting, int owner,
+				int[] loadedSids, long[] aceIds, int[] aceSids, int[] acePermissions, byte[] aceFlags) {
+			this.id = id;
+			this.objectIdentity = objectIdentity;
+			this.objectIdentityHash = objectIdentity.hashCode();
+			this.parentId = parentId;
+			this.entriesInheriting = entriesInheriting;
+			this.owner = owner;
+			this.loadedSids = loadedSids;
+			this.aceIds = aceIds;
+			this.aceSids = aceSids;
+			this.acePermissions = acePermissions;
+			this.aceFlags = aceFlags;
+			int loadedSidCount = (loadedSids != null) ? loadedSids.length : 0;
+			this.memory = ENTRY_MEMORY + ACE_MEMORY * aceIds.length + 4L * loadedSidCount;
+			this.viewMemory = VIEW_MEMORY + VIEW_ACE_MEMORY * aceIds.length + 4L * loadedSidCount;
+		}
+
+		private boolean sameAs(Entry other) {
+			return this.objectIdentity.equals(other.objectIdentity) && Objects.equals(this.parentId, other.parentId)
+					&& this.entriesInheriting == other.entriesInheriting && this.owner == other.owner
+					&& Arrays.equals(this.loadedSids, other.loadedSids) && Arrays.equals(this.aceIds, other.aceIds)
+					&& Arrays.equals(this.aceSids, other.aceSids)
+					&& Arrays.equals(this.acePermissions, other.acePermissions)
+					&& Arrays.equals(this.aceFlags, other.aceFlags);
+		}
+
+		private boolean replaceView(AclImpl expected, AclImpl view) {
+			return VIEW.compareAndSet(this, expected, view);
+		}
+
+	}
+
+	/**
+	 * An open-addressing hash table of entries, keyed either by primary key or by
+	 * {@link ObjectIdentity}.
+	 */
+	private static final class EntryTable {
+
+		private final boolean byId;
+
+		private Entry[] entries = new Entry[16];
+
+		private int size;
+
+		private EntryTable(boolean byId) {
+			this.byId = byId;
+		}
+
+		private Entry get(long id) {
+			int mask = this.entries.length - 1;
+			for (int i = hash(id) & mask;; i = (i + 1) & mask) {
+				Entry entry = this.entries[i];
+				if (entry == null || entry.id == id) {
+					return entry;
+				}
+			}
+		}
+
+		private Entry get(ObjectIdentity objectIdentity) {
+			int mask = this.entries.length - 1;
+			for (int i = spread(objectIdentity.hashCode()) & mask;; i = (i + 1) & mask) {
+				Entry entry = this.entries[i];
+				if (entry == null || entry.objectIdentity.equals(objectIdentity)) {
+					return entry;
+				}
+			}
+		}
+
+		private void put(Entry entry) {
+			if (2 * (this.size + 1) > this.entries.length) {
+				Entry[] entries = this.entries;
+				this.entries = new Entry[entries.length * 2];
+				for (Entry existing : entries) {
+					if (existing != null) {
+						insert(existing);
+					}
+				}
+			}
+			insert(entry);
+			this.size++;
+		}
+
+		private void insert(Entry entry) {
+			int mask = this.entries.length - 1;
+			int i = hash(entry) & mask;
+			while (this.entries[i] != null) {
+				i = (i + 1) & mask;
+			}
+			this.entries[i] = entry;
+		}
+
+		/**
+		 * Removes the entry and shifts back the entries probed past it, so that lookups
+		 * need no tombstones.
+		 */
+		private void remove(Entry entry) {
+			int mask = this.entries.length - 1;
+			int i = hash(entry) & mask;
+			while (this.entries[i] != entry) {
+				if (this.entries[i] == null) {
+					return;
+				}
+				i = (i + 1) & mask;
+			}
+			this.entries[i] = null;
+			this.size--;
+			for (int j = (i + 1) & mask; this.entries[j] != null; j = (j + 1) & mask) {
+				int home = hash(this.entries[j]) & mask;
+				boolean reachable = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+				if (!reachable) {
+					this.entries[i] = this.entries[j];
+					this.entries[j] = null;
+					i = j;
+				}
+			}
+		}
+
+		private void clear() {
+			this.entries = new Entry[16];
+			this.size = 0;
+		}
+
+		private int hash(Entry entry) {
+			return this.byId ? hash(entry.id) : spread(entry.objectIdentityHash);
+		}
+
+		private static int hash(long id) {
+			return spread((int) (id ^ (id >>> 32)));
+		}
+
+		private static int spread(int hash) {
+			int h = hash * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+
+	}
+
+	/**
+	 * Assigns each distinct value an int, counting the references to it so that it is
+	 * released, and its int reused, once it is no longer referenced. Must be used with
+	 * the cache's intern lock held.
+	 */
+	private static final class Interner<T> {
+
+		private final Map<T, Integer> ids = new HashMap<>();
+
+		private Object[] values = new Object[16];
+
+		private int[] references = new int[16];
+
+		private int[] freeIds = new int[16];
+
+		private int freeIdCount;
+
+		private int nextId;
+
+		private int intern(T value) {
+			Integer id = this.ids.get(value);
+			if (id != null) {
+				this.references[id]++;
+				return id;
+			}
+			int newId;
+			if (this.freeIdCount > 0) {
+				newId = this.freeIds[--this.freeIdCount];
+			}
+			else {
+				newId = this.nextId++;
+				if (newId == this.values.length) {
+					this.values = Arrays.copyOf(this.values, newId * 2);
+					this.references = Arrays.copyOf(this.references, newId * 2);
+				}
+			}
+			this.values[newId] = value;
+			this.references[newId] = 1;
+			this.ids.put(value, newId);
+			return newId;
+		}
+
+		@SuppressWarnings("unchecked")
+		private T get(int id) {
+			return (T) this.values[id];
+		}
+
+		/**
+		 * Drops a reference to the value with the given int.
+		 * @return whether the value is no longer referenced and has been released
+		 */
+		private boolean release(int id) {
+			if (--this.references[id] > 0) {
+				return false;
+			}
+			this.ids.remove(this.values[id]);
+			this.values[id] = null;
+			if (this.freeIdCount == this.freeIds.length) {
+				this.freeIds = Arrays.copyOf(this.freeIds, this.freeIdCount * 2);
+			}
+			this.freeIds[this.freeIdCount++] = id;
+			return true;
+		}
+
+		private int size() {
+			return this.ids.size();
+		}
+
+	}
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.security.acls.model.AccessControlEntry;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link PermissionGrantingStrategy} making the same decisions as the
+ * {@link DefaultPermissionGrantingStrategy}, but without scanning all entries of the ACL
+ * for each permission and SID.
+ * <p>
+ * The first time an {@link AclImpl} is evaluated, its entries are indexed by {@link Sid}
+ * and permission mask, keeping the first entry for each combination. A check then costs
+ * one lookup per permission and SID, regardless of the number of entries. The index is
+ * discarded whenever the entries of the ACL are modified. Other {@link Acl}
+ * implementations are indexed on every check.
+ * <p>
+ * Like the {@link DefaultPermissionGrantingStrategy}, permissions are compared by exact
+ * mask. {@link Sid}s must implement {@link Object#hashCode()} consistently with
+ * {@link Object#equals(Object)}, as the built-in ones do.
+ *
+ * @since 5.8
+ * @see DefaultPermissionGrantingStrategy#isGranted(Acl, List, List, boolean)
+ */
+public class IndexedPermissionGrantingStrategy implements PermissionGrantingStrategy {
+
+	private final transient AuditLogger auditLogger;
+
+	/**
+	 * Creates an instance with the logger which will be used to record granting and
+	 * denial of requested permissions.
+	 */
+	public IndexedPermissionGrantingStrategy(AuditLogger auditLogger) {
+		Assert.notNull(auditLogger, "auditLogger cannot be null");
+		this.auditLogger = auditLogger;
+	}
+
+	/**
+	 * Determines authorization with the same semantics as
+	 * {@link DefaultPermissionGrantingStrategy#isGranted(Acl, List, List, boolean)}: for
+	 * each permission in order, the SIDs are considered in order, and the first entry
+	 * matching the permission and SID decides. A granting entry grants access right away,
+	 * while a denying entry moves on to the next permission, the first one of them being
+	 * audited if no permission is granted. If no entry matches at all, the parent ACL is
+	 * consulted if entries are inherited.
+	 * @param permission the exact permissions to scan for (order is important)
+	 * @param sids the exact SIDs to scan for (order is important)
+	 * @param administrativeMode if <code>true</code> denotes the query is for
+	 * administrative purposes and no auditing will be undertaken
+	 * @return <code>true</code> if one of the permissions has been granted,
+	 * <code>false</code> if one of the permissions has been specifically revoked
+	 * @throws NotFoundException if an exact ACE for one of the permission bit masks and
+	 * SID combination could not be found
+	 */
+	@Override
+	public boolean isGranted(Acl acl, List<Permission> permission, List<Sid> sids, boolean administrativeMode)
+			throws NotFoundException {
+		AceIndex index = (acl instanceof AclImpl) ? ((AclImpl) acl).getAceIndex() : new AceIndex(acl.getEntries());
+		AccessControlEntry firstRejection = null;
+		for (Permission p : permission) {
+			int mask = p.getMask();
+			for (Sid sid : sids) {
+				AccessControlEntry ace = index.find(sid, mask);
+				if (ace == null) {
+					continue;
+				}
+				if (ace.isGranting()) {
+					if (!administrativeMode) {
+						this.auditLogger.logIfNeeded(true, ace);
+					}
+					return true;
+				}
+				if (firstRejection == null) {
+					firstRejection = ace;
+				}
+				break; // this permission is rejected, try the next one
+			}
+		}
+		if (firstRejection != null) {
+			if (!administrativeMode) {
+				this.auditLogger.logIfNeeded(false, firstRejection);
+			}
+			return false;
+		}
+		if (acl.isEntriesInheriting() && (acl.getParentAcl() != null)) {
+			return acl.getParentAcl().isGranted(permission, sids, false);
+		}
+		throw new NotFoundException("Unable to locate a matching ACE for passed permissions and SIDs");
+	}
+
+	/**
+	 * The first {@link AccessControlEntry} of an ACL for each {@link Sid} and permission
+	 * mask.
+	 */
+	static final class AceIndex {
+
+		private final Map<Sid, SidEntries> entriesBySid = new HashMap<>();
+
+		AceIndex(List<AccessControlEntry> aces) {
+			for (AccessControlEntry ace : aces) {
+				this.entriesBySid.computeIfAbsent(ace.getSid(), (sid) -> new SidEntries()).add(ace);
+			}
+		}
+
+		AccessControlEntry find(Sid sid, int mask) {
+			SidEntries entries = this.entriesBySid.get(sid);
+			return (entries != null) ? entries.find(mask) : null;
+		}
+
+	}
+
+	/**
+	 * The first entry for each distinct mask granted or denied to a {@link Sid}, which are
+	 * few enough to be searched linearly.
+	 */
+	private static final class SidEntries {
+
+		private int[] masks = new int[2];
+
+		private AccessControlEntry[] aces = new AccessControlEntry[2];
+
+		private int size;
+
+		private void add(AccessControlEntry ace) {
+			int mask = ace.getPermission().getMask();
+			if (find(mask) != null) {
+				return;
+			}
+			if (this.size == this.masks.length) {
+				this.masks = Arrays.copyOf(this.masks, this.size * 2);
+				this.aces = Arrays.copyOf(this.aces, this.size * 2);
+			}
+			this.masks[this.size] = mask;
+			this.aces[this.size] = ace;
+			this.size++;
+		}
+
+		private AccessControlEntry find(int mask) {
+			for (int i = 0; i < this.size; i++) {
+				if (this.masks[i] == mask) {
+					return this.aces[i];
+				}
+			}
+			return null;
+		}
+
+	}
+
+}
@@ -21,6 +21,7 @@ import java.lang.reflect.Field;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -28,11 +29,20 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.sql.DataSource;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import org.springframework.core.convert.ConversionException;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.core.log.LogMessage;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.security.acls.domain.AccessControlEntryImpl;
@@ -57,6 +67,7 @@ import org.springframework.security.acls.model.PermissionGrantingStrategy;
 import org.springframework.security.acls.model.Sid;
 import org.springframework.security.acls.model.UnloadedSidException;
 import org.springframework.security.util.FieldUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
 
 /**
@@ -76,6 +87,13 @@ import org.springframework.util.Assert;
  * or column names, each of these SQL clauses can be customized, but they must be
  * consistent with each other and with the expected result set generated by the default
  * values.
+ * <p>
+ * Batches are loaded one after the other on the calling thread unless an
+ * {@link #setBatchExecutor(Executor) executor} is configured and no transaction is
+ * active, in which case they are issued concurrently. The batch size can be
+ * {@link #setTargetBatchLatency(Duration) tuned} from the observed query latency, and on
+ * databases supporting recursive common table expressions the whole parent chain of a
+ * batch can be {@link #setLookupParentsRecursively(boolean) resolved} in the same query.
  *
  * @author Ben Alex
  */
@@ -108,6 +126,26 @@ public class BasicLookupStrategy implements LookupStrategy {
 	public static final String DEFAULT_ORDER_BY_CLAUSE = ") order by acl_object_identity.object_id_identity"
 			+ " asc, acl_entry.ace_order asc";
 
+	/**
+	 * @since 5.8
+	 */
+	public static final String DEFAULT_RECURSIVE_LOOKUP_WITH_CLAUSE = "with recursive acl_ancestors (id) as ("
+			+ "select acl_object_identity.id from acl_object_identity "
+			+ "left join acl_class on acl_class.id = acl_object_identity.object_id_class where ( ";
+
+	/**
+	 * @since 5.8
+	 */
+	public static final String DEFAULT_RECURSIVE_LOOKUP_UNION_CLAUSE = ") union "
+			+ "select acl_object_identity.parent_object from acl_object_identity "
+			+ "join acl_ancestors on acl_ancestors.id = acl_object_identity.id "
+			+ "where acl_object_identity.parent_object is not null) ";
+
+	private static final String RECURSIVE_LOOKUP_WHERE_CLAUSE = "acl_object_identity.id in "
+			+ "(select id from acl_ancestors)";
+
+	private final Log logger = LogFactory.getLog(getClass());
+
 	private final AclAuthorizationStrategy aclAuthorizationStrategy;
 
 	private ObjectIdentityGenerator objectIdentityGenerator;
@@ -122,6 +160,20 @@ public class BasicLookupStrategy implements LookupStrategy {
 
 	private int batchSize = 50;
 
+	private volatile int adaptedBatchSize = 50;
+
+	private Duration targetBatchLatency;
+
+	private int maxBatchSize = 500;
+
+	private Executor batchExecutor;
+
+	private boolean lookupParentsRecursively;
+
+	private final LongAdder lookupCount = new LongAdder();
+
+	private final LongAdder roundTripCount = new LongAdder();
+
 	private final Field fieldAces = FieldUtils.getField(AclImpl.class, "aces");
 
 	private final Field fieldAcl = FieldUtils.getField(AccessControlEntryImpl.class, "acl");
@@ -135,6 +187,10 @@ public class BasicLookupStrategy implements LookupStrategy {
 
 	private String orderByClause = DEFAULT_ORDER_BY_CLAUSE;
 
+	private String recursiveLookupWithClause = DEFAULT_RECURSIVE_LOOKUP_WITH_CLAUSE;
+
+	private String recursiveLookupUnionClause = DEFAULT_RECURSIVE_LOOKUP_UNION_CLAUSE;
+
 	private AclClassIdUtils aclClassIdUtils;
 
 	/**
@@ -178,14 +234,37 @@ public class BasicLookupStrategy implements LookupStrategy {
 		StringBuilder sqlStringBldr = new StringBuilder(
 				startSql.length() + endSql.length() + requiredRepetitions * (repeatingSql.length() + 4));
 		sqlStringBldr.append(startSql);
+		appendRepeatingSql(sqlStringBldr, repeatingSql, requiredRepetitions);
+		sqlStringBldr.append(endSql);
+		return sqlStringBldr.toString();
+	}
+
+	/**
+	 * Builds a query selecting the requested object identities together with all of their
+	 * ancestors, which are collected by a recursive common table expression.
+	 */
+	private String computeRecursiveSql(String repeatingSql, int requiredRepetitions) {
+		Assert.isTrue(requiredRepetitions > 0, "requiredRepetitions must be > 0");
+		StringBuilder sqlStringBldr = new StringBuilder(this.recursiveLookupWithClause.length()
+				+ this.recursiveLookupUnionClause.length() + this.selectClause.length()
+				+ RECURSIVE_LOOKUP_WHERE_CLAUSE.length() + this.orderByClause.length()
+				+ requiredRepetitions * (repeatingSql.length() + 4));
+		sqlStringBldr.append(this.recursiveLookupWithClause);
+		appendRepeatingSql(sqlStringBldr, repeatingSql, requiredRepetitions);
+		sqlStringBldr.append(this.recursiveLookupUnionClause);
+		sqlStringBldr.append(this.selectClause);
+		sqlStringBldr.append(RECURSIVE_LOOKUP_WHERE_CLAUSE);
+		sqlStringBldr.append(this.orderByClause);
+		return sqlStringBldr.toString();
+	}
+
+	private static void appendRepeatingSql(StringBuilder sqlStringBldr, String repeatingSql, int requiredRepetitions) {
 		for (int i = 1; i <= requiredRepetitions; i++) {
 			sqlStringBldr.append(repeatingSql);
 			if (i != requiredRepetitions) {
 				sqlStringBldr.append(" or ");
 			}
 		}
-		sqlStringBldr.append(endSql);
-		return sqlStringBldr.toString();
 	}
 
 	@SuppressWarnings("unchecked")
@@ -222,17 +301,20 @@ public class BasicLookupStrategy implements LookupStrategy {
 	 * @param acls the AclImpls (with StubAclParents)
 	 * @param findNow Long-based primary keys to retrieve
 	 * @param sids
+	 * @param roundTrips the number of queries issued so far for the current lookup
 	 */
-	private void lookupPrimaryKeys(final Map<Serializable, Acl> acls, final Set<Long> findNow, final List<Sid> sids) {
+	private void lookupPrimaryKeys(final Map<Serializable, Acl> acls, final Set<Long> findNow, final List<Sid> sids,
+			AtomicInteger roundTrips) {
 		Assert.notNull(acls, "ACLs are required");
 		Assert.notEmpty(findNow, "Items to find now required");
 		String sql = computeRepeatingSql(this.lookupPrimaryKeysWhereClause, findNow.size());
 		Set<Long> parentsToLookup = this.jdbcTemplate.query(sql, (ps) -> setKeys(ps, findNow),
-				new ProcessResultSet(acls, sids));
+				new ProcessResultSet(acls, sids, false));
+		roundTrips.incrementAndGet();
 		// Lookup the parents, now that our JdbcTemplate has released the database
 		// connection (SEC-547)
 		if (parentsToLookup.size() > 0) {
-			lookupPrimaryKeys(acls, parentsToLookup, sids);
+			lookupPrimaryKeys(acls, parentsToLookup, sids, roundTrips);
 		}
 	}
 
@@ -266,9 +348,16 @@ public class BasicLookupStrategy implements LookupStrategy {
 	public final Map<ObjectIdentity, Acl> readAclsById(List<ObjectIdentity> objects, List<Sid> sids) {
 		Assert.isTrue(this.batchSize >= 1, "BatchSize must be >= 1");
 		Assert.notEmpty(objects, "Objects to lookup required");
+		int batchSize = getCurrentBatchSize();
+		AtomicInteger roundTrips = new AtomicInteger();
 		// Map<ObjectIdentity,Acl>
 		// contains FULLY loaded Acl objects
 		Map<ObjectIdentity, Acl> result = new HashMap<>();
+		// batches to be issued concurrently, if a batch executor is configured; within a
+		// transaction, batches are loaded on its connection to see the same data
+		boolean concurrentBatches = this.batchExecutor != null
+				&& !TransactionSynchronizationManager.isActualTransactionActive();
+		List<Set<ObjectIdentity>> batchesToLoad = new ArrayList<>();
 		Set<ObjectIdentity> currentBatchToLoad = new HashSet<>();
 		for (int i = 0; i < objects.size(); i++) {
 			final ObjectIdentity oid = objects.get(i);
@@ -295,22 +384,91 @@ public class BasicLookupStrategy implements LookupStrategy {
 				currentBatchToLoad.add(oid);
 			}
 			// Is it time to load from JDBC the currentBatchToLoad?
-			if ((currentBatchToLoad.size() == this.batchSize) || ((i + 1) == objects.size())) {
+			if ((currentBatchToLoad.size() == batchSize) || ((i + 1) == objects.size())) {
 				if (currentBatchToLoad.size() > 0) {
-					Map<ObjectIdentity, Acl> loadedBatch = lookupObjectIdentities(currentBatchToLoad, sids);
-					// Add loaded batch (all elements 100% initialized) to results
-					result.putAll(loadedBatch);
-					// Add the loaded batch to the cache
-					for (Acl loadedAcl : loadedBatch.values()) {
-						this.aclCache.putInCache((AclImpl) loadedAcl);
+					if (concurrentBatches) {
+						batchesToLoad.add(currentBatchToLoad);
+						currentBatchToLoad = new HashSet<>();
+					}
+					else {
+						Map<ObjectIdentity, Acl> loadedBatch = lookupBatch(currentBatchToLoad, sids, roundTrips);
+						putLoadedBatch(result, loadedBatch);
+						currentBatchToLoad.clear();
 					}
-					currentBatchToLoad.clear();
 				}
 			}
 		}
+		if (batchesToLoad.size() == 1) {
+			putLoadedBatch(result, lookupBatch(batchesToLoad.get(0), sids, roundTrips));
+		}
+		else if (batchesToLoad.size() > 1) {
+			for (Map<ObjectIdentity, Acl> loadedBatch : lookupBatchesConcurrently(batchesToLoad, sids, roundTrips)) {
+				putLoadedBatch(result, loadedBatch);
+			}
+		}
+		this.lookupCount.increment();
+		this.roundTripCount.add(roundTrips.get());
+		this.logger.debug(LogMessage.format("Looked up %s ACLs with %s queries", objects.size(), roundTrips.get()));
 		return result;
 	}
 
+	private void putLoadedBatch(Map<ObjectIdentity, Acl> result, Map<ObjectIdentity, Acl> loadedBatch) {
+		// Add loaded batch (all elements 100% initialized) to results
+		result.putAll(loadedBatch);
+		// Add the loaded batch to the cache
+		for (Acl loadedAcl : loadedBatch.values()) {
+			this.aclCache.putInCache((AclImpl) loadedAcl);
+		}
+	}
+
+	private List<Map<ObjectIdentity, Acl>> lookupBatchesConcurrently(List<Set<ObjectIdentity>> batches,
+			List<Sid> sids, AtomicInteger roundTrips) {
+		List<CompletableFuture<Map<ObjectIdentity, Acl>>> futures = new ArrayList<>(batches.size());
+		for (Set<ObjectIdentity> batch : batches) {
+			futures.add(CompletableFuture.supplyAsync(() -> lookupBatch(batch, sids, roundTrips), this.batchExecutor));
+		}
+		List<Map<ObjectIdentity, Acl>> loadedBatches = new ArrayList<>(futures.size());
+		try {
+			for (CompletableFuture<Map<ObjectIdentity, Acl>> future : futures) {
+				loadedBatches.add(future.join());
+			}
+		}
+		catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			if (ex.getCause() instanceof Error) {
+				throw (Error) ex.getCause();
+			}
+			throw ex;
+		}
+		return loadedBatches;
+	}
+
+	/**
+	 * Looks up a batch and, if a target batch latency is set, adapts the batch size to
+	 * the time it took: the batch size is halved when the target is exceeded, and doubled
+	 * (up to the maximum batch size) when a full batch completed in less than half of it.
+	 */
+	private Map<ObjectIdentity, Acl> lookupBatch(Set<ObjectIdentity> batch, List<Sid> sids,
+			AtomicInteger roundTrips) {
+		if (this.targetBatchLatency == null) {
+			return lookupObjectIdentities(batch, sids, roundTrips);
+		}
+		long start = System.nanoTime();
+		Map<ObjectIdentity, Acl> loadedBatch = lookupObjectIdentities(batch, sids, roundTrips);
+		long elapsed = System.nanoTime() - start;
+		long target = this.targetBatchLatency.toNanos();
+		int current = this.adaptedBatchSize;
+		if (elapsed > target && current > 1) {
+			this.adaptedBatchSize = Math.max(1, current / 2);
+		}
+		else if (elapsed < target / 2 && batch.size() >= current && current < this.maxBatchSize) {
+			this.adaptedBatchSize = (int) Math.min(this.maxBatchSize, 2L * current);
+		}
+		return loadedBatch;
+	}
+
 	/**
 	 * Looks up a batch of <code>ObjectIdentity</code>s directly from the database.
 	 * <p>
@@ -322,7 +480,7 @@ public class BasicLookupStrategy implements LookupStrategy {
 	 * properly-configured parent ACLs.
 	 */
 	private Map<ObjectIdentity, Acl> lookupObjectIdentities(final Collection<ObjectIdentity> objectIdentities,
-			List<Sid> sids) {
+			List<Sid> sids, AtomicInteger roundTrips) {
 		Assert.notEmpty(objectIdentities, "Must provide identities to lookup");
 
 		// contains Acls with StubAclParents
@@ -330,15 +488,25 @@ public class BasicLookupStrategy implements LookupStrategy {
 
 		// Make the "acls" map contain all requested objectIdentities
 		// (including markers to each parent in the hierarchy)
-		String sql = computeRepeatingSql(this.lookupObjectIdentitiesWhereClause, objectIdentities.size());
+		String sql = this.lookupParentsRecursively
+				? computeRecursiveSql(this.lookupObjectIdentitiesWhereClause, objectIdentities.size())
+				: computeRepeatingSql(this.lookupObjectIdentitiesWhereClause, objectIdentities.size());
 
 		Set<Long> parentsToLookup = this.jdbcTemplate.query(sql,
-				(ps) -> setupLookupObjectIdentitiesStatement(ps, objectIdentities), new ProcessResultSet(acls, sids));
+				(ps) -> setupLookupObjectIdentitiesStatement(ps, objectIdentities),
+				new ProcessResultSet(acls, sids, this.lookupParentsRecursively));
+		roundTrips.incrementAndGet();
+
+		// The recursive query returns the parents as well, though not necessarily
+		// before their children
+		if (this.lookupParentsRecursively) {
+			parentsToLookup.removeIf(acls::containsKey);
+		}
 
 		// Lookup the parents, now that our JdbcTemplate has released the database
 		// connection (SEC-547)
 		if (parentsToLookup.size() > 0) {
-			lookupPrimaryKeys(acls, parentsToLookup, sids);
+			lookupPrimaryKeys(acls, parentsToLookup, sids, roundTrips);
 		}
 
 		// Finally, convert our "acls" containing StubAclParents into true Acls
@@ -450,6 +618,120 @@ public class BasicLookupStrategy implements LookupStrategy {
 
 	public final void setBatchSize(int batchSize) {
 		this.batchSize = batchSize;
+		this.adaptedBatchSize = batchSize;
+	}
+
+	/**
+	 * Enables tuning the batch size from the observed query latency. The configured
+	 * {@link #setBatchSize(int) batch size} is used as a starting point, halved whenever
+	 * loading a batch takes longer than the given latency and doubled, up to the
+	 * {@link #setMaxBatchSize(int) maximum batch size}, whenever a full batch loads in
+	 * less than half of it. Defaults to {@code null}, which disables tuning.
+	 * @param targetBatchLatency the time loading a batch should take
+	 * @since 5.8
+	 */
+	public final void setTargetBatchLatency(Duration targetBatchLatency) {
+		Assert.isTrue(targetBatchLatency == null || targetBatchLatency.compareTo(Duration.ZERO) > 0,
+				"targetBatchLatency must be positive");
+		this.targetBatchLatency = targetBatchLatency;
+	}
+
+	/**
+	 * The largest batch size tuning may arrive at, which should keep the number of bind
+	 * parameters of a query within the limits of the database. Defaults to 500.
+	 * @param maxBatchSize the maximum batch size
+	 * @since 5.8
+	 * @see #setTargetBatchLatency(Duration)
+	 */
+	public final void setMaxBatchSize(int maxBatchSize) {
+		Assert.isTrue(maxBatchSize >= 1, "maxBatchSize must be >= 1");
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Sets the {@link Executor} on which the batches of a lookup are issued concurrently.
+	 * The executor should be bounded to no more threads than the {@link DataSource} has
+	 * connections, and the {@link AclCache} must support concurrent reads. Defaults to
+	 * {@code null}, in which case batches are loaded one after the other on the calling
+	 * thread.
+	 * <p>
+	 * Batches issued on the executor use their own connections, outside of the caller's
+	 * transaction, so they may not see the same data as the caller, such as its own
+	 * uncommitted changes. Hence, when a transaction is active on the calling thread, the
+	 * batches are loaded on the calling thread regardless of this executor.
+	 * @param batchExecutor the executor to use
+	 * @since 5.8
+	 */
+	public final void setBatchExecutor(Executor batchExecutor) {
+		this.batchExecutor = batchExecutor;
+	}
+
+	/**
+	 * Whether the parent chain of the looked up object identities should be resolved in
+	 * the same query, using a recursive common table expression, instead of issuing one
+	 * query per level of the hierarchy. Only enable this if the database supports
+	 * {@code with recursive}, or customize the recursive clauses for its dialect. Defaults
+	 * to {@code false}.
+	 * @param lookupParentsRecursively whether to look up parents with a recursive query
+	 * @since 5.8
+	 * @see #setRecursiveLookupWithClause(String)
+	 * @see #setRecursiveLookupUnionClause(String)
+	 */
+	public final void setLookupParentsRecursively(boolean lookupParentsRecursively) {
+		this.lookupParentsRecursively = lookupParentsRecursively;
+	}
+
+	/**
+	 * The SQL opening the recursive common table expression named {@code acl_ancestors},
+	 * up to the where clause selecting the requested object identities.
+	 * @param recursiveLookupWithClause the with clause, which defaults to
+	 * {@link #DEFAULT_RECURSIVE_LOOKUP_WITH_CLAUSE}.
+	 * @since 5.8
+	 */
+	public final void setRecursiveLookupWithClause(String recursiveLookupWithClause) {
+		Assert.hasText(recursiveLookupWithClause, "recursiveLookupWithClause cannot be empty");
+		this.recursiveLookupWithClause = recursiveLookupWithClause;
+	}
+
+	/**
+	 * The SQL closing the recursive common table expression, which adds the parent of
+	 * each row to {@code acl_ancestors}.
+	 * @param recursiveLookupUnionClause the union clause, which defaults to
+	 * {@link #DEFAULT_RECURSIVE_LOOKUP_UNION_CLAUSE}.
+	 * @since 5.8
+	 */
+	public final void setRecursiveLookupUnionClause(String recursiveLookupUnionClause) {
+		Assert.hasText(recursiveLookupUnionClause, "recursiveLookupUnionClause cannot be empty");
+		this.recursiveLookupUnionClause = recursiveLookupUnionClause;
+	}
+
+	/**
+	 * The batch size currently used, which differs from the configured one once tuned.
+	 * @return the current batch size
+	 * @since 5.8
+	 * @see #setTargetBatchLatency(Duration)
+	 */
+	public int getCurrentBatchSize() {
+		return (this.targetBatchLatency != null) ? this.adaptedBatchSize : this.batchSize;
+	}
+
+	/**
+	 * The number of calls to {@link #readAclsById(List, List)} so far.
+	 * @return the number of lookups
+	 * @since 5.8
+	 */
+	public long getLookupCount() {
+		return this.lookupCount.sum();
+	}
+
+	/**
+	 * The number of queries issued by all lookups so far. The number of queries of each
+	 * lookup is logged at debug level.
+	 * @return the number of queries
+	 * @since 5.8
+	 */
+	public long getRoundTripCount() {
+		return this.roundTripCount.sum();
 	}
 
 	/**
@@ -507,10 +789,13 @@ public class BasicLookupStrategy implements LookupStrategy {
 
 		private final List<Sid> sids;
 
-		ProcessResultSet(Map<Serializable, Acl> acls, List<Sid> sids) {
+		private final boolean parentsIncluded;
+
+		ProcessResultSet(Map<Serializable, Acl> acls, List<Sid> sids, boolean parentsIncluded) {
 			Assert.notNull(acls, "ACLs cannot be null");
 			this.acls = acls;
 			this.sids = sids; // can be null
+			this.parentsIncluded = parentsIncluded;
 		}
 
 		/**
@@ -540,6 +825,12 @@ public class BasicLookupStrategy implements LookupStrategy {
 						continue; // skip this while iteration
 					}
 
+					// The parent is part of the result set, unless it's missing
+					if (this.parentsIncluded) {
+						parentIdsToLookup.add(parentId);
+						continue;
+					}
+
 					// Now try to find it in the cache
 					MutableAcl cached = BasicLookupStrategy.this.aclCache.getFromCache(parentId);
 					if ((cached == null) || !cached.isSidLoaded(this.sids)) {
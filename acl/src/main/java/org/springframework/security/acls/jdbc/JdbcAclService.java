@@ -144,6 +144,17 @@ public class JdbcAclService implements AclService {
 		return result;
 	}
 
+	/**
+	 * Reads the ACLs of all objects with a single
+	 * {@link LookupStrategy#readAclsById(List, List)} call, leaving out the objects
+	 * without an ACL.
+	 * @since 5.8
+	 */
+	@Override
+	public Map<ObjectIdentity, Acl> readExistingAclsById(List<ObjectIdentity> objects, List<Sid> sids) {
+		return this.lookupStrategy.readAclsById(objects, sids);
+	}
+
 	/**
 	 * Allows customization of the SQL query used to find child object identities.
 	 * @param findChildrenSql
@@ -16,6 +16,7 @@
 
 package org.springframework.security.acls.model;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -100,4 +101,35 @@ public interface AclService {
 	 */
 	Map<ObjectIdentity, Acl> readAclsById(List<ObjectIdentity> objects, List<Sid> sids) throws NotFoundException;
 
+	/**
+	 * Same as {@link #readAclsById(List, List)} except that objects without an
+	 * <tt>Acl</tt> are left out of the returned map rather than failing the whole read.
+	 * <p>
+	 * The default implementation splits the objects in halves and reads each half again
+	 * whenever {@link #readAclsById(List, List)} throws {@link NotFoundException}, so
+	 * that the objects which have an <tt>Acl</tt> are still read in bulk. Implementations
+	 * able to report the found subset directly should override it.
+	 * </p>
+	 * @param objects the objects to find {@link Acl} information for
+	 * @param sids the security identities for which {@link Acl} information is required
+	 * (may be <tt>null</tt> to denote all entries)
+	 * @return a map with one element for each {@link ObjectIdentity} passed as an argument
+	 * which has an {@link Acl} (never <tt>null</tt>)
+	 * @since 5.8
+	 */
+	default Map<ObjectIdentity, Acl> readExistingAclsById(List<ObjectIdentity> objects, List<Sid> sids) {
+		try {
+			return readAclsById(objects, sids);
+		}
+		catch (NotFoundException ex) {
+			if (objects.size() <= 1) {
+				return new HashMap<>();
+			}
+			int middle = objects.size() / 2;
+			Map<ObjectIdentity, Acl> acls = new HashMap<>(readExistingAclsById(objects.subList(0, middle), sids));
+			acls.putAll(readExistingAclsById(objects.subList(middle, objects.size()), sids));
+			return acls;
+		}
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,18 @@
 
 package org.springframework.security.acls;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
 import org.springframework.security.acls.model.Acl;
 import org.springframework.security.acls.model.AclService;
+import org.springframework.security.acls.model.NotFoundException;
 import org.springframework.security.acls.model.ObjectIdentity;
 import org.springframework.security.acls.model.ObjectIdentityRetrievalStrategy;
 import org.springframework.security.acls.model.SidRetrievalStrategy;
@@ -32,7 +38,12 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willCallRealMethod;
+import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 /**
  * @author Luke Taylor
@@ -73,4 +84,79 @@ public class AclPermissionEvaluatorTests {
 		Locale.setDefault(systemLocale);
 	}
 
+	@Test
+	public void hasPermissionsWhenCollectionThenAclsReadOnce() {
+		AclService service = mock(AclService.class);
+		AclPermissionEvaluator pe = new AclPermissionEvaluator(service);
+		ObjectIdentity granted = mock(ObjectIdentity.class);
+		ObjectIdentity denied = mock(ObjectIdentity.class);
+		Object grantedObject = new Object();
+		Object deniedObject = new Object();
+		ObjectIdentityRetrievalStrategy oidStrategy = mock(ObjectIdentityRetrievalStrategy.class);
+		given(oidStrategy.getObjectIdentity(grantedObject)).willReturn(granted);
+		given(oidStrategy.getObjectIdentity(deniedObject)).willReturn(denied);
+		pe.setObjectIdentityRetrievalStrategy(oidStrategy);
+		SidRetrievalStrategy sidStrategy = mock(SidRetrievalStrategy.class);
+		pe.setSidRetrievalStrategy(sidStrategy);
+		Acl grantingAcl = mock(Acl.class);
+		given(grantingAcl.isGranted(anyList(), anyList(), eq(false))).willReturn(true);
+		Acl denyingAcl = mock(Acl.class);
+		given(denyingAcl.isGranted(anyList(), anyList(), eq(false))).willReturn(false);
+		Map<ObjectIdentity, Acl> acls = new HashMap<>();
+		acls.put(granted, grantingAcl);
+		acls.put(denied, denyingAcl);
+		given(service.readExistingAclsById(anyList(), anyList())).willReturn(acls);
+		Authentication authentication = mock(Authentication.class);
+		BitSet result = pe.hasPermissions(authentication,
+				Arrays.asList(deniedObject, grantedObject, null, grantedObject), "READ");
+		assertThat(result.stream()).containsExactly(1, 3);
+		verify(service).readExistingAclsById(eq(Arrays.asList(denied, granted)), anyList());
+		verify(service, never()).readAclById(any(ObjectIdentity.class), anyList());
+		verify(sidStrategy).getSids(authentication);
+	}
+
+	@Test
+	public void hasPermissionsWhenCollectionAndAclMissingThenOnlyMissingAclsReadAgain() {
+		AclService service = mock(AclService.class);
+		AclPermissionEvaluator pe = new AclPermissionEvaluator(service);
+		ObjectIdentity granted = mock(ObjectIdentity.class);
+		ObjectIdentity missing = mock(ObjectIdentity.class);
+		Object grantedObject = new Object();
+		Object missingObject = new Object();
+		ObjectIdentityRetrievalStrategy oidStrategy = mock(ObjectIdentityRetrievalStrategy.class);
+		given(oidStrategy.getObjectIdentity(grantedObject)).willReturn(granted);
+		given(oidStrategy.getObjectIdentity(missingObject)).willReturn(missing);
+		pe.setObjectIdentityRetrievalStrategy(oidStrategy);
+		pe.setSidRetrievalStrategy(mock(SidRetrievalStrategy.class));
+		Acl acl = mock(Acl.class);
+		given(acl.isGranted(anyList(), anyList(), eq(false))).willReturn(true);
+		willCallRealMethod().given(service).readExistingAclsById(anyList(), anyList());
+		given(service.readAclsById(anyList(), anyList())).willThrow(new NotFoundException("missing"));
+		willReturn(Collections.singletonMap(granted, acl)).given(service)
+				.readAclsById(eq(Collections.singletonList(granted)), anyList());
+		BitSet result = pe.hasPermissions(mock(Authentication.class), Arrays.asList(missingObject, grantedObject),
+				"READ");
+		assertThat(result.stream()).containsExactly(1);
+		verify(service).readAclsById(eq(Arrays.asList(missing, granted)), anyList());
+		verify(service).readAclsById(eq(Collections.singletonList(missing)), anyList());
+		verify(service).readAclsById(eq(Collections.singletonList(granted)), anyList());
+		verify(service, never()).readAclById(any(ObjectIdentity.class), anyList());
+	}
+
+	@Test
+	public void hasPermissionsWhenCollectionAndSingleObjectMethodOverriddenThenCalledPerObject() {
+		AclService service = mock(AclService.class);
+		Object grantedObject = new Object();
+		AclPermissionEvaluator pe = new AclPermissionEvaluator(service) {
+			@Override
+			public boolean hasPermission(Authentication authentication, Object domainObject, Object permission) {
+				return domainObject == grantedObject;
+			}
+		};
+		BitSet result = pe.hasPermissions(mock(Authentication.class), Arrays.asList(new Object(), grantedObject),
+				"READ");
+		assertThat(result.stream()).containsExactly(1);
+		verifyZeroInteractions(service);
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,7 +19,9 @@ package org.springframework.security.acls.afterinvocation;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 
@@ -36,10 +38,12 @@ import org.springframework.security.core.Authentication;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 /**
  * @author Luke Taylor
@@ -89,4 +93,53 @@ public class AclEntryAfterInvocationCollectionFilteringProviderTests {
 		verify(service, never()).readAclById(any(ObjectIdentity.class), any(List.class));
 	}
 
+	@Test
+	public void aclsAreReadOnceForAllElements() {
+		AclService service = mock(AclService.class);
+		Object granted = new Object();
+		Object denied = new Object();
+		ObjectIdentity grantedIdentity = mock(ObjectIdentity.class);
+		ObjectIdentity deniedIdentity = mock(ObjectIdentity.class);
+		ObjectIdentityRetrievalStrategy oidStrategy = mock(ObjectIdentityRetrievalStrategy.class);
+		given(oidStrategy.getObjectIdentity(granted)).willReturn(grantedIdentity);
+		given(oidStrategy.getObjectIdentity(denied)).willReturn(deniedIdentity);
+		Acl grantingAcl = mock(Acl.class);
+		given(grantingAcl.isGranted(any(), any(), anyBoolean())).willReturn(true);
+		Acl denyingAcl = mock(Acl.class);
+		given(denyingAcl.isGranted(any(), any(), anyBoolean())).willReturn(false);
+		Map<ObjectIdentity, Acl> acls = new HashMap<>();
+		acls.put(grantedIdentity, grantingAcl);
+		acls.put(deniedIdentity, denyingAcl);
+		given(service.readExistingAclsById(any(), any())).willReturn(acls);
+		AclEntryAfterInvocationCollectionFilteringProvider provider = new AclEntryAfterInvocationCollectionFilteringProvider(
+				service, Arrays.asList(mock(Permission.class)));
+		provider.setObjectIdentityRetrievalStrategy(oidStrategy);
+		provider.setProcessDomainObjectClass(Object.class);
+		provider.setSidRetrievalStrategy(mock(SidRetrievalStrategy.class));
+		Object returned = provider.decide(mock(Authentication.class), new Object(),
+				SecurityConfig.createList("AFTER_ACL_COLLECTION_READ"),
+				new ArrayList(Arrays.asList(granted, denied, null, granted)));
+		assertThat(((List) returned)).containsExactly(granted, null, granted);
+		verify(service).readExistingAclsById(eq(Arrays.asList(grantedIdentity, deniedIdentity)), any());
+		verify(service, never()).readAclById(any(ObjectIdentity.class), any(List.class));
+	}
+
+	@Test
+	public void singleObjectPermissionCheckOverriddenThenCalledPerElement() {
+		AclService service = mock(AclService.class);
+		Object granted = new Object();
+		Object denied = new Object();
+		AclEntryAfterInvocationCollectionFilteringProvider provider = new AclEntryAfterInvocationCollectionFilteringProvider(
+				service, Arrays.asList(mock(Permission.class))) {
+			@Override
+			protected boolean hasPermission(Authentication authentication, Object domainObject) {
+				return domainObject == granted;
+			}
+		};
+		Object returned = provider.decide(mock(Authentication.class), new Object(),
+				SecurityConfig.createList("AFTER_ACL_COLLECTION_READ"), new ArrayList(Arrays.asList(granted, denied)));
+		assertThat(((List) returned)).containsExactly(granted);
+		verifyNoMoreInteractions(service);
+	}
+
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.acls.model.NotFoundException;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link IndexedPermissionGrantingStrategy}.
+ */
+public class IndexedPermissionGrantingStrategyTests {
+
+	private static final String TARGET_CLASS = "org.springframework.security.acls.TargetObject";
+
+	private static final Sid JOE = new PrincipalSid("joe");
+
+	private static final Sid USERS = new GrantedAuthoritySid("ROLE_USER");
+
+	private final ObjectIdentity objectIdentity = new ObjectIdentityImpl(TARGET_CLASS, 100);
+
+	private AclAuthorizationStrategy authzStrategy;
+
+	private AuditLogger auditLogger;
+
+	private IndexedPermissionGrantingStrategy strategy;
+
+	@BeforeEach
+	public void setUp() {
+		this.authzStrategy = mock(AclAuthorizationStrategy.class);
+		this.auditLogger = mock(AuditLogger.class);
+		this.strategy = new IndexedPermissionGrantingStrategy(this.auditLogger);
+	}
+
+	@Test
+	public void isGrantedWhenFirstMatchingEntryDeniesThenDenied() {
+		AclImpl acl = acl(this.strategy);
+		acl.insertAce(0, BasePermission.READ, JOE, false);
+		acl.insertAce(1, BasePermission.READ, JOE, true);
+		acl.insertAce(2, BasePermission.READ, USERS, true);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(JOE, USERS), false)).isFalse();
+		verify(this.auditLogger).logIfNeeded(false, acl.getEntries().get(0));
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(USERS, JOE), false)).isTrue();
+		verify(this.auditLogger).logIfNeeded(true, acl.getEntries().get(2));
+	}
+
+	@Test
+	public void isGrantedWhenAdministrativeModeThenNotAudited() {
+		AclImpl acl = acl(this.strategy);
+		acl.insertAce(0, BasePermission.READ, JOE, true);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(JOE), true)).isTrue();
+		verifyNoInteractions(this.auditLogger);
+	}
+
+	@Test
+	public void isGrantedWhenEntriesModifiedThenIndexRebuilt() {
+		AclImpl acl = acl(this.strategy);
+		acl.insertAce(0, BasePermission.READ, JOE, true);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(JOE), false)).isTrue();
+		acl.insertAce(0, BasePermission.READ, JOE, false);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(JOE), false)).isFalse();
+		acl.updateAce(0, BasePermission.WRITE);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(JOE), false)).isTrue();
+		acl.deleteAce(1);
+		assertThatExceptionOfType(NotFoundException.class)
+				.isThrownBy(() -> acl.isGranted(Arrays.asList(BasePermission.READ), Arrays.asList(JOE), false));
+	}
+
+	@Test
+	public void isGrantedWhenNoMatchThenParentConsulted() {
+		AclImpl parent = acl(this.strategy);
+		parent.insertAce(0, BasePermission.WRITE, USERS, true);
+		AclImpl acl = acl(this.strategy);
+		acl.setParent(parent);
+		acl.insertAce(0, BasePermission.READ, JOE, true);
+		assertThat(acl.isGranted(Arrays.asList(BasePermission.WRITE), Arrays.asList(JOE, USERS), false)).isTrue();
+		acl.setEntriesInheriting(false);
+		assertThatExceptionOfType(NotFoundException.class).isThrownBy(
+				() -> acl.isGranted(Arrays.asList(BasePermission.WRITE), Arrays.asList(JOE, USERS), false));
+	}
+
+	@Test
+	public void isGrantedWhenRandomEntriesThenSameDecisionsAsDefaultStrategy() {
+		Random random = new Random(42);
+		List<Sid> sids = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			sids.add((i % 2 == 0) ? new PrincipalSid("user" + i) : new GrantedAuthoritySid("ROLE_" + i));
+		}
+		List<Permission> permissions = Arrays.asList(BasePermission.READ, BasePermission.WRITE,
+				BasePermission.CREATE, BasePermission.DELETE, BasePermission.ADMINISTRATION);
+		DefaultPermissionGrantingStrategy defaultStrategy = new DefaultPermissionGrantingStrategy(
+				mock(AuditLogger.class));
+		for (int run = 0; run < 200; run++) {
+			AclImpl indexed = acl(this.strategy);
+			AclImpl scanned = acl(defaultStrategy);
+			for (int i = 0; i < 40; i++) {
+				Permission permission = permissions.get(random.nextInt(permissions.size()));
+				Sid sid = sids.get(random.nextInt(sids.size()));
+				boolean granting = random.nextBoolean();
+				indexed.insertAce(i, permission, sid, granting);
+				scanned.insertAce(i, permission, sid, granting);
+			}
+			List<Permission> requested = Arrays.asList(permissions.get(random.nextInt(permissions.size())),
+					permissions.get(random.nextInt(permissions.size())));
+			List<Sid> requestedSids = Arrays.asList(sids.get(random.nextInt(sids.size())),
+					sids.get(random.nextInt(sids.size())), sids.get(random.nextInt(sids.size())));
+			assertThat(decision(indexed, requested, requestedSids))
+					.isEqualTo(decision(scanned, requested, requestedSids));
+		}
+	}
+
+	private String decision(AclImpl acl, List<Permission> permissions, List<Sid> sids) {
+		try {
+			return String.valueOf(acl.isGranted(permissions, sids, false));
+		}
+		catch (NotFoundException ex) {
+			return "not found";
+		}
+	}
+
+	private AclImpl acl(PermissionGrantingStrategy strategy) {
+		return new AclImpl(this.objectIdentity, 1, this.authzStrategy, strategy, null, null, true, JOE);
+	}
+
+}
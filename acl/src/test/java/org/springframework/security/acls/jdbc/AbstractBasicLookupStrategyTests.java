@@ -16,10 +16,13 @@
 
 package org.springframework.security.acls.jdbc;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
@@ -33,6 +36,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.security.acls.TargetObject;
 import org.springframework.security.acls.TargetObjectWithUUID;
 import org.springframework.security.acls.domain.AclAuthorizationStrategy;
@@ -52,6 +56,7 @@ import org.springframework.security.acls.model.ObjectIdentity;
 import org.springframework.security.acls.model.Permission;
 import org.springframework.security.acls.model.Sid;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
@@ -178,6 +183,86 @@ public abstract class AbstractBasicLookupStrategyTests {
 		checkEntries(topParentOid, middleParentOid, childOid, map);
 	}
 
+	@Test
+	public void readAclsByIdWhenBatchExecutorThenBatchesIssuedOnExecutor() {
+		ObjectIdentity topParentOid = new ObjectIdentityImpl(TARGET_CLASS, 100L);
+		ObjectIdentity middleParentOid = new ObjectIdentityImpl(TARGET_CLASS, 101L);
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		AtomicInteger batches = new AtomicInteger();
+		Executor executor = (task) -> {
+			batches.incrementAndGet();
+			task.run();
+		};
+		this.strategy.setBatchExecutor(executor);
+		this.strategy.setBatchSize(1);
+		Map<ObjectIdentity, Acl> map = this.strategy
+				.readAclsById(Arrays.asList(topParentOid, middleParentOid, childOid), null);
+		checkEntries(topParentOid, middleParentOid, childOid, map);
+		assertThat(batches).hasValue(3);
+		assertThat(this.strategy.getLookupCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void readAclsByIdWhenBatchExecutorAndTransactionActiveThenBatchesIssuedOnCallingThread() {
+		ObjectIdentity topParentOid = new ObjectIdentityImpl(TARGET_CLASS, 100L);
+		ObjectIdentity middleParentOid = new ObjectIdentityImpl(TARGET_CLASS, 101L);
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		AtomicInteger batches = new AtomicInteger();
+		this.strategy.setBatchExecutor((task) -> {
+			batches.incrementAndGet();
+			task.run();
+		});
+		this.strategy.setBatchSize(1);
+		TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(getDataSource()));
+		Map<ObjectIdentity, Acl> map = transaction.execute((status) -> this.strategy
+				.readAclsById(Arrays.asList(topParentOid, middleParentOid, childOid), null));
+		checkEntries(topParentOid, middleParentOid, childOid, map);
+		assertThat(batches).hasValue(0);
+	}
+
+	@Test
+	public void readAclsByIdWhenParentsNotCachedThenOneQueryPerLevel() {
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		Map<ObjectIdentity, Acl> map = this.strategy.readAclsById(Arrays.asList(childOid), null);
+		assertThat(map).hasSize(3);
+		assertThat(this.strategy.getRoundTripCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void readAclsByIdWhenLookupParentsRecursivelyThenSingleQuery() {
+		ObjectIdentity topParentOid = new ObjectIdentityImpl(TARGET_CLASS, 100L);
+		ObjectIdentity middleParentOid = new ObjectIdentityImpl(TARGET_CLASS, 101L);
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		this.strategy.setLookupParentsRecursively(true);
+		Map<ObjectIdentity, Acl> map = this.strategy.readAclsById(Arrays.asList(childOid), null);
+		checkEntries(topParentOid, middleParentOid, childOid, map);
+		assertThat(this.strategy.getRoundTripCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void readAclsByIdWhenBatchesFastThenBatchSizeGrows() {
+		ObjectIdentity topParentOid = new ObjectIdentityImpl(TARGET_CLASS, 100L);
+		ObjectIdentity middleParentOid = new ObjectIdentityImpl(TARGET_CLASS, 101L);
+		ObjectIdentity childOid = new ObjectIdentityImpl(TARGET_CLASS, 102L);
+		this.strategy.setBatchSize(1);
+		this.strategy.setTargetBatchLatency(Duration.ofHours(1));
+		this.strategy.readAclsById(Arrays.asList(topParentOid, middleParentOid, childOid), null);
+		assertThat(this.strategy.getCurrentBatchSize()).isEqualTo(2);
+	}
+
+	@Test
+	public void readAclsByIdWhenBatchesSlowThenBatchSizeShrinks() {
+		this.strategy.setBatchSize(4);
+		this.strategy.setTargetBatchLatency(Duration.ofNanos(1));
+		this.strategy.readAclsById(Arrays.asList(new ObjectIdentityImpl(TARGET_CLASS, 100L)), null);
+		assertThat(this.strategy.getCurrentBatchSize()).isEqualTo(2);
+	}
+
+	@Test
+	public void setTargetBatchLatencyWhenNotPositiveThenThrowsIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.strategy.setTargetBatchLatency(Duration.ZERO));
+	}
+
 	private void checkEntries(ObjectIdentity topParentOid, ObjectIdentity middleParentOid, ObjectIdentity childOid,
 			Map<ObjectIdentity, Acl> map) {
 		assertThat(map).hasSize(3);
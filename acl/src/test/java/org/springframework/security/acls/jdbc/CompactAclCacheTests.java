@@ -0,0 +1,194 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.acls.domain.AclAuthorizationStrategy;
+import org.springframework.security.acls.domain.AclAuthorizationStrategyImpl;
+import org.springframework.security.acls.domain.AclImpl;
+import org.springframework.security.acls.domain.BasePermission;
+import org.springframework.security.acls.domain.CompactAclCache;
+import org.springframework.security.acls.domain.ConsoleAuditLogger;
+import org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy;
+import org.springframework.security.acls.domain.GrantedAuthoritySid;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.domain.PrincipalSid;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests {@link CompactAclCache}.
+ */
+public class CompactAclCacheTests {
+
+	private static final String TARGET_CLASS = "org.springframework.security.acls.TargetObject";
+
+	private final AclAuthorizationStrategy aclAuthorizationStrategy = new AclAuthorizationStrategyImpl(
+			new SimpleGrantedAuthority("ROLE_OWNERSHIP"), new SimpleGrantedAuthority("ROLE_AUDITING"),
+			new SimpleGrantedAuthority("ROLE_GENERAL"));
+
+	private final PermissionGrantingStrategy permissionGrantingStrategy = new DefaultPermissionGrantingStrategy(
+			new ConsoleAuditLogger());
+
+	private CompactAclCache cache;
+
+	@BeforeEach
+	public void setUp() {
+		TestingAuthenticationToken auth = new TestingAuthenticationToken("joe", "password", "ROLE_GENERAL");
+		auth.setAuthenticated(true);
+		SecurityContextHolder.getContext().setAuthentication(auth);
+		this.cache = new CompactAclCache(this.permissionGrantingStrategy, this.aclAuthorizationStrategy);
+	}
+
+	@AfterEach
+	public void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	public void constructorRejectsNullParameters() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CompactAclCache(null, null));
+	}
+
+	@Test
+	public void getFromCacheWhenPutThenEqualAclRebuilt() {
+		MutableAcl acl = acl(1L, 100L);
+		acl.insertAce(0, BasePermission.READ, new PrincipalSid("joe"), true);
+		acl.insertAce(1, BasePermission.WRITE, new GrantedAuthoritySid("ROLE_USER"), false);
+		this.cache.putInCache(acl);
+		MutableAcl fromCache = this.cache.getFromCache(1L);
+		assertThat(fromCache).isEqualTo(acl).isNotSameAs(acl);
+		assertThat(fromCache.getEntries()).hasSize(2);
+		assertThat(fromCache.getEntries().get(0).getAcl()).isSameAs(fromCache);
+		assertThat(fromCache.getEntries().get(1).isGranting()).isFalse();
+		assertThat(this.cache.getFromCache(new ObjectIdentityImpl(TARGET_CLASS, 100L))).isEqualTo(acl);
+		assertThat(this.cache.getFromCache(2L)).isNull();
+		assertThat(this.cache.getHitCount()).isEqualTo(2);
+		assertThat(this.cache.getMissCount()).isEqualTo(1);
+		assertThat(this.cache.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	public void getFromCacheWhenParentEvictedThenMiss() {
+		MutableAcl parent = acl(1L, 100L);
+		MutableAcl child = acl(2L, 101L);
+		child.setParent(parent);
+		this.cache.putInCache(child);
+		assertThat(this.cache.getSize()).isEqualTo(2);
+		MutableAcl fromCache = this.cache.getFromCache(2L);
+		assertThat(fromCache).isEqualTo(child);
+		assertThat(fromCache.getParentAcl()).isEqualTo(parent);
+		this.cache.evictFromCache(new ObjectIdentityImpl(TARGET_CLASS, 100L));
+		assertThat(this.cache.getFromCache(2L)).isNull();
+	}
+
+	@Test
+	public void getFromCacheWhenReadAgainThenSameAclReturned() {
+		MutableAcl parent = acl(1L, 100L);
+		MutableAcl child = acl(2L, 101L);
+		child.setParent(parent);
+		this.cache.putInCache(child);
+		MutableAcl fromCache = this.cache.getFromCache(2L);
+		assertThat(this.cache.getFromCache(new ObjectIdentityImpl(TARGET_CLASS, 101L))).isSameAs(fromCache);
+		assertThat(fromCache.getParentAcl()).isSameAs(this.cache.getFromCache(1L));
+		MutableAcl sibling = acl(3L, 102L);
+		sibling.setParent(parent);
+		this.cache.putInCache(sibling);
+		assertThat(this.cache.getFromCache(2L)).isSameAs(fromCache);
+	}
+
+	@Test
+	public void getFromCacheWhenParentReplacedThenAclRebuilt() {
+		MutableAcl parent = acl(1L, 100L);
+		MutableAcl child = acl(2L, 101L);
+		child.setParent(parent);
+		this.cache.putInCache(child);
+		MutableAcl fromCache = this.cache.getFromCache(2L);
+		parent.insertAce(0, BasePermission.READ, new PrincipalSid("joe"), true);
+		this.cache.putInCache(parent);
+		MutableAcl rebuilt = this.cache.getFromCache(2L);
+		assertThat(rebuilt).isNotSameAs(fromCache);
+		assertThat(rebuilt.getParentAcl().getEntries()).hasSize(1);
+	}
+
+	@Test
+	public void putInCacheWhenSameIdThenReplaced() {
+		MutableAcl acl = acl(1L, 100L);
+		this.cache.putInCache(acl);
+		acl.insertAce(0, BasePermission.READ, new PrincipalSid("joe"), true);
+		this.cache.putInCache(acl);
+		assertThat(this.cache.getSize()).isEqualTo(1);
+		assertThat(this.cache.getFromCache(1L).getEntries()).hasSize(1);
+	}
+
+	@Test
+	public void putInCacheWhenMemoryBoundExceededThenEvicted() {
+		this.cache.setMaxMemory(DataSize.ofKilobytes(4));
+		for (long id = 1; id <= 100; id++) {
+			MutableAcl acl = acl(id, 100L + id);
+			acl.insertAce(0, BasePermission.READ, new PrincipalSid("joe"), true);
+			this.cache.putInCache(acl);
+		}
+		assertThat(this.cache.getSize()).isBetween(1, 99);
+		assertThat(this.cache.getEvictionCount()).isEqualTo(100 - this.cache.getSize());
+		assertThat(this.cache.getEstimatedMemory()).isLessThanOrEqualTo(4096);
+		assertThat(this.cache.getFromCache(100L)).isNotNull();
+	}
+
+	@Test
+	public void evictFromCacheWhenSidsNoLongerReferencedThenReleased() {
+		MutableAcl acl = acl(1L, 100L);
+		this.cache.putInCache(acl);
+		long memory = this.cache.getEstimatedMemory();
+		for (long id = 2; id <= 100; id++) {
+			MutableAcl other = acl(id, 100L + id);
+			other.insertAce(0, BasePermission.READ, new PrincipalSid("user" + id), true);
+			this.cache.putInCache(other);
+			this.cache.evictFromCache(id);
+		}
+		assertThat(this.cache.getEstimatedMemory()).isEqualTo(memory);
+		assertThat(this.cache.getFromCache(1L)).isEqualTo(acl);
+		this.cache.evictFromCache(1L);
+		assertThat(this.cache.getEstimatedMemory()).isZero();
+	}
+
+	@Test
+	public void clearCacheThenEmpty() {
+		this.cache.putInCache(acl(1L, 100L));
+		this.cache.clearCache();
+		assertThat(this.cache.getFromCache(1L)).isNull();
+		assertThat(this.cache.getEstimatedMemory()).isZero();
+	}
+
+	private MutableAcl acl(long id, long identifier) {
+		ObjectIdentity identity = new ObjectIdentityImpl(TARGET_CLASS, identifier);
+		return new AclImpl(identity, id, this.aclAuthorizationStrategy, this.permissionGrantingStrategy, null, null,
+				true, new PrincipalSid("joe"));
+	}
+
+}
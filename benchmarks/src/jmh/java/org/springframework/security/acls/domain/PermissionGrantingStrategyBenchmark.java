@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.acls.domain;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.security.acls.model.Permission;
+import org.springframework.security.acls.model.PermissionGrantingStrategy;
+import org.springframework.security.acls.model.Sid;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Measures {@link DefaultPermissionGrantingStrategy} and
+ * {@link IndexedPermissionGrantingStrategy} deciding on an ACL with many entries, for a
+ * user holding a few authorities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PermissionGrantingStrategyBenchmark {
+
+	@Param({ "default", "indexed" })
+	private String strategy;
+
+	@Param({ "10", "100", "1000" })
+	private int entries;
+
+	private AclImpl acl;
+
+	private final List<Permission> permissions = Arrays.asList(BasePermission.WRITE);
+
+	private final List<Sid> sids = Arrays.asList(new PrincipalSid("user"), new GrantedAuthoritySid("ROLE_USER"),
+			new GrantedAuthoritySid("ROLE_EDITOR"));
+
+	@Setup
+	public void setup() {
+		ConsoleAuditLogger auditLogger = new ConsoleAuditLogger();
+		PermissionGrantingStrategy grantingStrategy = "indexed".equals(this.strategy)
+				? new IndexedPermissionGrantingStrategy(auditLogger)
+				: new DefaultPermissionGrantingStrategy(auditLogger);
+		PrincipalSid owner = new PrincipalSid("owner");
+		this.acl = new AclImpl(new ObjectIdentityImpl("Document", 1L), 1L,
+				new AclAuthorizationStrategyImpl(new SimpleGrantedAuthority("ROLE_ADMINISTRATOR")), grantingStrategy,
+				null, null, true, owner);
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("owner", "password", "ROLE_ADMINISTRATOR"));
+		try {
+			// the matching entry comes last
+			for (int i = 0; i < this.entries - 1; i++) {
+				this.acl.insertAce(i, BasePermission.READ, new PrincipalSid("user" + i), true);
+			}
+			this.acl.insertAce(this.entries - 1, BasePermission.WRITE, new GrantedAuthoritySid("ROLE_EDITOR"), true);
+		}
+		finally {
+			SecurityContextHolder.clearContext();
+		}
+	}
+
+	@Benchmark
+	public boolean isGranted() {
+		return this.acl.isGranted(this.permissions, this.sids, false);
+	}
+
+}
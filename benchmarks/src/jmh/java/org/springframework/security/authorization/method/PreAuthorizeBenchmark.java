@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authorization.method;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Measures invoking a method secured with SpEL {@link PreAuthorize} expressions through
+ * {@link AuthorizationManagerBeforeMethodInterceptor#preAuthorize()}, compared with an
+ * unsecured invocation through the same proxy, with expressions interpreted or compiled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreAuthorizeBenchmark {
+
+	@Param({ "OFF", "MIXED" })
+	private SpelCompilerMode spelCompilerMode;
+
+	private MessageService messageService;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		DefaultMethodSecurityExpressionHandler expressionHandler = new DefaultMethodSecurityExpressionHandler();
+		expressionHandler.setSpelCompilerMode(this.spelCompilerMode);
+		PreAuthorizeAuthorizationManager authorizationManager = new PreAuthorizeAuthorizationManager();
+		authorizationManager.setExpressionHandler(expressionHandler);
+		ProxyFactory proxyFactory = new ProxyFactory(new DefaultMessageService());
+		proxyFactory.addAdvisor(AuthorizationManagerBeforeMethodInterceptor.preAuthorize(authorizationManager));
+		this.messageService = (MessageService) proxyFactory.getProxy();
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("user", "password", "ROLE_USER"));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Benchmark
+	public String unsecured() {
+		return this.messageService.unsecured(1);
+	}
+
+	@Benchmark
+	public String hasRole() {
+		return this.messageService.hasRole(1);
+	}
+
+	@Benchmark
+	public String hasRoleAndArgument() {
+		return this.messageService.hasRoleAndArgument(1);
+	}
+
+	public interface MessageService {
+
+		String unsecured(long id);
+
+		String hasRole(long id);
+
+		String hasRoleAndArgument(long id);
+
+	}
+
+	static class DefaultMessageService implements MessageService {
+
+		@Override
+		public String unsecured(long id) {
+			return "message";
+		}
+
+		@Override
+		@PreAuthorize("hasRole('USER')")
+		public String hasRole(long id) {
+			return "message";
+		}
+
+		@Override
+		@PreAuthorize("hasAnyRole('USER', 'ADMIN') and #id > 0 and authentication.name == 'user'")
+		public String hasRoleAndArgument(long id) {
+			return "message";
+		}
+
+	}
+
+}
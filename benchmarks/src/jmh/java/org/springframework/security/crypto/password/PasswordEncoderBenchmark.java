@@ -0,0 +1,84 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.password;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+/**
+ * Measures verifying a password with each adaptive {@link PasswordEncoder}, using their
+ * default settings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+	@Param({ "bcrypt", "pbkdf2", "scrypt", "argon2" })
+	private String encoder;
+
+	private final String password = "password";
+
+	private PasswordEncoder passwordEncoder;
+
+	private String encodedPassword;
+
+	@Setup
+	public void setup() {
+		this.passwordEncoder = createPasswordEncoder();
+		this.encodedPassword = this.passwordEncoder.encode(this.password);
+	}
+
+	private PasswordEncoder createPasswordEncoder() {
+		switch (this.encoder) {
+		case "bcrypt":
+			return new BCryptPasswordEncoder();
+		case "pbkdf2":
+			return new Pbkdf2PasswordEncoder();
+		case "scrypt":
+			return new SCryptPasswordEncoder();
+		case "argon2":
+			return new Argon2PasswordEncoder();
+		default:
+			throw new IllegalArgumentException("Unknown encoder " + this.encoder);
+		}
+	}
+
+	@Benchmark
+	public boolean matches() {
+		return this.passwordEncoder.matches(this.password, this.encodedPassword);
+	}
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link NimbusJwtDecoder#decode(String)} parsing, verifying and validating an
+ * RS256 signed access token, and the same token decoded again through a
+ * {@link CachingJwtDecoder}. The key is either configured directly or selected from a
+ * JWK Set, with and without the verifiers cached by
+ * {@link CachingJWSVerificationKeySelector}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NimbusJwtDecoderBenchmark {
+
+	private NimbusJwtDecoder decoder;
+
+	private CachingJwtDecoder cachingDecoder;
+
+	private NimbusJwtDecoder jwkSetDecoder;
+
+	private NimbusJwtDecoder uncachedJwkSetDecoder;
+
+	private String token;
+
+	@Setup
+	public void setup() throws Exception {
+		KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+		generator.initialize(2048);
+		KeyPair keyPair = generator.generateKeyPair();
+		// @formatter:off
+		JWTClaimsSet claims = new JWTClaimsSet.Builder()
+				.issuer("https://issuer.example.org")
+				.subject("user")
+				.audience("api")
+				.claim("scope", "message:read message:write")
+				.issueTime(Date.from(Instant.now()))
+				.expirationTime(Date.from(Instant.now().plusSeconds(86400)))
+				.build();
+		// @formatter:on
+		SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("key").build(), claims);
+		jwt.sign(new RSASSASigner((RSAPrivateKey) keyPair.getPrivate()));
+		this.token = jwt.serialize();
+		this.decoder = NimbusJwtDecoder.withPublicKey((RSAPublicKey) keyPair.getPublic()).build();
+		this.decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer("https://issuer.example.org"));
+		// fail fast if the token is rejected
+		this.decoder.decode(this.token);
+		this.cachingDecoder = new CachingJwtDecoder(this.decoder);
+		this.cachingDecoder.decode(this.token);
+		JWKSource<SecurityContext> jwkSource = new ImmutableJWKSet<>(
+				new JWKSet(new RSAKey.Builder((RSAPublicKey) keyPair.getPublic()).keyID("key").build()));
+		CachingJWSVerificationKeySelector<SecurityContext> jwsKeySelector = NimbusJwtDecoder
+				.withJwkSetUri("https://issuer.example.org/jwks").jwsKeySelector(jwkSource);
+		this.jwkSetDecoder = jwkSetDecoder(jwsKeySelector, jwsKeySelector.getJWSVerifierFactory());
+		this.uncachedJwkSetDecoder = jwkSetDecoder(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource),
+				new DefaultJWSVerifierFactory());
+	}
+
+	private NimbusJwtDecoder jwkSetDecoder(JWSKeySelector<SecurityContext> jwsKeySelector,
+			JWSVerifierFactory jwsVerifierFactory) {
+		DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+		jwtProcessor.setJWSKeySelector(jwsKeySelector);
+		jwtProcessor.setJWSVerifierFactory(jwsVerifierFactory);
+		jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+		});
+		NimbusJwtDecoder decoder = new NimbusJwtDecoder(jwtProcessor);
+		decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer("https://issuer.example.org"));
+		decoder.decode(this.token);
+		return decoder;
+	}
+
+	@Benchmark
+	public Jwt decode() {
+		return this.decoder.decode(this.token);
+	}
+
+	@Benchmark
+	public Jwt decodeCached() {
+		return this.cachingDecoder.decode(this.token);
+	}
+
+	@Benchmark
+	public Jwt decodeWithJwkSet() {
+		return this.jwkSetDecoder.decode(this.token);
+	}
+
+	@Benchmark
+	public Jwt decodeWithJwkSetUncachedVerifiers() {
+		return this.uncachedJwkSetDecoder.decode(this.token);
+	}
+
+}
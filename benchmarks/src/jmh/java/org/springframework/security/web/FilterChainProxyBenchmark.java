@@ -0,0 +1,135 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+/**
+ * Measures a request going through the {@link FilterChainProxy} created by
+ * {@code @EnableWebSecurity} for a typical application, with form login, HTTP Basic,
+ * CSRF protection and request authorization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilterChainProxyBenchmark {
+
+	private AnnotationConfigWebApplicationContext context;
+
+	private Filter springSecurityFilterChain;
+
+	private String authorization;
+
+	@Setup
+	public void setup() {
+		this.context = new AnnotationConfigWebApplicationContext();
+		this.context.setServletContext(new MockServletContext());
+		this.context.register(SecurityConfig.class);
+		this.context.refresh();
+		this.springSecurityFilterChain = this.context.getBean("springSecurityFilterChain", Filter.class);
+		this.authorization = "Basic " + Base64.getEncoder().encodeToString("user:password".getBytes());
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public MockHttpServletResponse permittedRequest() throws Exception {
+		return doFilter(new MockHttpServletRequest("GET", "/public/resource"));
+	}
+
+	@Benchmark
+	public MockHttpServletResponse unauthenticatedRequest() throws Exception {
+		return doFilter(new MockHttpServletRequest("GET", "/resource"));
+	}
+
+	@Benchmark
+	public MockHttpServletResponse httpBasicRequest() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/resource");
+		request.addHeader("Authorization", this.authorization);
+		return doFilter(request);
+	}
+
+	private MockHttpServletResponse doFilter(MockHttpServletRequest request) throws Exception {
+		request.setServletPath(request.getRequestURI());
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.springSecurityFilterChain.doFilter(request, response, new MockFilterChain());
+		return response;
+	}
+
+	@Configuration
+	@EnableWebSecurity
+	static class SecurityConfig {
+
+		@Bean
+		SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+			// @formatter:off
+			http
+				.authorizeHttpRequests((authorize) -> authorize
+					.antMatchers("/public/**").permitAll()
+					.antMatchers("/admin/**").hasRole("ADMIN")
+					.anyRequest().authenticated()
+				)
+				.formLogin((formLogin) -> {})
+				.httpBasic((httpBasic) -> {});
+			// @formatter:on
+			return http.build();
+		}
+
+		@Bean
+		UserDetailsService userDetailsService() {
+			// a plain text password, to measure the filters rather than the hashing
+			return new InMemoryUserDetailsManager(
+					User.withUsername("user").password("{noop}password").roles("USER").build());
+		}
+
+	}
+
+}
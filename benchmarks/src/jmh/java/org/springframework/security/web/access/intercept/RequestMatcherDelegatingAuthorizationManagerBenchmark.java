@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.access.intercept;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authorization.AuthenticatedAuthorizationManager;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+
+/**
+ * Measures {@link RequestMatcherDelegatingAuthorizationManager} authorizing a request
+ * matching the last but one of a typical list of mappings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestMatcherDelegatingAuthorizationManagerBenchmark {
+
+	private RequestMatcherDelegatingAuthorizationManager manager;
+
+	private final Authentication authentication = new TestingAuthenticationToken("user", "password", "ROLE_USER");
+
+	private final Supplier<Authentication> authenticationSupplier = () -> this.authentication;
+
+	private MockHttpServletRequest request;
+
+	@Setup
+	public void setup() {
+		RequestMatcherDelegatingAuthorizationManager.Builder builder = RequestMatcherDelegatingAuthorizationManager
+				.builder();
+		String[] permitted = { "/login", "/logout", "/css/**", "/js/**", "/images/**", "/public/**" };
+		AuthorizationManager<RequestAuthorizationContext> permitAll = (authentication,
+				context) -> new AuthorizationDecision(true);
+		for (String pattern : permitted) {
+			builder.add(new AntPathRequestMatcher(pattern), permitAll);
+		}
+		builder.add(new AntPathRequestMatcher("/admin/**"), AuthorityAuthorizationManager.hasRole("ADMIN"));
+		builder.add(new AntPathRequestMatcher("/api/**"), AuthorityAuthorizationManager.hasAnyRole("USER", "ADMIN"));
+		builder.add(AnyRequestMatcher.INSTANCE, AuthenticatedAuthorizationManager.authenticated());
+		this.manager = builder.build();
+		this.request = new MockHttpServletRequest("GET", "/api/v1/customers/12345/orders");
+		this.request.setServletPath("/api/v1/customers/12345/orders");
+	}
+
+	@Benchmark
+	public AuthorizationDecision check() {
+		return this.manager.check(this.authenticationSupplier, this.request);
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.firewall;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Measures {@link StrictHttpFirewall} validating typical requests, including reading
+ * headers and parameters through the firewalled request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StrictHttpFirewallBenchmark {
+
+	private final StrictHttpFirewall firewall = new StrictHttpFirewall();
+
+	private MockHttpServletRequest request;
+
+	@Setup
+	public void setup() {
+		this.request = new MockHttpServletRequest("GET", "/api/v1/customers/12345/orders");
+		this.request.setServletPath("/api/v1/customers/12345/orders");
+		this.request.setQueryString("page=2&size=20&sort=date");
+		this.request.setParameter("page", "2");
+		this.request.setParameter("size", "20");
+		this.request.setParameter("sort", "date");
+		this.request.addHeader("Accept", "application/json");
+		this.request.addHeader("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36");
+		this.request.addHeader("Cookie", "SESSION=5b2e0c1e-4c1d-4f3a-9b7e-2a7d8c9e0f11");
+	}
+
+	@Benchmark
+	public HttpServletRequest getFirewalledRequest() {
+		return this.firewall.getFirewalledRequest(this.request);
+	}
+
+	@Benchmark
+	public int readHeadersAndParameters() {
+		HttpServletRequest firewalled = this.firewall.getFirewalledRequest(this.request);
+		int length = 0;
+		for (String name : Collections.list(firewalled.getHeaderNames())) {
+			length += firewalled.getHeader(name).length();
+		}
+		for (String name : firewalled.getParameterMap().keySet()) {
+			length += firewalled.getParameter(name).length();
+		}
+		return length;
+	}
+
+}
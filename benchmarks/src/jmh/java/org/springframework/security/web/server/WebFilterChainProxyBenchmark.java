@@ -0,0 +1,108 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.server;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.web.server.WebFilterChain;
+
+/**
+ * Measures a request going through a {@link WebFilterChainProxy} built by
+ * {@link ServerHttpSecurity} for a typical application, with form login, HTTP Basic,
+ * CSRF protection and exchange authorization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WebFilterChainProxyBenchmark {
+
+	private final WebFilterChain chain = (exchange) -> Mono.empty();
+
+	private WebFilterChainProxy proxy;
+
+	private String authorization;
+
+	@Setup
+	public void setup() {
+		// a plain text password, to measure the filters rather than the hashing
+		MapReactiveUserDetailsService users = new MapReactiveUserDetailsService(
+				User.withUsername("user").password("{noop}password").roles("USER").build());
+		ReactiveAuthenticationManager authenticationManager = new UserDetailsRepositoryReactiveAuthenticationManager(
+				users);
+		// @formatter:off
+		ServerHttpSecurity http = ServerHttpSecurity.http()
+				.authenticationManager(authenticationManager)
+				.authorizeExchange((exchanges) -> exchanges
+					.pathMatchers("/public/**").permitAll()
+					.pathMatchers("/admin/**").hasRole("ADMIN")
+					.anyExchange().authenticated()
+				)
+				.formLogin((formLogin) -> {})
+				.httpBasic((httpBasic) -> {});
+		// @formatter:on
+		this.proxy = new WebFilterChainProxy(http.build());
+		this.authorization = "Basic " + Base64.getEncoder().encodeToString("user:password".getBytes());
+	}
+
+	@Benchmark
+	public HttpStatus permittedRequest() {
+		return filter(MockServerHttpRequest.get("/public/resource").build());
+	}
+
+	@Benchmark
+	public HttpStatus unauthenticatedRequest() {
+		return filter(MockServerHttpRequest.get("/resource").build());
+	}
+
+	@Benchmark
+	public HttpStatus httpBasicRequest() {
+		return filter(MockServerHttpRequest.get("/resource").header(HttpHeaders.AUTHORIZATION, this.authorization)
+				.build());
+	}
+
+	private HttpStatus filter(MockServerHttpRequest request) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(request);
+		this.proxy.filter(exchange, this.chain).block();
+		return exchange.getResponse().getStatusCode();
+	}
+
+}
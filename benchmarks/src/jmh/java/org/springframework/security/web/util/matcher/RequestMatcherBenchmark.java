@@ -0,0 +1,113 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.util.matcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.web.servlet.util.matcher.MvcRequestMatcher;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
+
+/**
+ * Measures finding the first of a list of {@link AntPathRequestMatcher}s and
+ * {@link MvcRequestMatcher}s matching a request, as done when authorizing requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestMatcherBenchmark {
+
+	private static final String[] PATTERNS = { "/login", "/logout", "/css/**", "/js/**", "/images/**", "/public/**",
+			"/api/v1/users/**", "/api/v1/orders/*/items", "/api/v1/customers/{id}/orders", "/admin/**" };
+
+	private AnnotationConfigWebApplicationContext context;
+
+	private final List<RequestMatcher> antMatchers = new ArrayList<>();
+
+	private final List<RequestMatcher> mvcMatchers = new ArrayList<>();
+
+	private MockHttpServletRequest request;
+
+	@Setup
+	public void setup() throws Exception {
+		this.context = new AnnotationConfigWebApplicationContext();
+		this.context.setServletContext(new MockServletContext());
+		this.context.register(WebMvcConfig.class);
+		this.context.refresh();
+		HandlerMappingIntrospector introspector = new HandlerMappingIntrospector();
+		introspector.setApplicationContext(this.context);
+		introspector.afterPropertiesSet();
+		for (String pattern : PATTERNS) {
+			this.antMatchers.add(new AntPathRequestMatcher(pattern));
+			this.mvcMatchers.add(new MvcRequestMatcher(introspector, pattern));
+		}
+		this.request = new MockHttpServletRequest("GET", "/api/v1/customers/12345/orders");
+		this.request.setServletPath("/api/v1/customers/12345/orders");
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public RequestMatcher antPathRequestMatcher() {
+		return firstMatch(this.antMatchers);
+	}
+
+	@Benchmark
+	public RequestMatcher mvcRequestMatcher() {
+		return firstMatch(this.mvcMatchers);
+	}
+
+	private RequestMatcher firstMatch(List<RequestMatcher> matchers) {
+		for (RequestMatcher matcher : matchers) {
+			if (matcher.matches(this.request)) {
+				return matcher;
+			}
+		}
+		return null;
+	}
+
+	@Configuration
+	@EnableWebMvc
+	static class WebMvcConfig {
+
+	}
+
+}
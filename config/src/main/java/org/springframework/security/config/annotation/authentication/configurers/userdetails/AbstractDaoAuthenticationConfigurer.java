@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2013 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,8 +20,10 @@ import org.springframework.security.authentication.dao.DaoAuthenticationProvider
 import org.springframework.security.config.annotation.ObjectPostProcessor;
 import org.springframework.security.config.annotation.SecurityBuilder;
 import org.springframework.security.config.annotation.authentication.ProviderManagerBuilder;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.cache.LocalUserCache;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 /**
@@ -75,6 +77,22 @@ public abstract class AbstractDaoAuthenticationConfigurer<B extends ProviderMana
 		return (C) this;
 	}
 
+	/**
+	 * Allows specifying the {@link UserCache} to use with the
+	 * {@link DaoAuthenticationProvider}. The default is not to cache users. With a
+	 * {@link LocalUserCache}, concurrent authentications of the same uncached user also
+	 * only load it once. As cached users are reused, credentials should not be erased
+	 * after authentication.
+	 * @param userCache the {@link UserCache} to use
+	 * @return the {@link AbstractDaoAuthenticationConfigurer} for further customizations
+	 * @since 5.8
+	 */
+	@SuppressWarnings("unchecked")
+	public C userCache(UserCache userCache) {
+		this.provider.setUserCache(userCache);
+		return (C) this;
+	}
+
 	public C userDetailsPasswordManager(UserDetailsPasswordService passwordManager) {
 		this.provider.setUserDetailsPasswordService(passwordManager);
 		return (C) this;
@@ -106,6 +106,8 @@ public final class WebSecurity extends AbstractConfiguredSecurityBuilder<Filter,
 
 	private boolean debugEnabled;
 
+	private boolean indexFilterChains;
+
 	private WebInvocationPrivilegeEvaluator privilegeEvaluator;
 
 	private DefaultWebSecurityExpressionHandler defaultWebSecurityExpressionHandler = new DefaultWebSecurityExpressionHandler();
@@ -193,6 +195,21 @@ public final class WebSecurity extends AbstractConfiguredSecurityBuilder<Filter,
 		return this;
 	}
 
+	/**
+	 * Controls whether the {@link FilterChainProxy} selects the {@link SecurityFilterChain}
+	 * for a request through an index over the chains' request matchers, rather than by
+	 * trying each chain in turn. This is useful when many chains are configured.
+	 * @param indexFilterChains if true, filter chains are selected through an index.
+	 * Default is false.
+	 * @return the {@link WebSecurity} for further customization.
+	 * @since 5.8
+	 * @see FilterChainProxy#setIndexFilterChains(boolean)
+	 */
+	public WebSecurity indexFilterChains(boolean indexFilterChains) {
+		this.indexFilterChains = indexFilterChains;
+		return this;
+	}
+
 	/**
 	 * <p>
 	 * Adds builders to create {@link SecurityFilterChain} instances.
@@ -328,6 +345,7 @@ public final class WebSecurity extends AbstractConfiguredSecurityBuilder<Filter,
 		if (this.requestRejectedHandler != null) {
 			filterChainProxy.setRequestRejectedHandler(this.requestRejectedHandler);
 		}
+		filterChainProxy.setIndexFilterChains(this.indexFilterChains);
 		filterChainProxy.afterPropertiesSet();
 
 		Filter result = filterChainProxy;
@@ -186,6 +186,21 @@ public final class AuthorizeHttpRequestsConfigurer<H extends HttpSecurityBuilder
 			return this;
 		}
 
+		/**
+		 * Sets whether the mapping for a request is found through an index which groups
+		 * the mappings by HTTP method and literal path prefix, rather than by evaluating
+		 * each mapping in turn. Mappings are still matched in declaration order.
+		 * @param indexMappings whether to index the mappings. Default is {@code false}
+		 * @return the {@link AuthorizationManagerRequestMatcherRegistry} for further
+		 * customizations
+		 * @since 5.8
+		 * @see RequestMatcherDelegatingAuthorizationManager.Builder#indexMappings(boolean)
+		 */
+		public AuthorizationManagerRequestMatcherRegistry indexMappings(boolean indexMappings) {
+			this.managerBuilder.indexMappings(indexMappings);
+			return this;
+		}
+
 		/**
 		 * Return the {@link HttpSecurityBuilder} when done using the
 		 * {@link AuthorizeHttpRequestsConfigurer}. This is useful for method chaining.
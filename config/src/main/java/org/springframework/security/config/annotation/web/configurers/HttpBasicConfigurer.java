@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,6 +26,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.AuthenticationDetailsSource;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationResultCache;
 import org.springframework.security.config.annotation.web.HttpSecurityBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.AuthenticationEntryPoint;
@@ -91,6 +92,8 @@ public final class HttpBasicConfigurer<B extends HttpSecurityBuilder<B>>
 
 	private BasicAuthenticationEntryPoint basicAuthEntryPoint = new BasicAuthenticationEntryPoint();
 
+	private AuthenticationResultCache authenticationResultCache;
+
 	/**
 	 * Creates a new instance
 	 * @see HttpSecurity#httpBasic()
@@ -142,6 +145,19 @@ public final class HttpBasicConfigurer<B extends HttpSecurityBuilder<B>>
 		return this;
 	}
 
+	/**
+	 * Specifies an {@link AuthenticationResultCache} caching successful authentications
+	 * for a short time, so that clients presenting the same credentials on every request
+	 * do not have their password verified each time. The default is not to cache.
+	 * @param authenticationResultCache the {@link AuthenticationResultCache} to use
+	 * @return {@link HttpBasicConfigurer} for additional customization
+	 * @since 5.8
+	 */
+	public HttpBasicConfigurer<B> authenticationResultCache(AuthenticationResultCache authenticationResultCache) {
+		this.authenticationResultCache = authenticationResultCache;
+		return this;
+	}
+
 	@Override
 	public void init(B http) {
 		registerDefaults(http);
@@ -190,6 +206,11 @@ public final class HttpBasicConfigurer<B extends HttpSecurityBuilder<B>>
 	@Override
 	public void configure(B http) {
 		AuthenticationManager authenticationManager = http.getSharedObject(AuthenticationManager.class);
+		if (this.authenticationResultCache != null) {
+			AuthenticationResultCache cache = this.authenticationResultCache;
+			AuthenticationManager delegate = authenticationManager;
+			authenticationManager = (authentication) -> cache.authenticate(authentication, delegate);
+		}
 		BasicAuthenticationFilter basicAuthenticationFilter = new BasicAuthenticationFilter(authenticationManager,
 				this.authenticationEntryPoint);
 		if (this.authenticationDetailsSource != null) {
@@ -16,6 +16,7 @@
 
 package org.springframework.security.config.annotation.web.configurers;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -125,6 +126,8 @@ public final class SessionManagementConfigurer<H extends HttpSecurityBuilder<H>>
 
 	private boolean maxSessionsPreventsLogin;
 
+	private Duration refreshLastRequestInterval;
+
 	private SessionCreationPolicy sessionPolicy;
 
 	private boolean enableSessionUrlRewriting;
@@ -392,6 +395,9 @@ public final class SessionManagementConfigurer<H extends HttpSecurityBuilder<H>>
 		ConcurrentSessionFilter concurrentSessionFilter = (expireStrategy != null)
 				? new ConcurrentSessionFilter(sessionRegistry, expireStrategy)
 				: new ConcurrentSessionFilter(sessionRegistry);
+		if (this.refreshLastRequestInterval != null) {
+			concurrentSessionFilter.setRefreshLastRequestInterval(this.refreshLastRequestInterval);
+		}
 		LogoutConfigurer<H> logoutConfigurer = http.getConfigurer(LogoutConfigurer.class);
 		if (logoutConfigurer != null) {
 			List<LogoutHandler> logoutHandlers = logoutConfigurer.getLogoutHandlers();
@@ -683,6 +689,19 @@ public final class SessionManagementConfigurer<H extends HttpSecurityBuilder<H>>
 			return this;
 		}
 
+		/**
+		 * Sets the minimum time between two updates of the last request of a session in
+		 * the {@link SessionRegistry}. The default is to update it on every request.
+		 * @param refreshLastRequestInterval the minimum time between two updates
+		 * @return the {@link ConcurrencyControlConfigurer} for further customizations
+		 * @since 5.8
+		 * @see ConcurrentSessionFilter#setRefreshLastRequestInterval(Duration)
+		 */
+		public ConcurrencyControlConfigurer refreshLastRequestInterval(Duration refreshLastRequestInterval) {
+			SessionManagementConfigurer.this.refreshLastRequestInterval = refreshLastRequestInterval;
+			return this;
+		}
+
 		/**
 		 * Controls the {@link SessionRegistry} implementation used. The default is
 		 * {@link SessionRegistryImpl} which is an in memory implementation.
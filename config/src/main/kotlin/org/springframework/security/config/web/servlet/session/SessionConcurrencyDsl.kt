@@ -20,6 +20,7 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity
 import org.springframework.security.config.annotation.web.configurers.SessionManagementConfigurer
 import org.springframework.security.core.session.SessionRegistry
 import org.springframework.security.web.session.SessionInformationExpiredStrategy
+import java.time.Duration
 
 /**
  * A Kotlin DSL to configure the behaviour of multiple sessions using idiomatic
@@ -36,6 +37,8 @@ import org.springframework.security.web.session.SessionInformationExpiredStrateg
  * [maximumSessions] has been reached. Otherwise (default), the user who authenticates
  * is allowed access and an existing user's session is expired.
  * @property sessionRegistry the [SessionRegistry] implementation used.
+ * @property refreshLastRequestInterval the minimum time between two updates of the
+ * last request of a session in the [SessionRegistry].
  */
 @SessionSecurityMarker
 class SessionConcurrencyDsl {
@@ -44,6 +47,7 @@ class SessionConcurrencyDsl {
     var expiredSessionStrategy: SessionInformationExpiredStrategy? = null
     var maxSessionsPreventsLogin: Boolean? = null
     var sessionRegistry: SessionRegistry? = null
+    var refreshLastRequestInterval: Duration? = null
 
     internal fun get(): (SessionManagementConfigurer<HttpSecurity>.ConcurrencyControlConfigurer) -> Unit {
         return { sessionConcurrencyControl ->
@@ -62,6 +66,9 @@ class SessionConcurrencyDsl {
             sessionRegistry?.also {
                 sessionConcurrencyControl.sessionRegistry(sessionRegistry)
             }
+            refreshLastRequestInterval?.also {
+                sessionConcurrencyControl.refreshLastRequestInterval(refreshLastRequestInterval)
+            }
         }
     }
 }
@@ -48,6 +48,7 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.PasswordEncodedUser;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.cache.LocalUserCache;
 import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
@@ -131,6 +132,23 @@ public class AuthenticationManagerBuilderTests {
 		this.mockMvc.perform(formLogin().user("admin")).andExpect(admin);
 	}
 
+	@Test
+	public void buildWhenUserCacheThenUsersLoadedOnce() throws Exception {
+		ObjectPostProcessor<Object> opp = mock(ObjectPostProcessor.class);
+		given(opp.postProcess(any())).willAnswer((a) -> a.getArgument(0));
+		UserDetailsService userDetailsService = mock(UserDetailsService.class);
+		given(userDetailsService.loadUserByUsername("user")).willReturn(PasswordEncodedUser.user());
+		LocalUserCache userCache = new LocalUserCache();
+		AuthenticationManagerBuilder builder = new AuthenticationManagerBuilder(opp).eraseCredentials(false);
+		AuthenticationManager am = builder.userDetailsService(userDetailsService)
+				.passwordEncoder(NoOpPasswordEncoder.getInstance()).userCache(userCache).and().build();
+		am.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("user", "password"));
+		am.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("user", "password"));
+		verify(userDetailsService).loadUserByUsername("user");
+		assertThat(userCache.getHitCount()).isEqualTo(1);
+		assertThat(userCache.getLoadCount()).isEqualTo(1);
+	}
+
 	@Test
 	public void buildWhenAuthenticationProviderThenIsConfigured() throws Exception {
 		ObjectPostProcessor<Object> opp = mock(ObjectPostProcessor.class);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationResultCache;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.ObjectPostProcessor;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -48,6 +49,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -133,6 +135,17 @@ public class HttpBasicConfigurerTests {
 				.andExpect(content().string("user"));
 	}
 
+	@Test
+	public void httpBasicWhenAuthenticationResultCacheThenReusesSuccessfulAuthentication() throws Exception {
+		this.spring.register(AuthenticationResultCacheConfig.class, Users.class, Home.class).autowire();
+		this.mvc.perform(get("/").with(httpBasic("user", "password"))).andExpect(status().isOk());
+		this.mvc.perform(get("/").with(httpBasic("user", "password"))).andExpect(status().isOk())
+				.andExpect(content().string("user"));
+		this.mvc.perform(get("/").with(httpBasic("user", "wrong"))).andExpect(status().isUnauthorized());
+		assertThat(AuthenticationResultCacheConfig.CACHE.getHitCount()).isEqualTo(1);
+		assertThat(AuthenticationResultCacheConfig.CACHE.getSize()).isEqualTo(1);
+	}
+
 	@EnableWebSecurity
 	static class ObjectPostProcessorConfig extends WebSecurityConfigurerAdapter {
 
@@ -310,6 +323,23 @@ public class HttpBasicConfigurerTests {
 
 	}
 
+	@EnableWebSecurity
+	static class AuthenticationResultCacheConfig {
+
+		static final AuthenticationResultCache CACHE = new AuthenticationResultCache();
+
+		@Bean
+		SecurityFilterChain web(HttpSecurity http) throws Exception {
+			// @formatter:off
+			http
+				.authorizeHttpRequests((authorize) -> authorize.anyRequest().authenticated())
+				.httpBasic((httpBasic) -> httpBasic.authenticationResultCache(CACHE));
+			// @formatter:on
+			return http.build();
+		}
+
+	}
+
 	@Configuration
 	static class Users {
 
@@ -16,6 +16,9 @@
 
 package org.springframework.security.config.annotation.web.configurers;
 
+import java.time.Duration;
+import java.util.Date;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
@@ -36,6 +39,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.config.test.SpringTestContext;
 import org.springframework.security.config.test.SpringTestContextExtension;
 import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.session.SessionInformation;
 import org.springframework.security.core.session.SessionRegistry;
 import org.springframework.security.core.userdetails.PasswordEncodedUser;
 import org.springframework.security.web.DefaultSecurityFilterChain;
@@ -292,6 +296,17 @@ public class SessionManagementConfigurerTests {
 		verify(SessionRegistryOneBeanConfig.SESSION_REGISTRY).getSessionInformation(session.getId());
 	}
 
+	@Test
+	public void whenRefreshLastRequestIntervalThenRecentSessionNotRefreshed() throws Exception {
+		RefreshLastRequestIntervalConfig.SESSION_REGISTRY = mock(SessionRegistry.class);
+		this.spring.register(RefreshLastRequestIntervalConfig.class).autowire();
+		MockHttpSession session = new MockHttpSession(this.spring.getContext().getServletContext());
+		given(RefreshLastRequestIntervalConfig.SESSION_REGISTRY.getSessionInformation(session.getId()))
+				.willReturn(new SessionInformation("user", session.getId(), new Date()));
+		this.mvc.perform(get("/").session(session));
+		verify(RefreshLastRequestIntervalConfig.SESSION_REGISTRY, never()).refreshLastRequest(session.getId());
+	}
+
 	@Test
 	public void whenTwoSessionRegistryBeansThenUseNeither() throws Exception {
 		SessionRegistryTwoBeansConfig.SESSION_REGISTRY_ONE = mock(SessionRegistry.class);
@@ -589,6 +604,28 @@ public class SessionManagementConfigurerTests {
 
 	}
 
+	@EnableWebSecurity
+	static class RefreshLastRequestIntervalConfig extends WebSecurityConfigurerAdapter {
+
+		private static SessionRegistry SESSION_REGISTRY;
+
+		@Override
+		protected void configure(HttpSecurity http) throws Exception {
+			// @formatter:off
+			http
+				.sessionManagement()
+				.maximumSessions(1)
+				.refreshLastRequestInterval(Duration.ofMinutes(1));
+			// @formatter:on
+		}
+
+		@Bean
+		SessionRegistry sessionRegistry() {
+			return SESSION_REGISTRY;
+		}
+
+	}
+
 	@EnableWebSecurity
 	static class SessionRegistryTwoBeansConfig extends WebSecurityConfigurerAdapter {
 
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.access;
+
+import java.util.BitSet;
+import java.util.Collection;
+
+import org.springframework.security.core.Authentication;
+
+/**
+ * A {@link PermissionEvaluator} which can evaluate a permission for many domain objects
+ * at once, for instance when filtering a collection with
+ * {@code @PostFilter("hasPermission(filterObject, 'read')")}.
+ *
+ * @since 5.8
+ */
+public interface BulkPermissionEvaluator extends PermissionEvaluator {
+
+	/**
+	 * Evaluates the permission for each of the domain objects, with the same outcome as
+	 * calling {@link #hasPermission(Authentication, Object, Object)} for each of them.
+	 * @param authentication represents the user in question. Should not be null.
+	 * @param targetDomainObjects the domain objects for which permissions should be
+	 * checked, which may contain nulls
+	 * @param permission a representation of the permission object as supplied by the
+	 * expression system. Not null.
+	 * @return a {@link BitSet} in which bit {@code i} is set if the permission is granted
+	 * for the {@code i}th domain object, in iteration order
+	 */
+	BitSet hasPermissions(Authentication authentication, Collection<?> targetDomainObjects, Object permission);
+
+}
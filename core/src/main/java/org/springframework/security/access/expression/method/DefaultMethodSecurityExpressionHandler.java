@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,23 +17,40 @@
 package org.springframework.security.access.expression.method;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.MethodClassKey;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.core.log.LogMessage;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.ast.Literal;
+import org.springframework.expression.spel.ast.MethodReference;
+import org.springframework.expression.spel.ast.PropertyOrFieldReference;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.security.access.BulkPermissionEvaluator;
 import org.springframework.security.access.PermissionCacheOptimizer;
 import org.springframework.security.access.expression.AbstractSecurityExpressionHandler;
 import org.springframework.security.access.expression.ExpressionUtils;
@@ -61,6 +78,10 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 
 	private ParameterNameDiscoverer parameterNameDiscoverer = new DefaultSecurityParameterNameDiscoverer();
 
+	private final CachingParameterNameDiscoverer cachingParameterNameDiscoverer = new CachingParameterNameDiscoverer();
+
+	private final Map<MethodClassKey, Method> specificMethods = new ConcurrentHashMap<>();
+
 	private PermissionCacheOptimizer permissionCacheOptimizer = null;
 
 	private String defaultRolePrefix = "ROLE_";
@@ -71,10 +92,21 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 	/**
 	 * Uses a {@link MethodSecurityEvaluationContext} as the <tt>EvaluationContext</tt>
 	 * implementation.
+	 * <p>
+	 * The most specific method and its parameter names are cached per method, and the
+	 * parameter names are only looked up when an expression refers to a parameter.
 	 */
 	@Override
 	public StandardEvaluationContext createEvaluationContextInternal(Authentication auth, MethodInvocation mi) {
-		return new MethodSecurityEvaluationContext(auth, mi, getParameterNameDiscoverer());
+		return new MethodSecurityEvaluationContext(auth, mi, getSpecificMethod(mi),
+				this.cachingParameterNameDiscoverer);
+	}
+
+	private Method getSpecificMethod(MethodInvocation mi) {
+		Method method = mi.getMethod();
+		Class<?> targetClass = AopProxyUtils.ultimateTargetClass(mi.getThis());
+		return this.specificMethods.computeIfAbsent(new MethodClassKey(method, targetClass),
+				(key) -> AopUtils.getMostSpecificMethod(method, targetClass));
 	}
 
 	/**
@@ -99,6 +131,11 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 	 * If a {@code Collection} or {@code Map} is used, the original instance will be
 	 * modified to contain the elements for which the permission expression evaluates to
 	 * {@code true}. For an array, a new array instance will be returned.
+	 * <p>
+	 * Collections and arrays filtered with an expression of the form
+	 * {@code hasPermission(filterObject, permission)}, with a literal permission, are
+	 * evaluated in a single call if the permission evaluator is a
+	 * {@link BulkPermissionEvaluator}.
 	 */
 	@Override
 	public Object filter(Object filterTarget, Expression filterExpression, EvaluationContext ctx) {
@@ -125,6 +162,28 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 			MethodSecurityExpressionOperations rootObject) {
 		this.logger.debug(LogMessage.format("Filtering collection with %s elements", filterTarget.size()));
 		List<T> retain = new ArrayList<>(filterTarget.size());
+		Object bulkPermission = getBulkPermission(filterExpression, rootObject);
+		if (bulkPermission != null) {
+			BitSet permitted = ((BulkPermissionEvaluator) getPermissionEvaluator())
+					.hasPermissions(rootObject.getAuthentication(), filterTarget, bulkPermission);
+			int i = 0;
+			for (T filterObject : filterTarget) {
+				if (permitted.get(i++)) {
+					retain.add(filterObject);
+				}
+			}
+		}
+		else {
+			evaluateEach(filterTarget, filterExpression, ctx, rootObject, retain);
+		}
+		this.logger.debug(LogMessage.format("Retaining elements: %s", retain));
+		filterTarget.clear();
+		filterTarget.addAll(retain);
+		return filterTarget;
+	}
+
+	private <T> void evaluateEach(Collection<T> filterTarget, Expression filterExpression, EvaluationContext ctx,
+			MethodSecurityExpressionOperations rootObject, List<T> retain) {
 		if (this.permissionCacheOptimizer != null) {
 			this.permissionCacheOptimizer.cachePermissionsFor(rootObject.getAuthentication(), filterTarget);
 		}
@@ -134,26 +193,25 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 				retain.add(filterObject);
 			}
 		}
-		this.logger.debug(LogMessage.format("Retaining elements: %s", retain));
-		filterTarget.clear();
-		filterTarget.addAll(retain);
-		return filterTarget;
 	}
 
 	private Object filterArray(Object[] filterTarget, Expression filterExpression, EvaluationContext ctx,
 			MethodSecurityExpressionOperations rootObject) {
 		List<Object> retain = new ArrayList<>(filterTarget.length);
 		this.logger.debug(LogMessage.format("Filtering array with %s elements", filterTarget.length));
-		if (this.permissionCacheOptimizer != null) {
-			this.permissionCacheOptimizer.cachePermissionsFor(rootObject.getAuthentication(),
-					Arrays.asList(filterTarget));
-		}
-		for (Object filterObject : filterTarget) {
-			rootObject.setFilterObject(filterObject);
-			if (ExpressionUtils.evaluateAsBoolean(filterExpression, ctx)) {
-				retain.add(filterObject);
+		Object bulkPermission = getBulkPermission(filterExpression, rootObject);
+		if (bulkPermission != null) {
+			BitSet permitted = ((BulkPermissionEvaluator) getPermissionEvaluator())
+					.hasPermissions(rootObject.getAuthentication(), Arrays.asList(filterTarget), bulkPermission);
+			for (int i = 0; i < filterTarget.length; i++) {
+				if (permitted.get(i)) {
+					retain.add(filterTarget[i]);
+				}
 			}
 		}
+		else {
+			evaluateEach(Arrays.asList(filterTarget), filterExpression, ctx, rootObject, retain);
+		}
 		this.logger.debug(LogMessage.format("Retaining elements: %s", retain));
 		Object[] filtered = (Object[]) Array.newInstance(filterTarget.getClass().getComponentType(), retain.size());
 		for (int i = 0; i < retain.size(); i++) {
@@ -186,6 +244,33 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 		}).onClose(filterTarget::close);
 	}
 
+	/**
+	 * Returns the permission of a filter expression which is exactly
+	 * {@code hasPermission(filterObject, permission)} with a literal permission, provided
+	 * that it would be evaluated by a {@link BulkPermissionEvaluator}. Returns
+	 * {@code null} otherwise.
+	 */
+	private Object getBulkPermission(Expression filterExpression, MethodSecurityExpressionOperations rootObject) {
+		if (!(getPermissionEvaluator() instanceof BulkPermissionEvaluator)
+				|| rootObject.getClass() != MethodSecurityExpressionRoot.class
+				|| !(filterExpression instanceof SpelExpression)) {
+			return null;
+		}
+		SpelNode node = ((SpelExpression) filterExpression).getAST();
+		if (!(node instanceof MethodReference) || !"hasPermission".equals(((MethodReference) node).getName())
+				|| node.getChildCount() != 2) {
+			return null;
+		}
+		SpelNode target = node.getChild(0);
+		SpelNode permission = node.getChild(1);
+		if (!(target instanceof PropertyOrFieldReference)
+				|| !"filterObject".equals(((PropertyOrFieldReference) target).getName())
+				|| !(permission instanceof Literal)) {
+			return null;
+		}
+		return ((Literal) permission).getLiteralValue().getValue();
+	}
+
 	/**
 	 * Sets the {@link AuthenticationTrustResolver} to be used. The default is
 	 * {@link AuthenticationTrustResolverImpl}.
@@ -211,6 +296,7 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 	 */
 	public void setParameterNameDiscoverer(ParameterNameDiscoverer parameterNameDiscoverer) {
 		this.parameterNameDiscoverer = parameterNameDiscoverer;
+		this.cachingParameterNameDiscoverer.clear();
 	}
 
 	/**
@@ -220,6 +306,25 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 		return this.parameterNameDiscoverer;
 	}
 
+	/**
+	 * Sets the {@link SpelCompilerMode} used when parsing expressions. The default is
+	 * {@link SpelCompilerMode#OFF}, which interprets expressions on every evaluation.
+	 * With {@link SpelCompilerMode#MIXED} or {@link SpelCompilerMode#IMMEDIATE}, an
+	 * expression is compiled to bytecode once it has been evaluated and the compiled form
+	 * is used from then on; {@link SpelCompilerMode#MIXED} falls back to interpreting an
+	 * expression that cannot be compiled.
+	 * <p>
+	 * Since expressions are parsed once per method and then cached, this should be set
+	 * before the first secured method is invoked. It replaces any parser set with
+	 * {@link #setExpressionParser(org.springframework.expression.ExpressionParser)}.
+	 * @param spelCompilerMode the {@link SpelCompilerMode} to use
+	 * @since 5.8
+	 */
+	public void setSpelCompilerMode(SpelCompilerMode spelCompilerMode) {
+		Assert.notNull(spelCompilerMode, "spelCompilerMode cannot be null");
+		setExpressionParser(new SpelExpressionParser(new SpelParserConfiguration(spelCompilerMode, null)));
+	}
+
 	public void setPermissionCacheOptimizer(PermissionCacheOptimizer permissionCacheOptimizer) {
 		this.permissionCacheOptimizer = permissionCacheOptimizer;
 	}
@@ -255,4 +360,38 @@ public class DefaultMethodSecurityExpressionHandler extends AbstractSecurityExpr
 		return this.defaultRolePrefix;
 	}
 
+	/**
+	 * Caches the parameter names found by {@link #getParameterNameDiscoverer()} for each
+	 * method.
+	 */
+	private final class CachingParameterNameDiscoverer implements ParameterNameDiscoverer {
+
+		private final String[] noParameterNames = new String[0];
+
+		private final Map<Object, String[]> parameterNames = new ConcurrentHashMap<>();
+
+		@Override
+		public String[] getParameterNames(Method method) {
+			return get(method, () -> getParameterNameDiscoverer().getParameterNames(method));
+		}
+
+		@Override
+		public String[] getParameterNames(Constructor<?> constructor) {
+			return get(constructor, () -> getParameterNameDiscoverer().getParameterNames(constructor));
+		}
+
+		private String[] get(Object key, Supplier<String[]> parameterNames) {
+			String[] names = this.parameterNames.computeIfAbsent(key, (k) -> {
+				String[] discovered = parameterNames.get();
+				return (discovered != null) ? discovered : this.noParameterNames;
+			});
+			return (names != this.noParameterNames) ? names : null;
+		}
+
+		void clear() {
+			this.parameterNames.clear();
+		}
+
+	}
+
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -49,7 +49,12 @@ class MethodSecurityEvaluationContext extends MethodBasedEvaluationContext {
 
 	MethodSecurityEvaluationContext(Authentication user, MethodInvocation mi,
 			ParameterNameDiscoverer parameterNameDiscoverer) {
-		super(mi.getThis(), getSpecificMethod(mi), mi.getArguments(), parameterNameDiscoverer);
+		this(user, mi, getSpecificMethod(mi), parameterNameDiscoverer);
+	}
+
+	MethodSecurityEvaluationContext(Authentication user, MethodInvocation mi, Method specificMethod,
+			ParameterNameDiscoverer parameterNameDiscoverer) {
+		super(mi.getThis(), specificMethod, mi.getArguments(), parameterNameDiscoverer);
 	}
 
 	private static Method getSpecificMethod(MethodInvocation mi) {
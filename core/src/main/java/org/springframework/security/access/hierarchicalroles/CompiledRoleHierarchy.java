@@ -0,0 +1,322 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.access.hierarchicalroles;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.log.LogMessage;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link RoleHierarchy} accepting the same hierarchy definition as
+ * {@link RoleHierarchyImpl}, but compiled once into an immutable graph.
+ *
+ * <p>
+ * Each role of the hierarchy is assigned an integer id, and the roles reachable from it
+ * in one or more steps are precomputed as a {@link BitSet}. Expanding a set of
+ * authorities then only merges bitsets, and the outcome is cached per distinct set of
+ * authority names, so that the common case of the same authorities being expanded on
+ * every request is a cache lookup which allocates nothing:
+ *
+ * <pre>
+ * RoleHierarchy roleHierarchy = new CompiledRoleHierarchy("ROLE_A &gt; ROLE_B\nROLE_B &gt; ROLE_C");
+ * </pre>
+ *
+ * <p>
+ * Cached results are returned as they are, whatever the order of the given authorities
+ * and whichever {@link GrantedAuthority} instances they are, so they hold the instances
+ * of the first expansion of the same names. The cache holds about
+ * {@link #setCacheSize(int) cacheSize} entries; when a new one is added, the least
+ * recently used among the few entries it may replace is evicted. Authorities without a
+ * string representation are never cached.
+ *
+ * @since 5.8
+ * @see RoleHierarchyImpl
+ */
+public final class CompiledRoleHierarchy implements RoleHierarchy {
+
+	private static final Log logger = LogFactory.getLog(CompiledRoleHierarchy.class);
+
+	private final Map<String, Integer> ids = new HashMap<>();
+
+	private final List<GrantedAuthority> roles = new ArrayList<>();
+
+	private final BitSet[] reachableRoles;
+
+	private volatile ExpansionCache cache = new ExpansionCache(1024);
+
+	/**
+	 * Compiles the role hierarchy. Cycles in the role hierarchy are detected and cause a
+	 * {@link CycleInRoleHierarchyException} to be thrown.
+	 * @param roleHierarchyStringRepresentation the role hierarchy, in the format
+	 * supported by {@link RoleHierarchyImpl#setHierarchy(String)}
+	 */
+	public CompiledRoleHierarchy(String roleHierarchyStringRepresentation) {
+		Assert.notNull(roleHierarchyStringRepresentation, "roleHierarchyStringRepresentation cannot be null");
+		List<BitSet> reachableInOneStep = new ArrayList<>();
+		for (String line : roleHierarchyStringRepresentation.split("\n")) {
+			// Split on > and trim excessive whitespace
+			String[] roles = line.trim().split("\\s+>\\s+");
+			for (int i = 1; i < roles.length; i++) {
+				int higherRole = getOrAssignId(roles[i - 1], reachableInOneStep);
+				int lowerRole = getOrAssignId(roles[i], reachableInOneStep);
+				reachableInOneStep.get(higherRole).set(lowerRole);
+			}
+		}
+		this.reachableRoles = new BitSet[this.roles.size()];
+		for (int id = 0; id < this.reachableRoles.length; id++) {
+			BitSet reachable = new BitSet(this.reachableRoles.length);
+			BitSet toVisit = (BitSet) reachableInOneStep.get(id).clone();
+			while (!toVisit.isEmpty()) {
+				int lowerRole = toVisit.nextSetBit(0);
+				toVisit.clear(lowerRole);
+				if (lowerRole == id) {
+					throw new CycleInRoleHierarchyException();
+				}
+				if (!reachable.get(lowerRole)) {
+					reachable.set(lowerRole);
+					toVisit.or(reachableInOneStep.get(lowerRole));
+				}
+			}
+			this.reachableRoles[id] = reachable;
+		}
+		logger.debug(LogMessage.format("Compiled role hierarchy with %s roles: %s", this.roles.size(),
+				roleHierarchyStringRepresentation));
+	}
+
+	private int getOrAssignId(String role, List<BitSet> reachableInOneStep) {
+		return this.ids.computeIfAbsent(role, (name) -> {
+			this.roles.add(new SimpleGrantedAuthority(name));
+			reachableInOneStep.add(new BitSet());
+			return this.roles.size() - 1;
+		});
+	}
+
+	/**
+	 * Sets the maximum number of distinct sets of authorities for which the reachable
+	 * authorities are cached. It is rounded down to a power of two, and to at least 4.
+	 * Defaults to 1024.
+	 * @param cacheSize the maximum number of cached entries, or 0 to disable caching
+	 */
+	public void setCacheSize(int cacheSize) {
+		Assert.isTrue(cacheSize >= 0, "cacheSize cannot be negative");
+		this.cache = (cacheSize > 0) ? new ExpansionCache(cacheSize) : null;
+	}
+
+	/**
+	 * Returns the authorities along with all authorities reachable from them, as an
+	 * immutable collection. Authorities are included in the order they were first
+	 * expanded, each followed by the roles reachable from it which were not already
+	 * included.
+	 */
+	@Override
+	public Collection<GrantedAuthority> getReachableGrantedAuthorities(
+			Collection<? extends GrantedAuthority> authorities) {
+		if (authorities == null || authorities.isEmpty()) {
+			return AuthorityUtils.NO_AUTHORITIES;
+		}
+		ExpansionCache cache = this.cache;
+		if (cache == null) {
+			return expand(authorities);
+		}
+		int hash = 0;
+		for (GrantedAuthority authority : authorities) {
+			String name = authority.getAuthority();
+			if (name == null) {
+				return expand(authorities);
+			}
+			hash += name.hashCode();
+		}
+		Collection<GrantedAuthority> reachable = cache.get(hash, authorities);
+		if (reachable == null) {
+			reachable = expand(authorities);
+			cache.put(hash, authorities, reachable);
+		}
+		return reachable;
+	}
+
+	private Collection<GrantedAuthority> expand(Collection<? extends GrantedAuthority> authorities) {
+		List<GrantedAuthority> reachable = new ArrayList<>(authorities.size() + this.roles.size());
+		BitSet included = new BitSet(this.roles.size());
+		Set<String> includedNames = new HashSet<>();
+		for (GrantedAuthority authority : authorities) {
+			String name = authority.getAuthority();
+			// Do not process authorities without string representation
+			if (name == null) {
+				reachable.add(authority);
+				continue;
+			}
+			Integer id = this.ids.get(name);
+			if (id == null) {
+				// No hierarchy for the role
+				if (includedNames.add(name)) {
+					reachable.add(authority);
+				}
+				continue;
+			}
+			if (included.get(id)) {
+				continue;
+			}
+			included.set(id);
+			reachable.add(authority);
+			BitSet lowerRoles = this.reachableRoles[id];
+			for (int i = lowerRoles.nextSetBit(0); i >= 0; i = lowerRoles.nextSetBit(i + 1)) {
+				if (!included.get(i)) {
+					included.set(i);
+					reachable.add(this.roles.get(i));
+				}
+			}
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace(LogMessage.format("From the roles %s one can reach %s in zero or more steps.", authorities,
+					reachable));
+		}
+		return Collections.unmodifiableList(reachable);
+	}
+
+	/**
+	 * A set-associative cache of expansions: an entry may only be stored in one of the
+	 * {@link #WAYS} slots selected by the hash of its authority names, and replaces the
+	 * least recently used of them. Recency is measured in insertions, so that a hit only
+	 * writes to its entry once after each insertion.
+	 */
+	private static final class ExpansionCache {
+
+		private static final int WAYS = 4;
+
+		private final AtomicReferenceArray<CachedExpansion> entries;
+
+		private final int setMask;
+
+		private final AtomicInteger insertions = new AtomicInteger();
+
+		private ExpansionCache(int cacheSize) {
+			int sets = Integer.highestOneBit(Math.max(cacheSize / WAYS, 1));
+			this.entries = new AtomicReferenceArray<>(sets * WAYS);
+			this.setMask = sets - 1;
+		}
+
+		private Collection<GrantedAuthority> get(int hash, Collection<? extends GrantedAuthority> authorities) {
+			int first = firstSlot(hash);
+			for (int slot = first; slot < first + WAYS; slot++) {
+				CachedExpansion entry = this.entries.get(slot);
+				if (entry != null && entry.hash == hash && entry.matches(authorities)) {
+					int insertions = this.insertions.get();
+					if (entry.lastUsed != insertions) {
+						entry.lastUsed = insertions;
+					}
+					return entry.reachable;
+				}
+			}
+			return null;
+		}
+
+		private void put(int hash, Collection<? extends GrantedAuthority> authorities,
+				Collection<GrantedAuthority> reachable) {
+			CachedExpansion entry = new CachedExpansion(hash, authorities, reachable,
+					this.insertions.incrementAndGet());
+			int first = firstSlot(hash);
+			int victim = first;
+			CachedExpansion oldest = null;
+			for (int slot = first; slot < first + WAYS; slot++) {
+				CachedExpansion candidate = this.entries.get(slot);
+				if (candidate == null) {
+					victim = slot;
+					break;
+				}
+				if (oldest == null || candidate.lastUsed - oldest.lastUsed < 0) {
+					oldest = candidate;
+					victim = slot;
+				}
+			}
+			this.entries.set(victim, entry);
+		}
+
+		private int firstSlot(int hash) {
+			return ((hash ^ (hash >>> 16)) & this.setMask) * WAYS;
+		}
+
+	}
+
+	private static final class CachedExpansion {
+
+		private final int hash;
+
+		private final Set<String> names;
+
+		private final Collection<GrantedAuthority> reachable;
+
+		private volatile int lastUsed;
+
+		private CachedExpansion(int hash, Collection<? extends GrantedAuthority> authorities,
+				Collection<GrantedAuthority> reachable, int lastUsed) {
+			this.hash = hash;
+			this.names = new HashSet<>();
+			for (GrantedAuthority authority : authorities) {
+				this.names.add(authority.getAuthority());
+			}
+			this.reachable = reachable;
+			this.lastUsed = lastUsed;
+		}
+
+		/**
+		 * Whether the authorities have the same names as the cached ones, in any order.
+		 */
+		private boolean matches(Collection<? extends GrantedAuthority> authorities) {
+			for (GrantedAuthority authority : authorities) {
+				if (!this.names.contains(authority.getAuthority())) {
+					return false;
+				}
+			}
+			// the authorities may repeat a name, so also check that none of the cached ones
+			// is missing
+			for (String name : this.names) {
+				if (!containsName(authorities, name)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean containsName(Collection<? extends GrantedAuthority> authorities, String name) {
+			for (GrantedAuthority authority : authorities) {
+				if (name.equals(authority.getAuthority())) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+}
@@ -16,6 +16,8 @@
 
 package org.springframework.security.authentication;
 
+import java.util.function.Supplier;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import reactor.core.publisher.Mono;
@@ -60,6 +62,8 @@ public abstract class AbstractUserDetailsReactiveAuthenticationManager
 
 	private Scheduler scheduler = Schedulers.boundedElastic();
 
+	private PasswordHashingExecutor passwordHashingExecutor;
+
 	private UserDetailsChecker preAuthenticationChecks = this::defaultPreAuthenticationChecks;
 
 	private UserDetailsChecker postAuthenticationChecks = this::defaultPostAuthenticationChecks;
@@ -94,11 +98,9 @@ public abstract class AbstractUserDetailsReactiveAuthenticationManager
 	public Mono<Authentication> authenticate(Authentication authentication) {
 		String username = authentication.getName();
 		String presentedPassword = (String) authentication.getCredentials();
+		Mono<UserDetails> user = retrieveUser(username).doOnNext(this.preAuthenticationChecks::check);
 		// @formatter:off
-		return retrieveUser(username)
-				.doOnNext(this.preAuthenticationChecks::check)
-				.publishOn(this.scheduler)
-				.filter((userDetails) -> this.passwordEncoder.matches(presentedPassword, userDetails.getPassword()))
+		return verifyPassword(user, presentedPassword)
 				.switchIfEmpty(Mono.defer(() -> Mono.error(new BadCredentialsException("Invalid Credentials"))))
 				.flatMap((userDetails) -> upgradeEncodingIfNecessary(userDetails, presentedPassword))
 				.doOnNext(this.postAuthenticationChecks::check)
@@ -106,16 +108,35 @@ public abstract class AbstractUserDetailsReactiveAuthenticationManager
 		// @formatter:on
 	}
 
+	private Mono<UserDetails> verifyPassword(Mono<UserDetails> user, String presentedPassword) {
+		if (this.passwordHashingExecutor == null) {
+			return user.publishOn(this.scheduler).filter(
+					(userDetails) -> this.passwordEncoder.matches(presentedPassword, userDetails.getPassword()));
+		}
+		return user.filterWhen((userDetails) -> hash(
+				() -> this.passwordEncoder.matches(presentedPassword, userDetails.getPassword())));
+	}
+
 	private Mono<UserDetails> upgradeEncodingIfNecessary(UserDetails userDetails, String presentedPassword) {
 		boolean upgradeEncoding = this.userDetailsPasswordService != null
 				&& this.passwordEncoder.upgradeEncoding(userDetails.getPassword());
 		if (upgradeEncoding) {
+			if (this.passwordHashingExecutor != null) {
+				return hash(() -> this.passwordEncoder.encode(presentedPassword)).flatMap(
+						(newPassword) -> this.userDetailsPasswordService.updatePassword(userDetails, newPassword));
+			}
 			String newPassword = this.passwordEncoder.encode(presentedPassword);
 			return this.userDetailsPasswordService.updatePassword(userDetails, newPassword);
 		}
 		return Mono.just(userDetails);
 	}
 
+	private <T> Mono<T> hash(Supplier<T> hashing) {
+		// continue on the parallel scheduler, to not hold hashing threads
+		return Mono.defer(() -> Mono.fromFuture(this.passwordHashingExecutor.submit(hashing)))
+				.publishOn(Schedulers.parallel());
+	}
+
 	private UsernamePasswordAuthenticationToken createUsernamePasswordAuthenticationToken(UserDetails userDetails) {
 		return UsernamePasswordAuthenticationToken.authenticated(userDetails, userDetails.getPassword(),
 				userDetails.getAuthorities());
@@ -148,6 +169,19 @@ public abstract class AbstractUserDetailsReactiveAuthenticationManager
 		this.scheduler = scheduler;
 	}
 
+	/**
+	 * Sets the {@link PasswordHashingExecutor} on which passwords are verified and
+	 * encoded, in place of the {@link #setScheduler(Scheduler) scheduler}. When the
+	 * executor is saturated, authentication fails right away with an
+	 * {@link AuthenticationServiceException}. The default is to use the scheduler.
+	 * @param passwordHashingExecutor the {@link PasswordHashingExecutor} to use, or
+	 * {@code null} to use the scheduler
+	 * @since 5.8
+	 */
+	public void setPasswordHashingExecutor(PasswordHashingExecutor passwordHashingExecutor) {
+		this.passwordHashingExecutor = passwordHashingExecutor;
+	}
+
 	/**
 	 * Sets the service to use for upgrading passwords on successful authentication.
 	 * @param userDetailsPasswordService the service to use
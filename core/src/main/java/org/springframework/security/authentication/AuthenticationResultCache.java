@@ -0,0 +1,434 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.core.log.LogMessage;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.provisioning.UserDetailsManager;
+import org.springframework.util.Assert;
+import org.springframework.util.SerializationUtils;
+
+/**
+ * Caches the successful authentication of username and password credentials for a short
+ * time, so that clients presenting the same credentials on every request, such as with
+ * HTTP Basic, do not have their password verified each time.
+ *
+ * <p>
+ * Presented credentials are never stored: entries are keyed by an HMAC-SHA256 of the
+ * username and password, using a random key generated for each cache instance. Results
+ * are only reused for the {@link AuthenticationManager} which produced them. Only
+ * {@link UsernamePasswordAuthenticationToken}s are cached, and failed authentications are
+ * never cached. A cached result is reused until its {@link #setTimeToLive(Duration) time
+ * to live} expires, without consulting the {@link AuthenticationManager}, so that no
+ * authentication events are published and changes to the account are only noticed once
+ * the entry expires or is {@link #evict(String) evicted}.
+ *
+ * <p>
+ * Each caller gets its own copy of the cached result, carrying the details of its
+ * request. Results which are not exactly {@link UsernamePasswordAuthenticationToken}s are
+ * copied by serialization, and are not cached if they cannot be serialized.
+ *
+ * <p>
+ * The cache holds at most {@link #setMaximumSize(int) maximumSize} entries. When full,
+ * expired entries are removed and, if none were, new results are not cached.
+ *
+ * <p>
+ * Cached results of a user should be evicted when its password changes, which
+ * {@link #evictingOnUpdate(UserDetailsPasswordService)} and
+ * {@link #evictingOnUpdate(UserDetailsManager)} take care of.
+ *
+ * @since 5.8
+ */
+public final class AuthenticationResultCache {
+
+	private static final Log logger = LogFactory.getLog(AuthenticationResultCache.class);
+
+	private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+	private final SecretKeySpec key;
+
+	private final ThreadLocal<Mac> macs;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final ReadWriteLock evictionLock = new ReentrantReadWriteLock();
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private Duration timeToLive = Duration.ofSeconds(30);
+
+	private int maximumSize = 1000;
+
+	private Clock clock = Clock.systemUTC();
+
+	public AuthenticationResultCache() {
+		byte[] secret = new byte[32];
+		new SecureRandom().nextBytes(secret);
+		this.key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+		this.macs = ThreadLocal.withInitial(this::createMac);
+	}
+
+	/**
+	 * Returns the cached result for the credentials if there is one, otherwise
+	 * authenticates them with the given {@link AuthenticationManager} and caches the
+	 * result if successful.
+	 * @param authentication the authentication request
+	 * @param authenticationManager the {@link AuthenticationManager} authenticating the
+	 * request when there is no cached result
+	 * @return the authentication result
+	 * @throws AuthenticationException if authentication fails
+	 */
+	public Authentication authenticate(Authentication authentication, AuthenticationManager authenticationManager)
+			throws AuthenticationException {
+		if (!isCacheable(authentication)) {
+			return authenticationManager.authenticate(authentication);
+		}
+		String key = key(authenticationManager, authentication.getName(), (String) authentication.getCredentials());
+		long now = this.clock.millis();
+		Entry entry = this.entries.get(key);
+		if (entry != null && entry.authenticationManager == authenticationManager && now < entry.expiresAt) {
+			Authentication result = copy(entry, authentication);
+			if (result != null) {
+				this.hitCount.increment();
+				logger.trace(LogMessage.format("Using cached authentication result for %s", entry.username));
+				return result;
+			}
+			this.entries.remove(key, entry);
+		}
+		this.missCount.increment();
+		long evictions = this.evictions.get();
+		Authentication result = authenticationManager.authenticate(authentication);
+		if (result != null && result.isAuthenticated()) {
+			cache(key, new Entry(authenticationManager, authentication.getName(), result,
+					now + this.timeToLive.toMillis()), evictions, now);
+		}
+		return result;
+	}
+
+	/**
+	 * Caches the entry unless a user was evicted since the authentication started, as
+	 * the result may then have been authenticated with a stale password. Evictions wait
+	 * for the entry to be cached, so that they remove it.
+	 */
+	private void cache(String key, Entry entry, long evictions, long now) {
+		if (entry.result == null && entry.serializedResult == null) {
+			return;
+		}
+		this.evictionLock.readLock().lock();
+		try {
+			if (evictions == this.evictions.get() && hasCapacity(now)) {
+				this.entries.put(key, entry);
+			}
+		}
+		finally {
+			this.evictionLock.readLock().unlock();
+		}
+	}
+
+	private boolean isCacheable(Authentication authentication) {
+		return authentication instanceof UsernamePasswordAuthenticationToken && authentication.getName() != null
+				&& authentication.getCredentials() instanceof String;
+	}
+
+	private String key(AuthenticationManager authenticationManager, String username, String password) {
+		Mac mac = this.macs.get();
+		int manager = System.identityHashCode(authenticationManager);
+		mac.update(new byte[] { (byte) (manager >>> 24), (byte) (manager >>> 16), (byte) (manager >>> 8),
+				(byte) manager });
+		mac.update(username.getBytes(StandardCharsets.UTF_8));
+		mac.update((byte) 0);
+		return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private Mac createMac() {
+		try {
+			Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+			mac.init(this.key);
+			return mac;
+		}
+		catch (GeneralSecurityException ex) {
+			throw new IllegalStateException("Unable to create " + HMAC_ALGORITHM + " Mac", ex);
+		}
+	}
+
+	/**
+	 * Copies the cached result, with the details of the given request.
+	 * @return the copy, or {@code null} if the result could not be deserialized
+	 */
+	private Authentication copy(Entry entry, Authentication authentication) {
+		Authentication copy;
+		if (entry.result != null) {
+			Authentication result = entry.result;
+			copy = UsernamePasswordAuthenticationToken.authenticated(result.getPrincipal(), result.getCredentials(),
+					result.getAuthorities());
+		}
+		else {
+			try (ObjectInputStream in = new ConfigurableObjectInputStream(
+					new ByteArrayInputStream(entry.serializedResult), entry.classLoader)) {
+				copy = (Authentication) in.readObject();
+			}
+			catch (IOException | ClassNotFoundException ex) {
+				logger.debug("Failed to deserialize cached authentication result", ex);
+				return null;
+			}
+		}
+		if (copy instanceof AbstractAuthenticationToken) {
+			((AbstractAuthenticationToken) copy).setDetails(authentication.getDetails());
+		}
+		return copy;
+	}
+
+	private boolean hasCapacity(long now) {
+		if (this.entries.size() < this.maximumSize) {
+			return true;
+		}
+		this.entries.values().removeIf((entry) -> now >= entry.expiresAt);
+		return this.entries.size() < this.maximumSize;
+	}
+
+	/**
+	 * Evicts the cached results of the given user, for instance because its password has
+	 * changed.
+	 * @param username the username of the user
+	 */
+	public void evict(String username) {
+		this.evictionLock.writeLock().lock();
+		try {
+			this.evictions.incrementAndGet();
+			this.entries.values().removeIf((entry) -> entry.username.equals(username));
+		}
+		finally {
+			this.evictionLock.writeLock().unlock();
+		}
+		logger.debug(LogMessage.format("Evicted cached authentication results for %s", username));
+	}
+
+	/**
+	 * Evicts all cached results.
+	 */
+	public void clear() {
+		this.evictionLock.writeLock().lock();
+		try {
+			this.evictions.incrementAndGet();
+			this.entries.clear();
+		}
+		finally {
+			this.evictionLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns a {@link UserDetailsPasswordService} evicting the cached results of a user
+	 * whenever its password is updated through the given one.
+	 * @param passwordService the {@link UserDetailsPasswordService} to delegate to
+	 * @return the evicting {@link UserDetailsPasswordService}
+	 */
+	public UserDetailsPasswordService evictingOnUpdate(UserDetailsPasswordService passwordService) {
+		Assert.notNull(passwordService, "passwordService cannot be null");
+		return (user, newPassword) -> {
+			UserDetails updated = passwordService.updatePassword(user, newPassword);
+			evict(user.getUsername());
+			return updated;
+		};
+	}
+
+	/**
+	 * Returns a {@link UserDetailsManager} evicting the cached results of a user whenever
+	 * it is updated, deleted or changes its password through the given one.
+	 * @param userDetailsManager the {@link UserDetailsManager} to delegate to
+	 * @return the evicting {@link UserDetailsManager}
+	 */
+	public UserDetailsManager evictingOnUpdate(UserDetailsManager userDetailsManager) {
+		Assert.notNull(userDetailsManager, "userDetailsManager cannot be null");
+		return new EvictingUserDetailsManager(userDetailsManager);
+	}
+
+	/**
+	 * Returns the number of authentications served from the cache.
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Returns the number of cacheable authentications which were not found in the
+	 * cache.
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Returns the number of cached results, including expired ones which have not been
+	 * removed yet.
+	 * @return the number of cached results
+	 */
+	public int getSize() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Sets how long successful authentication results are cached. Defaults to 30 seconds.
+	 * @param timeToLive the time to live of cached results
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets the maximum number of cached results. Defaults to 1000.
+	 * @param maximumSize the maximum number of cached results
+	 */
+	public void setMaximumSize(int maximumSize) {
+		Assert.isTrue(maximumSize > 0, "maximumSize must be positive");
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire cached results.
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static final class Entry {
+
+		private final AuthenticationManager authenticationManager;
+
+		private final String username;
+
+		/**
+		 * The result if it is exactly a {@link UsernamePasswordAuthenticationToken}.
+		 */
+		private final Authentication result;
+
+		/**
+		 * The serialized result otherwise, or {@code null} if it is not serializable.
+		 */
+		private final byte[] serializedResult;
+
+		private final ClassLoader classLoader;
+
+		private final long expiresAt;
+
+		private Entry(AuthenticationManager authenticationManager, String username, Authentication result,
+				long expiresAt) {
+			this.authenticationManager = authenticationManager;
+			this.username = username;
+			boolean copyable = result.getClass() == UsernamePasswordAuthenticationToken.class;
+			this.result = copyable ? result : null;
+			this.serializedResult = copyable ? null : serialize(result);
+			this.classLoader = result.getClass().getClassLoader();
+			this.expiresAt = expiresAt;
+		}
+
+		private static byte[] serialize(Authentication result) {
+			try {
+				return SerializationUtils.serialize(result);
+			}
+			catch (IllegalArgumentException ex) {
+				logger.debug(LogMessage.format("Not caching %s which cannot be serialized", result.getClass()), ex);
+				return null;
+			}
+		}
+
+	}
+
+	private final class EvictingUserDetailsManager implements UserDetailsManager {
+
+		private final UserDetailsManager delegate;
+
+		private EvictingUserDetailsManager(UserDetailsManager delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public UserDetails loadUserByUsername(String username) {
+			return this.delegate.loadUserByUsername(username);
+		}
+
+		@Override
+		public void createUser(UserDetails user) {
+			this.delegate.createUser(user);
+		}
+
+		@Override
+		public void updateUser(UserDetails user) {
+			this.delegate.updateUser(user);
+			evict(user.getUsername());
+		}
+
+		@Override
+		public void deleteUser(String username) {
+			this.delegate.deleteUser(username);
+			evict(username);
+		}
+
+		@Override
+		public void changePassword(String oldPassword, String newPassword) {
+			Authentication currentUser = SecurityContextHolder.getContext().getAuthentication();
+			this.delegate.changePassword(oldPassword, newPassword);
+			if (currentUser != null) {
+				evict(currentUser.getName());
+			}
+		}
+
+		@Override
+		public boolean userExists(String username) {
+			return this.delegate.userExists(username);
+		}
+
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.security.authentication;
 import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.cache.LocalUserCache;
 import org.springframework.security.core.userdetails.cache.NullUserCache;
 import org.springframework.util.Assert;
 
@@ -44,8 +45,20 @@ public class CachingUserDetailsService implements UserDetailsService {
 		this.userCache = userCache;
 	}
 
+	/**
+	 * Obtains the user from the {@link UserCache}, or from the delegate
+	 * {@link UserDetailsService} if it is not cached. When the cache is a
+	 * {@link LocalUserCache}, concurrent lookups of the same uncached user only call the
+	 * delegate once.
+	 */
 	@Override
 	public UserDetails loadUserByUsername(String username) {
+		if (this.userCache instanceof LocalUserCache) {
+			UserDetails user = ((LocalUserCache) this.userCache).getUser(username, this.delegate::loadUserByUsername);
+			Assert.notNull(user, () -> "UserDetailsService " + this.delegate + " returned null for username "
+					+ username + ". " + "This is an interface contract violation");
+			return user;
+		}
 		UserDetails user = this.userCache.getUserFromCache(username);
 		if (user == null) {
 			user = this.delegate.loadUserByUsername(username);
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.log.LogMessage;
+import org.springframework.util.Assert;
+
+/**
+ * Runs CPU intensive password hashing, such as
+ * {@link org.springframework.security.crypto.password.PasswordEncoder#matches(CharSequence, String)},
+ * on a dedicated pool of threads with a bounded queue, so that a burst of authentication
+ * attempts cannot use up the threads serving other requests.
+ *
+ * <p>
+ * When all threads are busy and the queue is full, tasks are rejected right away with an
+ * {@link AuthenticationServiceException} rather than waiting. The pool has as many
+ * threads as there are processors by default, since hashing does not block, and the
+ * queue holds as many tasks as there are threads.
+ *
+ * <p>
+ * Callers of {@link #execute(Supplier)}, such as servlet request threads, block while
+ * their task is queued or running, so the queue should stay short: every queued task
+ * holds a request thread. A caller waits at most the
+ * {@link #setExecuteTimeout(Duration) execute timeout}, after which its task is
+ * cancelled and an {@link AuthenticationServiceException} is thrown.
+ *
+ * @since 5.8
+ * @see AbstractUserDetailsReactiveAuthenticationManager#setPasswordHashingExecutor(PasswordHashingExecutor)
+ */
+public final class PasswordHashingExecutor implements DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(PasswordHashingExecutor.class);
+
+	private static final AtomicInteger poolNumber = new AtomicInteger();
+
+	private final ThreadPoolExecutor executor;
+
+	private final LongAdder executedCount = new LongAdder();
+
+	private final LongAdder rejectedCount = new LongAdder();
+
+	private final LongAdder totalWaitTime = new LongAdder();
+
+	private final LongAccumulator maxWaitTime = new LongAccumulator(Math::max, 0);
+
+	private final LongAdder timedOutCount = new LongAdder();
+
+	private volatile Duration executeTimeout = Duration.ofSeconds(5);
+
+	/**
+	 * Creates an executor with one thread per available processor and a queue of one
+	 * task per thread.
+	 */
+	public PasswordHashingExecutor() {
+		this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates an executor.
+	 * @param poolSize the number of threads hashing passwords
+	 * @param queueCapacity the maximum number of tasks waiting for a thread, beyond
+	 * which tasks are rejected
+	 */
+	public PasswordHashingExecutor(int poolSize, int queueCapacity) {
+		Assert.isTrue(poolSize > 0, "poolSize must be positive");
+		Assert.isTrue(queueCapacity > 0, "queueCapacity must be positive");
+		String prefix = "password-hashing-" + poolNumber.incrementAndGet() + "-";
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), (runnable) -> {
+					Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	/**
+	 * Runs the task on the pool, blocking the calling thread until its result is
+	 * available or the {@link #setExecuteTimeout(Duration) execute timeout} elapses.
+	 * @param task the hashing task
+	 * @return the result of the task
+	 * @throws AuthenticationServiceException if the task is rejected because the queue is
+	 * full, or is not completed within the execute timeout
+	 */
+	public <T> T execute(Supplier<T> task) {
+		CompletableFuture<T> result = submit(task);
+		try {
+			return result.get(this.executeTimeout.toNanos(), TimeUnit.NANOSECONDS);
+		}
+		catch (TimeoutException ex) {
+			// a task still queued is skipped once cancelled
+			result.cancel(false);
+			this.timedOutCount.increment();
+			throw new AuthenticationServiceException("Timed out waiting for password hashing", ex);
+		}
+		catch (InterruptedException ex) {
+			result.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new AuthenticationServiceException("Interrupted while waiting for password hashing", ex);
+		}
+		catch (ExecutionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			if (ex.getCause() instanceof Error) {
+				throw (Error) ex.getCause();
+			}
+			throw new CompletionException(ex.getCause());
+		}
+	}
+
+	/**
+	 * Submits the task to the pool.
+	 * @param task the hashing task
+	 * @return a {@link CompletableFuture} completed with the result of the task
+	 * @throws AuthenticationServiceException if the task is rejected because the queue is
+	 * full
+	 */
+	public <T> CompletableFuture<T> submit(Supplier<T> task) {
+		Assert.notNull(task, "task cannot be null");
+		CompletableFuture<T> result = new CompletableFuture<>();
+		long submittedAt = System.nanoTime();
+		try {
+			this.executor.execute(() -> {
+				if (result.isDone()) {
+					return;
+				}
+				long waitTime = System.nanoTime() - submittedAt;
+				this.totalWaitTime.add(waitTime);
+				this.maxWaitTime.accumulate(waitTime);
+				this.executedCount.increment();
+				try {
+					result.complete(task.get());
+				}
+				catch (Throwable ex) {
+					result.completeExceptionally(ex);
+				}
+			});
+		}
+		catch (RejectedExecutionException ex) {
+			this.rejectedCount.increment();
+			logger.debug(LogMessage.format("Rejected password hashing with %s tasks queued",
+					this.executor.getQueue().size()));
+			throw new AuthenticationServiceException("Too many concurrent password hashing requests", ex);
+		}
+		return result;
+	}
+
+	/**
+	 * Sets the maximum time {@link #execute(Supplier)} waits for a task to complete,
+	 * including the time it is queued. Defaults to 5 seconds.
+	 * @param executeTimeout the execute timeout
+	 */
+	public void setExecuteTimeout(Duration executeTimeout) {
+		Assert.notNull(executeTimeout, "executeTimeout cannot be null");
+		Assert.isTrue(!executeTimeout.isNegative() && !executeTimeout.isZero(), "executeTimeout must be positive");
+		this.executeTimeout = executeTimeout;
+	}
+
+	/**
+	 * Returns the number of tasks waiting for a thread.
+	 * @return the queue depth
+	 */
+	public int getQueueSize() {
+		return this.executor.getQueue().size();
+	}
+
+	/**
+	 * Returns the number of threads currently hashing.
+	 * @return the active thread count
+	 */
+	public int getActiveCount() {
+		return this.executor.getActiveCount();
+	}
+
+	/**
+	 * Returns the number of tasks which have been started.
+	 * @return the executed task count
+	 */
+	public long getExecutedCount() {
+		return this.executedCount.sum();
+	}
+
+	/**
+	 * Returns the number of tasks which have been rejected because the queue was full.
+	 * @return the rejected task count
+	 */
+	public long getRejectedCount() {
+		return this.rejectedCount.sum();
+	}
+
+	/**
+	 * Returns the number of tasks whose caller stopped waiting after the execute timeout.
+	 * @return the timed out task count
+	 */
+	public long getTimedOutCount() {
+		return this.timedOutCount.sum();
+	}
+
+	/**
+	 * Returns the total time tasks have waited in the queue before being started.
+	 * @return the total wait time
+	 */
+	public Duration getTotalWaitTime() {
+		return Duration.ofNanos(this.totalWaitTime.sum());
+	}
+
+	/**
+	 * Returns the longest time a task has waited in the queue before being started.
+	 * @return the maximum wait time
+	 */
+	public Duration getMaxWaitTime() {
+		return Duration.ofNanos(this.maxWaitTime.get());
+	}
+
+	@Override
+	public void destroy() {
+		this.executor.shutdown();
+	}
+
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.log.LogMessage;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.JdbcUserDetailsManager;
+import org.springframework.util.Assert;
+
+/**
+ * Upgrades the encoding of passwords in the background, so that users whose password
+ * {@link PasswordEncoder#upgradeEncoding(String) needs upgrading} do not wait for it to
+ * be encoded again and stored when they log in.
+ *
+ * <p>
+ * Upgrades are queued by {@link #upgrade(UserDetails, String)} and processed by a single
+ * background task, in batches of at most {@link #setBatchSize(int) batchSize} users.
+ * Repeated upgrades of a user which is already queued are ignored, and upgrades are
+ * dropped when {@link #setMaximumPending(int) maximumPending} users are queued, in which
+ * case the password is upgraded on a later login. When created with a
+ * {@link JdbcUserDetailsManager}, each batch is written in a single JDBC batch.
+ *
+ * <p>
+ * Until its upgrade is processed, the presented password of a user is held in memory
+ * and the user keeps logging in with its old encoding. The username and encoded password
+ * are copied when the upgrade is queued, so that the upgrade is not affected by
+ * {@link ProviderManager} erasing the credentials of the authenticated principal.
+ *
+ * <p>
+ * An upgrade is only stored if the user's password is still the one it was
+ * authenticated with, so that a password changed or reset in the meantime is never
+ * overwritten. With a {@link JdbcUserDetailsManager}, this is checked by the update
+ * statement itself. Otherwise the user is loaded again just before the upgrade is
+ * stored, which narrows the window for a concurrent change to that of a single update.
+ *
+ * @since 5.8
+ * @see DaoAuthenticationProvider#setAsyncPasswordUpgrader(AsyncPasswordUpgrader)
+ */
+public final class AsyncPasswordUpgrader implements DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(AsyncPasswordUpgrader.class);
+
+	private final PasswordEncoder passwordEncoder;
+
+	private final BatchWriter writer;
+
+	private final Map<String, String> pending = new ConcurrentHashMap<>();
+
+	private final Queue<PendingUpgrade> queue = new ConcurrentLinkedQueue<>();
+
+	private final AtomicBoolean draining = new AtomicBoolean();
+
+	private final LongAdder requestedCount = new LongAdder();
+
+	private final LongAdder coalescedCount = new LongAdder();
+
+	private final LongAdder droppedCount = new LongAdder();
+
+	private final LongAdder upgradedCount = new LongAdder();
+
+	private final LongAdder skippedCount = new LongAdder();
+
+	private final LongAdder failedCount = new LongAdder();
+
+	private final LongAdder batchCount = new LongAdder();
+
+	private Executor executor;
+
+	private ExecutorService defaultExecutor;
+
+	private int batchSize = 100;
+
+	private int maximumPending = 10000;
+
+	/**
+	 * Creates an instance storing upgraded passwords one at a time with the given
+	 * {@link UserDetailsPasswordService}, after checking with the given
+	 * {@link UserDetailsService} that the stored password has not changed since the user
+	 * was authenticated.
+	 * @param passwordEncoder the {@link PasswordEncoder} encoding the upgraded passwords
+	 * @param userDetailsService the {@link UserDetailsService} loading the stored
+	 * passwords, which should not be cached
+	 * @param passwordService the {@link UserDetailsPasswordService} to store them with
+	 */
+	public AsyncPasswordUpgrader(PasswordEncoder passwordEncoder, UserDetailsService userDetailsService,
+			UserDetailsPasswordService passwordService) {
+		Assert.notNull(passwordEncoder, "passwordEncoder cannot be null");
+		Assert.notNull(userDetailsService, "userDetailsService cannot be null");
+		Assert.notNull(passwordService, "passwordService cannot be null");
+		this.passwordEncoder = passwordEncoder;
+		this.writer = (passwords) -> {
+			for (Map.Entry<PendingUpgrade, String> password : passwords.entrySet()) {
+				PendingUpgrade upgrade = password.getKey();
+				try {
+					if (!isStored(userDetailsService, upgrade)) {
+						logger.debug(LogMessage.format("Not upgrading the password encoding of %s, "
+								+ "since its password has changed", upgrade.username));
+						this.skippedCount.increment();
+						continue;
+					}
+					passwordService.updatePassword(upgrade.user, password.getValue());
+					this.upgradedCount.increment();
+				}
+				catch (RuntimeException ex) {
+					this.failedCount.increment();
+					logger.warn(LogMessage.format("Failed to upgrade the password encoding of %s", upgrade.username),
+							ex);
+				}
+			}
+		};
+		this.executor = createDefaultExecutor();
+	}
+
+	/**
+	 * Creates an instance storing upgraded passwords in batches with
+	 * {@link JdbcUserDetailsManager#upgradePasswords(Map)}, which only updates the
+	 * passwords which have not changed since the users were authenticated.
+	 * @param passwordEncoder the {@link PasswordEncoder} encoding the upgraded passwords
+	 * @param userDetailsManager the {@link JdbcUserDetailsManager} to store them with
+	 */
+	public AsyncPasswordUpgrader(PasswordEncoder passwordEncoder, JdbcUserDetailsManager userDetailsManager) {
+		Assert.notNull(passwordEncoder, "passwordEncoder cannot be null");
+		Assert.notNull(userDetailsManager, "userDetailsManager cannot be null");
+		this.passwordEncoder = passwordEncoder;
+		this.writer = (passwords) -> {
+			Map<UserDetails, String> users = new LinkedHashMap<>();
+			passwords.forEach((upgrade, password) -> users.put(upgrade.toUser(), password));
+			int upgraded = userDetailsManager.upgradePasswords(users);
+			this.upgradedCount.add(upgraded);
+			this.skippedCount.add(passwords.size() - upgraded);
+		};
+		this.executor = createDefaultExecutor();
+	}
+
+	private static boolean isStored(UserDetailsService userDetailsService, PendingUpgrade upgrade) {
+		try {
+			UserDetails stored = userDetailsService.loadUserByUsername(upgrade.username);
+			return stored != null && upgrade.password.equals(stored.getPassword());
+		}
+		catch (UsernameNotFoundException ex) {
+			return false;
+		}
+	}
+
+	private Executor createDefaultExecutor() {
+		this.defaultExecutor = Executors.newSingleThreadExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "password-upgrade");
+			thread.setDaemon(true);
+			return thread;
+		});
+		return this.defaultExecutor;
+	}
+
+	/**
+	 * Queues the upgrade of the password of a user which has just been authenticated.
+	 * @param user the authenticated user, with its current encoded password
+	 * @param presentedPassword the password the user authenticated with
+	 */
+	public void upgrade(UserDetails user, String presentedPassword) {
+		Assert.notNull(user, "user cannot be null");
+		Assert.notNull(presentedPassword, "presentedPassword cannot be null");
+		Assert.notNull(user.getPassword(), "user must have a password");
+		this.requestedCount.increment();
+		PendingUpgrade upgrade = new PendingUpgrade(user);
+		if (this.pending.containsKey(upgrade.username)) {
+			this.coalescedCount.increment();
+			return;
+		}
+		if (this.pending.size() >= this.maximumPending) {
+			this.droppedCount.increment();
+			return;
+		}
+		if (this.pending.putIfAbsent(upgrade.username, presentedPassword) != null) {
+			this.coalescedCount.increment();
+			return;
+		}
+		this.queue.add(upgrade);
+		scheduleDrain();
+	}
+
+	private void scheduleDrain() {
+		if (!this.draining.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			this.executor.execute(this::drain);
+		}
+		catch (RejectedExecutionException ex) {
+			logger.debug("Unable to schedule password upgrades, dropping them", ex);
+			PendingUpgrade upgrade;
+			while ((upgrade = this.queue.poll()) != null) {
+				this.pending.remove(upgrade.username);
+				this.droppedCount.increment();
+			}
+			this.draining.set(false);
+		}
+	}
+
+	private void drain() {
+		try {
+			List<PendingUpgrade> batch = new ArrayList<>(this.batchSize);
+			PendingUpgrade upgrade;
+			while ((upgrade = this.queue.poll()) != null) {
+				batch.add(upgrade);
+				if (batch.size() >= this.batchSize) {
+					process(batch);
+					batch.clear();
+				}
+			}
+			process(batch);
+		}
+		finally {
+			this.draining.set(false);
+		}
+		// an upgrade may have been queued after the queue was found empty
+		if (!this.queue.isEmpty()) {
+			scheduleDrain();
+		}
+	}
+
+	private void process(List<PendingUpgrade> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		Map<PendingUpgrade, String> passwords = new LinkedHashMap<>();
+		try {
+			for (PendingUpgrade upgrade : batch) {
+				passwords.put(upgrade, this.passwordEncoder.encode(this.pending.get(upgrade.username)));
+			}
+			this.writer.write(passwords);
+			logger.debug(LogMessage.format("Processed the password upgrades of %s users", batch.size()));
+		}
+		catch (RuntimeException ex) {
+			this.failedCount.add(batch.size());
+			logger.warn(LogMessage.format("Failed to upgrade the password encoding of %s users", batch.size()), ex);
+		}
+		finally {
+			this.batchCount.increment();
+			batch.forEach((upgrade) -> this.pending.remove(upgrade.username));
+		}
+	}
+
+	/**
+	 * Returns the number of upgrades requested, including coalesced and dropped ones.
+	 * @return the requested upgrade count
+	 */
+	public long getRequestedCount() {
+		return this.requestedCount.sum();
+	}
+
+	/**
+	 * Returns the number of upgrades ignored because the user was already queued.
+	 * @return the coalesced upgrade count
+	 */
+	public long getCoalescedCount() {
+		return this.coalescedCount.sum();
+	}
+
+	/**
+	 * Returns the number of upgrades dropped because the queue was full.
+	 * @return the dropped upgrade count
+	 */
+	public long getDroppedCount() {
+		return this.droppedCount.sum();
+	}
+
+	/**
+	 * Returns the number of passwords which have been upgraded.
+	 * @return the upgraded password count
+	 */
+	public long getUpgradedCount() {
+		return this.upgradedCount.sum();
+	}
+
+	/**
+	 * Returns the number of upgrades not stored because the user's password had changed
+	 * since it was authenticated.
+	 * @return the skipped upgrade count
+	 */
+	public long getSkippedCount() {
+		return this.skippedCount.sum();
+	}
+
+	/**
+	 * Returns the number of passwords which failed to be upgraded.
+	 * @return the failed upgrade count
+	 */
+	public long getFailedCount() {
+		return this.failedCount.sum();
+	}
+
+	/**
+	 * Returns the number of batches which have been processed.
+	 * @return the batch count
+	 */
+	public long getBatchCount() {
+		return this.batchCount.sum();
+	}
+
+	/**
+	 * Returns the number of users whose upgrade is queued or being processed.
+	 * @return the pending upgrade count
+	 */
+	public int getPendingCount() {
+		return this.pending.size();
+	}
+
+	/**
+	 * Sets the {@link Executor} processing the upgrades. Defaults to a single daemon
+	 * thread.
+	 * @param executor the {@link Executor} to use
+	 */
+	public void setExecutor(Executor executor) {
+		Assert.notNull(executor, "executor cannot be null");
+		if (this.defaultExecutor != null) {
+			this.defaultExecutor.shutdown();
+			this.defaultExecutor = null;
+		}
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets the maximum number of passwords stored at once. Defaults to 100.
+	 * @param batchSize the maximum batch size
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "batchSize must be positive");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets the maximum number of queued upgrades, beyond which upgrades are dropped.
+	 * Defaults to 10000.
+	 * @param maximumPending the maximum number of queued upgrades
+	 */
+	public void setMaximumPending(int maximumPending) {
+		Assert.isTrue(maximumPending > 0, "maximumPending must be positive");
+		this.maximumPending = maximumPending;
+	}
+
+	@Override
+	public void destroy() {
+		if (this.defaultExecutor != null) {
+			this.defaultExecutor.shutdown();
+		}
+	}
+
+	@FunctionalInterface
+	private interface BatchWriter {
+
+		/**
+		 * Stores the encoded passwords of the users whose password has not changed, and
+		 * counts the upgraded, skipped and failed ones.
+		 */
+		void write(Map<PendingUpgrade, String> passwords);
+
+	}
+
+	/**
+	 * A queued upgrade, holding the username and encoded password the user was
+	 * authenticated with.
+	 */
+	private static final class PendingUpgrade {
+
+		private final UserDetails user;
+
+		private final String username;
+
+		private final String password;
+
+		private PendingUpgrade(UserDetails user) {
+			this.user = user;
+			this.username = user.getUsername();
+			this.password = user.getPassword();
+		}
+
+		private UserDetails toUser() {
+			return new User(this.username, this.password, Collections.emptyList());
+		}
+
+	}
+
+}
@@ -16,9 +16,12 @@
 
 package org.springframework.security.authentication.dao;
 
+import java.util.function.Supplier;
+
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.PasswordHashingExecutor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -26,6 +29,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.core.userdetails.cache.LocalUserCache;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.util.Assert;
@@ -59,6 +63,10 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 
 	private UserDetailsPasswordService userDetailsPasswordService;
 
+	private PasswordHashingExecutor passwordHashingExecutor;
+
+	private AsyncPasswordUpgrader asyncPasswordUpgrader;
+
 	public DaoAuthenticationProvider() {
 		setPasswordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder());
 	}
@@ -73,7 +81,7 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 					.getMessage("AbstractUserDetailsAuthenticationProvider.badCredentials", "Bad credentials"));
 		}
 		String presentedPassword = authentication.getCredentials().toString();
-		if (!this.passwordEncoder.matches(presentedPassword, userDetails.getPassword())) {
+		if (!matches(presentedPassword, userDetails.getPassword())) {
 			this.logger.debug("Failed to authenticate since password does not match stored value");
 			throw new BadCredentialsException(this.messages
 					.getMessage("AbstractUserDetailsAuthenticationProvider.badCredentials", "Bad credentials"));
@@ -90,7 +98,7 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 			throws AuthenticationException {
 		prepareTimingAttackProtection();
 		try {
-			UserDetails loadedUser = this.getUserDetailsService().loadUserByUsername(username);
+			UserDetails loadedUser = loadUser(username);
 			if (loadedUser == null) {
 				throw new InternalAuthenticationServiceException(
 						"UserDetailsService returned null, which is an interface contract violation");
@@ -112,16 +120,30 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 	@Override
 	protected Authentication createSuccessAuthentication(Object principal, Authentication authentication,
 			UserDetails user) {
+		if (this.asyncPasswordUpgrader != null) {
+			if (this.passwordEncoder.upgradeEncoding(user.getPassword())) {
+				this.asyncPasswordUpgrader.upgrade(user, authentication.getCredentials().toString());
+			}
+			return super.createSuccessAuthentication(principal, authentication, user);
+		}
 		boolean upgradeEncoding = this.userDetailsPasswordService != null
 				&& this.passwordEncoder.upgradeEncoding(user.getPassword());
 		if (upgradeEncoding) {
 			String presentedPassword = authentication.getCredentials().toString();
-			String newPassword = this.passwordEncoder.encode(presentedPassword);
+			String newPassword = hash(() -> this.passwordEncoder.encode(presentedPassword));
 			user = this.userDetailsPasswordService.updatePassword(user, newPassword);
 		}
 		return super.createSuccessAuthentication(principal, authentication, user);
 	}
 
+	private UserDetails loadUser(String username) {
+		if (getUserCache() instanceof LocalUserCache) {
+			// only one thread loads the user when many authenticate at the same time
+			return ((LocalUserCache) getUserCache()).load(username, this.getUserDetailsService()::loadUserByUsername);
+		}
+		return this.getUserDetailsService().loadUserByUsername(username);
+	}
+
 	private void prepareTimingAttackProtection() {
 		if (this.userNotFoundEncodedPassword == null) {
 			this.userNotFoundEncodedPassword = this.passwordEncoder.encode(USER_NOT_FOUND_PASSWORD);
@@ -131,10 +153,18 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 	private void mitigateAgainstTimingAttack(UsernamePasswordAuthenticationToken authentication) {
 		if (authentication.getCredentials() != null) {
 			String presentedPassword = authentication.getCredentials().toString();
-			this.passwordEncoder.matches(presentedPassword, this.userNotFoundEncodedPassword);
+			matches(presentedPassword, this.userNotFoundEncodedPassword);
 		}
 	}
 
+	private boolean matches(String presentedPassword, String encodedPassword) {
+		return hash(() -> this.passwordEncoder.matches(presentedPassword, encodedPassword));
+	}
+
+	private <T> T hash(Supplier<T> hashing) {
+		return (this.passwordHashingExecutor != null) ? this.passwordHashingExecutor.execute(hashing) : hashing.get();
+	}
+
 	/**
 	 * Sets the PasswordEncoder instance to be used to encode and validate passwords. If
 	 * not set, the password will be compared using
@@ -164,4 +194,36 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 		this.userDetailsPasswordService = userDetailsPasswordService;
 	}
 
+	/**
+	 * Sets the {@link PasswordHashingExecutor} on which passwords are verified and
+	 * encoded, rather than on the thread authenticating the request. The authenticating
+	 * thread blocks while its task is queued or running. When the executor is saturated,
+	 * or the task does not complete within the
+	 * {@link PasswordHashingExecutor#setExecuteTimeout(java.time.Duration) execute
+	 * timeout}, authentication fails with an
+	 * {@link org.springframework.security.authentication.AuthenticationServiceException}.
+	 * The default is to hash passwords on the authenticating thread.
+	 * @param passwordHashingExecutor the {@link PasswordHashingExecutor} to use, or
+	 * {@code null} to hash passwords on the authenticating thread
+	 * @since 5.8
+	 */
+	public void setPasswordHashingExecutor(PasswordHashingExecutor passwordHashingExecutor) {
+		this.passwordHashingExecutor = passwordHashingExecutor;
+	}
+
+	/**
+	 * Sets the {@link AsyncPasswordUpgrader} to which the upgrade of passwords whose
+	 * encoding {@link PasswordEncoder#upgradeEncoding(String) needs upgrading} is handed
+	 * off, rather than encoding and storing them with the
+	 * {@link #setUserDetailsPasswordService(UserDetailsPasswordService)
+	 * userDetailsPasswordService} before authentication completes. When set, the
+	 * authentication result contains the user with its old password.
+	 * @param asyncPasswordUpgrader the {@link AsyncPasswordUpgrader} to use, or
+	 * {@code null} to upgrade passwords while authenticating
+	 * @since 5.8
+	 */
+	public void setAsyncPasswordUpgrader(AsyncPasswordUpgrader asyncPasswordUpgrader) {
+		this.asyncPasswordUpgrader = asyncPasswordUpgrader;
+	}
+
 }
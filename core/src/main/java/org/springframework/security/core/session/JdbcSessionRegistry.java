@@ -0,0 +1,493 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.session;
+
+import java.security.Principal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.log.LogMessage;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.support.JdbcDaoSupport;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.SpringSecurityCoreVersion;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.Assert;
+
+/**
+ * JDBC based {@link SessionRegistry} which allows the concurrent session control of
+ * several application instances to share the same sessions.
+ * <p>
+ * Principals are stored by name: the username of a {@link UserDetails}, the name of an
+ * {@link AuthenticatedPrincipal} or a {@link Principal}, or else the {@code toString()}
+ * of the principal. Consequently {@link #getAllPrincipals()} returns the principal names,
+ * and so do the {@link SessionInformation} returned by
+ * {@link #getSessionInformation(String)} and {@link #getAllSessions(Object, boolean)}.
+ * <p>
+ * {@link #refreshLastRequest(String)} does not write to the database. The last request
+ * times are collected and written in batches by {@link #flush()}, which runs periodically
+ * on the {@link #setTaskScheduler(TaskScheduler) TaskScheduler} and when the registry is
+ * destroyed. {@link #getSessionInformation(String)}, which is invoked on every request by
+ * the {@code ConcurrentSessionFilter}, is served from a local cache whose entries live
+ * for {@link #setCacheTimeToLive(Duration) a few seconds}. As a result a session expired
+ * by another instance is seen as expired by this instance after at most that time.
+ *
+ * @since 5.8
+ * @see #CREATE_TABLE_SQL
+ */
+public class JdbcSessionRegistry extends JdbcDaoSupport
+		implements SessionRegistry, ApplicationListener<AbstractSessionEvent>, DisposableBean {
+
+	/** Default SQL for creating the database table to store the sessions */
+	public static final String CREATE_TABLE_SQL = "create table spring_security_sessions (session_id varchar(100) primary key, "
+			+ "principal_name varchar(100) not null, last_request timestamp not null, expired smallint not null)";
+
+	/** Default SQL for creating the index on the principal names of the sessions */
+	public static final String CREATE_INDEX_SQL = "create index ix_spring_security_sessions_principal "
+			+ "on spring_security_sessions (principal_name)";
+
+	/** The default SQL used by <tt>getSessionInformation</tt> */
+	public static final String DEF_SESSION_BY_ID_SQL = "select session_id, principal_name, last_request, expired "
+			+ "from spring_security_sessions where session_id = ?";
+
+	/** The default SQL used by <tt>getAllSessions</tt> */
+	public static final String DEF_SESSIONS_BY_PRINCIPAL_SQL = "select session_id, principal_name, last_request, expired "
+			+ "from spring_security_sessions where principal_name = ?";
+
+	/** The default SQL used by <tt>getAllPrincipals</tt> */
+	public static final String DEF_PRINCIPALS_SQL = "select distinct principal_name from spring_security_sessions";
+
+	/** The default SQL used by <tt>registerNewSession</tt> */
+	public static final String DEF_INSERT_SESSION_SQL = "insert into spring_security_sessions "
+			+ "(session_id, principal_name, last_request, expired) values (?, ?, ?, ?)";
+
+	/** The default SQL used by <tt>removeSessionInformation</tt> */
+	public static final String DEF_DELETE_SESSION_SQL = "delete from spring_security_sessions where session_id = ?";
+
+	/** The default SQL used when the id of a session changes */
+	public static final String DEF_UPDATE_SESSION_ID_SQL = "update spring_security_sessions set session_id = ? where session_id = ?";
+
+	/** The default SQL used by <tt>SessionInformation.expireNow()</tt> */
+	public static final String DEF_EXPIRE_SESSION_SQL = "update spring_security_sessions set expired = ? where session_id = ?";
+
+	/** The default SQL used by <tt>flush</tt> */
+	public static final String DEF_UPDATE_LAST_REQUEST_SQL = "update spring_security_sessions set last_request = ? "
+			+ "where session_id = ? and last_request < ?";
+
+	/**
+	 * The number of cached sessions looked at for an expired one to evict when the cache
+	 * is full.
+	 */
+	private static final int EVICTION_SAMPLE_SIZE = 8;
+
+	private final Map<String, CachedSession> cache = new ConcurrentHashMap<>();
+
+	private final Map<String, Long> pendingLastRequests = new ConcurrentHashMap<>();
+
+	private final LongAdder cacheHits = new LongAdder();
+
+	private final LongAdder cacheMisses = new LongAdder();
+
+	private final LongAdder flushedLastRequests = new LongAdder();
+
+	private Duration cacheTimeToLive = Duration.ofSeconds(5);
+
+	private int maxCacheSize = 10000;
+
+	private Duration flushInterval = Duration.ofSeconds(10);
+
+	private TaskScheduler taskScheduler;
+
+	private ThreadPoolTaskScheduler ownedTaskScheduler;
+
+	private ScheduledFuture<?> flusher;
+
+	private boolean createTableOnStartup;
+
+	private Clock clock = Clock.systemUTC();
+
+	@Override
+	protected void initDao() {
+		if (this.createTableOnStartup) {
+			getJdbcTemplate().execute(CREATE_TABLE_SQL);
+			getJdbcTemplate().execute(CREATE_INDEX_SQL);
+		}
+		TaskScheduler taskScheduler = this.taskScheduler;
+		if (taskScheduler == null) {
+			this.ownedTaskScheduler = new ThreadPoolTaskScheduler();
+			this.ownedTaskScheduler.setThreadNamePrefix("jdbc-session-registry-");
+			this.ownedTaskScheduler.setDaemon(true);
+			this.ownedTaskScheduler.initialize();
+			taskScheduler = this.ownedTaskScheduler;
+		}
+		this.flusher = taskScheduler.scheduleWithFixedDelay(this::flush, this.flushInterval);
+	}
+
+	@Override
+	public void destroy() {
+		if (this.flusher != null) {
+			this.flusher.cancel(false);
+			this.flusher = null;
+		}
+		if (this.ownedTaskScheduler != null) {
+			this.ownedTaskScheduler.shutdown();
+			this.ownedTaskScheduler = null;
+		}
+		flush();
+	}
+
+	@Override
+	public List<Object> getAllPrincipals() {
+		return new ArrayList<>(getJdbcTemplate().queryForList(DEF_PRINCIPALS_SQL, String.class));
+	}
+
+	@Override
+	public List<SessionInformation> getAllSessions(Object principal, boolean includeExpiredSessions) {
+		List<SessionInformation> sessions = getJdbcTemplate().query(DEF_SESSIONS_BY_PRINCIPAL_SQL,
+				(rs, rowNum) -> createSessionInformation(rs), getPrincipalName(principal));
+		List<SessionInformation> list = new ArrayList<>(sessions.size());
+		for (SessionInformation session : sessions) {
+			if (includeExpiredSessions || !session.isExpired()) {
+				list.add(session);
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public SessionInformation getSessionInformation(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		long now = this.clock.millis();
+		CachedSession cached = this.cache.get(sessionId);
+		if (cached != null && cached.expiresAt > now) {
+			this.cacheHits.increment();
+			return cached.session;
+		}
+		this.cacheMisses.increment();
+		List<SessionInformation> sessions = getJdbcTemplate().query(DEF_SESSION_BY_ID_SQL,
+				(rs, rowNum) -> createSessionInformation(rs), sessionId);
+		SessionInformation session = sessions.isEmpty() ? null : sessions.get(0);
+		if (!this.cacheTimeToLive.isZero()) {
+			if (this.cache.size() >= this.maxCacheSize) {
+				evictCachedSession(now);
+			}
+			this.cache.put(sessionId, new CachedSession(session, now + this.cacheTimeToLive.toMillis()));
+		}
+		return session;
+	}
+
+	/**
+	 * Makes room for a session in the full cache by evicting a single entry: the first
+	 * expired one among a few, or else the one of them expiring first.
+	 */
+	private void evictCachedSession(long now) {
+		Iterator<Map.Entry<String, CachedSession>> entries = this.cache.entrySet().iterator();
+		Map.Entry<String, CachedSession> eviction = null;
+		for (int i = 0; i < EVICTION_SAMPLE_SIZE && entries.hasNext(); i++) {
+			Map.Entry<String, CachedSession> entry = entries.next();
+			if (eviction == null || entry.getValue().expiresAt < eviction.getValue().expiresAt) {
+				eviction = entry;
+			}
+			if (eviction.getValue().expiresAt <= now) {
+				break;
+			}
+		}
+		if (eviction != null) {
+			this.cache.remove(eviction.getKey(), eviction.getValue());
+		}
+	}
+
+	@Override
+	public void onApplicationEvent(AbstractSessionEvent event) {
+		if (event instanceof SessionDestroyedEvent) {
+			SessionDestroyedEvent sessionDestroyedEvent = (SessionDestroyedEvent) event;
+			removeSessionInformation(sessionDestroyedEvent.getId());
+		}
+		else if (event instanceof SessionIdChangedEvent) {
+			SessionIdChangedEvent sessionIdChangedEvent = (SessionIdChangedEvent) event;
+			String oldSessionId = sessionIdChangedEvent.getOldSessionId();
+			String newSessionId = sessionIdChangedEvent.getNewSessionId();
+			this.cache.remove(oldSessionId);
+			this.cache.remove(newSessionId);
+			Long lastRequest = this.pendingLastRequests.remove(oldSessionId);
+			getJdbcTemplate().update(DEF_UPDATE_SESSION_ID_SQL, newSessionId, oldSessionId);
+			if (lastRequest != null) {
+				this.pendingLastRequests.merge(newSessionId, lastRequest, Math::max);
+			}
+		}
+	}
+
+	@Override
+	public void refreshLastRequest(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		SessionInformation info = getSessionInformation(sessionId);
+		if (info != null) {
+			info.refreshLastRequest();
+		}
+	}
+
+	@Override
+	public void registerNewSession(String sessionId, Object principal) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		Assert.notNull(principal, "Principal required as per interface contract");
+		this.logger.debug(LogMessage.format("Registering session %s, for principal %s", sessionId, principal));
+		this.pendingLastRequests.remove(sessionId);
+		this.cache.remove(sessionId);
+		getJdbcTemplate().update(DEF_DELETE_SESSION_SQL, sessionId);
+		getJdbcTemplate().update(DEF_INSERT_SESSION_SQL, sessionId, getPrincipalName(principal),
+				new Timestamp(this.clock.millis()), 0);
+	}
+
+	@Override
+	public void removeSessionInformation(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		this.logger.debug(LogMessage.format("Removing session %s from set of registered sessions", sessionId));
+		this.pendingLastRequests.remove(sessionId);
+		this.cache.remove(sessionId);
+		getJdbcTemplate().update(DEF_DELETE_SESSION_SQL, sessionId);
+	}
+
+	/**
+	 * Writes the last request times collected by {@link #refreshLastRequest(String)}
+	 * since the previous flush in a single batch.
+	 */
+	public void flush() {
+		List<Object[]> batch = new ArrayList<>();
+		for (String sessionId : this.pendingLastRequests.keySet()) {
+			Long lastRequest = this.pendingLastRequests.remove(sessionId);
+			if (lastRequest != null) {
+				Timestamp timestamp = new Timestamp(lastRequest);
+				batch.add(new Object[] { timestamp, sessionId, timestamp });
+			}
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+		try {
+			getJdbcTemplate().batchUpdate(DEF_UPDATE_LAST_REQUEST_SQL, batch);
+			this.flushedLastRequests.add(batch.size());
+		}
+		catch (DataAccessException ex) {
+			this.logger.warn(LogMessage.format("Failed to write the last request of %s sessions", batch.size()), ex);
+		}
+	}
+
+	/**
+	 * Returns the number of {@link #getSessionInformation(String)} invocations which were
+	 * served by the local cache.
+	 * @return the number of cache hits
+	 */
+	public long getCacheHitCount() {
+		return this.cacheHits.sum();
+	}
+
+	/**
+	 * Returns the number of {@link #getSessionInformation(String)} invocations which
+	 * queried the database.
+	 * @return the number of cache misses
+	 */
+	public long getCacheMissCount() {
+		return this.cacheMisses.sum();
+	}
+
+	/**
+	 * Returns the number of sessions whose last request is waiting to be written.
+	 * @return the number of pending last request updates
+	 */
+	public int getPendingLastRequestCount() {
+		return this.pendingLastRequests.size();
+	}
+
+	/**
+	 * Returns the number of last request updates written by {@link #flush()}.
+	 * @return the number of written last request updates
+	 */
+	public long getFlushedLastRequestCount() {
+		return this.flushedLastRequests.sum();
+	}
+
+	/**
+	 * Sets how long {@link #getSessionInformation(String)} results, including the
+	 * absence of a session, are cached. {@link Duration#ZERO} disables the cache. The
+	 * default is five seconds.
+	 * @param cacheTimeToLive the time to live of the cached sessions
+	 */
+	public void setCacheTimeToLive(Duration cacheTimeToLive) {
+		Assert.notNull(cacheTimeToLive, "cacheTimeToLive cannot be null");
+		Assert.isTrue(!cacheTimeToLive.isNegative(), "cacheTimeToLive cannot be negative");
+		this.cacheTimeToLive = cacheTimeToLive;
+	}
+
+	/**
+	 * Sets the number of sessions above which the local cache is pruned. The default is
+	 * 10000.
+	 * @param maxCacheSize the maximum number of cached sessions
+	 */
+	public void setMaxCacheSize(int maxCacheSize) {
+		Assert.isTrue(maxCacheSize > 0, "maxCacheSize must be greater than 0");
+		this.maxCacheSize = maxCacheSize;
+	}
+
+	/**
+	 * Sets the delay between two runs of {@link #flush()}. The default is ten seconds.
+	 * @param flushInterval the delay between two flushes
+	 */
+	public void setFlushInterval(Duration flushInterval) {
+		Assert.notNull(flushInterval, "flushInterval cannot be null");
+		Assert.isTrue(!flushInterval.isNegative() && !flushInterval.isZero(), "flushInterval must be positive");
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Sets the {@link TaskScheduler} which runs {@link #flush()}. The default is a single
+	 * daemon thread owned by this registry.
+	 * @param taskScheduler the {@link TaskScheduler} to use
+	 */
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		Assert.notNull(taskScheduler, "taskScheduler cannot be null");
+		this.taskScheduler = taskScheduler;
+	}
+
+	/**
+	 * Sets the {@link Clock} used for the last request times of the sessions and to
+	 * expire the cached sessions.
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	/**
+	 * Intended for convenience in debugging. Will create the spring_security_sessions
+	 * database table and its index when the class is initialized during the initDao
+	 * method.
+	 * @param createTableOnStartup set to true to create the table
+	 */
+	public void setCreateTableOnStartup(boolean createTableOnStartup) {
+		this.createTableOnStartup = createTableOnStartup;
+	}
+
+	private SessionInformation createSessionInformation(ResultSet rs) throws SQLException {
+		String sessionId = rs.getString(1);
+		String principal = rs.getString(2);
+		long lastRequest = rs.getTimestamp(3).getTime();
+		Long pendingLastRequest = this.pendingLastRequests.get(sessionId);
+		if (pendingLastRequest != null) {
+			lastRequest = Math.max(lastRequest, pendingLastRequest);
+		}
+		return new JdbcSessionInformation(this, principal, sessionId, new Date(lastRequest), rs.getBoolean(4));
+	}
+
+	private void expireNow(String sessionId) {
+		getJdbcTemplate().update(DEF_EXPIRE_SESSION_SQL, 1, sessionId);
+		this.cache.remove(sessionId);
+	}
+
+	private void lastRequestRefreshed(String sessionId, Date lastRequest) {
+		this.pendingLastRequests.merge(sessionId, lastRequest.getTime(), Math::max);
+	}
+
+	private static String getPrincipalName(Object principal) {
+		if (principal instanceof UserDetails) {
+			return ((UserDetails) principal).getUsername();
+		}
+		if (principal instanceof AuthenticatedPrincipal) {
+			return ((AuthenticatedPrincipal) principal).getName();
+		}
+		if (principal instanceof Principal) {
+			return ((Principal) principal).getName();
+		}
+		return principal.toString();
+	}
+
+	private static final class CachedSession {
+
+		private final SessionInformation session;
+
+		private final long expiresAt;
+
+		private CachedSession(SessionInformation session, long expiresAt) {
+			this.session = session;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+	/**
+	 * A {@link SessionInformation} which records its changes in the registry it was
+	 * loaded from, and takes its last request times from the registry's {@link Clock}.
+	 */
+	private static final class JdbcSessionInformation extends SessionInformation {
+
+		private static final long serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
+
+		private final transient JdbcSessionRegistry registry;
+
+		private volatile Date lastRequest;
+
+		private JdbcSessionInformation(JdbcSessionRegistry registry, Object principal, String sessionId,
+				Date lastRequest, boolean expired) {
+			super(principal, sessionId, lastRequest);
+			this.registry = registry;
+			this.lastRequest = lastRequest;
+			if (expired) {
+				super.expireNow();
+			}
+		}
+
+		@Override
+		public Date getLastRequest() {
+			return this.lastRequest;
+		}
+
+		@Override
+		public void expireNow() {
+			super.expireNow();
+			if (this.registry != null) {
+				this.registry.expireNow(getSessionId());
+			}
+		}
+
+		@Override
+		public void refreshLastRequest() {
+			if (this.registry == null) {
+				this.lastRequest = new Date();
+				return;
+			}
+			this.lastRequest = new Date(this.registry.clock.millis());
+			this.registry.lastRequestRefreshed(getSessionId(), this.lastRequest);
+		}
+
+	}
+
+}
@@ -0,0 +1,485 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.session;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.log.LogMessage;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.core.SpringSecurityCoreVersion;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link SessionRegistry} for applications with many concurrent logins.
+ * <p>
+ * Unlike {@link SessionRegistryImpl}, the sessions of each principal are kept in a small
+ * array guarded by one of a fixed number of locks, chosen by the hash of the principal,
+ * rather than in a {@link java.util.concurrent.CopyOnWriteArraySet} updated through
+ * {@link java.util.concurrent.ConcurrentMap#compute}. Looking up a session by its id does
+ * not take any lock.
+ * <p>
+ * Like {@link SessionRegistryImpl}, sessions are removed when a
+ * {@link SessionDestroyedEvent} is received. In addition, {@link #sweep()} evicts the
+ * sessions which have not been used for longer than the
+ * {@link #setSessionTimeToLive(Duration) time to live}, in case their
+ * {@link SessionDestroyedEvent} was never published. When a
+ * {@link #setTaskScheduler(TaskScheduler) TaskScheduler} is configured,
+ * {@link #sweep()} is run periodically once {@link #afterPropertiesSet()} has been
+ * invoked.
+ * <p>
+ * The time to live must be longer than the session timeout of the container. Otherwise a
+ * session which was {@link SessionInformation#expireNow() expired}, for example because
+ * the principal exceeded its maximum number of sessions, would be forgotten, and so
+ * allowed, while its HTTP session is still valid.
+ *
+ * @since 5.8
+ * @see SessionRegistryImpl
+ */
+public class StripedSessionRegistry implements SessionRegistry, ApplicationListener<AbstractSessionEvent>,
+		InitializingBean, DisposableBean {
+
+	private static final int DEFAULT_STRIPES = 64;
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final Map<String, SessionInformation> sessionIds = new ConcurrentHashMap<>();
+
+	private final Stripe[] stripes;
+
+	private final LongAdder principalCount = new LongAdder();
+
+	private final AtomicLong sweepCount = new AtomicLong();
+
+	private volatile long lastSweepDuration;
+
+	private volatile long lastSweepEvictionCount;
+
+	private Duration sessionTimeToLive;
+
+	private Duration sweepInterval = Duration.ofMinutes(1);
+
+	private TaskScheduler taskScheduler;
+
+	private ScheduledFuture<?> sweeper;
+
+	private Clock clock = Clock.systemUTC();
+
+	public StripedSessionRegistry() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * Creates a new instance
+	 * @param stripes the number of locks which guard the sessions of the principals,
+	 * rounded up to a power of two
+	 */
+	public StripedSessionRegistry(int stripes) {
+		Assert.isTrue(stripes > 0, "stripes must be greater than 0");
+		int size = Integer.highestOneBit(stripes);
+		size = (size < stripes) ? size << 1 : size;
+		this.stripes = new Stripe[size];
+		for (int i = 0; i < size; i++) {
+			this.stripes[i] = new Stripe();
+		}
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (this.taskScheduler != null && this.sweeper == null) {
+			this.sweeper = this.taskScheduler.scheduleWithFixedDelay(this::sweep, this.sweepInterval);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (this.sweeper != null) {
+			this.sweeper.cancel(false);
+			this.sweeper = null;
+		}
+	}
+
+	@Override
+	public List<Object> getAllPrincipals() {
+		List<Object> principals = new ArrayList<>();
+		for (Stripe stripe : this.stripes) {
+			synchronized (stripe) {
+				principals.addAll(stripe.sessionsByPrincipal.keySet());
+			}
+		}
+		return principals;
+	}
+
+	@Override
+	public List<SessionInformation> getAllSessions(Object principal, boolean includeExpiredSessions) {
+		String[] sessionsUsedByPrincipal;
+		Stripe stripe = stripe(principal);
+		synchronized (stripe) {
+			PrincipalSessions sessions = stripe.sessionsByPrincipal.get(principal);
+			if (sessions == null) {
+				return Collections.emptyList();
+			}
+			sessionsUsedByPrincipal = sessions.toArray();
+		}
+		List<SessionInformation> list = new ArrayList<>(sessionsUsedByPrincipal.length);
+		for (String sessionId : sessionsUsedByPrincipal) {
+			SessionInformation sessionInformation = this.sessionIds.get(sessionId);
+			if (sessionInformation == null) {
+				continue;
+			}
+			if (includeExpiredSessions || !sessionInformation.isExpired()) {
+				list.add(sessionInformation);
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public SessionInformation getSessionInformation(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		return this.sessionIds.get(sessionId);
+	}
+
+	@Override
+	public void onApplicationEvent(AbstractSessionEvent event) {
+		if (event instanceof SessionDestroyedEvent) {
+			SessionDestroyedEvent sessionDestroyedEvent = (SessionDestroyedEvent) event;
+			removeSessionInformation(sessionDestroyedEvent.getId());
+		}
+		else if (event instanceof SessionIdChangedEvent) {
+			SessionIdChangedEvent sessionIdChangedEvent = (SessionIdChangedEvent) event;
+			SessionInformation info = this.sessionIds.get(sessionIdChangedEvent.getOldSessionId());
+			if (info != null) {
+				removeSessionInformation(info.getSessionId());
+				registerNewSession(sessionIdChangedEvent.getNewSessionId(), info.getPrincipal());
+			}
+		}
+	}
+
+	@Override
+	public void refreshLastRequest(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		SessionInformation info = this.sessionIds.get(sessionId);
+		if (info != null) {
+			info.refreshLastRequest();
+		}
+	}
+
+	@Override
+	public void registerNewSession(String sessionId, Object principal) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		Assert.notNull(principal, "Principal required as per interface contract");
+		if (this.sessionIds.containsKey(sessionId)) {
+			removeSessionInformation(sessionId);
+		}
+		this.logger.debug(LogMessage.format("Registering session %s, for principal %s", sessionId, principal));
+		this.sessionIds.put(sessionId, new StripedSessionInformation(this, principal, sessionId));
+		Stripe stripe = stripe(principal);
+		synchronized (stripe) {
+			PrincipalSessions sessions = stripe.sessionsByPrincipal.get(principal);
+			if (sessions == null) {
+				sessions = new PrincipalSessions();
+				stripe.sessionsByPrincipal.put(principal, sessions);
+				this.principalCount.increment();
+			}
+			sessions.add(sessionId);
+		}
+	}
+
+	@Override
+	public void removeSessionInformation(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		SessionInformation info = this.sessionIds.remove(sessionId);
+		if (info == null) {
+			return;
+		}
+		this.logger.debug(LogMessage.format("Removing session %s from set of registered sessions", sessionId));
+		removeFromPrincipal(info.getPrincipal(), sessionId);
+	}
+
+	/**
+	 * Evicts the sessions whose last request is older than the
+	 * {@link #setSessionTimeToLive(Duration) time to live}, if any, and forgets the
+	 * principals which no longer have any session.
+	 */
+	public void sweep() {
+		long start = System.nanoTime();
+		long evicted = 0;
+		if (this.sessionTimeToLive != null) {
+			long oldest = this.clock.millis() - this.sessionTimeToLive.toMillis();
+			for (SessionInformation info : this.sessionIds.values()) {
+				if (info.getLastRequest().getTime() < oldest
+						&& this.sessionIds.remove(info.getSessionId(), info)) {
+					removeFromPrincipal(info.getPrincipal(), info.getSessionId());
+					evicted++;
+				}
+			}
+		}
+		for (Stripe stripe : this.stripes) {
+			evicted += evictOrphans(stripe);
+		}
+		this.lastSweepEvictionCount = evicted;
+		this.lastSweepDuration = System.nanoTime() - start;
+		this.sweepCount.incrementAndGet();
+		if (evicted > 0) {
+			this.logger.debug(LogMessage.format("Evicted %s sessions from the registry", evicted));
+		}
+	}
+
+	/**
+	 * Returns the number of registered sessions.
+	 * @return the number of sessions
+	 */
+	public int getSessionCount() {
+		return this.sessionIds.size();
+	}
+
+	/**
+	 * Returns the number of principals which have at least one registered session.
+	 * @return the number of principals
+	 */
+	public long getPrincipalCount() {
+		return this.principalCount.sum();
+	}
+
+	/**
+	 * Returns the highest number of sessions registered for a single principal.
+	 * @return the highest number of sessions of a principal
+	 */
+	public int getMaxSessionsPerPrincipal() {
+		int max = 0;
+		for (Stripe stripe : this.stripes) {
+			synchronized (stripe) {
+				for (PrincipalSessions sessions : stripe.sessionsByPrincipal.values()) {
+					max = Math.max(max, sessions.size);
+				}
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Returns how many times {@link #sweep()} has run.
+	 * @return the number of sweeps
+	 */
+	public long getSweepCount() {
+		return this.sweepCount.get();
+	}
+
+	/**
+	 * Returns how long the last {@link #sweep()} took.
+	 * @return the duration of the last sweep
+	 */
+	public Duration getLastSweepDuration() {
+		return Duration.ofNanos(this.lastSweepDuration);
+	}
+
+	/**
+	 * Returns how many sessions the last {@link #sweep()} evicted.
+	 * @return the number of sessions evicted by the last sweep
+	 */
+	public long getLastSweepEvictionCount() {
+		return this.lastSweepEvictionCount;
+	}
+
+	/**
+	 * Sets how long a session may go without a request before {@link #sweep()} evicts it.
+	 * This must be longer than the session timeout of the container. The default is to
+	 * only remove sessions when their {@link SessionDestroyedEvent} is received.
+	 * @param sessionTimeToLive the time to live of an unused session
+	 */
+	public void setSessionTimeToLive(Duration sessionTimeToLive) {
+		Assert.notNull(sessionTimeToLive, "sessionTimeToLive cannot be null");
+		Assert.isTrue(!sessionTimeToLive.isNegative() && !sessionTimeToLive.isZero(),
+				"sessionTimeToLive must be positive");
+		this.sessionTimeToLive = sessionTimeToLive;
+	}
+
+	/**
+	 * Sets the {@link TaskScheduler} which runs {@link #sweep()} periodically. The
+	 * default is not to sweep the registry.
+	 * @param taskScheduler the {@link TaskScheduler} to use
+	 */
+	public void setTaskScheduler(TaskScheduler taskScheduler) {
+		Assert.notNull(taskScheduler, "taskScheduler cannot be null");
+		this.taskScheduler = taskScheduler;
+	}
+
+	/**
+	 * Sets the delay between two runs of {@link #sweep()}. The default is one minute.
+	 * @param sweepInterval the delay between two sweeps
+	 */
+	public void setSweepInterval(Duration sweepInterval) {
+		Assert.notNull(sweepInterval, "sweepInterval cannot be null");
+		Assert.isTrue(!sweepInterval.isNegative() && !sweepInterval.isZero(), "sweepInterval must be positive");
+		this.sweepInterval = sweepInterval;
+	}
+
+	/**
+	 * Sets the {@link Clock} used to record the last request of the sessions and to find
+	 * the sessions to evict.
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private void removeFromPrincipal(Object principal, String sessionId) {
+		Stripe stripe = stripe(principal);
+		synchronized (stripe) {
+			PrincipalSessions sessions = stripe.sessionsByPrincipal.get(principal);
+			if (sessions == null) {
+				return;
+			}
+			sessions.remove(sessionId);
+			if (sessions.size == 0) {
+				this.logger.debug(LogMessage.format("Removing principal %s from registry", principal));
+				stripe.sessionsByPrincipal.remove(principal);
+				this.principalCount.decrement();
+			}
+		}
+	}
+
+	private long evictOrphans(Stripe stripe) {
+		long evicted = 0;
+		synchronized (stripe) {
+			Iterator<Map.Entry<Object, PrincipalSessions>> entries = stripe.sessionsByPrincipal.entrySet().iterator();
+			while (entries.hasNext()) {
+				Map.Entry<Object, PrincipalSessions> entry = entries.next();
+				PrincipalSessions sessions = entry.getValue();
+				for (String sessionId : sessions.toArray()) {
+					SessionInformation info = this.sessionIds.get(sessionId);
+					if (info == null || !info.getPrincipal().equals(entry.getKey())) {
+						sessions.remove(sessionId);
+						evicted++;
+					}
+				}
+				if (sessions.size == 0) {
+					entries.remove();
+					this.principalCount.decrement();
+				}
+			}
+		}
+		return evicted;
+	}
+
+	private Stripe stripe(Object principal) {
+		int hash = principal.hashCode();
+		hash ^= (hash >>> 16);
+		return this.stripes[hash & (this.stripes.length - 1)];
+	}
+
+	/**
+	 * A {@link SessionInformation} whose last request is taken from the registry's
+	 * {@link Clock}, so that {@link StripedSessionRegistry#sweep()} compares times from the
+	 * same source.
+	 */
+	private static final class StripedSessionInformation extends SessionInformation {
+
+		private static final long serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
+
+		private final transient StripedSessionRegistry registry;
+
+		private volatile Date lastRequest;
+
+		private StripedSessionInformation(StripedSessionRegistry registry, Object principal, String sessionId) {
+			super(principal, sessionId, new Date(registry.clock.millis()));
+			this.registry = registry;
+			this.lastRequest = super.getLastRequest();
+		}
+
+		@Override
+		public Date getLastRequest() {
+			return this.lastRequest;
+		}
+
+		@Override
+		public void refreshLastRequest() {
+			this.lastRequest = (this.registry != null) ? new Date(this.registry.clock.millis()) : new Date();
+		}
+
+	}
+
+	private static final class Stripe {
+
+		private final Map<Object, PrincipalSessions> sessionsByPrincipal = new HashMap<>();
+
+	}
+
+	/**
+	 * The ids of the sessions of a principal, in registration order.
+	 */
+	private static final class PrincipalSessions {
+
+		private String[] sessionIds = new String[2];
+
+		private int size;
+
+		private void add(String sessionId) {
+			if (indexOf(sessionId) >= 0) {
+				return;
+			}
+			if (this.size == this.sessionIds.length) {
+				this.sessionIds = Arrays.copyOf(this.sessionIds, this.size << 1);
+			}
+			this.sessionIds[this.size++] = sessionId;
+		}
+
+		private void remove(String sessionId) {
+			int index = indexOf(sessionId);
+			if (index < 0) {
+				return;
+			}
+			System.arraycopy(this.sessionIds, index + 1, this.sessionIds, index, this.size - index - 1);
+			this.sessionIds[--this.size] = null;
+		}
+
+		private int indexOf(String sessionId) {
+			for (int i = 0; i < this.size; i++) {
+				if (this.sessionIds[i].equals(sessionId)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		private String[] toArray() {
+			return Arrays.copyOf(this.sessionIds, this.size);
+		}
+
+	}
+
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.userdetails.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.log.LogMessage;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.util.Assert;
+
+/**
+ * Caches {@link UserDetails} instances in memory, bounded in size and time to live.
+ *
+ * <p>
+ * Users are loaded through {@link #getUser(String, Function)} or
+ * {@link #load(String, Function)}, which make sure that only one thread at a time calls
+ * the loader for a given username, the other threads waiting for its result rather than
+ * all hitting the underlying store. The
+ * {@link org.springframework.security.authentication.CachingUserDetailsService} and the
+ * {@link org.springframework.security.authentication.dao.DaoAuthenticationProvider} both
+ * load users this way when configured with this cache.
+ *
+ * <p>
+ * When a {@link #setRefreshExecutor(Executor) refresh executor} is set, users which have
+ * been cached for longer than the {@link #setRefreshAfter(Duration) refresh time} are
+ * reloaded in the background the next time they are read, while the cached user keeps
+ * being returned, so that frequently used users never expire.
+ *
+ * <p>
+ * When the cache holds more than {@link #setMaximumSize(int) maximumSize} users, the
+ * expired ones are removed, then the oldest ones until it is 10% below that size.
+ *
+ * @since 5.8
+ */
+public class LocalUserCache implements UserCache {
+
+	private static final Log logger = LogFactory.getLog(LocalUserCache.class);
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final Map<String, CompletableFuture<UserDetails>> loads = new ConcurrentHashMap<>();
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder loadCount = new LongAdder();
+
+	private final LongAdder loadFailureCount = new LongAdder();
+
+	private final LongAdder totalLoadTime = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	private int maximumSize = 10000;
+
+	private Duration timeToLive = Duration.ofMinutes(5);
+
+	private Duration refreshAfter;
+
+	private Executor refreshExecutor;
+
+	private Clock clock = Clock.systemUTC();
+
+	@Override
+	public UserDetails getUserFromCache(String username) {
+		Entry entry = (username != null) ? this.entries.get(username) : null;
+		long now = this.clock.millis();
+		if (entry == null || isExpired(entry, now)) {
+			if (entry != null) {
+				this.entries.remove(username, entry);
+			}
+			this.missCount.increment();
+			logger.trace(LogMessage.format("Cache miss for username: %s", username));
+			return null;
+		}
+		this.hitCount.increment();
+		logger.trace(LogMessage.format("Cache hit for username: %s", username));
+		if (shouldRefresh(entry, now)) {
+			refresh(username, entry);
+		}
+		return entry.user;
+	}
+
+	@Override
+	public void putUserInCache(UserDetails user) {
+		long now = this.clock.millis();
+		// keep the loader, so that the user can still be refreshed
+		this.entries.compute(user.getUsername(),
+				(username, previous) -> new Entry(user, now, (previous != null) ? previous.loader : null));
+		evictIfNeeded();
+	}
+
+	@Override
+	public void removeUserFromCache(String username) {
+		this.loads.remove(username);
+		this.entries.remove(username);
+	}
+
+	/**
+	 * Obtains a {@link UserDetails} from the cache, loading it with the given loader if
+	 * it is not cached or has expired.
+	 * @param username the username of the user
+	 * @param loader the function loading the user, typically
+	 * {@link org.springframework.security.core.userdetails.UserDetailsService#loadUserByUsername(String)}
+	 * @return the cached or loaded user
+	 * @see #load(String, Function)
+	 */
+	public UserDetails getUser(String username, Function<String, ? extends UserDetails> loader) {
+		UserDetails user = getUserFromCache(username);
+		return (user != null) ? user : load(username, loader);
+	}
+
+	/**
+	 * Loads a {@link UserDetails} with the given loader and places it in the cache. If the
+	 * user is already being loaded by another thread, waits for that load and returns its
+	 * outcome instead of calling the loader again.
+	 * @param username the username of the user
+	 * @param loader the function loading the user
+	 * @return the loaded user, or {@code null} if the loader returned {@code null}
+	 */
+	public UserDetails load(String username, Function<String, ? extends UserDetails> loader) {
+		Assert.notNull(username, "username cannot be null");
+		Assert.notNull(loader, "loader cannot be null");
+		CompletableFuture<UserDetails> load = new CompletableFuture<>();
+		CompletableFuture<UserDetails> inProgress = this.loads.putIfAbsent(username, load);
+		if (inProgress != null) {
+			logger.trace(LogMessage.format("Waiting for the user %s to be loaded by another thread", username));
+			return join(inProgress);
+		}
+		long start = System.nanoTime();
+		try {
+			UserDetails user = loader.apply(username);
+			this.loadCount.increment();
+			if (user != null) {
+				Entry entry = new Entry(user, this.clock.millis(), loader);
+				// do not cache the user if it has been removed during the load
+				this.loads.computeIfPresent(username, (name, current) -> {
+					if (current == load) {
+						this.entries.put(name, entry);
+					}
+					return current;
+				});
+				evictIfNeeded();
+			}
+			load.complete(user);
+			return user;
+		}
+		catch (RuntimeException | Error ex) {
+			this.loadFailureCount.increment();
+			load.completeExceptionally(ex);
+			throw ex;
+		}
+		finally {
+			this.totalLoadTime.add(System.nanoTime() - start);
+			this.loads.remove(username, load);
+		}
+	}
+
+	private UserDetails join(CompletableFuture<UserDetails> load) {
+		try {
+			return load.join();
+		}
+		catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw ex;
+		}
+	}
+
+	private boolean isExpired(Entry entry, long now) {
+		return now - entry.loadedAt >= this.timeToLive.toMillis();
+	}
+
+	private boolean shouldRefresh(Entry entry, long now) {
+		return this.refreshExecutor != null && this.refreshAfter != null && entry.loader != null
+				&& now - entry.loadedAt >= this.refreshAfter.toMillis() && !entry.refreshing.get();
+	}
+
+	private void refresh(String username, Entry entry) {
+		if (!entry.refreshing.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			this.refreshExecutor.execute(() -> {
+				try {
+					load(username, entry.loader);
+				}
+				catch (UsernameNotFoundException ex) {
+					logger.debug(LogMessage.format("Removing user %s which could no longer be found", username));
+					this.entries.remove(username, entry);
+				}
+				catch (RuntimeException ex) {
+					logger.debug(LogMessage.format("Failed to refresh user %s", username), ex);
+				}
+			});
+			logger.trace(LogMessage.format("Refreshing user %s", username));
+		}
+		catch (RejectedExecutionException ex) {
+			entry.refreshing.set(false);
+			logger.debug(LogMessage.format("Could not refresh user %s", username), ex);
+		}
+	}
+
+	private void evictIfNeeded() {
+		if (this.entries.size() <= this.maximumSize || !this.evictionLock.tryLock()) {
+			return;
+		}
+		try {
+			long now = this.clock.millis();
+			List<Map.Entry<String, Entry>> live = new ArrayList<>(this.entries.size());
+			for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+				if (isExpired(entry.getValue(), now)) {
+					evict(entry.getKey(), entry.getValue());
+				}
+				else {
+					live.add(entry);
+				}
+			}
+			int target = this.maximumSize - this.maximumSize / 10;
+			if (live.size() > target) {
+				live.sort(Comparator.comparingLong((entry) -> entry.getValue().loadedAt));
+				for (int i = 0; i < live.size() - target; i++) {
+					evict(live.get(i).getKey(), live.get(i).getValue());
+				}
+			}
+			logger.debug(LogMessage.format("Cache holds %s users after eviction", this.entries.size()));
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	private void evict(String username, Entry entry) {
+		if (this.entries.remove(username, entry)) {
+			this.evictionCount.increment();
+		}
+	}
+
+	/**
+	 * Returns the number of times a cached user was found.
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Returns the number of times no cached user was found, or it had expired.
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Returns the number of times the loader has successfully been called, including
+	 * background refreshes.
+	 * @return the load count
+	 */
+	public long getLoadCount() {
+		return this.loadCount.sum();
+	}
+
+	/**
+	 * Returns the number of times the loader has thrown an exception, such as a
+	 * {@link UsernameNotFoundException}.
+	 * @return the load failure count
+	 */
+	public long getLoadFailureCount() {
+		return this.loadFailureCount.sum();
+	}
+
+	/**
+	 * Returns the total time spent in the loader, successfully or not.
+	 * @return the total load time
+	 */
+	public Duration getTotalLoadTime() {
+		return Duration.ofNanos(this.totalLoadTime.sum());
+	}
+
+	/**
+	 * Returns the number of users which have been evicted to keep the cache within its
+	 * {@link #setMaximumSize(int) maximum size}.
+	 * @return the eviction count
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.sum();
+	}
+
+	/**
+	 * Returns the number of users in the cache, including expired ones which have not
+	 * been removed yet.
+	 * @return the number of cached users
+	 */
+	public int getSize() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Sets the maximum number of cached users. Defaults to 10000.
+	 * @param maximumSize the maximum number of cached users
+	 */
+	public void setMaximumSize(int maximumSize) {
+		Assert.isTrue(maximumSize > 0, "maximumSize must be positive");
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Sets how long users are cached after being loaded. Defaults to 5 minutes.
+	 * @param timeToLive the time to live of cached users
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets how long after being loaded a user is reloaded in the background when read,
+	 * which should be less than the {@link #setTimeToLive(Duration) time to live}. Users
+	 * are only refreshed when a {@link #setRefreshExecutor(Executor) refresh executor} is
+	 * set.
+	 * @param refreshAfter the time after which users are refreshed, or {@code null} to
+	 * disable refreshing
+	 */
+	public void setRefreshAfter(Duration refreshAfter) {
+		Assert.isTrue(refreshAfter == null || !refreshAfter.isNegative(), "refreshAfter cannot be negative");
+		this.refreshAfter = refreshAfter;
+	}
+
+	/**
+	 * Sets the {@link Executor} used to refresh users in the background.
+	 * @param refreshExecutor the {@link Executor} to use, or {@code null} to disable
+	 * refreshing
+	 * @see #setRefreshAfter(Duration)
+	 */
+	public void setRefreshExecutor(Executor refreshExecutor) {
+		this.refreshExecutor = refreshExecutor;
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire and refresh users.
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static final class Entry {
+
+		private final UserDetails user;
+
+		private final long loadedAt;
+
+		private final Function<String, ? extends UserDetails> loader;
+
+		private final AtomicBoolean refreshing = new AtomicBoolean();
+
+		private Entry(UserDetails user, long loadedAt, Function<String, ? extends UserDetails> loader) {
+			this.user = user;
+			this.loadedAt = loadedAt;
+			this.loader = loader;
+		}
+
+	}
+
+}
@@ -18,8 +18,11 @@ package org.springframework.security.provisioning;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.sql.DataSource;
 
@@ -78,6 +81,9 @@ public class JdbcUserDetailsManager extends JdbcDaoImpl implements UserDetailsMa
 
 	public static final String DEF_CHANGE_PASSWORD_SQL = "update users set password = ? where username = ?";
 
+	public static final String DEF_UPGRADE_PASSWORD_SQL = "update users set password = ? "
+			+ "where username = ? and password = ?";
+
 	public static final String DEF_FIND_GROUPS_SQL = "select group_name from groups";
 
 	public static final String DEF_FIND_USERS_IN_GROUP_SQL = "select username from group_members gm, groups g "
@@ -122,6 +128,8 @@ public class JdbcUserDetailsManager extends JdbcDaoImpl implements UserDetailsMa
 
 	private String changePasswordSql = DEF_CHANGE_PASSWORD_SQL;
 
+	private String upgradePasswordSql = DEF_UPGRADE_PASSWORD_SQL;
+
 	private String findAllGroupsSql = DEF_FIND_GROUPS_SQL;
 
 	private String findUsersInGroupSql = DEF_FIND_USERS_IN_GROUP_SQL;
@@ -286,6 +294,39 @@ public class JdbcUserDetailsManager extends JdbcDaoImpl implements UserDetailsMa
 		this.userCache.removeUserFromCache(username);
 	}
 
+	/**
+	 * Upgrades the encoding of the passwords of many users in a single JDBC batch, using
+	 * the {@link #setUpgradePasswordSql(String) upgradePasswordSql}. A password is only
+	 * updated if it still equals {@link UserDetails#getPassword()}, so that a password
+	 * changed since the user was loaded is never overwritten. Unlike
+	 * {@link #changePassword(String, String)}, the current user is neither required nor
+	 * re-authenticated.
+	 * @param passwords the new encoded passwords, keyed by the users they were encoded
+	 * for
+	 * @return the number of passwords updated
+	 * @since 5.8
+	 */
+	public int upgradePasswords(Map<UserDetails, String> passwords) {
+		Assert.notNull(passwords, "passwords cannot be null");
+		if (passwords.isEmpty()) {
+			return 0;
+		}
+		List<Object[]> batchArgs = new ArrayList<>(passwords.size());
+		passwords.forEach((user, password) -> batchArgs
+				.add(new Object[] { password, user.getUsername(), user.getPassword() }));
+		this.logger.debug(LogMessage.format("Upgrading passwords of %s users", passwords.size()));
+		int[] updateCounts = getJdbcTemplate().batchUpdate(this.upgradePasswordSql, batchArgs);
+		passwords.keySet().forEach((user) -> this.userCache.removeUserFromCache(user.getUsername()));
+		int updated = 0;
+		for (int updateCount : updateCounts) {
+			// some drivers do not report the row count of batched statements
+			if (updateCount > 0 || updateCount == Statement.SUCCESS_NO_INFO) {
+				updated++;
+			}
+		}
+		return updated;
+	}
+
 	protected Authentication createNewAuthentication(Authentication currentAuth, String newPassword) {
 		UserDetails user = loadUserByUsername(currentAuth.getName());
 		UsernamePasswordAuthenticationToken newAuthentication = UsernamePasswordAuthenticationToken.authenticated(user,
@@ -458,6 +499,18 @@ public class JdbcUserDetailsManager extends JdbcDaoImpl implements UserDetailsMa
 		this.changePasswordSql = changePasswordSql;
 	}
 
+	/**
+	 * Sets the statement used by {@link #upgradePasswords(Map)}, taking the new password,
+	 * the username and the current password as parameters. Defaults to
+	 * {@link #DEF_UPGRADE_PASSWORD_SQL}.
+	 * @param upgradePasswordSql the statement upgrading a password
+	 * @since 5.8
+	 */
+	public void setUpgradePasswordSql(String upgradePasswordSql) {
+		Assert.hasText(upgradePasswordSql, "upgradePasswordSql should have text");
+		this.upgradePasswordSql = upgradePasswordSql;
+	}
+
 	public void setFindAllGroupsSql(String findAllGroupsSql) {
 		Assert.hasText(findAllGroupsSql, "findAllGroupsSql should have text");
 		this.findAllGroupsSql = findAllGroupsSql;
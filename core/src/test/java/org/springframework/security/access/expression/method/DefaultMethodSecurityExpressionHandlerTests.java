@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,11 @@
 
 package org.springframework.security.access.expression.method;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,19 +35,28 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.security.access.BulkPermissionEvaluator;
 import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 
 @ExtendWith(MockitoExtension.class)
 public class DefaultMethodSecurityExpressionHandlerTests {
@@ -167,6 +181,106 @@ public class DefaultMethodSecurityExpressionHandlerTests {
 		verify(upstream).close();
 	}
 
+	@Test
+	public void filterWhenBulkPermissionEvaluatorThenEvaluatesCollectionOnce() {
+		setupMocks();
+		BulkPermissionEvaluator permissionEvaluator = mock(BulkPermissionEvaluator.class);
+		BitSet granted = new BitSet();
+		granted.set(1);
+		given(permissionEvaluator.hasPermissions(eq(this.authentication), any(Collection.class), eq("read")))
+				.willReturn(granted);
+		this.handler.setPermissionEvaluator(permissionEvaluator);
+		List<String> list = new ArrayList<>(Arrays.asList("a", "b", "c"));
+		Expression expression = this.handler.getExpressionParser()
+				.parseExpression("hasPermission(filterObject, 'read')");
+		EvaluationContext context = this.handler.createEvaluationContext(this.authentication, this.methodInvocation);
+		Object filtered = this.handler.filter(list, expression, context);
+		assertThat(filtered).isSameAs(list);
+		assertThat(list).containsExactly("b");
+		verify(permissionEvaluator, never()).hasPermission(any(Authentication.class), any(), any());
+	}
+
+	@Test
+	public void filterWhenBulkPermissionEvaluatorAndArrayThenEvaluatesArrayOnce() {
+		setupMocks();
+		BulkPermissionEvaluator permissionEvaluator = mock(BulkPermissionEvaluator.class);
+		BitSet granted = new BitSet();
+		granted.set(0);
+		granted.set(2);
+		given(permissionEvaluator.hasPermissions(eq(this.authentication), any(Collection.class), eq("read")))
+				.willReturn(granted);
+		this.handler.setPermissionEvaluator(permissionEvaluator);
+		Expression expression = this.handler.getExpressionParser()
+				.parseExpression("hasPermission(filterObject, 'read')");
+		EvaluationContext context = this.handler.createEvaluationContext(this.authentication, this.methodInvocation);
+		Object filtered = this.handler.filter(new String[] { "a", "b", "c" }, expression, context);
+		assertThat((String[]) filtered).containsExactly("a", "c");
+	}
+
+	@Test
+	public void filterWhenBulkPermissionEvaluatorAndCompositeExpressionThenEvaluatesEachElement() {
+		setupMocks();
+		BulkPermissionEvaluator permissionEvaluator = mock(BulkPermissionEvaluator.class);
+		given(permissionEvaluator.hasPermission(any(Authentication.class), any(), any()))
+				.willAnswer((invocation) -> "a".equals(invocation.getArgument(1)));
+		this.handler.setPermissionEvaluator(permissionEvaluator);
+		List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+		Expression expression = this.handler.getExpressionParser()
+				.parseExpression("hasPermission(filterObject, 'read') and filterObject ne 'c'");
+		EvaluationContext context = this.handler.createEvaluationContext(this.authentication, this.methodInvocation);
+		this.handler.filter(list, expression, context);
+		assertThat(list).containsExactly("a");
+		verify(permissionEvaluator, never()).hasPermissions(any(Authentication.class), any(Collection.class), any());
+	}
+
+	@Test
+	public void setSpelCompilerModeWhenNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.handler.setSpelCompilerMode(null));
+	}
+
+	@Test
+	public void createEvaluationContextWhenSpelCompilerModeImmediateThenExpressionCompiled() {
+		setupMocks();
+		this.handler.setSpelCompilerMode(SpelCompilerMode.IMMEDIATE);
+		Authentication user = new TestingAuthenticationToken("user", "password", "ROLE_USER");
+		Expression expression = this.handler.getExpressionParser().parseExpression("hasRole('USER')");
+		for (int i = 0; i < 2; i++) {
+			EvaluationContext context = this.handler.createEvaluationContext(user, this.methodInvocation);
+			assertThat(expression.getValue(context, Boolean.class)).isTrue();
+		}
+		assertThat(ReflectionTestUtils.getField(expression, "compiledAst")).isNotNull();
+	}
+
+	@Test
+	public void createEvaluationContextWhenNoParameterReferencedThenParameterNamesNotResolved() throws Exception {
+		ParameterNameDiscoverer parameterNameDiscoverer = mock(ParameterNameDiscoverer.class);
+		this.handler.setParameterNameDiscoverer(parameterNameDiscoverer);
+		given(this.methodInvocation.getThis()).willReturn(new Bar());
+		given(this.methodInvocation.getMethod()).willReturn(Bar.class.getMethod("baz", String.class));
+		Expression expression = this.handler.getExpressionParser().parseExpression("true");
+		EvaluationContext context = this.handler.createEvaluationContext(this.authentication, this.methodInvocation);
+		expression.getValue(context, Boolean.class);
+		verifyZeroInteractions(parameterNameDiscoverer);
+	}
+
+	@Test
+	public void createEvaluationContextWhenParameterReferencedThenParameterNamesResolvedOnce() throws Exception {
+		ParameterNameDiscoverer parameterNameDiscoverer = mock(ParameterNameDiscoverer.class);
+		Method baz = Bar.class.getMethod("baz", String.class);
+		given(parameterNameDiscoverer.getParameterNames(baz)).willReturn(new String[] { "name" });
+		this.handler.setParameterNameDiscoverer(parameterNameDiscoverer);
+		given(this.methodInvocation.getThis()).willReturn(new Bar());
+		given(this.methodInvocation.getMethod()).willReturn(baz);
+		given(this.methodInvocation.getArguments()).willReturn(new Object[] { "rob" });
+		Expression expression = this.handler.getExpressionParser().parseExpression("#name == 'rob'");
+		for (int i = 0; i < 2; i++) {
+			EvaluationContext context = this.handler.createEvaluationContext(this.authentication,
+					this.methodInvocation);
+			assertThat(expression.getValue(context, Boolean.class)).isTrue();
+		}
+		verify(parameterNameDiscoverer, times(1)).getParameterNames(baz);
+	}
+
 	static class Foo {
 
 		void bar() {
@@ -174,4 +288,11 @@ public class DefaultMethodSecurityExpressionHandlerTests {
 
 	}
 
+	public static class Bar {
+
+		public void baz(String name) {
+		}
+
+	}
+
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.access.hierarchicalroles;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link CompiledRoleHierarchy}.
+ */
+public class CompiledRoleHierarchyTests {
+
+	@Test
+	public void getReachableGrantedAuthoritiesWhenNullOrEmptyThenEmpty() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy("ROLE_A > ROLE_B");
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(null)).isEmpty();
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(new ArrayList<>())).isEmpty();
+	}
+
+	@Test
+	public void getReachableGrantedAuthoritiesWhenTransitiveThenAllReachable() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy(
+				"ROLE_A > ROLE_B\nROLE_A > ROLE_C\nROLE_C > ROLE_D\nROLE_B > ROLE_D");
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_A")))
+				.containsExactly(AuthorityUtils.createAuthorityList("ROLE_A", "ROLE_B", "ROLE_C", "ROLE_D")
+						.toArray(new GrantedAuthority[0]));
+		assertThat(roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_0", "ROLE_C", "ROLE_D")))
+						.containsExactly(AuthorityUtils.createAuthorityList("ROLE_0", "ROLE_C", "ROLE_D")
+								.toArray(new GrantedAuthority[0]));
+	}
+
+	@Test
+	public void getReachableGrantedAuthoritiesWhenSameAuthoritiesInAnyOrderThenCachedResultReturned() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy("ROLE_A > ROLE_B");
+		Collection<GrantedAuthority> reachable = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_A", "ROLE_0"));
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_A", "ROLE_0")))
+				.isSameAs(reachable);
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_0", "ROLE_A")))
+				.isSameAs(reachable);
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(
+				new HashSet<>(AuthorityUtils.createAuthorityList("ROLE_A", "ROLE_0")))).isSameAs(reachable);
+		assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(reachable::clear);
+	}
+
+	@Test
+	public void getReachableGrantedAuthoritiesWhenRepeatedNameWithSameHashThenNotMatchedWithOtherNames() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy("ROLE_A > ROLE_B");
+		// "Aa" and "BB" have the same hash code
+		Collection<GrantedAuthority> reachable = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("Aa", "BB"));
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("Aa", "Aa")))
+				.isNotSameAs(reachable).extracting(GrantedAuthority::getAuthority).containsExactly("Aa");
+	}
+
+	@Test
+	public void getReachableGrantedAuthoritiesWhenCacheFullThenLeastRecentlyUsedEvicted() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy("ROLE_A > ROLE_B");
+		roleHierarchy.setCacheSize(4);
+		List<Collection<GrantedAuthority>> reachable = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_" + i);
+			reachable.add(roleHierarchy.getReachableGrantedAuthorities(authorities));
+		}
+		roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_0"));
+		roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_4"));
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_0")))
+				.isSameAs(reachable.get(0));
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_1")))
+				.isNotSameAs(reachable.get(1));
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_3")))
+				.isSameAs(reachable.get(3));
+	}
+
+	@Test
+	public void getReachableGrantedAuthoritiesWhenCacheFullThenStillCorrect() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy("ROLE_A > ROLE_B");
+		roleHierarchy.setCacheSize(2);
+		for (int i = 0; i < 10; i++) {
+			assertThat(roleHierarchy
+					.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList("ROLE_A", "ROLE_" + i)))
+							.containsExactly(AuthorityUtils.createAuthorityList("ROLE_A", "ROLE_B", "ROLE_" + i)
+									.toArray(new GrantedAuthority[0]));
+		}
+	}
+
+	@Test
+	public void getReachableGrantedAuthoritiesWhenRandomHierarchyThenSameAsRoleHierarchyImpl() {
+		Random random = new Random(42);
+		for (int run = 0; run < 100; run++) {
+			StringBuilder hierarchy = new StringBuilder();
+			for (int i = 0; i < 15; i++) {
+				int higher = random.nextInt(10);
+				int lower = higher + 1 + random.nextInt(10);
+				hierarchy.append("ROLE_").append(higher).append(" > ROLE_").append(lower).append("\n");
+			}
+			RoleHierarchyImpl expected = new RoleHierarchyImpl();
+			expected.setHierarchy(hierarchy.toString());
+			CompiledRoleHierarchy compiled = new CompiledRoleHierarchy(hierarchy.toString());
+			List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_" + random.nextInt(25),
+					"ROLE_" + random.nextInt(25), "ROLE_" + random.nextInt(25));
+			assertThat(HierarchicalRolesTestHelper.containTheSameGrantedAuthorities(
+					compiled.getReachableGrantedAuthorities(authorities),
+					expected.getReachableGrantedAuthorities(authorities))).isTrue();
+		}
+	}
+
+	@Test
+	public void constructorWhenCycleThenException() {
+		assertThatExceptionOfType(CycleInRoleHierarchyException.class)
+				.isThrownBy(() -> new CompiledRoleHierarchy("ROLE_A > ROLE_A"));
+		assertThatExceptionOfType(CycleInRoleHierarchyException.class)
+				.isThrownBy(() -> new CompiledRoleHierarchy("ROLE_A > ROLE_B\nROLE_B > ROLE_C\nROLE_C > ROLE_A"));
+		assertThatExceptionOfType(CycleInRoleHierarchyException.class)
+				.isThrownBy(() -> new CompiledRoleHierarchy("ROLE_C > ROLE_B\nROLE_B > ROLE_A\nROLE_A > ROLE_B"));
+	}
+
+	@Test
+	public void setCacheSizeWhenNegativeThenException() {
+		CompiledRoleHierarchy roleHierarchy = new CompiledRoleHierarchy("ROLE_A > ROLE_B");
+		assertThatIllegalArgumentException().isThrownBy(() -> roleHierarchy.setCacheSize(-1));
+	}
+
+}
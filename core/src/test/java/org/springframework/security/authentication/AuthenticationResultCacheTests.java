@@ -0,0 +1,192 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.PasswordEncodedUser;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.provisioning.UserDetailsManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link AuthenticationResultCache}.
+ */
+public class AuthenticationResultCacheTests {
+
+	private final Instant now = Instant.parse("2022-01-01T00:00:00Z");
+
+	private final AuthenticationResultCache cache = new AuthenticationResultCache();
+
+	private final AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+
+	@AfterEach
+	public void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	public void authenticateWhenSameCredentialsThenCachedResultUsed() {
+		givenAuthenticationSucceeds();
+		Authentication first = this.cache.authenticate(request("user", "password"), this.authenticationManager);
+		Authentication second = this.cache.authenticate(request("user", "password"), this.authenticationManager);
+		verify(this.authenticationManager).authenticate(any());
+		assertThat(second.isAuthenticated()).isTrue();
+		assertThat(second.getPrincipal()).isSameAs(first.getPrincipal());
+		assertThat(second.getDetails()).isEqualTo("details");
+		assertThat(this.cache.getHitCount()).isEqualTo(1);
+		assertThat(this.cache.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void authenticateWhenDifferentPasswordThenDelegated() {
+		givenAuthenticationSucceeds();
+		this.cache.authenticate(request("user", "password"), this.authenticationManager);
+		willThrow(new BadCredentialsException("bad")).given(this.authenticationManager).authenticate(any());
+		assertThatExceptionOfType(BadCredentialsException.class)
+				.isThrownBy(() -> this.cache.authenticate(request("user", "wrong"), this.authenticationManager));
+		assertThatExceptionOfType(BadCredentialsException.class)
+				.isThrownBy(() -> this.cache.authenticate(request("user", "wrong"), this.authenticationManager));
+		verify(this.authenticationManager, times(3)).authenticate(any());
+		assertThat(this.cache.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	public void authenticateWhenOtherAuthenticationManagerThenDelegated() {
+		givenAuthenticationSucceeds();
+		AuthenticationManager other = mock(AuthenticationManager.class);
+		willThrow(new BadCredentialsException("bad")).given(other).authenticate(any());
+		this.cache.authenticate(request("user", "password"), this.authenticationManager);
+		assertThatExceptionOfType(BadCredentialsException.class)
+				.isThrownBy(() -> this.cache.authenticate(request("user", "password"), other));
+		verify(other).authenticate(any());
+	}
+
+	@Test
+	public void authenticateWhenResultNotUsernamePasswordTokenThenCopyReturned() {
+		given(this.authenticationManager.authenticate(any())).willAnswer((invocation) -> {
+			TestingAuthenticationToken result = new TestingAuthenticationToken("user", null, "ROLE_USER");
+			result.setAuthenticated(true);
+			return result;
+		});
+		Authentication first = this.cache.authenticate(request("user", "password"), this.authenticationManager);
+		Authentication second = this.cache.authenticate(request("user", "password"), this.authenticationManager);
+		verify(this.authenticationManager).authenticate(any());
+		assertThat(second).isInstanceOf(TestingAuthenticationToken.class).isNotSameAs(first);
+		assertThat(second.getName()).isEqualTo("user");
+		assertThat(second.getAuthorities()).isEqualTo(first.getAuthorities());
+		assertThat(second.getDetails()).isEqualTo("details");
+	}
+
+	@Test
+	public void authenticateWhenUserEvictedDuringAuthenticationThenNotCached() {
+		given(this.authenticationManager.authenticate(any())).willAnswer((invocation) -> {
+			this.cache.evict("user");
+			return UsernamePasswordAuthenticationToken.authenticated("user", null,
+					AuthorityUtils.createAuthorityList("ROLE_USER"));
+		});
+		this.cache.authenticate(request("user", "password"), this.authenticationManager);
+		assertThat(this.cache.getSize()).isZero();
+	}
+
+	@Test
+	public void authenticateWhenExpiredThenDelegated() {
+		givenAuthenticationSucceeds();
+		this.cache.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		this.cache.authenticate(request("user", "password"), this.authenticationManager);
+		this.cache.setClock(Clock.fixed(this.now.plusSeconds(30), ZoneOffset.UTC));
+		this.cache.authenticate(request("user", "password"), this.authenticationManager);
+		verify(this.authenticationManager, times(2)).authenticate(any());
+	}
+
+	@Test
+	public void authenticateWhenNotUsernamePasswordThenNotCached() {
+		TestingAuthenticationToken token = new TestingAuthenticationToken("user", "password");
+		given(this.authenticationManager.authenticate(token)).willReturn(token);
+		this.cache.authenticate(token, this.authenticationManager);
+		this.cache.authenticate(token, this.authenticationManager);
+		verify(this.authenticationManager, times(2)).authenticate(token);
+		assertThat(this.cache.getSize()).isZero();
+	}
+
+	@Test
+	public void authenticateWhenFullThenNotCached() {
+		givenAuthenticationSucceeds();
+		this.cache.setMaximumSize(1);
+		this.cache.authenticate(request("user", "password"), this.authenticationManager);
+		this.cache.authenticate(request("other", "password"), this.authenticationManager);
+		assertThat(this.cache.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	public void evictingOnUpdateWhenPasswordUpdatedThenEvicted() {
+		givenAuthenticationSucceeds();
+		this.cache.authenticate(request("user", "password"), this.authenticationManager);
+		UserDetails user = PasswordEncodedUser.user();
+		UserDetailsPasswordService passwordService = mock(UserDetailsPasswordService.class);
+		given(passwordService.updatePassword(user, "new")).willReturn(user);
+		assertThat(this.cache.evictingOnUpdate(passwordService).updatePassword(user, "new")).isSameAs(user);
+		assertThat(this.cache.getSize()).isZero();
+	}
+
+	@Test
+	public void evictingOnUpdateWhenPasswordChangedThenEvicted() {
+		givenAuthenticationSucceeds();
+		this.cache.authenticate(request("user", "password"), this.authenticationManager);
+		this.cache.authenticate(request("other", "password"), this.authenticationManager);
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "password"));
+		UserDetailsManager userDetailsManager = mock(UserDetailsManager.class);
+		this.cache.evictingOnUpdate(userDetailsManager).changePassword("password", "new");
+		verify(userDetailsManager).changePassword("password", "new");
+		assertThat(this.cache.getSize()).isEqualTo(1);
+	}
+
+	private void givenAuthenticationSucceeds() {
+		given(this.authenticationManager.authenticate(any())).willAnswer((invocation) -> {
+			Authentication request = invocation.getArgument(0);
+			UsernamePasswordAuthenticationToken result = UsernamePasswordAuthenticationToken
+					.authenticated(request.getName(), null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+			result.setDetails(request.getDetails());
+			return result;
+		});
+	}
+
+	private UsernamePasswordAuthenticationToken request(String username, String password) {
+		UsernamePasswordAuthenticationToken request = UsernamePasswordAuthenticationToken.unauthenticated(username,
+				password);
+		request.setDetails("details");
+		return request;
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link PasswordHashingExecutor}.
+ */
+public class PasswordHashingExecutorTests {
+
+	private final PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1);
+
+	@AfterEach
+	public void destroy() {
+		this.executor.destroy();
+	}
+
+	@Test
+	public void executeThenRunsOnPoolThread() {
+		String thread = this.executor.execute(() -> Thread.currentThread().getName());
+		assertThat(thread).startsWith("password-hashing-");
+		assertThat(this.executor.getExecutedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void executeWhenTaskFailsThenExceptionRethrown() {
+		assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> this.executor.execute(() -> {
+			throw new IllegalStateException();
+		}));
+	}
+
+	@Test
+	public void submitWhenQueueFullThenRejected() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<Boolean> running = this.executor.submit(() -> {
+			started.countDown();
+			return await(release);
+		});
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<Boolean> queued = this.executor.submit(() -> true);
+		assertThat(this.executor.getQueueSize()).isEqualTo(1);
+		assertThat(this.executor.getActiveCount()).isEqualTo(1);
+		assertThatExceptionOfType(AuthenticationServiceException.class)
+				.isThrownBy(() -> this.executor.submit(() -> true));
+		assertThat(this.executor.getRejectedCount()).isEqualTo(1);
+		release.countDown();
+		assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(this.executor.getMaxWaitTime()).isPositive();
+		assertThat(this.executor.getTotalWaitTime()).isGreaterThanOrEqualTo(this.executor.getMaxWaitTime());
+	}
+
+	@Test
+	public void executeWhenTimeoutThenCancelledAndRejected() throws Exception {
+		PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 2);
+		try {
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			CompletableFuture<Boolean> running = executor.submit(() -> {
+				started.countDown();
+				return await(release);
+			});
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+			executor.setExecuteTimeout(Duration.ofMillis(10));
+			assertThatExceptionOfType(AuthenticationServiceException.class)
+					.isThrownBy(() -> executor.execute(() -> true));
+			assertThat(executor.getTimedOutCount()).isEqualTo(1);
+			CompletableFuture<Boolean> queued = executor.submit(() -> true);
+			release.countDown();
+			assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+			assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+			// the timed out task is skipped rather than run
+			assertThat(executor.getExecutedCount()).isEqualTo(2);
+		}
+		finally {
+			executor.destroy();
+		}
+	}
+
+	@Test
+	public void setExecuteTimeoutWhenInvalidThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.executor.setExecuteTimeout(null));
+		assertThatIllegalArgumentException().isThrownBy(() -> this.executor.setExecuteTimeout(Duration.ZERO));
+	}
+
+	@Test
+	public void constructorWhenInvalidThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new PasswordHashingExecutor(0, 1));
+		assertThatIllegalArgumentException().isThrownBy(() -> new PasswordHashingExecutor(1, 0));
+	}
+
+	private static boolean await(CountDownLatch latch) {
+		try {
+			return latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+}
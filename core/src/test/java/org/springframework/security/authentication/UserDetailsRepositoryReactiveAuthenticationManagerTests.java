@@ -16,6 +16,9 @@
 
 package org.springframework.security.authentication;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -34,6 +37,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsChecker;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.ArgumentMatchers.any;
@@ -101,6 +105,47 @@ public class UserDetailsRepositoryReactiveAuthenticationManagerTests {
 		verify(this.scheduler).schedule(any());
 	}
 
+	@Test
+	public void authenticateWhenPasswordHashingExecutorThenUsed() {
+		PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1);
+		given(this.userDetailsService.findByUsername(any())).willReturn(Mono.just(this.user));
+		given(this.encoder.matches(any(), any())).willReturn(true);
+		given(this.encoder.upgradeEncoding(any())).willReturn(true);
+		given(this.encoder.encode(any())).willReturn("encoded");
+		given(this.userDetailsPasswordService.updatePassword(any(), any())).willReturn(Mono.just(this.user));
+		this.manager.setScheduler(this.scheduler);
+		this.manager.setPasswordHashingExecutor(executor);
+		this.manager.setPasswordEncoder(this.encoder);
+		this.manager.setUserDetailsPasswordService(this.userDetailsPasswordService);
+		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated(this.user,
+				this.user.getPassword());
+		Authentication result = this.manager.authenticate(token).block();
+		assertThat(result.isAuthenticated()).isTrue();
+		assertThat(executor.getExecutedCount()).isEqualTo(2);
+		verify(this.userDetailsPasswordService).updatePassword(eq(this.user), eq("encoded"));
+		verifyZeroInteractions(this.scheduler);
+		executor.destroy();
+	}
+
+	@Test
+	public void authenticateWhenPasswordHashingExecutorSaturatedThenAuthenticationServiceException()
+			throws Exception {
+		PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1);
+		CountDownLatch release = new CountDownLatch(1);
+		executor.submit(() -> await(release));
+		executor.submit(() -> await(release));
+		given(this.userDetailsService.findByUsername(any())).willReturn(Mono.just(this.user));
+		this.manager.setPasswordHashingExecutor(executor);
+		this.manager.setPasswordEncoder(this.encoder);
+		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated(this.user,
+				this.user.getPassword());
+		assertThatExceptionOfType(AuthenticationServiceException.class)
+				.isThrownBy(() -> this.manager.authenticate(token).block());
+		verifyZeroInteractions(this.encoder);
+		release.countDown();
+		executor.destroy();
+	}
+
 	@Test
 	public void authenticateWhenPasswordServiceThenUpdated() {
 		String encodedPassword = "encoded";
@@ -231,4 +276,14 @@ public class UserDetailsRepositoryReactiveAuthenticationManagerTests {
 		verify(source).getMessage(eq(code), any(), any());
 	}
 
+	private static boolean await(CountDownLatch latch) {
+		try {
+			return latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.authentication.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.provisioning.JdbcUserDetailsManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * Tests for {@link AsyncPasswordUpgrader}.
+ */
+public class AsyncPasswordUpgraderTests {
+
+	private final PasswordEncoder passwordEncoder = NoOpPasswordEncoder.getInstance();
+
+	private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+
+	private final List<Runnable> tasks = new ArrayList<>();
+
+	@BeforeEach
+	public void setup() {
+		given(this.userDetailsService.loadUserByUsername(any()))
+				.willAnswer((invocation) -> user(invocation.getArgument(0)));
+	}
+
+	@Test
+	public void upgradeWhenSameUserQueuedThenCoalesced() {
+		UserDetailsPasswordService passwordService = mock(UserDetailsPasswordService.class);
+		AsyncPasswordUpgrader upgrader = upgrader(passwordService);
+		upgrader.upgrade(user("user"), "password");
+		upgrader.upgrade(user("user"), "password");
+		assertThat(upgrader.getPendingCount()).isEqualTo(1);
+		assertThat(this.tasks).hasSize(1);
+		verifyZeroInteractions(passwordService);
+		runTasks();
+		verify(passwordService).updatePassword(user("user"), "password");
+		assertThat(upgrader.getRequestedCount()).isEqualTo(2);
+		assertThat(upgrader.getCoalescedCount()).isEqualTo(1);
+		assertThat(upgrader.getUpgradedCount()).isEqualTo(1);
+		assertThat(upgrader.getPendingCount()).isZero();
+	}
+
+	@Test
+	public void upgradeWhenJdbcUserDetailsManagerThenWrittenInBatches() {
+		JdbcUserDetailsManager userDetailsManager = mock(JdbcUserDetailsManager.class);
+		given(userDetailsManager.upgradePasswords(anyMap()))
+				.willAnswer((invocation) -> invocation.<Map<?, ?>>getArgument(0).size());
+		AsyncPasswordUpgrader upgrader = new AsyncPasswordUpgrader(this.passwordEncoder, userDetailsManager);
+		upgrader.setExecutor(this.tasks::add);
+		upgrader.setBatchSize(2);
+		upgrader.upgrade(user("a"), "a");
+		upgrader.upgrade(user("b"), "b");
+		upgrader.upgrade(user("c"), "c");
+		runTasks();
+		verify(userDetailsManager, times(2)).upgradePasswords(anyMap());
+		assertThat(upgrader.getBatchCount()).isEqualTo(2);
+		assertThat(upgrader.getUpgradedCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void upgradeWhenPasswordChangedWhilePendingThenNewPasswordKept() {
+		InMemoryUserDetailsManager userDetailsManager = new InMemoryUserDetailsManager(user("user"));
+		AsyncPasswordUpgrader upgrader = new AsyncPasswordUpgrader(this.passwordEncoder, userDetailsManager,
+				userDetailsManager);
+		upgrader.setExecutor(this.tasks::add);
+		upgrader.upgrade(user("user"), "user");
+		userDetailsManager.updatePassword(user("user"), "{noop}changed");
+		runTasks();
+		assertThat(userDetailsManager.loadUserByUsername("user").getPassword()).isEqualTo("{noop}changed");
+		assertThat(upgrader.getSkippedCount()).isEqualTo(1);
+		assertThat(upgrader.getUpgradedCount()).isZero();
+	}
+
+	@Test
+	public void upgradeWhenJdbcPasswordChangedWhilePendingThenSkipped() {
+		JdbcUserDetailsManager userDetailsManager = mock(JdbcUserDetailsManager.class);
+		given(userDetailsManager.upgradePasswords(anyMap())).willReturn(0);
+		AsyncPasswordUpgrader upgrader = new AsyncPasswordUpgrader(this.passwordEncoder, userDetailsManager);
+		upgrader.setExecutor(this.tasks::add);
+		upgrader.upgrade(user("user"), "user");
+		runTasks();
+		verify(userDetailsManager).upgradePasswords(Collections.singletonMap(user("user"), "user"));
+		assertThat(upgrader.getSkippedCount()).isEqualTo(1);
+		assertThat(upgrader.getUpgradedCount()).isZero();
+	}
+
+	@Test
+	public void upgradeWhenJdbcAndCredentialsErasedThenQueuedPasswordUsed() {
+		JdbcUserDetailsManager userDetailsManager = mock(JdbcUserDetailsManager.class);
+		given(userDetailsManager.upgradePasswords(anyMap())).willReturn(1);
+		AsyncPasswordUpgrader upgrader = new AsyncPasswordUpgrader(this.passwordEncoder, userDetailsManager);
+		upgrader.setExecutor(this.tasks::add);
+		User user = new User("user", "{noop}user", AuthorityUtils.NO_AUTHORITIES);
+		upgrader.upgrade(user, "user");
+		user.eraseCredentials();
+		runTasks();
+		ArgumentCaptor<Map<UserDetails, String>> passwords = ArgumentCaptor.forClass(Map.class);
+		verify(userDetailsManager).upgradePasswords(passwords.capture());
+		assertThat(passwords.getValue().keySet()).extracting(UserDetails::getPassword).containsExactly("{noop}user");
+		assertThat(upgrader.getUpgradedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void upgradeWhenCredentialsErasedThenUpgraded() {
+		InMemoryUserDetailsManager userDetailsManager = new InMemoryUserDetailsManager(user("user"));
+		AsyncPasswordUpgrader upgrader = new AsyncPasswordUpgrader(this.passwordEncoder, userDetailsManager,
+				userDetailsManager);
+		upgrader.setExecutor(this.tasks::add);
+		User user = new User("user", "{noop}user", AuthorityUtils.NO_AUTHORITIES);
+		upgrader.upgrade(user, "upgraded");
+		user.eraseCredentials();
+		runTasks();
+		assertThat(userDetailsManager.loadUserByUsername("user").getPassword()).isEqualTo("upgraded");
+		assertThat(upgrader.getUpgradedCount()).isEqualTo(1);
+		assertThat(upgrader.getFailedCount()).isZero();
+	}
+
+	@Test
+	public void upgradeWhenMaximumPendingThenDropped() {
+		AsyncPasswordUpgrader upgrader = upgrader(mock(UserDetailsPasswordService.class));
+		upgrader.setMaximumPending(1);
+		upgrader.upgrade(user("a"), "a");
+		upgrader.upgrade(user("b"), "b");
+		assertThat(upgrader.getDroppedCount()).isEqualTo(1);
+		runTasks();
+		assertThat(upgrader.getUpgradedCount()).isEqualTo(1);
+		upgrader.upgrade(user("b"), "b");
+		runTasks();
+		assertThat(upgrader.getUpgradedCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void upgradeWhenUpdateFailsThenCountedAndRetriedOnNextUpgrade() {
+		UserDetailsPasswordService passwordService = mock(UserDetailsPasswordService.class);
+		willThrow(new IllegalStateException()).given(passwordService).updatePassword(any(), any());
+		AsyncPasswordUpgrader upgrader = upgrader(passwordService);
+		upgrader.upgrade(user("user"), "password");
+		runTasks();
+		assertThat(upgrader.getFailedCount()).isEqualTo(1);
+		assertThat(upgrader.getPendingCount()).isZero();
+		willReturn(user("user")).given(passwordService).updatePassword(any(), any());
+		upgrader.upgrade(user("user"), "password");
+		runTasks();
+		assertThat(upgrader.getUpgradedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void upgradeWhenExecutorRejectsThenDropped() {
+		AsyncPasswordUpgrader upgrader = new AsyncPasswordUpgrader(this.passwordEncoder, this.userDetailsService,
+				mock(UserDetailsPasswordService.class));
+		upgrader.destroy();
+		upgrader.upgrade(user("user"), "password");
+		assertThat(upgrader.getDroppedCount()).isEqualTo(1);
+		assertThat(upgrader.getPendingCount()).isZero();
+	}
+
+	@Test
+	public void settersWhenInvalidThenException() {
+		AsyncPasswordUpgrader upgrader = upgrader(mock(UserDetailsPasswordService.class));
+		assertThatIllegalArgumentException().isThrownBy(() -> upgrader.setBatchSize(0));
+		assertThatIllegalArgumentException().isThrownBy(() -> upgrader.setMaximumPending(0));
+		assertThatIllegalArgumentException().isThrownBy(() -> upgrader.setExecutor(null));
+	}
+
+	private AsyncPasswordUpgrader upgrader(UserDetailsPasswordService passwordService) {
+		AsyncPasswordUpgrader upgrader = new AsyncPasswordUpgrader(this.passwordEncoder, this.userDetailsService,
+				passwordService);
+		upgrader.setExecutor(this.tasks::add);
+		return upgrader;
+	}
+
+	private void runTasks() {
+		while (!this.tasks.isEmpty()) {
+			this.tasks.remove(0).run();
+		}
+	}
+
+	private static UserDetails user(String username) {
+		return new User(username, "{noop}" + username, AuthorityUtils.NO_AUTHORITIES);
+	}
+
+}
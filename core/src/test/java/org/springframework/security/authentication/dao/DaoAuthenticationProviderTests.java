@@ -30,6 +30,8 @@ import org.springframework.security.authentication.CredentialsExpiredException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.LockedException;
+import org.springframework.security.authentication.PasswordHashingExecutor;
+import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -47,6 +49,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.NoOpPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -58,6 +61,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -228,6 +232,20 @@ public class DaoAuthenticationProviderTests {
 		assertThat(castResult.getDetails()).isEqualTo("192.168.0.1");
 	}
 
+	@Test
+	public void authenticateWhenPasswordHashingExecutorThenPasswordVerifiedOnExecutor() {
+		PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1);
+		DaoAuthenticationProvider provider = createProvider();
+		provider.setUserDetailsService(new MockUserDetailsServiceUserRod());
+		provider.setPasswordHashingExecutor(executor);
+		assertThat(provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("rod", "koala"))
+				.isAuthenticated()).isTrue();
+		assertThatExceptionOfType(BadCredentialsException.class).isThrownBy(
+				() -> provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("rod", "wrong")));
+		assertThat(executor.getExecutedCount()).isEqualTo(2);
+		executor.destroy();
+	}
+
 	@Test
 	public void testAuthenticatesASecondTime() {
 		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated("rod", "koala");
@@ -286,6 +304,59 @@ public class DaoAuthenticationProviderTests {
 		verify(passwordManager).updatePassword(eq(user), eq(encodedPassword));
 	}
 
+	@Test
+	public void authenticateWhenSuccessAndAsyncPasswordUpgraderThenUpgradedOnExecutor() {
+		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated("user",
+				"password");
+		PasswordEncoder encoder = mock(PasswordEncoder.class);
+		UserDetailsService userDetailsService = mock(UserDetailsService.class);
+		UserDetailsPasswordService passwordManager = mock(UserDetailsPasswordService.class);
+		List<Runnable> tasks = new ArrayList<>();
+		AsyncPasswordUpgrader upgrader = new AsyncPasswordUpgrader(encoder, userDetailsService, passwordManager);
+		upgrader.setExecutor(tasks::add);
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+		provider.setPasswordEncoder(encoder);
+		provider.setUserDetailsService(userDetailsService);
+		provider.setAsyncPasswordUpgrader(upgrader);
+		UserDetails user = PasswordEncodedUser.user();
+		given(encoder.matches(any(), any())).willReturn(true);
+		given(encoder.upgradeEncoding(any())).willReturn(true);
+		given(encoder.encode(any())).willReturn("encoded");
+		given(userDetailsService.loadUserByUsername(any())).willReturn(user);
+		Authentication result = provider.authenticate(token);
+		assertThat(result.getPrincipal()).isSameAs(user);
+		verify(encoder, never()).encode(any());
+		verifyZeroInteractions(passwordManager);
+		assertThat(tasks).hasSize(1);
+		tasks.get(0).run();
+		verify(passwordManager).updatePassword(eq(user), eq("encoded"));
+		assertThat(upgrader.getUpgradedCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void authenticateWhenProviderManagerErasesCredentialsThenAsyncPasswordUpgraded() {
+		PasswordEncoder encoder = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+		InMemoryUserDetailsManager userDetailsManager = new InMemoryUserDetailsManager(
+				User.withUsername("user").password("{noop}password").roles("USER").build());
+		List<Runnable> tasks = new ArrayList<>();
+		AsyncPasswordUpgrader upgrader = new AsyncPasswordUpgrader(encoder, userDetailsManager, userDetailsManager);
+		upgrader.setExecutor(tasks::add);
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+		provider.setPasswordEncoder(encoder);
+		provider.setUserDetailsService(userDetailsManager);
+		provider.setAsyncPasswordUpgrader(upgrader);
+		ProviderManager manager = new ProviderManager(provider);
+		Authentication result = manager
+				.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("user", "password"));
+		assertThat(((UserDetails) result.getPrincipal()).getPassword()).isNull();
+		assertThat(tasks).hasSize(1);
+		tasks.get(0).run();
+		assertThat(upgrader.getUpgradedCount()).isEqualTo(1);
+		assertThat(upgrader.getSkippedCount()).isZero();
+		assertThat(upgrader.getFailedCount()).isZero();
+		assertThat(userDetailsManager.loadUserByUsername("user").getPassword()).startsWith("{bcrypt}");
+	}
+
 	@Test
 	public void authenticateWhenBadCredentialsAndPasswordManagerThenNoUpdate() {
 		UsernamePasswordAuthenticationToken token = UsernamePasswordAuthenticationToken.unauthenticated("user",
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.session;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.TestDataSource;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link JdbcSessionRegistry}.
+ */
+public class JdbcSessionRegistryTests {
+
+	private static TestDataSource dataSource;
+
+	private JdbcSessionRegistry sessionRegistry;
+
+	private JdbcTemplate template;
+
+	@BeforeAll
+	public static void createDataSource() {
+		dataSource = new TestDataSource("jdbcsessionregistrytest");
+	}
+
+	@AfterAll
+	public static void clearDataSource() {
+		dataSource.destroy();
+		dataSource = null;
+	}
+
+	@BeforeEach
+	public void createRegistry() {
+		this.sessionRegistry = newSessionRegistry();
+		this.sessionRegistry.setCreateTableOnStartup(true);
+		this.sessionRegistry.afterPropertiesSet();
+		this.template = this.sessionRegistry.getJdbcTemplate();
+	}
+
+	@AfterEach
+	public void dropTable() {
+		this.sessionRegistry.destroy();
+		this.template.execute("drop table spring_security_sessions");
+	}
+
+	@Test
+	public void registerNewSessionWhenUserDetailsThenStoredAndReturnedByUsername() {
+		User user = new User("joe", "password", AuthorityUtils.NO_AUTHORITIES);
+		this.sessionRegistry.registerNewSession("1", user);
+		this.sessionRegistry.registerNewSession("2", user);
+		this.sessionRegistry.registerNewSession("3", "bob");
+		assertThat(this.sessionRegistry.getAllPrincipals()).containsExactlyInAnyOrder("joe", "bob");
+		assertThat(this.sessionRegistry.getAllSessions(user, false)).extracting(SessionInformation::getSessionId)
+				.containsExactlyInAnyOrder("1", "2");
+		assertThat(this.sessionRegistry.getAllSessions(user, false)).extracting(SessionInformation::getPrincipal)
+				.containsOnly("joe");
+		assertThat(this.sessionRegistry.getSessionInformation("1").getPrincipal()).isEqualTo("joe");
+	}
+
+	@Test
+	public void registerNewSessionThenLastRequestFromClock() {
+		Instant now = Instant.parse("2022-01-01T00:00:00Z");
+		this.sessionRegistry.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		this.sessionRegistry.registerNewSession("1", "joe");
+		assertThat(this.template.queryForObject(
+				"select last_request from spring_security_sessions where session_id = '1'", Timestamp.class))
+						.isEqualTo(Timestamp.from(now));
+	}
+
+	@Test
+	public void refreshLastRequestThenLastRequestFromClock() {
+		Instant now = Instant.parse("2022-01-01T00:00:00Z");
+		this.sessionRegistry.registerNewSession("1", "joe");
+		this.sessionRegistry.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		this.sessionRegistry.refreshLastRequest("1");
+		assertThat(this.sessionRegistry.getSessionInformation("1").getLastRequest()).isEqualTo(Date.from(now));
+	}
+
+	@Test
+	public void getSessionInformationWhenCacheFullThenSessionExpiringFirstEvicted() {
+		Instant now = Instant.now();
+		this.sessionRegistry.setMaxCacheSize(2);
+		this.sessionRegistry.registerNewSession("1", "joe");
+		this.sessionRegistry.registerNewSession("2", "joe");
+		this.sessionRegistry.registerNewSession("3", "joe");
+		for (int i = 1; i <= 3; i++) {
+			this.sessionRegistry.setClock(Clock.fixed(now.plusSeconds(i), ZoneOffset.UTC));
+			this.sessionRegistry.getSessionInformation(String.valueOf(i));
+		}
+		this.sessionRegistry.getSessionInformation("2");
+		this.sessionRegistry.getSessionInformation("3");
+		assertThat(this.sessionRegistry.getCacheMissCount()).isEqualTo(3);
+		assertThat(this.sessionRegistry.getCacheHitCount()).isEqualTo(2);
+		this.sessionRegistry.getSessionInformation("1");
+		assertThat(this.sessionRegistry.getCacheMissCount()).isEqualTo(4);
+	}
+
+	@Test
+	public void getSessionInformationWhenReadTwiceThenServedFromCache() {
+		this.sessionRegistry.registerNewSession("1", "joe");
+		SessionInformation session = this.sessionRegistry.getSessionInformation("1");
+		assertThat(this.sessionRegistry.getSessionInformation("1")).isSameAs(session);
+		assertThat(this.sessionRegistry.getSessionInformation("2")).isNull();
+		assertThat(this.sessionRegistry.getSessionInformation("2")).isNull();
+		assertThat(this.sessionRegistry.getCacheMissCount()).isEqualTo(2);
+		assertThat(this.sessionRegistry.getCacheHitCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void getSessionInformationWhenCacheEntryExpiredThenReloaded() {
+		this.sessionRegistry.registerNewSession("1", "joe");
+		SessionInformation session = this.sessionRegistry.getSessionInformation("1");
+		this.template.update("update spring_security_sessions set expired = 1 where session_id = '1'");
+		assertThat(this.sessionRegistry.getSessionInformation("1").isExpired()).isFalse();
+		this.sessionRegistry.setClock(Clock.offset(Clock.systemUTC(), Duration.ofSeconds(10)));
+		SessionInformation reloaded = this.sessionRegistry.getSessionInformation("1");
+		assertThat(reloaded).isNotSameAs(session);
+		assertThat(reloaded.isExpired()).isTrue();
+	}
+
+	@Test
+	public void getSessionInformationWhenOtherInstanceExpiresSessionThenExpired() {
+		JdbcSessionRegistry other = newSessionRegistry();
+		other.afterPropertiesSet();
+		this.sessionRegistry.registerNewSession("1", "joe");
+		other.getAllSessions("joe", false).get(0).expireNow();
+		other.destroy();
+		assertThat(this.sessionRegistry.getSessionInformation("1").isExpired()).isTrue();
+		assertThat(this.sessionRegistry.getAllSessions("joe", false)).isEmpty();
+		assertThat(this.sessionRegistry.getAllSessions("joe", true)).hasSize(1);
+	}
+
+	@Test
+	public void refreshLastRequestWhenFlushedThenWrittenInBatch() {
+		this.sessionRegistry.registerNewSession("1", "joe");
+		this.sessionRegistry.registerNewSession("2", "joe");
+		this.template.update("update spring_security_sessions set last_request = ?", new Timestamp(0));
+		this.sessionRegistry.refreshLastRequest("1");
+		this.sessionRegistry.refreshLastRequest("2");
+		this.sessionRegistry.refreshLastRequest("1");
+		assertThat(this.sessionRegistry.getPendingLastRequestCount()).isEqualTo(2);
+		assertThat(this.sessionRegistry.getAllSessions("joe", false)).extracting(SessionInformation::getLastRequest)
+				.allMatch((lastRequest) -> lastRequest.after(new Date(0)));
+		assertThat(lastRequest("1")).isEqualTo(new Timestamp(0));
+		this.sessionRegistry.flush();
+		assertThat(this.sessionRegistry.getPendingLastRequestCount()).isZero();
+		assertThat(this.sessionRegistry.getFlushedLastRequestCount()).isEqualTo(2);
+		assertThat(lastRequest("1")).isAfter(new Timestamp(0));
+		assertThat(lastRequest("2")).isAfter(new Timestamp(0));
+	}
+
+	@Test
+	public void onApplicationEventWhenSessionIdChangedThenMoved() {
+		this.sessionRegistry.registerNewSession("1", "joe");
+		this.sessionRegistry.onApplicationEvent(new SessionIdChangedEvent("") {
+			@Override
+			public String getOldSessionId() {
+				return "1";
+			}
+
+			@Override
+			public String getNewSessionId() {
+				return "2";
+			}
+		});
+		assertThat(this.sessionRegistry.getSessionInformation("1")).isNull();
+		assertThat(this.sessionRegistry.getSessionInformation("2").getPrincipal()).isEqualTo("joe");
+	}
+
+	@Test
+	public void removeSessionInformationWhenCachedThenRemoved() {
+		this.sessionRegistry.registerNewSession("1", "joe");
+		this.sessionRegistry.getSessionInformation("1");
+		this.sessionRegistry.removeSessionInformation("1");
+		assertThat(this.sessionRegistry.getSessionInformation("1")).isNull();
+		assertThat(this.sessionRegistry.getAllPrincipals()).isEmpty();
+	}
+
+	private Timestamp lastRequest(String sessionId) {
+		return this.template.queryForObject("select last_request from spring_security_sessions where session_id = ?",
+				Timestamp.class, sessionId);
+	}
+
+	private static JdbcSessionRegistry newSessionRegistry() {
+		JdbcSessionRegistry sessionRegistry = new JdbcSessionRegistry();
+		sessionRegistry.setDataSource(dataSource);
+		sessionRegistry.setFlushInterval(Duration.ofHours(1));
+		return sessionRegistry;
+	}
+
+}
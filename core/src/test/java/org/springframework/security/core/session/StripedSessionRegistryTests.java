@@ -0,0 +1,212 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.session;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.core.context.SecurityContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link StripedSessionRegistry}.
+ */
+public class StripedSessionRegistryTests {
+
+	private StripedSessionRegistry sessionRegistry = new StripedSessionRegistry();
+
+	@Test
+	public void constructorWhenStripesNotPositiveThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new StripedSessionRegistry(0));
+	}
+
+	@Test
+	public void registerNewSessionWhenSessionsThenGroupedByPrincipal() {
+		this.sessionRegistry.registerNewSession("1", "user");
+		this.sessionRegistry.registerNewSession("2", "user");
+		this.sessionRegistry.registerNewSession("3", "admin");
+		assertThat(this.sessionRegistry.getAllPrincipals()).containsExactlyInAnyOrder("user", "admin");
+		assertThat(this.sessionRegistry.getAllSessions("user", false)).extracting(SessionInformation::getSessionId)
+				.containsExactly("1", "2");
+		assertThat(this.sessionRegistry.getSessionInformation("3").getPrincipal()).isEqualTo("admin");
+		assertThat(this.sessionRegistry.getSessionCount()).isEqualTo(3);
+		assertThat(this.sessionRegistry.getPrincipalCount()).isEqualTo(2);
+		assertThat(this.sessionRegistry.getMaxSessionsPerPrincipal()).isEqualTo(2);
+	}
+
+	@Test
+	public void registerNewSessionWhenSameSessionIdThenReplaced() {
+		this.sessionRegistry.registerNewSession("1", "user");
+		this.sessionRegistry.registerNewSession("1", "admin");
+		assertThat(this.sessionRegistry.getAllPrincipals()).containsExactly("admin");
+		assertThat(this.sessionRegistry.getAllSessions("user", true)).isEmpty();
+		assertThat(this.sessionRegistry.getPrincipalCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void getAllSessionsWhenExpiredThenOnlyIncludedIfRequested() {
+		this.sessionRegistry.registerNewSession("1", "user");
+		this.sessionRegistry.registerNewSession("2", "user");
+		this.sessionRegistry.getSessionInformation("1").expireNow();
+		assertThat(this.sessionRegistry.getAllSessions("user", false)).extracting(SessionInformation::getSessionId)
+				.containsExactly("2");
+		assertThat(this.sessionRegistry.getAllSessions("user", true)).hasSize(2);
+	}
+
+	@Test
+	public void removeSessionInformationWhenLastSessionThenPrincipalRemoved() {
+		this.sessionRegistry.registerNewSession("1", "user");
+		this.sessionRegistry.registerNewSession("2", "user");
+		this.sessionRegistry.removeSessionInformation("1");
+		assertThat(this.sessionRegistry.getAllPrincipals()).containsExactly("user");
+		this.sessionRegistry.removeSessionInformation("2");
+		assertThat(this.sessionRegistry.getAllPrincipals()).isEmpty();
+		assertThat(this.sessionRegistry.getSessionInformation("2")).isNull();
+		assertThat(this.sessionRegistry.getPrincipalCount()).isZero();
+	}
+
+	@Test
+	public void onApplicationEventWhenSessionDestroyedThenRemoved() {
+		this.sessionRegistry.registerNewSession("1", "user");
+		this.sessionRegistry.onApplicationEvent(new SessionDestroyedEvent("") {
+			@Override
+			public String getId() {
+				return "1";
+			}
+
+			@Override
+			public List<SecurityContext> getSecurityContexts() {
+				return null;
+			}
+		});
+		assertThat(this.sessionRegistry.getSessionInformation("1")).isNull();
+		assertThat(this.sessionRegistry.getAllPrincipals()).isEmpty();
+	}
+
+	@Test
+	public void onApplicationEventWhenSessionIdChangedThenMoved() {
+		this.sessionRegistry.registerNewSession("1", "user");
+		this.sessionRegistry.onApplicationEvent(new SessionIdChangedEvent("") {
+			@Override
+			public String getOldSessionId() {
+				return "1";
+			}
+
+			@Override
+			public String getNewSessionId() {
+				return "2";
+			}
+		});
+		assertThat(this.sessionRegistry.getSessionInformation("1")).isNull();
+		assertThat(this.sessionRegistry.getAllSessions("user", false)).extracting(SessionInformation::getSessionId)
+				.containsExactly("2");
+	}
+
+	@Test
+	public void sweepWhenNoTimeToLiveThenSessionsKept() {
+		this.sessionRegistry.registerNewSession("1", "user");
+		this.sessionRegistry.setClock(Clock.offset(Clock.systemUTC(), Duration.ofDays(1)));
+		this.sessionRegistry.sweep();
+		assertThat(this.sessionRegistry.getSessionInformation("1")).isNotNull();
+		assertThat(this.sessionRegistry.getSweepCount()).isEqualTo(1);
+		assertThat(this.sessionRegistry.getLastSweepEvictionCount()).isZero();
+	}
+
+	@Test
+	public void sweepWhenUnusedLongerThanTimeToLiveThenEvicted() {
+		this.sessionRegistry.setSessionTimeToLive(Duration.ofHours(1));
+		this.sessionRegistry.registerNewSession("1", "user");
+		this.sessionRegistry.registerNewSession("2", "user");
+		this.sessionRegistry.getSessionInformation("1").expireNow();
+		this.sessionRegistry.sweep();
+		assertThat(this.sessionRegistry.getAllSessions("user", true)).hasSize(2);
+		Instant later = Instant.now().plus(Duration.ofMinutes(90));
+		this.sessionRegistry.setClock(Clock.fixed(later, ZoneOffset.UTC));
+		this.sessionRegistry.sweep();
+		assertThat(this.sessionRegistry.getSessionInformation("1")).isNull();
+		assertThat(this.sessionRegistry.getSessionInformation("2")).isNull();
+		assertThat(this.sessionRegistry.getAllPrincipals()).isEmpty();
+		assertThat(this.sessionRegistry.getPrincipalCount()).isZero();
+		assertThat(this.sessionRegistry.getLastSweepEvictionCount()).isEqualTo(2);
+		assertThat(this.sessionRegistry.getSweepCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void registerNewSessionAndRefreshLastRequestThenTimesFromClock() {
+		Instant registered = Instant.parse("2022-01-01T00:00:00Z");
+		this.sessionRegistry.setClock(Clock.fixed(registered, ZoneOffset.UTC));
+		this.sessionRegistry.registerNewSession("1", "user");
+		assertThat(this.sessionRegistry.getSessionInformation("1").getLastRequest()).isEqualTo(Date.from(registered));
+		Instant refreshed = registered.plus(Duration.ofMinutes(5));
+		this.sessionRegistry.setClock(Clock.fixed(refreshed, ZoneOffset.UTC));
+		this.sessionRegistry.refreshLastRequest("1");
+		assertThat(this.sessionRegistry.getSessionInformation("1").getLastRequest()).isEqualTo(Date.from(refreshed));
+	}
+
+	@Test
+	public void afterPropertiesSetWhenTaskSchedulerThenSweepScheduled() {
+		TaskScheduler taskScheduler = mock(TaskScheduler.class);
+		ScheduledFuture<?> sweeper = mock(ScheduledFuture.class);
+		willReturn(sweeper).given(taskScheduler).scheduleWithFixedDelay(any(Runnable.class),
+				eq(Duration.ofSeconds(30)));
+		this.sessionRegistry.setTaskScheduler(taskScheduler);
+		this.sessionRegistry.setSweepInterval(Duration.ofSeconds(30));
+		this.sessionRegistry.afterPropertiesSet();
+		this.sessionRegistry.destroy();
+		verify(sweeper).cancel(false);
+	}
+
+	@Test
+	public void registerNewSessionWhenConcurrentThenAllRegistered() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch done = new CountDownLatch(8);
+		for (int thread = 0; thread < 8; thread++) {
+			int t = thread;
+			executor.execute(() -> {
+				for (int i = 0; i < 1000; i++) {
+					this.sessionRegistry.registerNewSession(t + "-" + i, "user" + (i % 10));
+				}
+				done.countDown();
+			});
+		}
+		assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+		executor.shutdown();
+		assertThat(this.sessionRegistry.getSessionCount()).isEqualTo(8000);
+		assertThat(this.sessionRegistry.getPrincipalCount()).isEqualTo(10);
+		assertThat(this.sessionRegistry.getAllSessions("user0", true)).hasSize(800);
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.core.userdetails.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests {@link LocalUserCache}.
+ */
+public class LocalUserCacheTests {
+
+	private final Instant now = Instant.parse("2022-01-01T00:00:00Z");
+
+	private final LocalUserCache cache = new LocalUserCache();
+
+	@Test
+	public void cacheOperationsAreSuccessful() {
+		this.cache.putUserInCache(user("john", "password"));
+		assertThat(this.cache.getUserFromCache("john").getPassword()).isEqualTo("password");
+		this.cache.removeUserFromCache("john");
+		assertThat(this.cache.getUserFromCache("john")).isNull();
+		assertThat(this.cache.getUserFromCache(null)).isNull();
+		assertThat(this.cache.getHitCount()).isEqualTo(1);
+		assertThat(this.cache.getMissCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void getUserFromCacheWhenExpiredThenNull() {
+		this.cache.setTimeToLive(Duration.ofMinutes(1));
+		this.cache.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		this.cache.putUserInCache(user("john", "password"));
+		this.cache.setClock(Clock.fixed(this.now.plusSeconds(59), ZoneOffset.UTC));
+		assertThat(this.cache.getUserFromCache("john")).isNotNull();
+		this.cache.setClock(Clock.fixed(this.now.plusSeconds(60), ZoneOffset.UTC));
+		assertThat(this.cache.getUserFromCache("john")).isNull();
+		assertThat(this.cache.getSize()).isZero();
+	}
+
+	@Test
+	public void getUserWhenNotCachedThenLoadedOnce() {
+		AtomicInteger loads = new AtomicInteger();
+		assertThat(this.cache.getUser("john", (username) -> {
+			loads.incrementAndGet();
+			return user(username, "password");
+		})).isNotNull();
+		assertThat(this.cache.getUser("john", (username) -> user(username, "other"))).isNotNull()
+				.extracting(UserDetails::getPassword).isEqualTo("password");
+		assertThat(loads).hasValue(1);
+		assertThat(this.cache.getLoadCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void loadWhenConcurrentThenLoaderCalledOnce() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		Function<String, UserDetails> loader = (username) -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			await(release);
+			return user(username, "password");
+		};
+		AtomicReference<UserDetails> first = new AtomicReference<>();
+		AtomicReference<UserDetails> second = new AtomicReference<>();
+		Thread firstCaller = new Thread(() -> first.set(this.cache.load("john", loader)));
+		Thread secondCaller = new Thread(() -> second.set(this.cache.load("john", loader)));
+		firstCaller.start();
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		secondCaller.start();
+		// wait until the second caller is parked on the load in flight
+		while (secondCaller.getState() != Thread.State.WAITING) {
+			assertThat(secondCaller.isAlive()).isTrue();
+			Thread.sleep(10);
+		}
+		release.countDown();
+		firstCaller.join(5000);
+		secondCaller.join(5000);
+		assertThat(loads).hasValue(1);
+		assertThat(first.get()).isNotNull();
+		assertThat(second.get()).isSameAs(first.get());
+		assertThat(this.cache.getUserFromCache("john")).isSameAs(first.get());
+	}
+
+	@Test
+	public void loadWhenLoaderFailsThenNotCached() {
+		assertThatExceptionOfType(UsernameNotFoundException.class).isThrownBy(() -> this.cache.load("john",
+				(username) -> {
+					throw new UsernameNotFoundException(username);
+				}));
+		assertThat(this.cache.getUserFromCache("john")).isNull();
+		assertThat(this.cache.getLoadFailureCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void getUserFromCacheWhenRefreshDueThenReloadedInBackground() {
+		this.cache.setTimeToLive(Duration.ofMinutes(5));
+		this.cache.setRefreshAfter(Duration.ofMinutes(1));
+		this.cache.setRefreshExecutor(Runnable::run);
+		this.cache.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+		AtomicInteger loads = new AtomicInteger();
+		this.cache.getUser("john", (username) -> user(username, "password" + loads.incrementAndGet()));
+		assertThat(this.cache.getUserFromCache("john").getPassword()).isEqualTo("password1");
+		this.cache.setClock(Clock.fixed(this.now.plusSeconds(90), ZoneOffset.UTC));
+		assertThat(this.cache.getUserFromCache("john").getPassword()).isEqualTo("password1");
+		assertThat(this.cache.getUserFromCache("john").getPassword()).isEqualTo("password2");
+		assertThat(loads).hasValue(2);
+	}
+
+	@Test
+	public void getUserFromCacheWhenRefreshedUserNotFoundThenRemoved() {
+		this.cache.setRefreshAfter(Duration.ZERO);
+		this.cache.setRefreshExecutor(Runnable::run);
+		AtomicInteger loads = new AtomicInteger();
+		this.cache.getUser("john", (username) -> {
+			if (loads.incrementAndGet() > 1) {
+				throw new UsernameNotFoundException(username);
+			}
+			return user(username, "password");
+		});
+		assertThat(this.cache.getUserFromCache("john")).isNotNull();
+		assertThat(this.cache.getUserFromCache("john")).isNull();
+	}
+
+	@Test
+	public void putUserInCacheWhenMaximumSizeExceededThenOldestEvicted() {
+		this.cache.setMaximumSize(10);
+		for (int i = 0; i < 20; i++) {
+			this.cache.setClock(Clock.fixed(this.now.plusSeconds(i), ZoneOffset.UTC));
+			this.cache.putUserInCache(user("user" + i, "password"));
+		}
+		assertThat(this.cache.getSize()).isLessThanOrEqualTo(10);
+		assertThat(this.cache.getEvictionCount()).isEqualTo(20 - this.cache.getSize());
+		assertThat(this.cache.getUserFromCache("user19")).isNotNull();
+		assertThat(this.cache.getUserFromCache("user0")).isNull();
+	}
+
+	@Test
+	public void settersWhenInvalidThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.cache.setMaximumSize(0));
+		assertThatIllegalArgumentException().isThrownBy(() -> this.cache.setTimeToLive(Duration.ZERO));
+		assertThatIllegalArgumentException().isThrownBy(() -> this.cache.setRefreshAfter(Duration.ofSeconds(-1)));
+		assertThatIllegalArgumentException().isThrownBy(() -> this.cache.setClock(null));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static UserDetails user(String username, String password) {
+		return new User(username, password, AuthorityUtils.createAuthorityList("ROLE_USER"));
+	}
+
+}
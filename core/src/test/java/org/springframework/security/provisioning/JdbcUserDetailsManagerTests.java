@@ -223,6 +223,29 @@ public class JdbcUserDetailsManagerTests {
 		assertThat(this.cache.getUserMap().containsKey("joe")).isFalse();
 	}
 
+	@Test
+	public void upgradePasswordsWhenBatchThenPasswordsUpdated() {
+		insertJoe();
+		this.template.execute("insert into users (username, password, enabled) values ('bob','password','true')");
+		Map<UserDetails, String> passwords = new HashMap<>();
+		passwords.put(this.manager.loadUserByUsername("joe"), "joePassword");
+		passwords.put(this.manager.loadUserByUsername("bob"), "bobPassword");
+		assertThat(this.manager.upgradePasswords(passwords)).isEqualTo(2);
+		assertThat(this.manager.loadUserByUsername("joe").getPassword()).isEqualTo("joePassword");
+		assertThat(this.template.queryForObject("select password from users where username = 'bob'", String.class))
+				.isEqualTo("bobPassword");
+		assertThat(this.cache.getUserMap().containsKey("joe")).isFalse();
+	}
+
+	@Test
+	public void upgradePasswordsWhenPasswordChangedSinceLoadedThenNotUpdated() {
+		insertJoe();
+		UserDetails joe = this.manager.loadUserByUsername("joe");
+		this.template.execute("update users set password = 'changedPassword' where username = 'joe'");
+		assertThat(this.manager.upgradePasswords(Collections.singletonMap(joe, "upgradedPassword"))).isZero();
+		assertThat(this.manager.loadUserByUsername("joe").getPassword()).isEqualTo("changedPassword");
+	}
+
 	@Test
 	public void changePasswordFailsIfReAuthenticationFails() {
 		insertJoe();
@@ -510,6 +510,30 @@ public class BCrypt {
 		}
 	}
 
+	/**
+	 * Copy the initial contents of the P-array of the key schedule
+	 * @return a new array holding the initial P-array
+	 */
+	static int[] initialP() {
+		return P_orig.clone();
+	}
+
+	/**
+	 * Copy the initial contents of the S-boxes of the key schedule
+	 * @return a new array holding the initial S-boxes
+	 */
+	static int[] initialS() {
+		return S_orig.clone();
+	}
+
+	/**
+	 * Copy the bcrypt IV, "OrpheanBeholderScryDoubt"
+	 * @return a new array holding the IV
+	 */
+	static int[] initialCipherText() {
+		return bf_crypt_ciphertext.clone();
+	}
+
 	static long roundsForLogRounds(int log_rounds) {
 		if (log_rounds < 4 || log_rounds > 31) {
 			throw new IllegalArgumentException("Bad number of rounds");
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.bcrypt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An implementation of {@link BCrypt#hashpw(byte[], String)} and
+ * {@link BCrypt#checkpw(byte[], String)} producing the same output, but avoiding most of
+ * their per call work:
+ *
+ * <ul>
+ * <li>the key material is extracted from the password and salt once, rather than on
+ * every round of the key schedule</li>
+ * <li>the Blowfish rounds are unrolled and work on local variables</li>
+ * <li>the result is compared with the expected hash without creating a string</li>
+ * </ul>
+ *
+ * Like {@link BCrypt}, each call allocates its own Blowfish state, so that nothing is
+ * retained between calls.
+ *
+ * @since 5.8
+ */
+final class BCryptEngine {
+
+	private static final int BCRYPT_SALT_LEN = 16;
+
+	private static final int KEY_WORDS = 18;
+
+	private static final int HASH_LEN = 23;
+
+	private BCryptEngine() {
+	}
+
+	/**
+	 * Hash a password using the OpenBSD bcrypt scheme
+	 * @param password the password to hash
+	 * @param salt the salt to hash with (perhaps generated using BCrypt.gensalt)
+	 * @return the hashed password
+	 * @see BCrypt#hashpw(String, String)
+	 */
+	static String hashpw(String password, String salt) {
+		return hashpw(password.getBytes(StandardCharsets.UTF_8), salt);
+	}
+
+	/**
+	 * Check that a plaintext password matches a previously hashed one
+	 * @param plaintext the plaintext password to verify
+	 * @param hashed the previously-hashed password
+	 * @return true if the passwords match, false otherwise
+	 * @see BCrypt#checkpw(String, String)
+	 */
+	static boolean checkpw(String plaintext, String hashed) {
+		return checkpw(plaintext.getBytes(StandardCharsets.UTF_8), hashed);
+	}
+
+	/**
+	 * Hash a password using the OpenBSD bcrypt scheme
+	 * @param password the password to hash
+	 * @param salt the salt to hash with (perhaps generated using BCrypt.gensalt)
+	 * @return the hashed password
+	 * @see BCrypt#hashpw(byte[], String)
+	 */
+	static String hashpw(byte[] password, String salt) {
+		StringBuilder encoded = hashpw(password, salt, false);
+		if (encoded == null) {
+			return BCrypt.hashpw(password, salt);
+		}
+		return encoded.toString();
+	}
+
+	/**
+	 * Check that a password matches a previously hashed one
+	 * @param password the password to verify
+	 * @param hashed the previously-hashed password
+	 * @return true if the passwords match, false otherwise
+	 * @see BCrypt#checkpw(byte[], String)
+	 */
+	static boolean checkpw(byte[] password, String hashed) {
+		StringBuilder encoded = hashpw(password, hashed, true);
+		if (encoded == null) {
+			return BCrypt.checkpw(password, hashed);
+		}
+		if (hashed.length() != encoded.length()) {
+			return false;
+		}
+		int diff = 0;
+		for (int i = 0; i < encoded.length(); i++) {
+			diff |= hashed.charAt(i) ^ encoded.charAt(i);
+		}
+		return diff == 0;
+	}
+
+	/**
+	 * Hashes the password, validating the salt the same way as {@link BCrypt}.
+	 * @return the encoded hash, or {@code null} if the password cannot be hashed by this
+	 * class
+	 */
+	private static StringBuilder hashpw(byte[] password, String salt, boolean forCheck) {
+		char minor = (char) 0;
+		int off;
+		if (salt == null) {
+			throw new IllegalArgumentException("salt cannot be null");
+		}
+		int saltLength = salt.length();
+		if (saltLength < 28) {
+			throw new IllegalArgumentException("Invalid salt");
+		}
+		if (salt.charAt(0) != '$' || salt.charAt(1) != '2') {
+			throw new IllegalArgumentException("Invalid salt version");
+		}
+		if (salt.charAt(2) == '$') {
+			off = 3;
+		}
+		else {
+			minor = salt.charAt(2);
+			if ((minor != 'a' && minor != 'x' && minor != 'y' && minor != 'b') || salt.charAt(3) != '$') {
+				throw new IllegalArgumentException("Invalid salt revision");
+			}
+			off = 4;
+		}
+		if (salt.charAt(off + 2) > '$') {
+			throw new IllegalArgumentException("Missing salt rounds");
+		}
+		if (off == 4 && saltLength < 29) {
+			throw new IllegalArgumentException("Invalid salt");
+		}
+		int logRounds = Integer.parseInt(salt.substring(off, off + 2));
+		byte[] saltBytes = BCrypt.decode_base64(salt.substring(off + 3, off + 25), BCRYPT_SALT_LEN);
+		boolean terminated = minor >= 'a';
+		int keyLength = password.length + (terminated ? 1 : 0);
+		if (keyLength == 0) {
+			// BCrypt fails on empty keys, let it report it
+			return null;
+		}
+		long rounds = rounds(logRounds, forCheck);
+		if (saltBytes.length != BCRYPT_SALT_LEN) {
+			throw new IllegalArgumentException("Bad salt length");
+		}
+		byte[] hash = crypt(password, keyLength, saltBytes, rounds, minor == 'x', minor == 'a' ? 0x10000 : 0);
+		StringBuilder encoded = new StringBuilder(60);
+		encoded.append("$2");
+		if (terminated) {
+			encoded.append(minor);
+		}
+		encoded.append('$');
+		encoded.append((char) ('0' + logRounds / 10));
+		encoded.append((char) ('0' + logRounds % 10));
+		encoded.append('$');
+		BCrypt.encode_base64(saltBytes, BCRYPT_SALT_LEN, encoded);
+		BCrypt.encode_base64(hash, HASH_LEN, encoded);
+		return encoded;
+	}
+
+	private static long rounds(int logRounds, boolean forCheck) {
+		if (logRounds < 4 || logRounds > 31) {
+			if (!forCheck || logRounds != 0) {
+				throw new IllegalArgumentException("Bad number of rounds");
+			}
+			return 0;
+		}
+		long rounds = BCrypt.roundsForLogRounds(logRounds);
+		if (rounds < 16 || rounds > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Bad number of rounds");
+		}
+		return rounds;
+	}
+
+	private static byte[] crypt(byte[] password, int keyLength, byte[] salt, long rounds, boolean signExtBug,
+			int safety) {
+		int[] p = BCrypt.initialP();
+		int[] s = BCrypt.initialS();
+		int[] keyWords = new int[KEY_WORDS];
+		int[] saltWords = new int[KEY_WORDS];
+		try {
+			int sign = keyWords(password, keyLength, keyWords, signExtBug);
+			for (int i = 0; i < KEY_WORDS; i++) {
+				saltWords[i] = word(salt, (i & 3) << 2);
+			}
+			ekskey(p, s, keyWords, saltWords, sign & safety);
+			for (long i = 0; i < rounds; i++) {
+				key(p, s, keyWords);
+				key(p, s, saltWords);
+			}
+			int[] cdata = BCrypt.initialCipherText();
+			for (int i = 0; i < 64; i++) {
+				for (int j = 0; j < cdata.length; j += 2) {
+					long lr = encipher(p, s, cdata[j], cdata[j + 1]);
+					cdata[j] = (int) (lr >>> 32);
+					cdata[j + 1] = (int) lr;
+				}
+			}
+			byte[] hash = new byte[cdata.length * 4];
+			for (int i = 0, j = 0; i < cdata.length; i++) {
+				hash[j++] = (byte) (cdata[i] >> 24);
+				hash[j++] = (byte) (cdata[i] >> 16);
+				hash[j++] = (byte) (cdata[i] >> 8);
+				hash[j++] = (byte) cdata[i];
+			}
+			return hash;
+		}
+		finally {
+			Arrays.fill(keyWords, 0);
+			Arrays.fill(p, 0);
+			Arrays.fill(s, 0);
+		}
+	}
+
+	/**
+	 * Extracts the words of key material XOR-ed into the P-array from the password,
+	 * followed by a NUL byte when {@code keyLength} exceeds its length.
+	 * @return bit 16 set when the non-benign sign extension of the 2x bug would collide
+	 * with the correct key, as computed by {@code BCrypt#ekskey}
+	 */
+	private static int keyWords(byte[] password, int keyLength, int[] keyWords, boolean signExtBug) {
+		int off = 0;
+		int sign = 0;
+		int diff = 0;
+		for (int i = 0; i < KEY_WORDS; i++) {
+			int correct = 0;
+			int buggy = 0;
+			for (int j = 0; j < 4; j++) {
+				byte b = (off < password.length) ? password[off] : 0;
+				correct = (correct << 8) | (b & 0xff);
+				buggy = (buggy << 8) | b;
+				if (j > 0) {
+					sign |= buggy & 0x80;
+				}
+				off = (off + 1 == keyLength) ? 0 : off + 1;
+			}
+			diff |= correct ^ buggy;
+			keyWords[i] = signExtBug ? buggy : correct;
+		}
+		diff |= diff >> 16;
+		diff &= 0xffff;
+		diff += 0xffff;
+		sign <<= 9;
+		return sign & ~diff;
+	}
+
+	private static int word(byte[] data, int off) {
+		return (data[off] & 0xff) << 24 | (data[off + 1] & 0xff) << 16 | (data[off + 2] & 0xff) << 8
+				| (data[off + 3] & 0xff);
+	}
+
+	/**
+	 * The "enhanced key schedule" step, with the salt cycling through {@code saltWords}.
+	 */
+	private static void ekskey(int[] p, int[] s, int[] keyWords, int[] saltWords, int sign) {
+		for (int i = 0; i < KEY_WORDS; i++) {
+			p[i] ^= keyWords[i];
+		}
+		p[0] ^= sign;
+		int l = 0;
+		int r = 0;
+		int w = 0;
+		for (int i = 0; i < KEY_WORDS; i += 2) {
+			l ^= saltWords[w];
+			r ^= saltWords[w + 1];
+			w = (w + 2) & 3;
+			long lr = encipher(p, s, l, r);
+			l = (int) (lr >>> 32);
+			r = (int) lr;
+			p[i] = l;
+			p[i + 1] = r;
+		}
+		for (int i = 0; i < s.length; i += 2) {
+			l ^= saltWords[w];
+			r ^= saltWords[w + 1];
+			w = (w + 2) & 3;
+			long lr = encipher(p, s, l, r);
+			l = (int) (lr >>> 32);
+			r = (int) lr;
+			s[i] = l;
+			s[i + 1] = r;
+		}
+	}
+
+	private static void key(int[] p, int[] s, int[] keyWords) {
+		for (int i = 0; i < KEY_WORDS; i++) {
+			p[i] ^= keyWords[i];
+		}
+		long lr = 0;
+		for (int i = 0; i < KEY_WORDS; i += 2) {
+			lr = encipher(p, s, (int) (lr >>> 32), (int) lr);
+			p[i] = (int) (lr >>> 32);
+			p[i + 1] = (int) lr;
+		}
+		for (int i = 0; i < s.length; i += 2) {
+			lr = encipher(p, s, (int) (lr >>> 32), (int) lr);
+			s[i] = (int) (lr >>> 32);
+			s[i + 1] = (int) lr;
+		}
+	}
+
+	/**
+	 * Blowfish encipher a single 64-bit block.
+	 * @return the enciphered left word in the high and the right word in the low 32 bits
+	 */
+	private static long encipher(int[] p, int[] s, int l, int r) {
+		l ^= p[0];
+		r ^= f(s, l) ^ p[1];
+		l ^= f(s, r) ^ p[2];
+		r ^= f(s, l) ^ p[3];
+		l ^= f(s, r) ^ p[4];
+		r ^= f(s, l) ^ p[5];
+		l ^= f(s, r) ^ p[6];
+		r ^= f(s, l) ^ p[7];
+		l ^= f(s, r) ^ p[8];
+		r ^= f(s, l) ^ p[9];
+		l ^= f(s, r) ^ p[10];
+		r ^= f(s, l) ^ p[11];
+		l ^= f(s, r) ^ p[12];
+		r ^= f(s, l) ^ p[13];
+		l ^= f(s, r) ^ p[14];
+		r ^= f(s, l) ^ p[15];
+		l ^= f(s, r) ^ p[16];
+		return ((long) (r ^ p[17]) << 32) | (l & 0xffffffffL);
+	}
+
+	/**
+	 * The Blowfish Feistel function.
+	 */
+	private static int f(int[] s, int x) {
+		return ((s[x >>> 24] + s[0x100 | ((x >>> 16) & 0xff)]) ^ s[0x200 | ((x >>> 8) & 0xff)])
+				+ s[0x300 | (x & 0xff)];
+	}
+
+}
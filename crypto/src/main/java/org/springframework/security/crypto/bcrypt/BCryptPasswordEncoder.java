@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2011 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -107,7 +107,7 @@ public class BCryptPasswordEncoder implements PasswordEncoder {
 			throw new IllegalArgumentException("rawPassword cannot be null");
 		}
 		String salt = getSalt();
-		return BCrypt.hashpw(rawPassword.toString(), salt);
+		return BCryptEngine.hashpw(rawPassword.toString(), salt);
 	}
 
 	private String getSalt() {
@@ -130,7 +130,7 @@ public class BCryptPasswordEncoder implements PasswordEncoder {
 			this.logger.warn("Encoded password does not look like BCrypt");
 			return false;
 		}
-		return BCrypt.checkpw(rawPassword.toString(), encodedPassword);
+		return BCryptEngine.checkpw(rawPassword.toString(), encodedPassword);
 	}
 
 	@Override
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.crypto.bcrypt;
+
+import java.security.SecureRandom;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link BCryptEngine}, checking it against {@link BCrypt}.
+ */
+public class BCryptEngineTests {
+
+	@Test
+	public void hashpwWhenKnownVectorsThenMatches() {
+		assertThat(BCryptEngine.hashpw("", "$2a$06$DCq7YPn5Rq63x1Lad4cll."))
+				.isEqualTo("$2a$06$DCq7YPn5Rq63x1Lad4cll.TV4S6ytwfsfvkgY8jIucDrjc8deX1s.");
+		assertThat(BCryptEngine.hashpw("a", "$2a$06$m0CrhHm10qJ3lXRY.5zDGO"))
+				.isEqualTo("$2a$06$m0CrhHm10qJ3lXRY.5zDGO3rS2KdeeWLuGmsfGlMfOxih58VYVfxe");
+		assertThat(BCryptEngine.hashpw("★★★", "$2a$10$k1wbIrmNyFAPwPVPSVa/ze")).isEqualTo(
+				BCrypt.hashpw("★★★", "$2a$10$k1wbIrmNyFAPwPVPSVa/ze"));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "$2a", "$2b", "$2y", "$2x", "$2" })
+	public void hashpwWhenRandomPasswordsThenSameAsBCrypt(String prefix) {
+		Random random = new Random(prefix.hashCode());
+		for (int i = 0; i < 100; i++) {
+			byte[] password = new byte[1 + random.nextInt(80)];
+			random.nextBytes(password);
+			String salt = prefix + BCrypt.gensalt("$2a", 4, new SecureRandom()).substring(3);
+			String hashed = BCrypt.hashpw(password, salt);
+			assertThat(BCryptEngine.hashpw(password, salt)).isEqualTo(hashed);
+			assertThat(BCryptEngine.checkpw(password, hashed)).isTrue();
+			password[random.nextInt(password.length)] ^= 0x40;
+			assertThat(BCryptEngine.checkpw(password, hashed)).isEqualTo(BCrypt.checkpw(password, hashed));
+		}
+	}
+
+	@Test
+	public void checkpwWhenHashDiffersThenFalse() {
+		String hashed = BCrypt.hashpw("password", BCrypt.gensalt(4));
+		assertThat(BCryptEngine.checkpw("password", hashed)).isTrue();
+		assertThat(BCryptEngine.checkpw("other", hashed)).isFalse();
+		assertThat(BCryptEngine.checkpw("password", hashed.substring(0, 59))).isFalse();
+		assertThat(BCryptEngine.checkpw("password", hashed + "x")).isFalse();
+	}
+
+	@Test
+	public void checkpwWhenZeroRoundsThenSameAsBCrypt() {
+		String hashed = "$2a$00$DCq7YPn5Rq63x1Lad4cll.TV4S6ytwfsfvkgY8jIucDrjc8deX1s.";
+		assertThat(BCryptEngine.checkpw("", hashed)).isEqualTo(BCrypt.checkpw("", hashed));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "$2a$03$......................", "$2a$32$......................",
+			"$2a$10$....................", "$2c$10$......................" })
+	public void hashpwWhenInvalidSaltThenException(String salt) {
+		assertThatIllegalArgumentException().isThrownBy(() -> BCrypt.hashpw("password", salt));
+		assertThatIllegalArgumentException().isThrownBy(() -> BCryptEngine.hashpw("password", salt));
+	}
+
+}
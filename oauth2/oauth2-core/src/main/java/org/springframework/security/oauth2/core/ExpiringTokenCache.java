@@ -0,0 +1,233 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import org.springframework.util.Assert;
+
+/**
+ * Holds values derived from token values, such as decoded JWTs or introspection results,
+ * keyed by the {@link #hash(String) SHA-256 hash} of the token value. The token values
+ * themselves are not held by the cache. Each value expires after the time to live given
+ * when it is put.
+ *
+ * <p>
+ * The cache holds at most {@link #setMaximumSize(int) maximumSize} entries. When full,
+ * expired entries are removed and, if none were, new values are not cached.
+ *
+ * @param <V> the type of the cached values
+ * @since 5.8
+ */
+public final class ExpiringTokenCache<V> {
+
+	private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+
+	private static final ThreadLocal<MessageDigest> digests = ThreadLocal
+			.withInitial(ExpiringTokenCache::createDigest);
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private int maximumSize = 10000;
+
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Returns the key under which the values derived from a token are cached, the
+	 * Base64-encoded SHA-256 hash of the token value.
+	 * @param token the token value
+	 * @return the hash of the token value
+	 */
+	public static String hash(String token) {
+		Assert.notNull(token, "token cannot be null");
+		byte[] hash = digests.get().digest(token.getBytes(StandardCharsets.UTF_8));
+		return Base64.getEncoder().encodeToString(hash);
+	}
+
+	/**
+	 * Returns the cached value for the token hash if there is one which has not expired.
+	 * @param hash the {@link #hash(String) hash} of the token value
+	 * @return the cached value, or {@code null}
+	 */
+	public V get(String hash) {
+		return get(hash, (value) -> true);
+	}
+
+	/**
+	 * Returns the cached value for the token hash if there is one which has not expired
+	 * and is still usable. A value which is not is evicted.
+	 * @param hash the {@link #hash(String) hash} of the token value
+	 * @param usable whether a cached value may still be returned
+	 * @return the cached value, or {@code null}
+	 */
+	public V get(String hash, Predicate<? super V> usable) {
+		V value = peek(hash, usable);
+		if (value == null) {
+			this.missCount.increment();
+			return null;
+		}
+		this.hitCount.increment();
+		return value;
+	}
+
+	/**
+	 * Returns the cached value for the token hash, like {@link #get(String)}, but without
+	 * counting a hit or a miss. Useful to check the cache again once a caller is about
+	 * to compute the value itself.
+	 * @param hash the {@link #hash(String) hash} of the token value
+	 * @return the cached value, or {@code null}
+	 */
+	public V peek(String hash) {
+		return peek(hash, (value) -> true);
+	}
+
+	private V peek(String hash, Predicate<? super V> usable) {
+		Entry<V> entry = this.entries.get(hash);
+		if (entry == null) {
+			return null;
+		}
+		if (this.clock.millis() >= entry.expiresAt || !usable.test(entry.value)) {
+			this.entries.remove(hash, entry);
+			return null;
+		}
+		return entry.value;
+	}
+
+	/**
+	 * Caches the value for the token hash during the time to live.
+	 * @param hash the {@link #hash(String) hash} of the token value
+	 * @param value the value to cache
+	 * @param timeToLive how long to cache the value
+	 */
+	public void put(String hash, V value, Duration timeToLive) {
+		put(hash, value, timeToLive, null);
+	}
+
+	/**
+	 * Caches the value for the token hash during the time to live, but not beyond the
+	 * given instant, typically the token's expiry.
+	 * @param hash the {@link #hash(String) hash} of the token value
+	 * @param value the value to cache
+	 * @param timeToLive how long to cache the value
+	 * @param notAfter when the value expires at the latest, or {@code null}
+	 */
+	public void put(String hash, V value, Duration timeToLive, Instant notAfter) {
+		Assert.notNull(hash, "hash cannot be null");
+		Assert.notNull(value, "value cannot be null");
+		long now = this.clock.millis();
+		long expiresAt = now + timeToLive.toMillis();
+		if (notAfter != null) {
+			expiresAt = Math.min(expiresAt, notAfter.toEpochMilli());
+		}
+		if (expiresAt > now && hasCapacity(now)) {
+			this.entries.put(hash, new Entry<>(value, expiresAt));
+		}
+	}
+
+	private boolean hasCapacity(long now) {
+		if (this.entries.size() < this.maximumSize) {
+			return true;
+		}
+		this.entries.values().removeIf((entry) -> now >= entry.expiresAt);
+		return this.entries.size() < this.maximumSize;
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("Unable to create SHA-256 MessageDigest", ex);
+		}
+	}
+
+	/**
+	 * Evicts all cached values.
+	 */
+	public void clear() {
+		this.entries.clear();
+	}
+
+	/**
+	 * Returns the number of lookups which found a value.
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	/**
+	 * Returns the number of lookups which found no value.
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	/**
+	 * Returns the number of cached values, including expired ones which have not been
+	 * removed yet.
+	 * @return the number of cached values
+	 */
+	public int getSize() {
+		return this.entries.size();
+	}
+
+	/**
+	 * Sets the maximum number of cached values. Defaults to 10000.
+	 * @param maximumSize the maximum number of cached values
+	 */
+	public void setMaximumSize(int maximumSize) {
+		Assert.isTrue(maximumSize > 0, "maximumSize must be positive");
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire cached values.
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static final class Entry<V> {
+
+		private final V value;
+
+		private final long expiresAt;
+
+		private Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
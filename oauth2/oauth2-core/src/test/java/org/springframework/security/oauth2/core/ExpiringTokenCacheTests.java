@@ -0,0 +1,107 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.core;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link ExpiringTokenCache}
+ */
+public class ExpiringTokenCacheTests {
+
+	private static final Instant NOW = Instant.parse("2022-01-01T00:00:00Z");
+
+	private static final String TOKEN = ExpiringTokenCache.hash("token");
+
+	private static final String OTHER = ExpiringTokenCache.hash("other");
+
+	private final ExpiringTokenCache<String> cache = new ExpiringTokenCache<>();
+
+	@Test
+	public void getWhenPutThenReturnsValue() {
+		this.cache.put(TOKEN, "value", Duration.ofMinutes(1));
+		assertThat(this.cache.get(TOKEN)).isEqualTo("value");
+		assertThat(this.cache.get(OTHER)).isNull();
+		assertThat(this.cache.getHitCount()).isEqualTo(1);
+		assertThat(this.cache.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void hashWhenTokenThenSha256() {
+		assertThat(TOKEN).isEqualTo("PEaenWxYddN6Q/NT1PiOYfz4EsZu7jRXRlpAsNpBU+A=");
+		assertThat(OTHER).isNotEqualTo(TOKEN);
+	}
+
+	@Test
+	public void peekWhenPutThenReturnsValueWithoutCounting() {
+		this.cache.put(TOKEN, "value", Duration.ofMinutes(1));
+		assertThat(this.cache.peek(TOKEN)).isEqualTo("value");
+		assertThat(this.cache.peek(OTHER)).isNull();
+		assertThat(this.cache.getHitCount()).isZero();
+		assertThat(this.cache.getMissCount()).isZero();
+	}
+
+	@Test
+	public void getWhenExpiredThenEvicted() {
+		this.cache.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		this.cache.put(TOKEN, "value", Duration.ofMinutes(5), NOW.plusSeconds(60));
+		this.cache.setClock(Clock.fixed(NOW.plusSeconds(60), ZoneOffset.UTC));
+		assertThat(this.cache.get(TOKEN)).isNull();
+		assertThat(this.cache.getSize()).isZero();
+	}
+
+	@Test
+	public void getWhenNotUsableThenEvicted() {
+		this.cache.put(TOKEN, "value", Duration.ofMinutes(1));
+		assertThat(this.cache.get(TOKEN, (value) -> false)).isNull();
+		assertThat(this.cache.getSize()).isZero();
+		assertThat(this.cache.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void putWhenZeroTimeToLiveThenNotCached() {
+		this.cache.put(TOKEN, "value", Duration.ZERO);
+		assertThat(this.cache.getSize()).isZero();
+	}
+
+	@Test
+	public void putWhenFullThenExpiredEntriesRemoved() {
+		this.cache.setMaximumSize(1);
+		this.cache.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		this.cache.put(TOKEN, "value", Duration.ofSeconds(1));
+		this.cache.put(OTHER, "value", Duration.ofSeconds(1));
+		assertThat(this.cache.get(OTHER)).isNull();
+		this.cache.setClock(Clock.fixed(NOW.plusSeconds(1), ZoneOffset.UTC));
+		this.cache.put(OTHER, "value", Duration.ofSeconds(1));
+		assertThat(this.cache.get(OTHER)).isEqualTo("value");
+		assertThat(this.cache.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	public void setMaximumSizeWhenNotPositiveThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.cache.setMaximumSize(0));
+	}
+
+}
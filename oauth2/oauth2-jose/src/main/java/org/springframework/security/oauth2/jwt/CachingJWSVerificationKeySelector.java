@@ -0,0 +1,174 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.security.Key;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.crypto.SecretKey;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyConverter;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+import com.nimbusds.jose.proc.SecurityContext;
+
+/**
+ * A {@link JWSVerificationKeySelector} which keeps, for each {@code kid} and {@code alg},
+ * the keys converted from the matching JWKs and the {@link JWSVerifier}s created for
+ * them, so that decoding a token does not convert keys or create verifiers again.
+ *
+ * <p>
+ * The matching JWKs are still selected from the {@link JWKSource} on every call, which
+ * is cheap; the cached keys and verifiers are only used while the {@link JWKSource}
+ * returns the very same JWK instances, that is until the JWK Set changes. The
+ * {@link JWSVerifier}s are only reused when this selector's
+ * {@link #getJWSVerifierFactory() verifier factory} is configured on the processor.
+ *
+ * @param <C> the security context type
+ * @since 5.8
+ */
+final class CachingJWSVerificationKeySelector<C extends SecurityContext> extends JWSVerificationKeySelector<C> {
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final JWSVerifierFactory jwsVerifierFactory = new CachingJWSVerifierFactory();
+
+	CachingJWSVerificationKeySelector(Set<JWSAlgorithm> jwsAlgs, JWKSource<C> jwkSource) {
+		super(jwsAlgs, jwkSource);
+	}
+
+	@Override
+	public List<Key> selectJWSKeys(JWSHeader jwsHeader, C context) throws KeySourceException {
+		if (!isAllowed(jwsHeader.getAlgorithm())) {
+			return Collections.emptyList();
+		}
+		JWKMatcher jwkMatcher = createJWKMatcher(jwsHeader);
+		if (jwkMatcher == null) {
+			return Collections.emptyList();
+		}
+		List<JWK> jwks = getJWKSource().get(new JWKSelector(jwkMatcher), context);
+		String key = key(jwsHeader);
+		if (jwks.isEmpty()) {
+			this.entries.remove(key);
+			return Collections.emptyList();
+		}
+		Entry entry = this.entries.get(key);
+		if (entry == null || !entry.isFor(jwks)) {
+			entry = new Entry(jwks, toKeys(jwks));
+			this.entries.put(key, entry);
+		}
+		return entry.keys;
+	}
+
+	private static List<Key> toKeys(List<JWK> jwks) {
+		List<Key> keys = new ArrayList<>();
+		for (Key key : KeyConverter.toJavaKeys(jwks)) {
+			if (key instanceof PublicKey || key instanceof SecretKey) {
+				keys.add(key);
+			}
+		}
+		return Collections.unmodifiableList(keys);
+	}
+
+	private static String key(JWSHeader jwsHeader) {
+		String keyId = jwsHeader.getKeyID();
+		return jwsHeader.getAlgorithm().getName() + ":" + ((keyId != null) ? keyId : "");
+	}
+
+	/**
+	 * Returns the {@link JWSVerifierFactory} reusing the {@link JWSVerifier}s created
+	 * for the keys returned by this selector.
+	 * @return the {@link JWSVerifierFactory} to configure on the processor
+	 */
+	JWSVerifierFactory getJWSVerifierFactory() {
+		return this.jwsVerifierFactory;
+	}
+
+	private final class CachingJWSVerifierFactory extends DefaultJWSVerifierFactory {
+
+		@Override
+		public JWSVerifier createJWSVerifier(JWSHeader header, Key key) throws JOSEException {
+			Entry entry = CachingJWSVerificationKeySelector.this.entries.get(key(header));
+			int index = (entry != null) ? entry.indexOf(key) : -1;
+			if (index == -1) {
+				return super.createJWSVerifier(header, key);
+			}
+			JWSVerifier verifier = entry.verifiers.get(index);
+			if (verifier == null) {
+				verifier = super.createJWSVerifier(header, key);
+				entry.verifiers.compareAndSet(index, null, verifier);
+			}
+			return verifier;
+		}
+
+	}
+
+	private static final class Entry {
+
+		private final List<JWK> jwks;
+
+		private final List<Key> keys;
+
+		private final AtomicReferenceArray<JWSVerifier> verifiers;
+
+		private Entry(List<JWK> jwks, List<Key> keys) {
+			this.jwks = new ArrayList<>(jwks);
+			this.keys = keys;
+			this.verifiers = new AtomicReferenceArray<>(keys.size());
+		}
+
+		private boolean isFor(List<JWK> jwks) {
+			if (jwks.size() != this.jwks.size()) {
+				return false;
+			}
+			for (int i = 0; i < jwks.size(); i++) {
+				if (jwks.get(i) != this.jwks.get(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private int indexOf(Key key) {
+			for (int i = 0; i < this.keys.size(); i++) {
+				if (this.keys.get(i) == key) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import org.springframework.security.oauth2.core.ExpiringTokenCache;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link JwtDecoder} caching the {@link Jwt}s decoded by another {@link JwtDecoder},
+ * such as {@link NimbusJwtDecoder}, so that a token presented on many requests is only
+ * parsed, verified and converted once.
+ *
+ * <p>
+ * Entries are keyed by the SHA-256 hash of the token value and are cached until the
+ * token's {@code exp} claim, or for at most {@link #setTimeToLive(Duration) timeToLive}.
+ * Tokens which fail to decode are never cached. Before a cached {@link Jwt} is returned,
+ * it is validated again with a {@link JwtTimestampValidator}, so that expiry is enforced
+ * as exactly as by the delegate; a cached {@link Jwt} failing validation is handed back
+ * to the delegate, which reports the error.
+ *
+ * <p>
+ * The cache holds at most {@link #setMaximumSize(int) maximumSize} entries. When full,
+ * expired entries are removed and, if none were, new tokens are not cached.
+ *
+ * @since 5.8
+ * @see CachingReactiveJwtDecoder
+ */
+public final class CachingJwtDecoder implements JwtDecoder {
+
+	private final JwtDecoder delegate;
+
+	private final DecodedJwtCache cache = new DecodedJwtCache();
+
+	/**
+	 * Constructs a {@code CachingJwtDecoder} using the provided parameters
+	 * @param delegate the {@link JwtDecoder} decoding tokens which are not cached
+	 */
+	public CachingJwtDecoder(JwtDecoder delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Jwt decode(String token) throws JwtException {
+		String hash = ExpiringTokenCache.hash(token);
+		Jwt jwt = this.cache.get(hash);
+		if (jwt != null) {
+			return jwt;
+		}
+		jwt = this.delegate.decode(token);
+		this.cache.put(hash, jwt);
+		return jwt;
+	}
+
+	/**
+	 * Evicts all cached {@link Jwt}s, for instance after rotating keys.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	/**
+	 * Returns the number of tokens served from the cache.
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return this.cache.getHitCount();
+	}
+
+	/**
+	 * Returns the number of tokens handed to the delegate.
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return this.cache.getMissCount();
+	}
+
+	/**
+	 * Returns the number of cached {@link Jwt}s, including expired ones which have not
+	 * been removed yet.
+	 * @return the number of cached {@link Jwt}s
+	 */
+	public int getSize() {
+		return this.cache.getSize();
+	}
+
+	/**
+	 * Use this {@link Jwt} Validator on cached {@link Jwt}s. Defaults to a
+	 * {@link JwtTimestampValidator}; a custom validator should include one as well.
+	 * @param jwtValidator the Jwt Validator to use
+	 */
+	public void setJwtValidator(OAuth2TokenValidator<Jwt> jwtValidator) {
+		this.cache.setJwtValidator(jwtValidator);
+	}
+
+	/**
+	 * Sets the longest time a {@link Jwt} is cached, whatever its {@code exp} claim.
+	 * Defaults to 5 minutes.
+	 * @param timeToLive the maximum time to live of cached {@link Jwt}s
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		this.cache.setTimeToLive(timeToLive);
+	}
+
+	/**
+	 * Sets the maximum number of cached {@link Jwt}s. Defaults to 10000.
+	 * @param maximumSize the maximum number of cached {@link Jwt}s
+	 */
+	public void setMaximumSize(int maximumSize) {
+		this.cache.setMaximumSize(maximumSize);
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire cached {@link Jwt}s, which is also used by
+	 * the default {@link JwtTimestampValidator}.
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		this.cache.setClock(clock);
+	}
+
+}
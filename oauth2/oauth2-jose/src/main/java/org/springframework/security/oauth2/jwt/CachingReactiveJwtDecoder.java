@@ -0,0 +1,125 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.security.oauth2.core.ExpiringTokenCache;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ReactiveJwtDecoder} caching the {@link Jwt}s decoded by another
+ * {@link ReactiveJwtDecoder}, such as {@link NimbusReactiveJwtDecoder}, so that a token
+ * presented on many requests is only parsed, verified and converted once.
+ *
+ * <p>
+ * {@link Jwt}s are cached, validated and expired as by {@link CachingJwtDecoder}.
+ *
+ * @since 5.8
+ * @see CachingJwtDecoder
+ */
+public final class CachingReactiveJwtDecoder implements ReactiveJwtDecoder {
+
+	private final ReactiveJwtDecoder delegate;
+
+	private final DecodedJwtCache cache = new DecodedJwtCache();
+
+	/**
+	 * Constructs a {@code CachingReactiveJwtDecoder} using the provided parameters
+	 * @param delegate the {@link ReactiveJwtDecoder} decoding tokens which are not cached
+	 */
+	public CachingReactiveJwtDecoder(ReactiveJwtDecoder delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Mono<Jwt> decode(String token) throws JwtException {
+		return Mono.defer(() -> {
+			String hash = ExpiringTokenCache.hash(token);
+			Jwt jwt = this.cache.get(hash);
+			if (jwt != null) {
+				return Mono.just(jwt);
+			}
+			return this.delegate.decode(token).doOnNext((decoded) -> this.cache.put(hash, decoded));
+		});
+	}
+
+	/**
+	 * See {@link CachingJwtDecoder#clear()}.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	/**
+	 * See {@link CachingJwtDecoder#getHitCount()}.
+	 */
+	public long getHitCount() {
+		return this.cache.getHitCount();
+	}
+
+	/**
+	 * See {@link CachingJwtDecoder#getMissCount()}.
+	 */
+	public long getMissCount() {
+		return this.cache.getMissCount();
+	}
+
+	/**
+	 * See {@link CachingJwtDecoder#getSize()}.
+	 */
+	public int getSize() {
+		return this.cache.getSize();
+	}
+
+	/**
+	 * See {@link CachingJwtDecoder#setJwtValidator(OAuth2TokenValidator)}.
+	 */
+	public void setJwtValidator(OAuth2TokenValidator<Jwt> jwtValidator) {
+		this.cache.setJwtValidator(jwtValidator);
+	}
+
+	/**
+	 * See {@link CachingJwtDecoder#setTimeToLive(Duration)}.
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		this.cache.setTimeToLive(timeToLive);
+	}
+
+	/**
+	 * See {@link CachingJwtDecoder#setMaximumSize(int)}.
+	 */
+	public void setMaximumSize(int maximumSize) {
+		this.cache.setMaximumSize(maximumSize);
+	}
+
+	/**
+	 * See {@link CachingJwtDecoder#setClock(Clock)}.
+	 */
+	public void setClock(Clock clock) {
+		this.cache.setClock(clock);
+	}
+
+}
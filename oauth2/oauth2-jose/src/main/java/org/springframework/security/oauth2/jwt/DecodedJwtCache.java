@@ -0,0 +1,93 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import org.springframework.security.oauth2.core.ExpiringTokenCache;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.util.Assert;
+
+/**
+ * Holds the {@link Jwt}s decoded by {@link CachingJwtDecoder} and
+ * {@link CachingReactiveJwtDecoder}, validating them again before they are returned.
+ *
+ * @since 5.8
+ */
+final class DecodedJwtCache {
+
+	private final ExpiringTokenCache<Jwt> jwts = new ExpiringTokenCache<>();
+
+	private final JwtTimestampValidator timestampValidator = new JwtTimestampValidator();
+
+	private OAuth2TokenValidator<Jwt> jwtValidator = this.timestampValidator;
+
+	private Duration timeToLive = Duration.ofMinutes(5);
+
+	/**
+	 * Returns the cached {@link Jwt} for the token if there is one which is still valid.
+	 * A cached {@link Jwt} failing validation is evicted and left to the delegate, so
+	 * that the usual error is reported.
+	 * @param hash the {@link ExpiringTokenCache#hash(String) hash} of the token value
+	 * @return the cached {@link Jwt}, or {@code null}
+	 */
+	Jwt get(String hash) {
+		return this.jwts.get(hash, (jwt) -> !this.jwtValidator.validate(jwt).hasErrors());
+	}
+
+	void put(String hash, Jwt jwt) {
+		this.jwts.put(hash, jwt, this.timeToLive, jwt.getExpiresAt());
+	}
+
+	void clear() {
+		this.jwts.clear();
+	}
+
+	long getHitCount() {
+		return this.jwts.getHitCount();
+	}
+
+	long getMissCount() {
+		return this.jwts.getMissCount();
+	}
+
+	int getSize() {
+		return this.jwts.getSize();
+	}
+
+	void setJwtValidator(OAuth2TokenValidator<Jwt> jwtValidator) {
+		Assert.notNull(jwtValidator, "jwtValidator cannot be null");
+		this.jwtValidator = jwtValidator;
+	}
+
+	void setTimeToLive(Duration timeToLive) {
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+		this.timeToLive = timeToLive;
+	}
+
+	void setMaximumSize(int maximumSize) {
+		this.jwts.setMaximumSize(maximumSize);
+	}
+
+	void setClock(Clock clock) {
+		this.jwts.setClock(clock);
+		this.timestampValidator.setClock(clock);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2021 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.interfaces.RSAPublicKey;
 import java.text.ParseException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -28,6 +29,7 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 
 import javax.crypto.SecretKey;
@@ -40,7 +42,6 @@ import com.nimbusds.jose.jwk.source.JWKSetCache;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.jwk.source.RemoteJWKSet;
 import com.nimbusds.jose.proc.JWSKeySelector;
-import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
 import com.nimbusds.jose.proc.SingleKeyJWSKeySelector;
 import com.nimbusds.jose.util.Resource;
@@ -129,12 +130,25 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 	 */
 	@Override
 	public Jwt decode(String token) throws JwtException {
-		JWT jwt = parse(token);
+		return decode(parse(token));
+	}
+
+	/**
+	 * Decode and validate a JWT which was already parsed, for instance to read its issuer,
+	 * so that it is not parsed again
+	 * @param jwt the JWT, as parsed by {@link JWTParser#parse(String)}
+	 * @return a validated {@link Jwt}
+	 * @throws JwtException
+	 * @since 5.8
+	 */
+	public Jwt decode(JWT jwt) throws JwtException {
+		Assert.notNull(jwt, "jwt cannot be null");
+		Assert.hasText(jwt.getParsedString(), "jwt must have been parsed");
 		if (jwt instanceof PlainJWT) {
 			this.logger.trace("Failed to decode unsigned token");
 			throw new BadJwtException("Unsupported algorithm of " + jwt.getHeader().getAlgorithm());
 		}
-		Jwt createdJwt = createJwt(token, jwt);
+		Jwt createdJwt = createJwt(jwt.getParsedString(), jwt);
 		return validateJwt(createdJwt);
 	}
 
@@ -243,6 +257,10 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 
 		private Cache cache;
 
+		private Duration jwkSetRefreshInterval;
+
+		private ScheduledExecutorService jwkSetRefreshScheduler;
+
 		private Consumer<ConfigurableJWTProcessor<SecurityContext>> jwtProcessorCustomizer;
 
 		private JwkSetUriJwtDecoderBuilder(String jwkSetUri) {
@@ -307,6 +325,54 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 			return this;
 		}
 
+		/**
+		 * Refresh the <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK
+		 * Set</a> in the background every {@code jwkSetRefreshInterval}, rather than
+		 * when a token is being decoded.
+		 *
+		 * <p>
+		 * The current keys keep being used while a refresh is in flight or when it
+		 * fails. Tokens signed with an unknown key trigger a refresh in the background,
+		 * coalesced with any refresh in flight and at most once every 30 seconds, or
+		 * every {@code jwkSetRefreshInterval} if that is shorter; such a token is
+		 * rejected rather than waiting for the refresh.
+		 *
+		 * <p>
+		 * This cannot be combined with {@link #cache(Cache)}.
+		 * @param jwkSetRefreshInterval the time between two refreshes
+		 * @return a {@link JwkSetUriJwtDecoderBuilder} for further configurations
+		 * @since 5.8
+		 * @see #jwkSetRefreshScheduler(ScheduledExecutorService)
+		 */
+		public JwkSetUriJwtDecoderBuilder jwkSetRefreshInterval(Duration jwkSetRefreshInterval) {
+			Assert.notNull(jwkSetRefreshInterval, "jwkSetRefreshInterval cannot be null");
+			Assert.isTrue(!jwkSetRefreshInterval.isNegative() && !jwkSetRefreshInterval.isZero(),
+					"jwkSetRefreshInterval must be positive");
+			this.jwkSetRefreshInterval = jwkSetRefreshInterval;
+			return this;
+		}
+
+		/**
+		 * Use the given {@link ScheduledExecutorService} to refresh the
+		 * <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a> when a
+		 * {@link #jwkSetRefreshInterval(Duration) refresh interval} is configured.
+		 * The caller owns the scheduler and is responsible for shutting it down; the
+		 * decoder never does.
+		 *
+		 * <p>
+		 * Defaults to a single daemon thread shared by all decoders, which is never shut
+		 * down. Either way, the refresh task of a decoder stops once the decoder has been
+		 * garbage collected.
+		 * @param jwkSetRefreshScheduler the {@link ScheduledExecutorService} to use
+		 * @return a {@link JwkSetUriJwtDecoderBuilder} for further configurations
+		 * @since 5.8
+		 */
+		public JwkSetUriJwtDecoderBuilder jwkSetRefreshScheduler(ScheduledExecutorService jwkSetRefreshScheduler) {
+			Assert.notNull(jwkSetRefreshScheduler, "jwkSetRefreshScheduler cannot be null");
+			this.jwkSetRefreshScheduler = jwkSetRefreshScheduler;
+			return this;
+		}
+
 		/**
 		 * Use the given {@link Consumer} to customize the {@link JWTProcessor
 		 * ConfigurableJWTProcessor} before passing it to the build
@@ -322,19 +388,27 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 			return this;
 		}
 
-		JWSKeySelector<SecurityContext> jwsKeySelector(JWKSource<SecurityContext> jwkSource) {
+		CachingJWSVerificationKeySelector<SecurityContext> jwsKeySelector(JWKSource<SecurityContext> jwkSource) {
 			if (this.signatureAlgorithms.isEmpty()) {
-				return new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource);
+				return new CachingJWSVerificationKeySelector<>(Collections.singleton(JWSAlgorithm.RS256), jwkSource);
 			}
 			Set<JWSAlgorithm> jwsAlgorithms = new HashSet<>();
 			for (SignatureAlgorithm signatureAlgorithm : this.signatureAlgorithms) {
 				JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(signatureAlgorithm.getName());
 				jwsAlgorithms.add(jwsAlgorithm);
 			}
-			return new JWSVerificationKeySelector<>(jwsAlgorithms, jwkSource);
+			return new CachingJWSVerificationKeySelector<>(jwsAlgorithms, jwkSource);
 		}
 
 		JWKSource<SecurityContext> jwkSource(ResourceRetriever jwkSetRetriever) {
+			if (this.jwkSetRefreshInterval != null) {
+				Assert.state(this.cache == null, "jwkSetRefreshInterval cannot be combined with cache");
+				if (this.jwkSetRefreshScheduler == null) {
+					return new RefreshingJWKSet(toURL(this.jwkSetUri), jwkSetRetriever, this.jwkSetRefreshInterval);
+				}
+				return new RefreshingJWKSet(toURL(this.jwkSetUri), jwkSetRetriever, this.jwkSetRefreshInterval,
+						this.jwkSetRefreshScheduler);
+			}
 			if (this.cache == null) {
 				return new RemoteJWKSet<>(toURL(this.jwkSetUri), jwkSetRetriever);
 			}
@@ -346,7 +420,9 @@ public final class NimbusJwtDecoder implements JwtDecoder {
 			ResourceRetriever jwkSetRetriever = new RestOperationsResourceRetriever(this.restOperations);
 			JWKSource<SecurityContext> jwkSource = jwkSource(jwkSetRetriever);
 			ConfigurableJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
-			jwtProcessor.setJWSKeySelector(jwsKeySelector(jwkSource));
+			CachingJWSVerificationKeySelector<SecurityContext> jwsKeySelector = jwsKeySelector(jwkSource);
+			jwtProcessor.setJWSKeySelector(jwsKeySelector);
+			jwtProcessor.setJWSVerifierFactory(jwsKeySelector.getJWSVerifierFactory());
 			// Spring Security validates the claim set independent from Nimbus
 			jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
 			});
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2021 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -144,11 +144,7 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 
 	@Override
 	public Mono<Jwt> decode(String token) throws JwtException {
-		JWT jwt = parse(token);
-		if (jwt instanceof PlainJWT) {
-			throw new BadJwtException("Unsupported algorithm of " + jwt.getHeader().getAlgorithm());
-		}
-		return this.decode(jwt);
+		return decode(parse(token));
 	}
 
 	private JWT parse(String token) {
@@ -160,7 +156,20 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 		}
 	}
 
-	private Mono<Jwt> decode(JWT parsedToken) {
+	/**
+	 * Decode and validate a JWT which was already parsed, for instance to read its issuer,
+	 * so that it is not parsed again
+	 * @param parsedToken the JWT, as parsed by {@link JWTParser#parse(String)}
+	 * @return a validated {@link Jwt}
+	 * @throws JwtException
+	 * @since 5.8
+	 */
+	public Mono<Jwt> decode(JWT parsedToken) throws JwtException {
+		Assert.notNull(parsedToken, "parsedToken cannot be null");
+		Assert.hasText(parsedToken.getParsedString(), "parsedToken must have been parsed");
+		if (parsedToken instanceof PlainJWT) {
+			throw new BadJwtException("Unsupported algorithm of " + parsedToken.getHeader().getAlgorithm());
+		}
 		try {
 			// @formatter:off
 			return this.jwtProcessor.convert(parsedToken)
@@ -284,6 +293,8 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 
 		private WebClient webClient = WebClient.create();
 
+		private Duration jwkSetRefreshInterval;
+
 		private BiFunction<ReactiveRemoteJWKSource, ConfigurableJWTProcessor<JWKSecurityContext>, Mono<ConfigurableJWTProcessor<JWKSecurityContext>>> jwtProcessorCustomizer;
 
 		private JwkSetUriReactiveJwtDecoderBuilder(String jwkSetUri) {
@@ -334,6 +345,29 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 			return this;
 		}
 
+		/**
+		 * Refresh the <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK
+		 * Set</a> in the background once it is older than
+		 * {@code jwkSetRefreshInterval}, rather than only when a token is signed with an
+		 * unknown key.
+		 *
+		 * <p>
+		 * The current keys keep being used while a refresh is in flight or when it
+		 * fails. Tokens signed with an unknown key still trigger a refresh, coalesced
+		 * with any refresh in flight and at most once every 30 seconds, or every
+		 * {@code jwkSetRefreshInterval} if that is shorter.
+		 * @param jwkSetRefreshInterval the age after which the JWK Set is refreshed
+		 * @return a {@link JwkSetUriReactiveJwtDecoderBuilder} for further configurations
+		 * @since 5.8
+		 */
+		public JwkSetUriReactiveJwtDecoderBuilder jwkSetRefreshInterval(Duration jwkSetRefreshInterval) {
+			Assert.notNull(jwkSetRefreshInterval, "jwkSetRefreshInterval cannot be null");
+			Assert.isTrue(!jwkSetRefreshInterval.isNegative() && !jwkSetRefreshInterval.isZero(),
+					"jwkSetRefreshInterval must be positive");
+			this.jwkSetRefreshInterval = jwkSetRefreshInterval;
+			return this;
+		}
+
 		/**
 		 * Use the given {@link Consumer} to customize the {@link JWTProcessor
 		 * ConfigurableJWTProcessor} before passing it to the build
@@ -367,27 +401,31 @@ public final class NimbusReactiveJwtDecoder implements ReactiveJwtDecoder {
 			return new NimbusReactiveJwtDecoder(processor());
 		}
 
-		JWSKeySelector<JWKSecurityContext> jwsKeySelector(JWKSource<JWKSecurityContext> jwkSource) {
+		CachingJWSVerificationKeySelector<JWKSecurityContext> jwsKeySelector(JWKSource<JWKSecurityContext> jwkSource) {
 			if (this.signatureAlgorithms.isEmpty()) {
-				return new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource);
+				return new CachingJWSVerificationKeySelector<>(Collections.singleton(JWSAlgorithm.RS256), jwkSource);
 			}
 			Set<JWSAlgorithm> jwsAlgorithms = new HashSet<>();
 			for (SignatureAlgorithm signatureAlgorithm : this.signatureAlgorithms) {
 				JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(signatureAlgorithm.getName());
 				jwsAlgorithms.add(jwsAlgorithm);
 			}
-			return new JWSVerificationKeySelector<>(jwsAlgorithms, jwkSource);
+			return new CachingJWSVerificationKeySelector<>(jwsAlgorithms, jwkSource);
 		}
 
 		Converter<JWT, Mono<JWTClaimsSet>> processor() {
 			JWKSecurityContextJWKSet jwkSource = new JWKSecurityContextJWKSet();
 			DefaultJWTProcessor<JWKSecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
-			JWSKeySelector<JWKSecurityContext> jwsKeySelector = jwsKeySelector(jwkSource);
+			CachingJWSVerificationKeySelector<JWKSecurityContext> jwsKeySelector = jwsKeySelector(jwkSource);
 			jwtProcessor.setJWSKeySelector(jwsKeySelector);
+			jwtProcessor.setJWSVerifierFactory(jwsKeySelector.getJWSVerifierFactory());
 			jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
 			});
 			ReactiveRemoteJWKSource source = new ReactiveRemoteJWKSource(this.jwkSetUri);
 			source.setWebClient(this.webClient);
+			if (this.jwkSetRefreshInterval != null) {
+				source.setRefreshInterval(this.jwkSetRefreshInterval);
+			}
 			Function<JWSAlgorithm, Boolean> expectedJwsAlgorithms = getExpectedJwsAlgorithms(jwsKeySelector);
 			Mono<ConfigurableJWTProcessor<JWKSecurityContext>> jwtProcessorMono = this.jwtProcessorCustomizer
 					.apply(source, jwtProcessor)
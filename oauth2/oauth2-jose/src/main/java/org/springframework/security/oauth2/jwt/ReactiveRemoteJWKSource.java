@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2019 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@
 package org.springframework.security.oauth2.jwt;
 
 import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -27,6 +29,8 @@ import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKMatcher;
 import com.nimbusds.jose.jwk.JWKSelector;
 import com.nimbusds.jose.jwk.JWKSet;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import reactor.core.publisher.Mono;
 
 import org.springframework.util.Assert;
@@ -38,15 +42,32 @@ import org.springframework.web.reactive.function.client.WebClient;
  */
 class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 
+	private final Log logger = LogFactory.getLog(getClass());
+
 	/**
 	 * The cached JWK set.
 	 */
 	private final AtomicReference<Mono<JWKSet>> cachedJWKSet = new AtomicReference<>(Mono.empty());
 
+	/**
+	 * The JWK set retrieval in flight, shared by concurrent callers.
+	 */
+	private final AtomicReference<Mono<JWKSet>> refresh = new AtomicReference<>();
+
 	private WebClient webClient = WebClient.create();
 
 	private final String jwkSetURL;
 
+	private Duration refreshInterval;
+
+	private Duration minimumRefreshInterval = Duration.ZERO;
+
+	private Clock clock = Clock.systemUTC();
+
+	private volatile long fetchedAt;
+
+	private volatile long lastRefresh;
+
 	ReactiveRemoteJWKSource(String jwkSetURL) {
 		Assert.hasText(jwkSetURL, "jwkSetURL cannot be empty");
 		this.jwkSetURL = jwkSetURL;
@@ -56,14 +77,39 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 	public Mono<List<JWK>> get(JWKSelector jwkSelector) {
 		// @formatter:off
 		return this.cachedJWKSet.get()
+				.doOnNext((jwkSet) -> refreshIfStale())
 				.switchIfEmpty(Mono.defer(() -> getJWKSet()))
 				.flatMap((jwkSet) -> get(jwkSelector, jwkSet))
-				.switchIfEmpty(Mono.defer(() -> getJWKSet()
-						.map((jwkSet) -> jwkSelector.select(jwkSet)))
+				.switchIfEmpty(Mono.defer(() -> refreshForUnknownKeyID()
+						.map((jwkSet) -> jwkSelector.select(jwkSet))
+						.defaultIfEmpty(Collections.emptyList()))
 				);
 		// @formatter:on
 	}
 
+	private void refreshIfStale() {
+		if (this.refreshInterval == null || this.refresh.get() != null) {
+			return;
+		}
+		long now = this.clock.millis();
+		if (now - this.fetchedAt < this.refreshInterval.toMillis()
+				|| now - this.lastRefresh < this.minimumRefreshInterval.toMillis()) {
+			// fresh enough, or a failed refresh is being retried too soon
+			return;
+		}
+		// keep serving the current keys meanwhile
+		getJWKSet().subscribe(null,
+				(ex) -> this.logger.debug("Failed to refresh the JWK Set, keeping the current keys", ex));
+	}
+
+	private Mono<JWKSet> refreshForUnknownKeyID() {
+		if (this.refresh.get() == null
+				&& this.clock.millis() - this.lastRefresh < this.minimumRefreshInterval.toMillis()) {
+			return Mono.empty();
+		}
+		return getJWKSet();
+	}
+
 	private Mono<List<JWK>> get(JWKSelector jwkSelector, JWKSet jwkSet) {
 		return Mono.defer(() -> {
 			// Run the selector on the JWK set
@@ -89,22 +135,39 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 	}
 
 	/**
-	 * Updates the cached JWK set from the configured URL.
+	 * Updates the cached JWK set from the configured URL, joining the retrieval in
+	 * flight if there is one.
 	 * @return The updated JWK set.
 	 * @throws RemoteKeySourceException If JWK retrieval failed.
 	 */
 	private Mono<JWKSet> getJWKSet() {
-		// @formatter:off
-		return this.webClient.get()
-				.uri(this.jwkSetURL)
-				.retrieve()
-				.bodyToMono(String.class)
-				.map(this::parse)
-				.doOnNext((jwkSet) -> this.cachedJWKSet
-						.set(Mono.just(jwkSet))
-				)
-				.cache();
-		// @formatter:on
+		return Mono.defer(() -> {
+			Mono<JWKSet> refresh = this.refresh.get();
+			if (refresh != null) {
+				return refresh;
+			}
+			// the retrieval only clears itself, never a retrieval started after it
+			AtomicReference<Mono<JWKSet>> self = new AtomicReference<>();
+			// @formatter:off
+			refresh = this.webClient.get()
+					.uri(this.jwkSetURL)
+					.retrieve()
+					.bodyToMono(String.class)
+					.map(this::parse)
+					.doOnNext((jwkSet) -> {
+						this.fetchedAt = this.clock.millis();
+						this.cachedJWKSet.set(Mono.just(jwkSet));
+					})
+					.doFinally((signal) -> this.refresh.compareAndSet(self.get(), null))
+					.cache();
+			// @formatter:on
+			self.set(refresh);
+			if (!this.refresh.compareAndSet(null, refresh)) {
+				return getJWKSet();
+			}
+			this.lastRefresh = this.clock.millis();
+			return refresh;
+		});
 	}
 
 	private JWKSet parse(String body) {
@@ -138,4 +201,29 @@ class ReactiveRemoteJWKSource implements ReactiveJWKSource {
 		this.webClient = webClient;
 	}
 
+	/**
+	 * Refreshes the JWK set in the background once it is older than the given interval,
+	 * and limits the refreshes triggered by unknown key IDs to one every 30 seconds, or
+	 * every interval if that is shorter.
+	 * @param refreshInterval the age after which the JWK set is refreshed
+	 */
+	void setRefreshInterval(Duration refreshInterval) {
+		Assert.notNull(refreshInterval, "refreshInterval cannot be null");
+		Assert.isTrue(!refreshInterval.isNegative() && !refreshInterval.isZero(), "refreshInterval must be positive");
+		this.refreshInterval = refreshInterval;
+		Duration thirtySeconds = Duration.ofSeconds(30);
+		this.minimumRefreshInterval = (refreshInterval.compareTo(thirtySeconds) < 0) ? refreshInterval : thirtySeconds;
+	}
+
+	void setMinimumRefreshInterval(Duration minimumRefreshInterval) {
+		Assert.notNull(minimumRefreshInterval, "minimumRefreshInterval cannot be null");
+		Assert.isTrue(!minimumRefreshInterval.isNegative(), "minimumRefreshInterval cannot be negative");
+		this.minimumRefreshInterval = minimumRefreshInterval;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
 }
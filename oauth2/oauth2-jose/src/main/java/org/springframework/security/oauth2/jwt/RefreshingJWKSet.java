@@ -0,0 +1,304 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.Assert;
+
+/**
+ * A remote {@link JWKSource} which refreshes the
+ * <a href="https://tools.ietf.org/html/rfc7517#section-5">JWK Set</a> in the
+ * background, so that decoding never waits on the authorization server once the keys
+ * have been loaded.
+ *
+ * <p>
+ * The JWK Set is loaded on first use and then refreshed every {@code refreshInterval}
+ * by the given {@link ScheduledExecutorService}. The current keys keep being served
+ * while a refresh is in flight, and when it fails. A key ID which is not in the JWK Set
+ * triggers a refresh in the background, since the keys may have been rotated, without
+ * making the request wait for it: the request finds no key, and the requests following
+ * the refresh find the new keys. Such refreshes are coalesced with the refresh in flight
+ * and happen at most once every {@code minimumRefreshInterval}.
+ *
+ * <p>
+ * The scheduled refresh only holds this JWK Set weakly, and stops once it has been
+ * garbage collected, so that decoders which are discarded do not keep being refreshed.
+ * Unless a scheduler is given, a daemon thread shared by all instances is used, which
+ * is never shut down.
+ *
+ * @since 5.8
+ */
+final class RefreshingJWKSet implements JWKSource<SecurityContext> {
+
+	private static final Duration DEFAULT_MINIMUM_REFRESH_INTERVAL = Duration.ofSeconds(30);
+
+	private final Log logger = LogFactory.getLog(getClass());
+
+	private final URL jwkSetUrl;
+
+	private final ResourceRetriever resourceRetriever;
+
+	private final Duration refreshInterval;
+
+	private final ScheduledExecutorService scheduler;
+
+	private final Object monitor = new Object();
+
+	private Duration minimumRefreshInterval;
+
+	private Clock clock = Clock.systemUTC();
+
+	private volatile JWKSet jwkSet;
+
+	// guarded by monitor
+	private CompletableFuture<JWKSet> refresh;
+
+	// guarded by monitor
+	private long lastRefresh;
+
+	// guarded by monitor
+	private boolean scheduled;
+
+	// guarded by monitor
+	private boolean refreshRequested;
+
+	RefreshingJWKSet(URL jwkSetUrl, ResourceRetriever resourceRetriever, Duration refreshInterval) {
+		this(jwkSetUrl, resourceRetriever, refreshInterval, SharedScheduler.INSTANCE);
+	}
+
+	RefreshingJWKSet(URL jwkSetUrl, ResourceRetriever resourceRetriever, Duration refreshInterval,
+			ScheduledExecutorService scheduler) {
+		Assert.notNull(jwkSetUrl, "jwkSetUrl cannot be null");
+		Assert.notNull(resourceRetriever, "resourceRetriever cannot be null");
+		Assert.notNull(refreshInterval, "refreshInterval cannot be null");
+		Assert.isTrue(!refreshInterval.isNegative() && !refreshInterval.isZero(), "refreshInterval must be positive");
+		Assert.notNull(scheduler, "scheduler cannot be null");
+		this.jwkSetUrl = jwkSetUrl;
+		this.resourceRetriever = resourceRetriever;
+		this.refreshInterval = refreshInterval;
+		this.scheduler = scheduler;
+		this.minimumRefreshInterval = (refreshInterval.compareTo(DEFAULT_MINIMUM_REFRESH_INTERVAL) < 0)
+				? refreshInterval : DEFAULT_MINIMUM_REFRESH_INTERVAL;
+	}
+
+	@Override
+	public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws RemoteKeySourceException {
+		JWKSet jwkSet = this.jwkSet;
+		if (jwkSet == null) {
+			jwkSet = refresh(false);
+		}
+		List<JWK> matches = jwkSelector.select(jwkSet);
+		if (!matches.isEmpty()) {
+			return matches;
+		}
+		String keyId = getFirstSpecifiedKeyID(jwkSelector.getMatcher());
+		if (keyId == null || jwkSet.getKeyByKeyId(keyId) != null) {
+			return Collections.emptyList();
+		}
+		// the keys may have been rotated
+		refreshForUnknownKeyId();
+		return Collections.emptyList();
+	}
+
+	private void refreshForUnknownKeyId() {
+		synchronized (this.monitor) {
+			if (this.refreshRequested || this.refresh != null
+					|| this.clock.millis() - this.lastRefresh < this.minimumRefreshInterval.toMillis()) {
+				return;
+			}
+			this.refreshRequested = true;
+		}
+		try {
+			this.scheduler.execute(() -> {
+				synchronized (this.monitor) {
+					this.refreshRequested = false;
+				}
+				refreshInBackground(true);
+			});
+		}
+		catch (RejectedExecutionException ex) {
+			synchronized (this.monitor) {
+				this.refreshRequested = false;
+			}
+			this.logger.debug("Failed to schedule a refresh of the JWK Set", ex);
+		}
+	}
+
+	/**
+	 * Refreshes the JWK Set, joining the refresh in flight if there is one.
+	 * @param rateLimited whether to skip the refresh when the last one happened less
+	 * than {@code minimumRefreshInterval} ago
+	 * @return the refreshed JWK Set, or {@code null} if the refresh was skipped
+	 */
+	private JWKSet refresh(boolean rateLimited) throws RemoteKeySourceException {
+		CompletableFuture<JWKSet> refresh;
+		boolean owner = false;
+		synchronized (this.monitor) {
+			refresh = this.refresh;
+			if (refresh == null) {
+				long now = this.clock.millis();
+				if (rateLimited && now - this.lastRefresh < this.minimumRefreshInterval.toMillis()) {
+					return null;
+				}
+				refresh = new CompletableFuture<>();
+				this.refresh = refresh;
+				this.lastRefresh = now;
+				owner = true;
+			}
+		}
+		if (owner) {
+			try {
+				JWKSet jwkSet = retrieve();
+				this.jwkSet = jwkSet;
+				refresh.complete(jwkSet);
+				scheduleRefresh();
+			}
+			catch (RemoteKeySourceException | RuntimeException ex) {
+				refresh.completeExceptionally(ex);
+			}
+			finally {
+				synchronized (this.monitor) {
+					this.refresh = null;
+				}
+			}
+		}
+		try {
+			return refresh.join();
+		}
+		catch (CompletionException ex) {
+			if (ex.getCause() instanceof RemoteKeySourceException) {
+				throw (RemoteKeySourceException) ex.getCause();
+			}
+			throw ex;
+		}
+	}
+
+	private JWKSet retrieve() throws RemoteKeySourceException {
+		Resource resource;
+		try {
+			resource = this.resourceRetriever.retrieveResource(this.jwkSetUrl);
+		}
+		catch (IOException ex) {
+			throw new RemoteKeySourceException("Couldn't retrieve remote JWK set: " + ex.getMessage(), ex);
+		}
+		try {
+			return JWKSet.parse(resource.getContent());
+		}
+		catch (ParseException ex) {
+			throw new RemoteKeySourceException("Couldn't parse remote JWK set: " + ex.getMessage(), ex);
+		}
+	}
+
+	private void scheduleRefresh() {
+		synchronized (this.monitor) {
+			if (this.scheduled) {
+				return;
+			}
+			this.scheduled = true;
+		}
+		WeakReference<RefreshingJWKSet> reference = new WeakReference<>(this);
+		long interval = this.refreshInterval.toMillis();
+		this.scheduler.scheduleWithFixedDelay(() -> scheduledRefresh(reference), interval, interval,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * The task refreshing the JWK Set every {@code refreshInterval}.
+	 * @param reference the JWK Set to refresh
+	 * @throws CancellationException if the JWK Set has been garbage collected
+	 */
+	static void scheduledRefresh(WeakReference<RefreshingJWKSet> reference) {
+		RefreshingJWKSet jwkSet = reference.get();
+		if (jwkSet == null) {
+			// throwing suppresses the subsequent executions of the task
+			throw new CancellationException("The JWK Set is no longer in use");
+		}
+		jwkSet.refreshInBackground(false);
+	}
+
+	private void refreshInBackground(boolean rateLimited) {
+		try {
+			refresh(rateLimited);
+		}
+		catch (Exception ex) {
+			this.logger.debug("Failed to refresh the JWK Set, keeping the current keys", ex);
+		}
+	}
+
+	private static String getFirstSpecifiedKeyID(JWKMatcher jwkMatcher) {
+		Set<String> keyIds = jwkMatcher.getKeyIDs();
+		if (keyIds == null) {
+			return null;
+		}
+		for (String keyId : keyIds) {
+			if (keyId != null) {
+				return keyId;
+			}
+		}
+		return null;
+	}
+
+	void setMinimumRefreshInterval(Duration minimumRefreshInterval) {
+		Assert.notNull(minimumRefreshInterval, "minimumRefreshInterval cannot be null");
+		Assert.isTrue(!minimumRefreshInterval.isNegative(), "minimumRefreshInterval cannot be negative");
+		this.minimumRefreshInterval = minimumRefreshInterval;
+	}
+
+	void setClock(Clock clock) {
+		Assert.notNull(clock, "clock cannot be null");
+		this.clock = clock;
+	}
+
+	private static final class SharedScheduler {
+
+		static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+			Thread thread = new Thread(runnable, "jwk-set-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+	}
+
+}
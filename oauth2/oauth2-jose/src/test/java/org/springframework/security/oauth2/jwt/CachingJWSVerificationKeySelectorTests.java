@@ -0,0 +1,101 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.security.Key;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.oauth2.jose.TestJwks;
+import org.springframework.security.oauth2.jose.TestKeys;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link CachingJWSVerificationKeySelector}
+ */
+public class CachingJWSVerificationKeySelectorTests {
+
+	private static final JWSHeader RS256_HEADER = new JWSHeader.Builder(JWSAlgorithm.RS256)
+			.keyID(TestJwks.DEFAULT_RSA_JWK.getKeyID()).build();
+
+	private final AtomicReference<JWKSet> jwkSet = new AtomicReference<>(
+			new JWKSet(TestJwks.DEFAULT_RSA_JWK.toPublicJWK()));
+
+	private CachingJWSVerificationKeySelector<SecurityContext> jwsKeySelector;
+
+	private JWSVerifierFactory jwsVerifierFactory;
+
+	@BeforeEach
+	public void setup() {
+		this.jwsKeySelector = new CachingJWSVerificationKeySelector<>(Collections.singleton(JWSAlgorithm.RS256),
+				(selector, context) -> selector.select(this.jwkSet.get()));
+		this.jwsVerifierFactory = this.jwsKeySelector.getJWSVerifierFactory();
+	}
+
+	@Test
+	public void selectJWSKeysWhenJwkSetUnchangedThenSameKeysAndVerifiers() throws Exception {
+		List<Key> keys = this.jwsKeySelector.selectJWSKeys(RS256_HEADER, null);
+		assertThat(keys).hasSize(1);
+		JWSVerifier verifier = this.jwsVerifierFactory.createJWSVerifier(RS256_HEADER, keys.get(0));
+		assertThat(this.jwsKeySelector.selectJWSKeys(RS256_HEADER, null)).isSameAs(keys);
+		assertThat(this.jwsVerifierFactory.createJWSVerifier(RS256_HEADER, keys.get(0))).isSameAs(verifier);
+	}
+
+	@Test
+	public void selectJWSKeysWhenJwkSetChangedThenNewKeysAndVerifiers() throws Exception {
+		List<Key> keys = this.jwsKeySelector.selectJWSKeys(RS256_HEADER, null);
+		JWSVerifier verifier = this.jwsVerifierFactory.createJWSVerifier(RS256_HEADER, keys.get(0));
+		this.jwkSet.set(JWKSet.parse(this.jwkSet.get().toString()));
+		List<Key> refreshed = this.jwsKeySelector.selectJWSKeys(RS256_HEADER, null);
+		assertThat(refreshed).hasSize(1).isNotSameAs(keys);
+		assertThat(this.jwsVerifierFactory.createJWSVerifier(RS256_HEADER, refreshed.get(0))).isNotSameAs(verifier);
+	}
+
+	@Test
+	public void selectJWSKeysWhenAlgorithmNotAllowedThenEmpty() throws Exception {
+		JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.RS512).keyID(TestJwks.DEFAULT_RSA_JWK.getKeyID())
+				.build();
+		assertThat(this.jwsKeySelector.selectJWSKeys(header, null)).isEmpty();
+	}
+
+	@Test
+	public void selectJWSKeysWhenUnknownKeyIdThenEmpty() throws Exception {
+		JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.RS256).keyID("unknown").build();
+		assertThat(this.jwsKeySelector.selectJWSKeys(header, null)).isEmpty();
+	}
+
+	@Test
+	public void createJWSVerifierWhenKeyNotSelectedThenNewVerifier() throws Exception {
+		this.jwsKeySelector.selectJWSKeys(RS256_HEADER, null);
+		JWSVerifier verifier = this.jwsVerifierFactory.createJWSVerifier(RS256_HEADER, TestKeys.DEFAULT_PUBLIC_KEY);
+		assertThat(verifier).isNotNull();
+		assertThat(this.jwsVerifierFactory.createJWSVerifier(RS256_HEADER, TestKeys.DEFAULT_PUBLIC_KEY))
+				.isNotSameAs(verifier);
+	}
+
+}
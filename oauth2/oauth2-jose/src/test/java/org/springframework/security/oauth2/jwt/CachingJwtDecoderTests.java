@@ -0,0 +1,161 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CachingJwtDecoder}
+ */
+public class CachingJwtDecoderTests {
+
+	private static final Instant NOW = Instant.parse("2022-06-01T10:00:00Z");
+
+	private JwtDecoder delegate;
+
+	private CachingJwtDecoder jwtDecoder;
+
+	@BeforeEach
+	public void setup() {
+		this.delegate = mock(JwtDecoder.class);
+		this.jwtDecoder = new CachingJwtDecoder(this.delegate);
+		this.jwtDecoder.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenDelegateNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CachingJwtDecoder(null));
+	}
+
+	@Test
+	public void setTimeToLiveWhenNotPositiveThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.jwtDecoder.setTimeToLive(Duration.ZERO));
+	}
+
+	@Test
+	public void setMaximumSizeWhenNotPositiveThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.jwtDecoder.setMaximumSize(0));
+	}
+
+	@Test
+	public void decodeWhenDecodedBeforeThenCachedJwt() {
+		Jwt jwt = jwt("token", NOW.plusSeconds(3600));
+		given(this.delegate.decode("token")).willReturn(jwt);
+		assertThat(this.jwtDecoder.decode("token")).isSameAs(jwt);
+		assertThat(this.jwtDecoder.decode("token")).isSameAs(jwt);
+		verify(this.delegate, times(1)).decode("token");
+		assertThat(this.jwtDecoder.getHitCount()).isEqualTo(1);
+		assertThat(this.jwtDecoder.getMissCount()).isEqualTo(1);
+		assertThat(this.jwtDecoder.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	public void decodeWhenDifferentTokensThenEachDecoded() {
+		given(this.delegate.decode("one")).willReturn(jwt("one", NOW.plusSeconds(3600)));
+		given(this.delegate.decode("two")).willReturn(jwt("two", NOW.plusSeconds(3600)));
+		assertThat(this.jwtDecoder.decode("one").getTokenValue()).isEqualTo("one");
+		assertThat(this.jwtDecoder.decode("two").getTokenValue()).isEqualTo("two");
+		verify(this.delegate).decode("one");
+		verify(this.delegate).decode("two");
+	}
+
+	@Test
+	public void decodeWhenDelegateFailsThenNotCached() {
+		given(this.delegate.decode("token")).willThrow(new BadJwtException("bad"));
+		assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> this.jwtDecoder.decode("token"));
+		assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> this.jwtDecoder.decode("token"));
+		verify(this.delegate, times(2)).decode("token");
+		assertThat(this.jwtDecoder.getSize()).isZero();
+	}
+
+	@Test
+	public void decodeWhenTokenExpiredThenDelegateDecides() {
+		Instant exp = NOW.plusSeconds(60);
+		given(this.delegate.decode("token")).willReturn(jwt("token", exp));
+		this.jwtDecoder.decode("token");
+		this.jwtDecoder.setClock(Clock.fixed(exp, ZoneOffset.UTC));
+		willThrow(new JwtValidationException("expired", Collections.singleton(new OAuth2Error("invalid_token"))))
+				.given(this.delegate).decode("token");
+		assertThatExceptionOfType(JwtValidationException.class).isThrownBy(() -> this.jwtDecoder.decode("token"));
+		verify(this.delegate, times(2)).decode("token");
+	}
+
+	@Test
+	public void decodeWhenTimeToLiveElapsedThenDecodedAgain() {
+		given(this.delegate.decode("token")).willReturn(jwt("token", NOW.plusSeconds(3600)));
+		this.jwtDecoder.setTimeToLive(Duration.ofSeconds(30));
+		this.jwtDecoder.decode("token");
+		this.jwtDecoder.setClock(Clock.fixed(NOW.plusSeconds(30), ZoneOffset.UTC));
+		this.jwtDecoder.decode("token");
+		verify(this.delegate, times(2)).decode("token");
+	}
+
+	@Test
+	public void decodeWhenCachedJwtFailsValidationThenDelegateDecides() {
+		given(this.delegate.decode("token")).willReturn(jwt("token", NOW.plusSeconds(3600)));
+		this.jwtDecoder.setJwtValidator((jwt) -> OAuth2TokenValidatorResult.failure(new OAuth2Error("invalid_token")));
+		this.jwtDecoder.decode("token");
+		this.jwtDecoder.decode("token");
+		verify(this.delegate, times(2)).decode("token");
+		assertThat(this.jwtDecoder.getHitCount()).isZero();
+	}
+
+	@Test
+	public void decodeWhenMaximumSizeReachedThenNotCached() {
+		given(this.delegate.decode("one")).willReturn(jwt("one", NOW.plusSeconds(3600)));
+		given(this.delegate.decode("two")).willReturn(jwt("two", NOW.plusSeconds(3600)));
+		this.jwtDecoder.setMaximumSize(1);
+		this.jwtDecoder.decode("one");
+		this.jwtDecoder.decode("two");
+		this.jwtDecoder.decode("two");
+		verify(this.delegate, times(2)).decode("two");
+		assertThat(this.jwtDecoder.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	public void clearThenDecodedAgain() {
+		given(this.delegate.decode("token")).willReturn(jwt("token", NOW.plusSeconds(3600)));
+		this.jwtDecoder.decode("token");
+		this.jwtDecoder.clear();
+		this.jwtDecoder.decode("token");
+		verify(this.delegate, times(2)).decode("token");
+	}
+
+	private static Jwt jwt(String token, Instant expiresAt) {
+		return TestJwts.jwt().tokenValue(token).issuedAt(NOW).notBefore(NOW).expiresAt(expiresAt).build();
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * Tests for {@link CachingReactiveJwtDecoder}
+ */
+public class CachingReactiveJwtDecoderTests {
+
+	private static final Instant NOW = Instant.parse("2022-06-01T10:00:00Z");
+
+	private ReactiveJwtDecoder delegate;
+
+	private CachingReactiveJwtDecoder jwtDecoder;
+
+	@BeforeEach
+	public void setup() {
+		this.delegate = mock(ReactiveJwtDecoder.class);
+		this.jwtDecoder = new CachingReactiveJwtDecoder(this.delegate);
+		this.jwtDecoder.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenDelegateNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CachingReactiveJwtDecoder(null));
+	}
+
+	@Test
+	public void decodeWhenNotSubscribedThenDelegateNotCalled() {
+		this.jwtDecoder.decode("token");
+		verifyZeroInteractions(this.delegate);
+	}
+
+	@Test
+	public void decodeWhenDecodedBeforeThenCachedJwt() {
+		Jwt jwt = jwt("token", NOW.plusSeconds(3600));
+		given(this.delegate.decode("token")).willReturn(Mono.just(jwt));
+		assertThat(this.jwtDecoder.decode("token").block()).isSameAs(jwt);
+		assertThat(this.jwtDecoder.decode("token").block()).isSameAs(jwt);
+		verify(this.delegate, times(1)).decode("token");
+		assertThat(this.jwtDecoder.getHitCount()).isEqualTo(1);
+		assertThat(this.jwtDecoder.getMissCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void decodeWhenDelegateFailsThenNotCached() {
+		given(this.delegate.decode("token")).willReturn(Mono.error(new BadJwtException("bad")));
+		assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> this.jwtDecoder.decode("token").block());
+		assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> this.jwtDecoder.decode("token").block());
+		verify(this.delegate, times(2)).decode("token");
+		assertThat(this.jwtDecoder.getSize()).isZero();
+	}
+
+	@Test
+	public void decodeWhenTokenExpiredThenDelegateDecides() {
+		Instant exp = NOW.plusSeconds(60);
+		given(this.delegate.decode("token")).willReturn(Mono.just(jwt("token", exp)));
+		this.jwtDecoder.decode("token").block();
+		this.jwtDecoder.setClock(Clock.fixed(exp, ZoneOffset.UTC));
+		this.jwtDecoder.decode("token").block();
+		verify(this.delegate, times(2)).decode("token");
+	}
+
+	private static Jwt jwt(String token, Instant expiresAt) {
+		return TestJwts.jwt().tokenValue(token).issuedAt(NOW).notBefore(NOW).expiresAt(expiresAt).build();
+	}
+
+}
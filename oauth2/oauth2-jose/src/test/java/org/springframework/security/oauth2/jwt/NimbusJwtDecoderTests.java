@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2021 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import java.security.spec.EncodedKeySpec;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
 import java.text.ParseException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Base64;
@@ -33,6 +34,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.crypto.SecretKey;
 
@@ -49,6 +52,7 @@ import com.nimbusds.jose.proc.JWSKeySelector;
 import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
 import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.JWTParser;
 import com.nimbusds.jwt.SignedJWT;
 import com.nimbusds.jwt.proc.BadJWTException;
 import com.nimbusds.jwt.proc.DefaultJWTProcessor;
@@ -169,6 +173,22 @@ public class NimbusJwtDecoderTests {
 		this.jwtDecoder.decode(SIGNED_JWT);
 	}
 
+	@Test
+	public void decodeWhenParsedJwtThenUsesParsedToken() throws Exception {
+		Jwt jwt = this.jwtDecoder.decode(JWTParser.parse(SIGNED_JWT));
+		assertThat(jwt.getTokenValue()).isEqualTo(SIGNED_JWT);
+		assertThat(jwt.getSubject()).isEqualTo("test-subject");
+	}
+
+	@Test
+	public void decodeWhenParsedPlainJwtThenBadJwtException() {
+		// @formatter:off
+		assertThatExceptionOfType(BadJwtException.class)
+				.isThrownBy(() -> this.jwtDecoder.decode(JWTParser.parse(UNSIGNED_JWT)))
+				.withMessageContaining("Unsupported algorithm of none");
+		// @formatter:on
+	}
+
 	// gh-5457
 	@Test
 	public void decodeWhenPlainJwtThenExceptionDoesNotMentionClass() {
@@ -678,6 +698,46 @@ public class NimbusJwtDecoderTests {
 		// @formatter:on
 	}
 
+	@Test
+	public void decodeWhenJwkSetRefreshIntervalThenRetrievesOnceAndSchedulesRefresh() {
+		RestOperations restOperations = mock(RestOperations.class);
+		given(restOperations.exchange(any(RequestEntity.class), eq(String.class)))
+				.willReturn(new ResponseEntity<>(JWK_SET, HttpStatus.OK));
+		ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		// @formatter:off
+		NimbusJwtDecoder jwtDecoder = NimbusJwtDecoder.withJwkSetUri(JWK_SET_URI)
+				.restOperations(restOperations)
+				.jwkSetRefreshInterval(Duration.ofMinutes(5))
+				.jwkSetRefreshScheduler(scheduler)
+				.build();
+		// @formatter:on
+		jwtDecoder.decode(SIGNED_JWT);
+		jwtDecoder.decode(SIGNED_JWT);
+		verify(restOperations).exchange(any(RequestEntity.class), eq(String.class));
+		verify(scheduler).scheduleWithFixedDelay(any(Runnable.class), eq(300000L), eq(300000L),
+				eq(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void buildWhenJwkSetRefreshIntervalAndCacheThenThrowsIllegalStateException() {
+		// @formatter:off
+		NimbusJwtDecoder.JwkSetUriJwtDecoderBuilder builder = NimbusJwtDecoder.withJwkSetUri(JWK_SET_URI)
+				.cache(new ConcurrentMapCache("test-jwk-set-cache"))
+				.jwkSetRefreshInterval(Duration.ofMinutes(5));
+		// @formatter:on
+		assertThatIllegalStateException().isThrownBy(builder::build);
+	}
+
+	@Test
+	public void jwkSetRefreshIntervalWhenNegativeThenThrowsIllegalArgumentException() {
+		NimbusJwtDecoder.JwkSetUriJwtDecoderBuilder builder = NimbusJwtDecoder.withJwkSetUri(JWK_SET_URI);
+		// @formatter:off
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> builder.jwkSetRefreshInterval(Duration.ofSeconds(-1)))
+				.withMessage("jwkSetRefreshInterval must be positive");
+		// @formatter:on
+	}
+
 	// gh-8730
 	@Test
 	public void withJwkSetUriWhenUsingCustomTypeHeaderThenRefuseOmittedType() throws Exception {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2021 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -45,6 +45,7 @@ import com.nimbusds.jose.proc.JWKSecurityContext;
 import com.nimbusds.jose.proc.JWSKeySelector;
 import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.JWTParser;
 import com.nimbusds.jwt.SignedJWT;
 import com.nimbusds.jwt.proc.ConfigurableJWTProcessor;
 import okhttp3.mockwebserver.MockResponse;
@@ -150,6 +151,22 @@ public class NimbusReactiveJwtDecoderTests {
 		assertThat(jwt.getClaims().get("scope")).isEqualTo("message:read");
 	}
 
+	@Test
+	public void decodeWhenParsedJwtThenSuccess() throws Exception {
+		Jwt jwt = this.decoder.decode(JWTParser.parse(this.messageReadToken)).block();
+		assertThat(jwt.getTokenValue()).isEqualTo(this.messageReadToken);
+		assertThat(jwt.getClaims().get("scope")).isEqualTo("message:read");
+	}
+
+	@Test
+	public void decodeWhenParsedUnsignedJwtThenMessageDoesNotMentionClass() {
+		// @formatter:off
+		assertThatExceptionOfType(BadJwtException.class)
+				.isThrownBy(() -> this.decoder.decode(JWTParser.parse(this.unsignedToken)).block())
+				.withMessage("Unsupported algorithm of none");
+		// @formatter:on
+	}
+
 	@Test
 	public void decodeWhenRSAPublicKeyThenSuccess() throws Exception {
 		byte[] bytes = Base64.getDecoder().decode(
@@ -333,6 +350,17 @@ public class NimbusReactiveJwtDecoderTests {
 		// @formatter:on
 	}
 
+	@Test
+	public void jwkSetRefreshIntervalWhenNullThenThrowsException() {
+		NimbusReactiveJwtDecoder.JwkSetUriReactiveJwtDecoderBuilder builder = NimbusReactiveJwtDecoder
+				.withJwkSetUri(this.jwkSetUri);
+		// @formatter:off
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> builder.jwkSetRefreshInterval(null))
+				.withMessage("jwkSetRefreshInterval cannot be null");
+		// @formatter:on
+	}
+
 	// gh-5603
 	@Test
 	public void decodeWhenSignedThenOk() {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,13 @@
 
 package org.springframework.security.oauth2.jwt;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKMatcher;
@@ -31,8 +36,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 
@@ -149,6 +157,45 @@ public class ReactiveRemoteJWKSourceTests {
 		assertThat(keys).isEmpty();
 	}
 
+	@Test
+	public void getWhenConcurrentRequestsThenSingleRetrieval() {
+		given(this.matcher.matches(any())).willReturn(true);
+		Tuple2<List<JWK>, List<JWK>> keys = Mono.zip(this.source.get(this.selector), this.source.get(this.selector))
+				.block();
+		assertThat(keys.getT1()).hasSize(2);
+		assertThat(keys.getT2()).hasSize(2);
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void getWhenStaleThenRefreshesInBackgroundAndUsesCurrentKeys() throws Exception {
+		Instant now = Instant.now();
+		this.source.setClock(Clock.fixed(now, ZoneOffset.UTC));
+		this.source.setRefreshInterval(Duration.ofMinutes(1));
+		this.server.enqueue(new MockResponse().setBody(this.keys2));
+		given(this.matcher.matches(any())).willReturn(true);
+		this.source.get(this.selector).block();
+		this.source.setClock(Clock.fixed(now.plusSeconds(60), ZoneOffset.UTC));
+		assertThat(this.source.get(this.selector).block()).hasSize(2);
+		assertThat(this.server.takeRequest(1, TimeUnit.SECONDS)).isNotNull();
+		assertThat(this.server.takeRequest(1, TimeUnit.SECONDS)).isNotNull();
+	}
+
+	@Test
+	public void getWhenNoMatchAndKeyIdNotMatchWithinMinimumRefreshIntervalThenEmpty() {
+		this.source.setClock(Clock.fixed(Instant.now(), ZoneOffset.UTC));
+		this.source.setMinimumRefreshInterval(Duration.ofSeconds(30));
+		given(this.matcher.matches(any())).willReturn(false);
+		given(this.matcher.getKeyIDs()).willReturn(Collections.singleton("rotated"));
+		assertThat(this.source.get(this.selector).block()).isEmpty();
+		assertThat(this.server.getRequestCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void setRefreshIntervalWhenZeroThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.source.setRefreshInterval(Duration.ZERO));
+	}
+
 	@Test
 	public void getWhenNoMatchAndKeyIdMatchThenEmpty() {
 		given(this.matcher.matches(any())).willReturn(false);
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.jwt;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.nimbusds.jose.RemoteKeySourceException;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.security.oauth2.jose.TestJwks;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Tests for {@link RefreshingJWKSet}.
+ */
+public class RefreshingJWKSetTests {
+
+	private static final Resource RSA_JWK_SET = new Resource(new JWKSet(TestJwks.DEFAULT_RSA_JWK).toString(),
+			"UTF-8");
+
+	private static final Resource EC_JWK_SET = new Resource(new JWKSet(TestJwks.DEFAULT_EC_JWK).toString(), "UTF-8");
+
+	private static final JWKSelector RSA_SELECTOR = new JWKSelector(
+			new JWKMatcher.Builder().keyID(TestJwks.DEFAULT_RSA_JWK.getKeyID()).build());
+
+	private static final JWKSelector EC_SELECTOR = new JWKSelector(
+			new JWKMatcher.Builder().keyID(TestJwks.DEFAULT_EC_JWK.getKeyID()).build());
+
+	private final Instant now = Instant.parse("2022-01-01T00:00:00Z");
+
+	private URL jwkSetUrl;
+
+	private ResourceRetriever resourceRetriever;
+
+	private ScheduledExecutorService scheduler;
+
+	private RefreshingJWKSet jwkSet;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		this.jwkSetUrl = new URL("https://issuer/.well-known/jwks.json");
+		this.resourceRetriever = mock(ResourceRetriever.class);
+		this.scheduler = mock(ScheduledExecutorService.class);
+		this.jwkSet = new RefreshingJWKSet(this.jwkSetUrl, this.resourceRetriever, Duration.ofMinutes(5),
+				this.scheduler);
+		this.jwkSet.setClock(Clock.fixed(this.now, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenRefreshIntervalNotPositiveThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(
+				() -> new RefreshingJWKSet(this.jwkSetUrl, this.resourceRetriever, Duration.ZERO, this.scheduler));
+	}
+
+	@Test
+	public void getWhenFirstUseThenRetrievesAndSchedulesRefresh() throws Exception {
+		given(this.resourceRetriever.retrieveResource(this.jwkSetUrl)).willReturn(RSA_JWK_SET);
+		assertThat(this.jwkSet.get(RSA_SELECTOR, null)).hasSize(1);
+		verify(this.resourceRetriever).retrieveResource(this.jwkSetUrl);
+		verify(this.scheduler).scheduleWithFixedDelay(any(Runnable.class), eq(300000L), eq(300000L),
+				eq(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void getWhenLoadedThenDoesNotRetrieveAgain() throws Exception {
+		given(this.resourceRetriever.retrieveResource(this.jwkSetUrl)).willReturn(RSA_JWK_SET);
+		this.jwkSet.get(RSA_SELECTOR, null);
+		this.jwkSet.get(RSA_SELECTOR, null);
+		verify(this.resourceRetriever).retrieveResource(this.jwkSetUrl);
+		verify(this.scheduler).scheduleWithFixedDelay(any(Runnable.class), eq(300000L), eq(300000L),
+				eq(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void getWhenFirstRetrievalFailsThenRemoteKeySourceExceptionAndNotScheduled() throws Exception {
+		given(this.resourceRetriever.retrieveResource(this.jwkSetUrl)).willThrow(new IOException("unavailable"));
+		assertThatExceptionOfType(RemoteKeySourceException.class).isThrownBy(() -> this.jwkSet.get(RSA_SELECTOR, null))
+				.withMessageContaining("unavailable");
+		verifyNoInteractions(this.scheduler);
+	}
+
+	@Test
+	public void getWhenScheduledRefreshThenUsesRefreshedKeys() throws Exception {
+		given(this.resourceRetriever.retrieveResource(this.jwkSetUrl)).willReturn(RSA_JWK_SET, EC_JWK_SET);
+		this.jwkSet.get(RSA_SELECTOR, null);
+		scheduledRefresh().run();
+		assertThat(this.jwkSet.get(EC_SELECTOR, null)).hasSize(1);
+		assertThat(this.jwkSet.get(RSA_SELECTOR, null)).isEmpty();
+		verify(this.resourceRetriever, times(2)).retrieveResource(this.jwkSetUrl);
+	}
+
+	@Test
+	public void getWhenScheduledRefreshFailsThenKeepsCurrentKeys() throws Exception {
+		given(this.resourceRetriever.retrieveResource(this.jwkSetUrl)).willReturn(RSA_JWK_SET)
+				.willThrow(new IOException("unavailable"));
+		this.jwkSet.get(RSA_SELECTOR, null);
+		scheduledRefresh().run();
+		assertThat(this.jwkSet.get(RSA_SELECTOR, null)).hasSize(1);
+		verify(this.resourceRetriever, times(2)).retrieveResource(this.jwkSetUrl);
+	}
+
+	@Test
+	public void getWhenUnknownKeyIdThenRefreshesInBackground() throws Exception {
+		this.jwkSet.setMinimumRefreshInterval(Duration.ZERO);
+		given(this.resourceRetriever.retrieveResource(this.jwkSetUrl)).willReturn(RSA_JWK_SET, EC_JWK_SET);
+		this.jwkSet.get(RSA_SELECTOR, null);
+		assertThat(this.jwkSet.get(EC_SELECTOR, null)).isEmpty();
+		verify(this.resourceRetriever).retrieveResource(this.jwkSetUrl);
+		backgroundRefresh().run();
+		assertThat(this.jwkSet.get(EC_SELECTOR, null)).hasSize(1);
+		verify(this.resourceRetriever, times(2)).retrieveResource(this.jwkSetUrl);
+	}
+
+	@Test
+	public void getWhenUnknownKeyIdAgainBeforeRefreshThenRefreshesOnce() throws Exception {
+		this.jwkSet.setMinimumRefreshInterval(Duration.ZERO);
+		given(this.resourceRetriever.retrieveResource(this.jwkSetUrl)).willReturn(RSA_JWK_SET, EC_JWK_SET);
+		this.jwkSet.get(RSA_SELECTOR, null);
+		this.jwkSet.get(EC_SELECTOR, null);
+		this.jwkSet.get(EC_SELECTOR, null);
+		verify(this.scheduler).execute(any(Runnable.class));
+	}
+
+	@Test
+	public void getWhenUnknownKeyIdWithinMinimumRefreshIntervalThenDoesNotRefresh() throws Exception {
+		given(this.resourceRetriever.retrieveResource(this.jwkSetUrl)).willReturn(RSA_JWK_SET, EC_JWK_SET);
+		this.jwkSet.get(RSA_SELECTOR, null);
+		assertThat(this.jwkSet.get(EC_SELECTOR, null)).isEmpty();
+		verify(this.scheduler, never()).execute(any(Runnable.class));
+		this.jwkSet.setClock(Clock.fixed(this.now.plusSeconds(30), ZoneOffset.UTC));
+		assertThat(this.jwkSet.get(EC_SELECTOR, null)).isEmpty();
+		backgroundRefresh().run();
+		assertThat(this.jwkSet.get(EC_SELECTOR, null)).hasSize(1);
+		verify(this.resourceRetriever, times(2)).retrieveResource(this.jwkSetUrl);
+	}
+
+	@Test
+	public void getWhenUnknownKeyIdDuringRefreshThenDoesNotWait() throws Exception {
+		this.jwkSet.setMinimumRefreshInterval(Duration.ZERO);
+		CountDownLatch refreshing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		given(this.resourceRetriever.retrieveResource(this.jwkSetUrl)).willReturn(RSA_JWK_SET)
+				.willAnswer((invocation) -> {
+					refreshing.countDown();
+					release.await();
+					return EC_JWK_SET;
+				});
+		this.jwkSet.get(RSA_SELECTOR, null);
+		Thread scheduled = new Thread(scheduledRefresh());
+		scheduled.start();
+		refreshing.await();
+		assertThat(this.jwkSet.get(EC_SELECTOR, null)).isEmpty();
+		verify(this.scheduler, never()).execute(any(Runnable.class));
+		release.countDown();
+		scheduled.join();
+		assertThat(this.jwkSet.get(EC_SELECTOR, null)).hasSize(1);
+		verify(this.resourceRetriever, times(2)).retrieveResource(this.jwkSetUrl);
+	}
+
+	@Test
+	public void scheduledRefreshWhenJwkSetGarbageCollectedThenCancelled() {
+		WeakReference<RefreshingJWKSet> reference = new WeakReference<>(this.jwkSet);
+		reference.clear();
+		assertThatExceptionOfType(CancellationException.class)
+				.isThrownBy(() -> RefreshingJWKSet.scheduledRefresh(reference));
+		verifyNoInteractions(this.resourceRetriever);
+	}
+
+	@Test
+	public void scheduledRefreshWhenJwkSetInUseThenRefreshes() throws Exception {
+		given(this.resourceRetriever.retrieveResource(this.jwkSetUrl)).willReturn(RSA_JWK_SET, EC_JWK_SET);
+		this.jwkSet.get(RSA_SELECTOR, null);
+		RefreshingJWKSet.scheduledRefresh(new WeakReference<>(this.jwkSet));
+		assertThat(this.jwkSet.get(EC_SELECTOR, null)).hasSize(1);
+	}
+
+	private Runnable backgroundRefresh() {
+		ArgumentCaptor<Runnable> refresh = ArgumentCaptor.forClass(Runnable.class);
+		verify(this.scheduler).execute(refresh.capture());
+		return refresh.getValue();
+	}
+
+	private Runnable scheduledRefresh() {
+		ArgumentCaptor<Runnable> refresh = ArgumentCaptor.forClass(Runnable.class);
+		verify(this.scheduler).scheduleWithFixedDelay(refresh.capture(), eq(300000L), eq(300000L),
+				eq(TimeUnit.MILLISECONDS));
+		return refresh.getValue();
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.security.oauth2.server.resource.authentication;
 
 import java.util.Collection;
 
+import com.nimbusds.jwt.JWT;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -32,6 +33,7 @@ import org.springframework.security.oauth2.jwt.BadJwtException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
 import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
 import org.springframework.util.Assert;
@@ -94,7 +96,7 @@ public final class JwtAuthenticationProvider implements AuthenticationProvider {
 
 	private Jwt getJwt(BearerTokenAuthenticationToken bearer) {
 		try {
-			return this.jwtDecoder.decode(bearer.getToken());
+			return decode(bearer);
 		}
 		catch (BadJwtException failed) {
 			this.logger.debug("Failed to authenticate since the JWT was invalid");
@@ -105,6 +107,16 @@ public final class JwtAuthenticationProvider implements AuthenticationProvider {
 		}
 	}
 
+	private Jwt decode(BearerTokenAuthenticationToken bearer) {
+		if (bearer instanceof ParsedBearerTokenAuthenticationToken && this.jwtDecoder instanceof NimbusJwtDecoder) {
+			JWT jwt = ((ParsedBearerTokenAuthenticationToken) bearer).getJwt();
+			if (jwt != null) {
+				return ((NimbusJwtDecoder) this.jwtDecoder).decode(jwt);
+			}
+		}
+		return this.jwtDecoder.decode(bearer.getToken());
+	}
+
 	@Override
 	public boolean supports(Class<?> authentication) {
 		return BearerTokenAuthenticationToken.class.isAssignableFrom(authentication);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import java.util.function.Predicate;
 
 import javax.servlet.http.HttpServletRequest;
 
+import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTParser;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -59,6 +60,13 @@ import org.springframework.util.Assert;
  * <a href="https://tools.ietf.org/html/rfc6750#section-1.2" target="_blank">Bearer
  * Token</a>.
  *
+ * <p>
+ * As of 5.8, a {@link BearerTokenAuthenticationToken} is handed to the resolved
+ * {@link AuthenticationManager} as an instance of a subclass which also carries the JWT
+ * parsed to read the issuer, so that a {@link JwtAuthenticationProvider} does not parse
+ * it again. Subclasses of {@link BearerTokenAuthenticationToken} are handed over
+ * unchanged.
+ *
  * @author Josh Cummings
  * @since 5.3
  */
@@ -127,7 +135,7 @@ public final class JwtIssuerAuthenticationManagerResolver implements Authenticat
 
 	private static class ResolvingAuthenticationManager implements AuthenticationManager {
 
-		private final Converter<BearerTokenAuthenticationToken, String> issuerConverter = new JwtClaimIssuerConverter();
+		private final Converter<JWT, String> issuerConverter = new JwtClaimIssuerConverter();
 
 		private final AuthenticationManagerResolver<String> issuerAuthenticationManagerResolver;
 
@@ -140,23 +148,33 @@ public final class JwtIssuerAuthenticationManagerResolver implements Authenticat
 			Assert.isTrue(authentication instanceof BearerTokenAuthenticationToken,
 					"Authentication must be of type BearerTokenAuthenticationToken");
 			BearerTokenAuthenticationToken token = (BearerTokenAuthenticationToken) authentication;
-			String issuer = this.issuerConverter.convert(token);
+			JWT jwt = parse(token);
+			String issuer = this.issuerConverter.convert(jwt);
 			AuthenticationManager authenticationManager = this.issuerAuthenticationManagerResolver.resolve(issuer);
 			if (authenticationManager == null) {
 				throw new InvalidBearerTokenException("Invalid issuer");
 			}
-			return authenticationManager.authenticate(authentication);
+			// hand the parsed token over, so that it is not parsed again when decoding
+			return authenticationManager.authenticate(ParsedBearerTokenAuthenticationToken.withJwt(token, jwt));
+		}
+
+		private JWT parse(BearerTokenAuthenticationToken token) {
+			try {
+				return JWTParser.parse(token.getToken());
+			}
+			catch (Exception ex) {
+				throw new InvalidBearerTokenException(ex.getMessage(), ex);
+			}
 		}
 
 	}
 
-	private static class JwtClaimIssuerConverter implements Converter<BearerTokenAuthenticationToken, String> {
+	private static class JwtClaimIssuerConverter implements Converter<JWT, String> {
 
 		@Override
-		public String convert(@NonNull BearerTokenAuthenticationToken authentication) {
-			String token = authentication.getToken();
+		public String convert(@NonNull JWT jwt) {
 			try {
-				String issuer = JWTParser.parse(token).getJWTClaimsSet().getIssuer();
+				String issuer = jwt.getJWTClaimsSet().getIssuer();
 				if (issuer != null) {
 					return issuer;
 				}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2021 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
+import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTParser;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
@@ -57,6 +58,13 @@ import org.springframework.web.server.ServerWebExchange;
  * <a href="https://tools.ietf.org/html/rfc6750#section-1.2" target="_blank">Bearer
  * Token</a>.
  *
+ * <p>
+ * As of 5.8, a {@link BearerTokenAuthenticationToken} is handed to the resolved
+ * {@link ReactiveAuthenticationManager} as an instance of a subclass which also carries
+ * the JWT parsed to read the issuer, so that a {@link JwtReactiveAuthenticationManager}
+ * does not parse it again. Subclasses of {@link BearerTokenAuthenticationToken} are
+ * handed over unchanged.
+ *
  * @author Josh Cummings
  * @author Roman Matiushchenko
  * @since 5.3
@@ -126,7 +134,7 @@ public final class JwtIssuerReactiveAuthenticationManagerResolver
 
 	private static class ResolvingAuthenticationManager implements ReactiveAuthenticationManager {
 
-		private final Converter<BearerTokenAuthenticationToken, Mono<String>> issuerConverter = new JwtClaimIssuerConverter();
+		private final Converter<JWT, Mono<String>> issuerConverter = new JwtClaimIssuerConverter();
 
 		private final ReactiveAuthenticationManagerResolver<String> issuerAuthenticationManagerResolver;
 
@@ -141,20 +149,38 @@ public final class JwtIssuerReactiveAuthenticationManagerResolver
 			Assert.isTrue(authentication instanceof BearerTokenAuthenticationToken,
 					"Authentication must be of type BearerTokenAuthenticationToken");
 			BearerTokenAuthenticationToken token = (BearerTokenAuthenticationToken) authentication;
-			return this.issuerConverter.convert(token)
-					.flatMap((issuer) -> this.issuerAuthenticationManagerResolver.resolve(issuer).switchIfEmpty(
-							Mono.error(() -> new InvalidBearerTokenException("Invalid issuer " + issuer))))
-					.flatMap((manager) -> manager.authenticate(authentication));
+			// hand the parsed token over, so that it is not parsed again when decoding
+			// @formatter:off
+			return parse(token).flatMap((jwt) -> this.issuerConverter.convert(jwt)
+					.flatMap(this::resolve)
+					.flatMap((manager) -> manager
+							.authenticate(ParsedBearerTokenAuthenticationToken.withJwt(token, jwt)))
+			);
+			// @formatter:on
+		}
+
+		private Mono<ReactiveAuthenticationManager> resolve(String issuer) {
+			return this.issuerAuthenticationManagerResolver.resolve(issuer)
+					.switchIfEmpty(Mono.error(() -> new InvalidBearerTokenException("Invalid issuer " + issuer)));
+		}
+
+		private Mono<JWT> parse(BearerTokenAuthenticationToken token) {
+			try {
+				return Mono.just(JWTParser.parse(token.getToken()));
+			}
+			catch (Exception ex) {
+				return Mono.error(() -> new InvalidBearerTokenException(ex.getMessage(), ex));
+			}
 		}
 
 	}
 
-	private static class JwtClaimIssuerConverter implements Converter<BearerTokenAuthenticationToken, Mono<String>> {
+	private static class JwtClaimIssuerConverter implements Converter<JWT, Mono<String>> {
 
 		@Override
-		public Mono<String> convert(@NonNull BearerTokenAuthenticationToken token) {
+		public Mono<String> convert(@NonNull JWT jwt) {
 			try {
-				String issuer = JWTParser.parse(token.getToken()).getJWTClaimsSet().getIssuer();
+				String issuer = jwt.getJWTClaimsSet().getIssuer();
 				if (issuer == null) {
 					throw new InvalidBearerTokenException("Missing issuer");
 				}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.security.oauth2.server.resource.authentication;
 
+import com.nimbusds.jwt.JWT;
 import reactor.core.publisher.Mono;
 
 import org.springframework.core.convert.converter.Converter;
@@ -27,6 +28,7 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.oauth2.jwt.BadJwtException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
 import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
 import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
 import org.springframework.security.oauth2.server.resource.InvalidBearerTokenException;
@@ -56,14 +58,24 @@ public final class JwtReactiveAuthenticationManager implements ReactiveAuthentic
 		return Mono.justOrEmpty(authentication)
 				.filter((a) -> a instanceof BearerTokenAuthenticationToken)
 				.cast(BearerTokenAuthenticationToken.class)
-				.map(BearerTokenAuthenticationToken::getToken)
-				.flatMap(this.jwtDecoder::decode)
+				.flatMap(this::decode)
 				.flatMap(this.jwtAuthenticationConverter::convert)
 				.cast(Authentication.class)
 				.onErrorMap(JwtException.class, this::onError);
 		// @formatter:on
 	}
 
+	private Mono<Jwt> decode(BearerTokenAuthenticationToken bearer) {
+		if (bearer instanceof ParsedBearerTokenAuthenticationToken
+				&& this.jwtDecoder instanceof NimbusReactiveJwtDecoder) {
+			JWT jwt = ((ParsedBearerTokenAuthenticationToken) bearer).getJwt();
+			if (jwt != null) {
+				return ((NimbusReactiveJwtDecoder) this.jwtDecoder).decode(jwt);
+			}
+		}
+		return this.jwtDecoder.decode(bearer.getToken());
+	}
+
 	/**
 	 * Use the given {@link Converter} for converting a {@link Jwt} into an
 	 * {@link AbstractAuthenticationToken}.
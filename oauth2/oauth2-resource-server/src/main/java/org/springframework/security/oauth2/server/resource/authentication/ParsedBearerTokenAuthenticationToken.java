@@ -0,0 +1,68 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.authentication;
+
+import com.nimbusds.jwt.JWT;
+
+import org.springframework.security.core.SpringSecurityCoreVersion;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+
+/**
+ * A {@link BearerTokenAuthenticationToken} carrying the JWT already parsed from the
+ * bearer token, so that {@link JwtAuthenticationProvider} and
+ * {@link JwtReactiveAuthenticationManager} do not parse it again. Only plain
+ * {@link BearerTokenAuthenticationToken} instances are replaced by one, see
+ * {@link #withJwt(BearerTokenAuthenticationToken, JWT)}.
+ *
+ * @since 5.8
+ */
+final class ParsedBearerTokenAuthenticationToken extends BearerTokenAuthenticationToken {
+
+	private static final long serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
+
+	private final transient JWT jwt;
+
+	private ParsedBearerTokenAuthenticationToken(BearerTokenAuthenticationToken token, JWT jwt) {
+		super(token.getToken());
+		setDetails(token.getDetails());
+		this.jwt = jwt;
+	}
+
+	/**
+	 * Returns a token carrying the parsed JWT in place of the given token. A token
+	 * whose class is a subclass of {@link BearerTokenAuthenticationToken} is returned
+	 * unchanged, since it may hold state which a copy would lose.
+	 * @param token the bearer token
+	 * @param jwt the JWT parsed from the bearer token
+	 * @return the token to authenticate
+	 */
+	static BearerTokenAuthenticationToken withJwt(BearerTokenAuthenticationToken token, JWT jwt) {
+		if (token.getClass() != BearerTokenAuthenticationToken.class) {
+			return token;
+		}
+		return new ParsedBearerTokenAuthenticationToken(token, jwt);
+	}
+
+	/**
+	 * Returns the parsed JWT, which is {@code null} once this token was serialized.
+	 * @return the parsed JWT
+	 */
+	JWT getJwt() {
+		return this.jwt;
+	}
+
+}
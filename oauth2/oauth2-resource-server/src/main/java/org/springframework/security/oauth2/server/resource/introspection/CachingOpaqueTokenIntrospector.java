@@ -0,0 +1,221 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.oauth2.core.ExpiringTokenCache;
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.util.Assert;
+
+/**
+ * An {@link OpaqueTokenIntrospector} caching the results of another
+ * {@link OpaqueTokenIntrospector}, such as {@link NimbusOpaqueTokenIntrospector}, so that
+ * a token presented on many requests is only introspected once.
+ *
+ * <p>
+ * Active tokens are cached until their {@code exp} attribute, or for at most
+ * {@link #setTimeToLive(Duration) timeToLive}. Tokens reported as inactive, through a
+ * {@link BadOpaqueTokenException}, are cached for
+ * {@link #setInactiveTimeToLive(Duration) inactiveTimeToLive}. Other failures, such as
+ * the introspection endpoint being unavailable, are never cached. Concurrent
+ * introspections of the same token are coalesced into a single call to the delegate.
+ *
+ * <p>
+ * Caching means that revoking a token takes effect only once its cached result expires,
+ * so {@code timeToLive} bounds how long a revoked token may still be accepted.
+ *
+ * <p>
+ * The cache holds at most {@link #setMaximumSize(int) maximumSize} entries. When full,
+ * expired entries are removed and, if none were, new results are not cached.
+ *
+ * @since 5.8
+ * @see CachingReactiveOpaqueTokenIntrospector
+ */
+public final class CachingOpaqueTokenIntrospector implements OpaqueTokenIntrospector {
+
+	private final OpaqueTokenIntrospector delegate;
+
+	private final IntrospectionCache cache = new IntrospectionCache();
+
+	private final Map<String, CompletableFuture<OAuth2AuthenticatedPrincipal>> introspections;
+
+	/**
+	 * Constructs a {@code CachingOpaqueTokenIntrospector} using the provided parameters
+	 * @param delegate the {@link OpaqueTokenIntrospector} introspecting tokens which are
+	 * not cached
+	 */
+	public CachingOpaqueTokenIntrospector(OpaqueTokenIntrospector delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+		this.introspections = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public OAuth2AuthenticatedPrincipal introspect(String token) {
+		String hash = ExpiringTokenCache.hash(token);
+		IntrospectionCache.Entry entry = this.cache.get(hash);
+		if (entry != null) {
+			return entry.getPrincipal();
+		}
+		CompletableFuture<OAuth2AuthenticatedPrincipal> introspection = new CompletableFuture<>();
+		CompletableFuture<OAuth2AuthenticatedPrincipal> inFlight = this.introspections.putIfAbsent(hash,
+				introspection);
+		if (inFlight != null) {
+			return join(inFlight);
+		}
+		try {
+			OAuth2AuthenticatedPrincipal principal = introspectAndCache(token, hash);
+			introspection.complete(principal);
+			return principal;
+		}
+		catch (RuntimeException ex) {
+			introspection.completeExceptionally(ex);
+			throw ex;
+		}
+		finally {
+			this.introspections.remove(hash, introspection);
+		}
+	}
+
+	private OAuth2AuthenticatedPrincipal introspectAndCache(String token, String hash) {
+		// an introspection of the same token may have completed since the cache was checked
+		IntrospectionCache.Entry entry = this.cache.peek(hash);
+		if (entry != null) {
+			return entry.getPrincipal();
+		}
+		long start = System.nanoTime();
+		try {
+			OAuth2AuthenticatedPrincipal principal = this.delegate.introspect(token);
+			this.cache.putActive(hash, principal);
+			return principal;
+		}
+		catch (BadOpaqueTokenException ex) {
+			this.cache.putInactive(hash, ex.getMessage());
+			throw ex;
+		}
+		finally {
+			this.cache.recordIntrospection(System.nanoTime() - start);
+		}
+	}
+
+	private OAuth2AuthenticatedPrincipal join(CompletableFuture<OAuth2AuthenticatedPrincipal> introspection) {
+		try {
+			return introspection.join();
+		}
+		catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * Evicts all cached results, for instance after revoking tokens.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	/**
+	 * Returns the number of tokens served from the cache, whether active or not.
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return this.cache.getHitCount();
+	}
+
+	/**
+	 * Returns the number of tokens not found in the cache. Tokens joining an
+	 * introspection in flight are counted as misses as well.
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return this.cache.getMissCount();
+	}
+
+	/**
+	 * Returns the number of introspections performed by the delegate.
+	 * @return the introspection count
+	 */
+	public long getIntrospectionCount() {
+		return this.cache.getIntrospectionCount();
+	}
+
+	/**
+	 * Returns the total time spent in the delegate, which divided by the
+	 * {@link #getIntrospectionCount() introspection count} gives the mean latency of
+	 * the introspection endpoint.
+	 * @return the total introspection time
+	 */
+	public Duration getIntrospectionTime() {
+		return this.cache.getIntrospectionTime();
+	}
+
+	/**
+	 * Returns the number of cached results, including expired ones which have not been
+	 * removed yet.
+	 * @return the number of cached results
+	 */
+	public int getSize() {
+		return this.cache.getSize();
+	}
+
+	/**
+	 * Sets the longest time an active token is cached, whatever its {@code exp}
+	 * attribute. Defaults to 5 minutes.
+	 * @param timeToLive the maximum time to live of active tokens
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		this.cache.setTimeToLive(timeToLive);
+	}
+
+	/**
+	 * Sets how long a token reported as inactive is cached. Defaults to 10 seconds; use
+	 * {@link Duration#ZERO} to not cache inactive tokens.
+	 * @param inactiveTimeToLive the time to live of inactive tokens
+	 */
+	public void setInactiveTimeToLive(Duration inactiveTimeToLive) {
+		this.cache.setInactiveTimeToLive(inactiveTimeToLive);
+	}
+
+	/**
+	 * Sets the maximum number of cached results. Defaults to 10000.
+	 * @param maximumSize the maximum number of cached results
+	 */
+	public void setMaximumSize(int maximumSize) {
+		this.cache.setMaximumSize(maximumSize);
+	}
+
+	/**
+	 * Sets the {@link Clock} used to expire cached results.
+	 * @param clock the {@link Clock} to use
+	 */
+	public void setClock(Clock clock) {
+		this.cache.setClock(clock);
+	}
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import reactor.core.publisher.Mono;
+
+import org.springframework.security.oauth2.core.ExpiringTokenCache;
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ReactiveOpaqueTokenIntrospector} caching the results of another
+ * {@link ReactiveOpaqueTokenIntrospector}, such as
+ * {@link NimbusReactiveOpaqueTokenIntrospector}, so that a token presented on many
+ * requests is only introspected once.
+ *
+ * <p>
+ * Results are cached and expired as by {@link CachingOpaqueTokenIntrospector}, and
+ * concurrent introspections of the same token share a single subscription to the
+ * delegate.
+ *
+ * @since 5.8
+ * @see CachingOpaqueTokenIntrospector
+ */
+public final class CachingReactiveOpaqueTokenIntrospector implements ReactiveOpaqueTokenIntrospector {
+
+	private final ReactiveOpaqueTokenIntrospector delegate;
+
+	private final IntrospectionCache cache = new IntrospectionCache();
+
+	private final Map<String, Mono<OAuth2AuthenticatedPrincipal>> introspections = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a {@code CachingReactiveOpaqueTokenIntrospector} using the provided
+	 * parameters
+	 * @param delegate the {@link ReactiveOpaqueTokenIntrospector} introspecting tokens
+	 * which are not cached
+	 */
+	public CachingReactiveOpaqueTokenIntrospector(ReactiveOpaqueTokenIntrospector delegate) {
+		Assert.notNull(delegate, "delegate cannot be null");
+		this.delegate = delegate;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Mono<OAuth2AuthenticatedPrincipal> introspect(String token) {
+		return Mono.defer(() -> {
+			String hash = ExpiringTokenCache.hash(token);
+			IntrospectionCache.Entry entry = this.cache.get(hash);
+			if (entry != null) {
+				return Mono.fromCallable(entry::getPrincipal);
+			}
+			return this.introspections.computeIfAbsent(hash, (key) -> introspectAndCache(token, key));
+		});
+	}
+
+	private Mono<OAuth2AuthenticatedPrincipal> introspectAndCache(String token, String hash) {
+		Mono<OAuth2AuthenticatedPrincipal> introspection = Mono.defer(() -> {
+			// an introspection of the same token may have completed since the cache was checked
+			IntrospectionCache.Entry entry = this.cache.peek(hash);
+			if (entry != null) {
+				return Mono.fromCallable(entry::getPrincipal);
+			}
+			long start = System.nanoTime();
+			// @formatter:off
+			return this.delegate.introspect(token)
+					.doOnNext((principal) -> this.cache.putActive(hash, principal))
+					.doOnError(BadOpaqueTokenException.class, (ex) -> this.cache.putInactive(hash, ex.getMessage()))
+					.doFinally((signal) -> this.cache.recordIntrospection(System.nanoTime() - start));
+			// @formatter:on
+		});
+		return introspection.doFinally((signal) -> this.introspections.remove(hash)).cache();
+	}
+
+	/**
+	 * See {@link CachingOpaqueTokenIntrospector#clear()}.
+	 */
+	public void clear() {
+		this.cache.clear();
+	}
+
+	/**
+	 * See {@link CachingOpaqueTokenIntrospector#getHitCount()}.
+	 */
+	public long getHitCount() {
+		return this.cache.getHitCount();
+	}
+
+	/**
+	 * See {@link CachingOpaqueTokenIntrospector#getMissCount()}.
+	 */
+	public long getMissCount() {
+		return this.cache.getMissCount();
+	}
+
+	/**
+	 * See {@link CachingOpaqueTokenIntrospector#getIntrospectionCount()}.
+	 */
+	public long getIntrospectionCount() {
+		return this.cache.getIntrospectionCount();
+	}
+
+	/**
+	 * See {@link CachingOpaqueTokenIntrospector#getIntrospectionTime()}.
+	 */
+	public Duration getIntrospectionTime() {
+		return this.cache.getIntrospectionTime();
+	}
+
+	/**
+	 * See {@link CachingOpaqueTokenIntrospector#getSize()}.
+	 */
+	public int getSize() {
+		return this.cache.getSize();
+	}
+
+	/**
+	 * See {@link CachingOpaqueTokenIntrospector#setTimeToLive(Duration)}.
+	 */
+	public void setTimeToLive(Duration timeToLive) {
+		this.cache.setTimeToLive(timeToLive);
+	}
+
+	/**
+	 * See {@link CachingOpaqueTokenIntrospector#setInactiveTimeToLive(Duration)}.
+	 */
+	public void setInactiveTimeToLive(Duration inactiveTimeToLive) {
+		this.cache.setInactiveTimeToLive(inactiveTimeToLive);
+	}
+
+	/**
+	 * See {@link CachingOpaqueTokenIntrospector#setMaximumSize(int)}.
+	 */
+	public void setMaximumSize(int maximumSize) {
+		this.cache.setMaximumSize(maximumSize);
+	}
+
+	/**
+	 * See {@link CachingOpaqueTokenIntrospector#setClock(Clock)}.
+	 */
+	public void setClock(Clock clock) {
+		this.cache.setClock(clock);
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.security.oauth2.core.ExpiringTokenCache;
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.core.OAuth2TokenIntrospectionClaimNames;
+import org.springframework.util.Assert;
+
+/**
+ * Holds the introspection results of {@link CachingOpaqueTokenIntrospector} and
+ * {@link CachingReactiveOpaqueTokenIntrospector}, along with how long introspections
+ * take.
+ *
+ * @since 5.8
+ */
+final class IntrospectionCache {
+
+	private final ExpiringTokenCache<Entry> entries = new ExpiringTokenCache<>();
+
+	private final LongAdder introspectionCount = new LongAdder();
+
+	private final LongAdder introspectionNanos = new LongAdder();
+
+	private Duration timeToLive = Duration.ofMinutes(5);
+
+	private Duration inactiveTimeToLive = Duration.ofSeconds(10);
+
+	/**
+	 * Returns the cached result for the token if there is one which has not expired.
+	 * @param hash the {@link ExpiringTokenCache#hash(String) hash} of the token value
+	 * @return the cached result, or {@code null}
+	 */
+	Entry get(String hash) {
+		return this.entries.get(hash);
+	}
+
+	/**
+	 * Returns the cached result for the token, like {@link #get(String)}, but without
+	 * counting a hit or a miss.
+	 * @param hash the {@link ExpiringTokenCache#hash(String) hash} of the token value
+	 * @return the cached result, or {@code null}
+	 */
+	Entry peek(String hash) {
+		return this.entries.peek(hash);
+	}
+
+	void putActive(String hash, OAuth2AuthenticatedPrincipal principal) {
+		Object exp = principal.getAttribute(OAuth2TokenIntrospectionClaimNames.EXP);
+		Instant notAfter = (exp instanceof Instant) ? (Instant) exp : null;
+		this.entries.put(hash, new Entry(principal, null), this.timeToLive, notAfter);
+	}
+
+	void putInactive(String hash, String message) {
+		this.entries.put(hash, new Entry(null, message), this.inactiveTimeToLive);
+	}
+
+	void recordIntrospection(long nanos) {
+		this.introspectionCount.increment();
+		this.introspectionNanos.add(nanos);
+	}
+
+	void clear() {
+		this.entries.clear();
+	}
+
+	long getHitCount() {
+		return this.entries.getHitCount();
+	}
+
+	long getMissCount() {
+		return this.entries.getMissCount();
+	}
+
+	long getIntrospectionCount() {
+		return this.introspectionCount.sum();
+	}
+
+	Duration getIntrospectionTime() {
+		return Duration.ofNanos(this.introspectionNanos.sum());
+	}
+
+	int getSize() {
+		return this.entries.getSize();
+	}
+
+	void setTimeToLive(Duration timeToLive) {
+		Assert.notNull(timeToLive, "timeToLive cannot be null");
+		Assert.isTrue(!timeToLive.isNegative() && !timeToLive.isZero(), "timeToLive must be positive");
+		this.timeToLive = timeToLive;
+	}
+
+	void setInactiveTimeToLive(Duration inactiveTimeToLive) {
+		Assert.notNull(inactiveTimeToLive, "inactiveTimeToLive cannot be null");
+		Assert.isTrue(!inactiveTimeToLive.isNegative(), "inactiveTimeToLive cannot be negative");
+		this.inactiveTimeToLive = inactiveTimeToLive;
+	}
+
+	void setMaximumSize(int maximumSize) {
+		this.entries.setMaximumSize(maximumSize);
+	}
+
+	void setClock(Clock clock) {
+		this.entries.setClock(clock);
+	}
+
+	static final class Entry {
+
+		private final OAuth2AuthenticatedPrincipal principal;
+
+		private final String inactiveMessage;
+
+		private Entry(OAuth2AuthenticatedPrincipal principal, String inactiveMessage) {
+			this.principal = principal;
+			this.inactiveMessage = inactiveMessage;
+		}
+
+		/**
+		 * Returns the principal of an active token, or throws the
+		 * {@link BadOpaqueTokenException} reported for an inactive one.
+		 * @return the principal
+		 */
+		OAuth2AuthenticatedPrincipal getPrincipal() {
+			if (this.principal == null) {
+				throw new BadOpaqueTokenException(this.inactiveMessage);
+			}
+			return this.principal;
+		}
+
+	}
+
+}
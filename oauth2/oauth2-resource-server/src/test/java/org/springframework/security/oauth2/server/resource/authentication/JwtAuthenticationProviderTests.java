@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,14 @@ package org.springframework.security.oauth2.server.resource.authentication;
 
 import java.util.function.Predicate;
 
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.JWTProcessor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,10 +35,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.jose.TestKeys;
 import org.springframework.security.oauth2.jwt.BadJwtException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.jwt.TestJwts;
 import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
 import org.springframework.security.oauth2.server.resource.BearerTokenErrorCodes;
@@ -39,6 +49,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests for {@link JwtAuthenticationProvider}
@@ -72,6 +83,22 @@ public class JwtAuthenticationProviderTests {
 		assertThat(authentication.getTokenAttributes()).containsEntry("name", "value");
 	}
 
+	@Test
+	public void authenticateWhenParsedBearerTokenAndNimbusJwtDecoderThenDecodesParsedToken() throws Exception {
+		JWTProcessor<SecurityContext> jwtProcessor = mock(JWTProcessor.class);
+		NimbusJwtDecoder jwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+		JwtAuthenticationProvider provider = new JwtAuthenticationProvider(jwtDecoder);
+		JWTClaimsSet claims = new JWTClaimsSet.Builder().subject("subject").build();
+		SignedJWT signed = new SignedJWT(new JWSHeader(JWSAlgorithm.RS256), claims);
+		signed.sign(new RSASSASigner(TestKeys.DEFAULT_PRIVATE_KEY));
+		SignedJWT parsed = SignedJWT.parse(signed.serialize());
+		given(jwtProcessor.process((JWT) parsed, null)).willReturn(claims);
+		BearerTokenAuthenticationToken token = ParsedBearerTokenAuthenticationToken
+				.withJwt(new BearerTokenAuthenticationToken(parsed.getParsedString()), parsed);
+		assertThat(provider.authenticate(token).getName()).isEqualTo("subject");
+		verify(jwtProcessor).process((JWT) parsed, null);
+	}
+
 	@Test
 	public void authenticateWhenJwtDecodeFailsThenRespondsWithInvalidToken() {
 		BearerTokenAuthenticationToken token = this.authentication();
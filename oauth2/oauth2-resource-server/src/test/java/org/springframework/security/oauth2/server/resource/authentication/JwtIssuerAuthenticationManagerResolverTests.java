@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,7 @@ import net.minidev.json.JSONObject;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationManagerResolver;
@@ -168,6 +169,36 @@ public class JwtIssuerAuthenticationManagerResolverTests {
 		verify(authenticationManager).authenticate(token);
 	}
 
+	@Test
+	public void resolveWhenUsingCustomIssuerAuthenticationManagerResolverThenHandsOverParsedToken() {
+		AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+		JwtIssuerAuthenticationManagerResolver authenticationManagerResolver = new JwtIssuerAuthenticationManagerResolver(
+				(issuer) -> authenticationManager);
+		BearerTokenAuthenticationToken token = new BearerTokenAuthenticationToken(this.jwt);
+		token.setDetails("details");
+		authenticationManagerResolver.resolve(null).authenticate(token);
+		ArgumentCaptor<Authentication> authentication = ArgumentCaptor.forClass(Authentication.class);
+		verify(authenticationManager).authenticate(authentication.capture());
+		assertThat(authentication.getValue()).isInstanceOf(ParsedBearerTokenAuthenticationToken.class);
+		ParsedBearerTokenAuthenticationToken parsed = (ParsedBearerTokenAuthenticationToken) authentication.getValue();
+		assertThat(parsed.getToken()).isEqualTo(this.jwt);
+		assertThat(parsed.getDetails()).isEqualTo("details");
+		assertThat(parsed.getJwt().getParsedString()).isEqualTo(this.jwt);
+	}
+
+	@Test
+	public void resolveWhenBearerTokenSubclassThenHandsOverSameToken() {
+		AuthenticationManager authenticationManager = mock(AuthenticationManager.class);
+		JwtIssuerAuthenticationManagerResolver authenticationManagerResolver = new JwtIssuerAuthenticationManagerResolver(
+				(issuer) -> authenticationManager);
+		BearerTokenAuthenticationToken token = new BearerTokenAuthenticationToken(this.jwt) {
+		};
+		authenticationManagerResolver.resolve(null).authenticate(token);
+		ArgumentCaptor<Authentication> authentication = ArgumentCaptor.forClass(Authentication.class);
+		verify(authenticationManager).authenticate(authentication.capture());
+		assertThat(authentication.getValue()).isSameAs(token);
+	}
+
 	@Test
 	public void resolveWhenUsingExternalSourceThenRespondsToChanges() {
 		Authentication token = withBearerToken(this.jwt);
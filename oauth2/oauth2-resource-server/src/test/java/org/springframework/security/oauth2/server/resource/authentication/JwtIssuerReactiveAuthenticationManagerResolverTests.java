@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2020 the original author or authors.
+ * Copyright 2002-2022 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,7 @@ import net.minidev.json.JSONObject;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import reactor.core.publisher.Mono;
 
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
@@ -164,6 +165,36 @@ public class JwtIssuerReactiveAuthenticationManagerResolverTests {
 		verify(authenticationManager).authenticate(any());
 	}
 
+	@Test
+	public void resolveWhenUsingCustomIssuerAuthenticationManagerResolverThenHandsOverParsedToken() {
+		ReactiveAuthenticationManager authenticationManager = mock(ReactiveAuthenticationManager.class);
+		given(authenticationManager.authenticate(any())).willReturn(Mono.empty());
+		JwtIssuerReactiveAuthenticationManagerResolver authenticationManagerResolver = new JwtIssuerReactiveAuthenticationManagerResolver(
+				(issuer) -> Mono.just(authenticationManager));
+		Authentication token = withBearerToken(this.jwt);
+		authenticationManagerResolver.resolve(null).flatMap((manager) -> manager.authenticate(token)).block();
+		ArgumentCaptor<Authentication> authentication = ArgumentCaptor.forClass(Authentication.class);
+		verify(authenticationManager).authenticate(authentication.capture());
+		assertThat(authentication.getValue()).isInstanceOf(ParsedBearerTokenAuthenticationToken.class);
+		ParsedBearerTokenAuthenticationToken parsed = (ParsedBearerTokenAuthenticationToken) authentication.getValue();
+		assertThat(parsed.getToken()).isEqualTo(this.jwt);
+		assertThat(parsed.getJwt().getParsedString()).isEqualTo(this.jwt);
+	}
+
+	@Test
+	public void resolveWhenBearerTokenSubclassThenHandsOverSameToken() {
+		ReactiveAuthenticationManager authenticationManager = mock(ReactiveAuthenticationManager.class);
+		given(authenticationManager.authenticate(any())).willReturn(Mono.empty());
+		JwtIssuerReactiveAuthenticationManagerResolver authenticationManagerResolver = new JwtIssuerReactiveAuthenticationManagerResolver(
+				(issuer) -> Mono.just(authenticationManager));
+		Authentication token = new BearerTokenAuthenticationToken(this.jwt) {
+		};
+		authenticationManagerResolver.resolve(null).flatMap((manager) -> manager.authenticate(token)).block();
+		ArgumentCaptor<Authentication> authentication = ArgumentCaptor.forClass(Authentication.class);
+		verify(authenticationManager).authenticate(authentication.capture());
+		assertThat(authentication.getValue()).isSameAs(token);
+	}
+
 	@Test
 	public void resolveWhenUsingExternalSourceThenRespondsToChanges() {
 		Authentication token = withBearerToken(this.jwt);
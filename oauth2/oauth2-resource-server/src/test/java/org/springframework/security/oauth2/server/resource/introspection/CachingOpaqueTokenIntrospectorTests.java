@@ -0,0 +1,204 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.core.OAuth2TokenIntrospectionClaimNames;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CachingOpaqueTokenIntrospector}
+ */
+public class CachingOpaqueTokenIntrospectorTests {
+
+	private static final Instant NOW = Instant.parse("2022-06-01T10:00:00Z");
+
+	private OpaqueTokenIntrospector delegate;
+
+	private CachingOpaqueTokenIntrospector introspector;
+
+	@BeforeEach
+	public void setup() {
+		this.delegate = mock(OpaqueTokenIntrospector.class);
+		this.introspector = new CachingOpaqueTokenIntrospector(this.delegate);
+		this.introspector.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenDelegateNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CachingOpaqueTokenIntrospector(null));
+	}
+
+	@Test
+	public void setTimeToLiveWhenNotPositiveThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> this.introspector.setTimeToLive(Duration.ZERO));
+	}
+
+	@Test
+	public void setInactiveTimeToLiveWhenNegativeThenIllegalArgumentException() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> this.introspector.setInactiveTimeToLive(Duration.ofSeconds(-1)));
+	}
+
+	@Test
+	public void introspectWhenIntrospectedBeforeThenCachedPrincipal() {
+		OAuth2AuthenticatedPrincipal principal = principal(NOW.plusSeconds(3600));
+		given(this.delegate.introspect("token")).willReturn(principal);
+		assertThat(this.introspector.introspect("token")).isSameAs(principal);
+		assertThat(this.introspector.introspect("token")).isSameAs(principal);
+		verify(this.delegate, times(1)).introspect("token");
+		assertThat(this.introspector.getHitCount()).isEqualTo(1);
+		assertThat(this.introspector.getMissCount()).isEqualTo(1);
+		assertThat(this.introspector.getIntrospectionCount()).isEqualTo(1);
+		assertThat(this.introspector.getIntrospectionTime()).isGreaterThanOrEqualTo(Duration.ZERO);
+		assertThat(this.introspector.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	public void introspectWhenTokenExpiredThenIntrospectedAgain() {
+		Instant exp = NOW.plusSeconds(60);
+		given(this.delegate.introspect("token")).willReturn(principal(exp));
+		this.introspector.introspect("token");
+		this.introspector.setClock(Clock.fixed(exp, ZoneOffset.UTC));
+		this.introspector.introspect("token");
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenTimeToLiveElapsedThenIntrospectedAgain() {
+		given(this.delegate.introspect("token")).willReturn(principal(NOW.plusSeconds(3600)));
+		this.introspector.setTimeToLive(Duration.ofSeconds(30));
+		this.introspector.introspect("token");
+		this.introspector.setClock(Clock.fixed(NOW.plusSeconds(30), ZoneOffset.UTC));
+		this.introspector.introspect("token");
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenInactiveThenCachedForInactiveTimeToLive() {
+		given(this.delegate.introspect("token")).willThrow(new BadOpaqueTokenException("Provided token isn't active"));
+		assertThatExceptionOfType(BadOpaqueTokenException.class)
+				.isThrownBy(() -> this.introspector.introspect("token")).withMessage("Provided token isn't active");
+		assertThatExceptionOfType(BadOpaqueTokenException.class)
+				.isThrownBy(() -> this.introspector.introspect("token")).withMessage("Provided token isn't active");
+		verify(this.delegate, times(1)).introspect("token");
+		this.introspector.setClock(Clock.fixed(NOW.plusSeconds(10), ZoneOffset.UTC));
+		assertThatExceptionOfType(BadOpaqueTokenException.class)
+				.isThrownBy(() -> this.introspector.introspect("token"));
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenInactiveTimeToLiveZeroThenInactiveNotCached() {
+		given(this.delegate.introspect("token")).willThrow(new BadOpaqueTokenException("Provided token isn't active"));
+		this.introspector.setInactiveTimeToLive(Duration.ZERO);
+		assertThatExceptionOfType(BadOpaqueTokenException.class)
+				.isThrownBy(() -> this.introspector.introspect("token"));
+		assertThatExceptionOfType(BadOpaqueTokenException.class)
+				.isThrownBy(() -> this.introspector.introspect("token"));
+		verify(this.delegate, times(2)).introspect("token");
+		assertThat(this.introspector.getSize()).isZero();
+	}
+
+	@Test
+	public void introspectWhenIntrospectionFailsThenNotCached() {
+		given(this.delegate.introspect("token")).willThrow(new OAuth2IntrospectionException("unavailable"));
+		assertThatExceptionOfType(OAuth2IntrospectionException.class)
+				.isThrownBy(() -> this.introspector.introspect("token"));
+		assertThatExceptionOfType(OAuth2IntrospectionException.class)
+				.isThrownBy(() -> this.introspector.introspect("token"));
+		verify(this.delegate, times(2)).introspect("token");
+		assertThat(this.introspector.getSize()).isZero();
+	}
+
+	@Test
+	public void introspectWhenMaximumSizeReachedThenNotCached() {
+		given(this.delegate.introspect("one")).willReturn(principal(NOW.plusSeconds(3600)));
+		given(this.delegate.introspect("two")).willReturn(principal(NOW.plusSeconds(3600)));
+		this.introspector.setMaximumSize(1);
+		this.introspector.introspect("one");
+		this.introspector.introspect("two");
+		this.introspector.introspect("two");
+		verify(this.delegate, times(2)).introspect("two");
+		assertThat(this.introspector.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	public void introspectWhenIntrospectionInFlightThenJoinsIt() throws Exception {
+		OAuth2AuthenticatedPrincipal principal = principal(NOW.plusSeconds(3600));
+		CountDownLatch introspecting = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		given(this.delegate.introspect("token")).willAnswer((invocation) -> {
+			introspecting.countDown();
+			release.await();
+			return principal;
+		});
+		AtomicReference<OAuth2AuthenticatedPrincipal> first = new AtomicReference<>();
+		Thread introspection = new Thread(() -> first.set(this.introspector.introspect("token")));
+		introspection.start();
+		introspecting.await();
+		AtomicReference<OAuth2AuthenticatedPrincipal> second = new AtomicReference<>();
+		Thread joining = new Thread(() -> second.set(this.introspector.introspect("token")));
+		joining.start();
+		while (joining.getState() != Thread.State.WAITING) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+		introspection.join();
+		joining.join();
+		assertThat(first.get()).isSameAs(principal);
+		assertThat(second.get()).isSameAs(principal);
+		verify(this.delegate, times(1)).introspect("token");
+	}
+
+	@Test
+	public void clearWhenCachedThenIntrospectedAgain() {
+		given(this.delegate.introspect("token")).willReturn(principal(NOW.plusSeconds(3600)));
+		this.introspector.introspect("token");
+		this.introspector.clear();
+		this.introspector.introspect("token");
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	private static OAuth2AuthenticatedPrincipal principal(Instant exp) {
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put(OAuth2TokenIntrospectionClaimNames.SUB, "user");
+		attributes.put(OAuth2TokenIntrospectionClaimNames.EXP, exp);
+		return new OAuth2IntrospectionAuthenticatedPrincipal(attributes, Collections.emptyList());
+	}
+
+}
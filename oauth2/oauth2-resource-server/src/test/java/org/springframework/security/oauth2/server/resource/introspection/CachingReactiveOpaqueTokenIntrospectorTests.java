@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.oauth2.server.resource.introspection;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.PublisherProbe;
+
+import org.springframework.security.oauth2.core.OAuth2AuthenticatedPrincipal;
+import org.springframework.security.oauth2.core.OAuth2TokenIntrospectionClaimNames;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CachingReactiveOpaqueTokenIntrospector}
+ */
+public class CachingReactiveOpaqueTokenIntrospectorTests {
+
+	private static final Instant NOW = Instant.parse("2022-06-01T10:00:00Z");
+
+	private ReactiveOpaqueTokenIntrospector delegate;
+
+	private CachingReactiveOpaqueTokenIntrospector introspector;
+
+	@BeforeEach
+	public void setup() {
+		this.delegate = mock(ReactiveOpaqueTokenIntrospector.class);
+		this.introspector = new CachingReactiveOpaqueTokenIntrospector(this.delegate);
+		this.introspector.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	@Test
+	public void constructorWhenDelegateNullThenIllegalArgumentException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new CachingReactiveOpaqueTokenIntrospector(null));
+	}
+
+	@Test
+	public void introspectWhenIntrospectedBeforeThenCachedPrincipal() {
+		OAuth2AuthenticatedPrincipal principal = principal(NOW.plusSeconds(3600));
+		PublisherProbe<OAuth2AuthenticatedPrincipal> introspection = PublisherProbe.of(Mono.just(principal));
+		given(this.delegate.introspect("token")).willReturn(introspection.mono());
+		StepVerifier.create(this.introspector.introspect("token")).expectNext(principal).verifyComplete();
+		StepVerifier.create(this.introspector.introspect("token")).expectNext(principal).verifyComplete();
+		assertThat(introspection.subscribeCount()).isEqualTo(1);
+		assertThat(this.introspector.getHitCount()).isEqualTo(1);
+		assertThat(this.introspector.getMissCount()).isEqualTo(1);
+		assertThat(this.introspector.getIntrospectionCount()).isEqualTo(1);
+		assertThat(this.introspector.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	public void introspectWhenNotSubscribedThenNotIntrospected() {
+		this.introspector.introspect("token");
+		assertThat(this.introspector.getMissCount()).isZero();
+	}
+
+	@Test
+	public void introspectWhenTokenExpiredThenIntrospectedAgain() {
+		Instant exp = NOW.plusSeconds(60);
+		given(this.delegate.introspect("token")).willReturn(Mono.just(principal(exp)));
+		this.introspector.introspect("token").block();
+		this.introspector.setClock(Clock.fixed(exp, ZoneOffset.UTC));
+		this.introspector.introspect("token").block();
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenInactiveThenCachedForInactiveTimeToLive() {
+		given(this.delegate.introspect("token"))
+				.willReturn(Mono.error(new BadOpaqueTokenException("Provided token isn't active")));
+		StepVerifier.create(this.introspector.introspect("token"))
+				.expectErrorMatches((ex) -> ex instanceof BadOpaqueTokenException).verify();
+		StepVerifier.create(this.introspector.introspect("token"))
+				.expectErrorMessage("Provided token isn't active").verify();
+		verify(this.delegate, times(1)).introspect("token");
+		this.introspector.setClock(Clock.fixed(NOW.plusSeconds(10), ZoneOffset.UTC));
+		StepVerifier.create(this.introspector.introspect("token")).expectError(BadOpaqueTokenException.class).verify();
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	@Test
+	public void introspectWhenIntrospectionFailsThenNotCached() {
+		given(this.delegate.introspect("token"))
+				.willReturn(Mono.error(new OAuth2IntrospectionException("unavailable")));
+		StepVerifier.create(this.introspector.introspect("token")).expectError(OAuth2IntrospectionException.class)
+				.verify();
+		StepVerifier.create(this.introspector.introspect("token")).expectError(OAuth2IntrospectionException.class)
+				.verify();
+		verify(this.delegate, times(2)).introspect("token");
+		assertThat(this.introspector.getSize()).isZero();
+	}
+
+	@Test
+	public void introspectWhenIntrospectionInFlightThenSharesIt() {
+		OAuth2AuthenticatedPrincipal principal = principal(NOW.plusSeconds(3600));
+		PublisherProbe<OAuth2AuthenticatedPrincipal> introspection = PublisherProbe
+				.of(Mono.just(principal).delayElement(Duration.ofMillis(100)));
+		given(this.delegate.introspect("token")).willReturn(introspection.mono());
+		StepVerifier.create(Mono.zip(this.introspector.introspect("token"), this.introspector.introspect("token")))
+				.expectNextMatches((principals) -> principals.getT1() == principal && principals.getT2() == principal)
+				.verifyComplete();
+		assertThat(introspection.subscribeCount()).isEqualTo(1);
+		assertThat(this.introspector.getIntrospectionCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void clearWhenCachedThenIntrospectedAgain() {
+		given(this.delegate.introspect("token")).willReturn(Mono.just(principal(NOW.plusSeconds(3600))));
+		this.introspector.introspect("token").block();
+		this.introspector.clear();
+		this.introspector.introspect("token").block();
+		verify(this.delegate, times(2)).introspect("token");
+	}
+
+	private static OAuth2AuthenticatedPrincipal principal(Instant exp) {
+		Map<String, Object> attributes = new HashMap<>();
+		attributes.put(OAuth2TokenIntrospectionClaimNames.SUB, "user");
+		attributes.put(OAuth2TokenIntrospectionClaimNames.EXP, exp);
+		return new OAuth2IntrospectionAuthenticatedPrincipal(attributes, Collections.emptyList());
+	}
+
+}
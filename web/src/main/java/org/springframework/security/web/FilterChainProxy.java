@@ -17,6 +17,7 @@
 package org.springframework.security.web;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -42,6 +43,8 @@ import org.springframework.security.web.firewall.RequestRejectedHandler;
 import org.springframework.security.web.firewall.StrictHttpFirewall;
 import org.springframework.security.web.util.UrlUtils;
 import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcherEntry;
+import org.springframework.security.web.util.matcher.RequestMatcherIndex;
 import org.springframework.util.Assert;
 import org.springframework.web.filter.DelegatingFilterProxy;
 import org.springframework.web.filter.GenericFilterBean;
@@ -95,6 +98,11 @@ import org.springframework.web.filter.GenericFilterBean;
  * entered against the respective entry. The {@code FilterChainProxy} will not iterate
  * through the remainder of the map entries to locate additional {@code Filter}s.
  * <p>
+ * By default each {@link SecurityFilterChain} is tried in turn. When many chains are
+ * configured, {@link #setIndexFilterChains(boolean)} can be used to compile the chains
+ * into a {@link RequestMatcherIndex} so that only the chains which can match the request
+ * path are tried. The first match still wins.
+ * <p>
  * {@code FilterChainProxy} respects normal handling of {@code Filter}s that elect not to
  * call
  * {@link javax.servlet.Filter#doFilter(javax.servlet.ServletRequest, javax.servlet.ServletResponse, javax.servlet.FilterChain)}
@@ -148,6 +156,8 @@ public class FilterChainProxy extends GenericFilterBean {
 
 	private List<SecurityFilterChain> filterChains;
 
+	private RequestMatcherIndex<SecurityFilterChain> filterChainIndex;
+
 	private FilterChainValidator filterChainValidator = new NullFilterChainValidator();
 
 	private HttpFirewall firewall = new StrictHttpFirewall();
@@ -217,6 +227,14 @@ public class FilterChainProxy extends GenericFilterBean {
 	 * @return an ordered array of Filters defining the filter chain
 	 */
 	private List<Filter> getFilters(HttpServletRequest request) {
+		if (this.filterChainIndex != null) {
+			RequestMatcherEntry<SecurityFilterChain> match = this.filterChainIndex.findFirst(request);
+			if (match != null && logger.isTraceEnabled()) {
+				logger.trace(LogMessage.format("Matched request against %s using %s", match.getEntry(),
+						this.filterChainIndex));
+			}
+			return (match != null) ? match.getEntry().getFilters() : null;
+		}
 		int count = 0;
 		for (SecurityFilterChain chain : this.filterChains) {
 			if (logger.isTraceEnabled()) {
@@ -247,6 +265,42 @@ public class FilterChainProxy extends GenericFilterBean {
 		return Collections.unmodifiableList(this.filterChains);
 	}
 
+	/**
+	 * Whether to compile the filter chains into a {@link RequestMatcherIndex} which is
+	 * used to select the filter chain for a request. Chains which are not
+	 * {@link DefaultSecurityFilterChain}s, or whose {@link RequestMatcher} cannot be
+	 * indexed, are still tried for every request, in order. The default is {@code false}.
+	 * @param indexFilterChains {@code true} to select filter chains through an index
+	 * @since 5.8
+	 * @see #getFilterChainIndex()
+	 */
+	public void setIndexFilterChains(boolean indexFilterChains) {
+		if (!indexFilterChains) {
+			this.filterChainIndex = null;
+			return;
+		}
+		List<RequestMatcherEntry<SecurityFilterChain>> entries = new ArrayList<>(this.filterChains.size());
+		for (SecurityFilterChain filterChain : this.filterChains) {
+			RequestMatcher matcher = (filterChain instanceof DefaultSecurityFilterChain)
+					? ((DefaultSecurityFilterChain) filterChain).getRequestMatcher() : filterChain::matches;
+			entries.add(new RequestMatcherEntry<>(matcher, filterChain));
+		}
+		this.filterChainIndex = RequestMatcherIndex.compile(entries);
+	}
+
+	/**
+	 * Returns the {@link RequestMatcherIndex} used to select the filter chain for a
+	 * request, which exposes how each chain is evaluated and how often requests were
+	 * matched through the index.
+	 * @return the {@link RequestMatcherIndex}, or {@code null} if the filter chains are
+	 * not indexed
+	 * @since 5.8
+	 * @see #setIndexFilterChains(boolean)
+	 */
+	public RequestMatcherIndex<SecurityFilterChain> getFilterChainIndex() {
+		return this.filterChainIndex;
+	}
+
 	/**
 	 * Used (internally) to specify a validation strategy for the filters in each
 	 * configured chain.
@@ -33,6 +33,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher.MatchResult;
 import org.springframework.security.web.util.matcher.RequestMatcherEntry;
+import org.springframework.security.web.util.matcher.RequestMatcherIndex;
 import org.springframework.util.Assert;
 
 /**
@@ -49,10 +50,19 @@ public final class RequestMatcherDelegatingAuthorizationManager implements Autho
 
 	private final List<RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>>> mappings;
 
+	private final RequestMatcherIndex<AuthorizationManager<RequestAuthorizationContext>> index;
+
 	private RequestMatcherDelegatingAuthorizationManager(
-			List<RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>>> mappings) {
+			List<RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>>> mappings, boolean indexed) {
 		Assert.notEmpty(mappings, "mappings cannot be empty");
 		this.mappings = mappings;
+		this.index = indexed ? RequestMatcherIndex.compile(mappings) : null;
+		if (this.index != null && this.logger.isDebugEnabled()) {
+			for (int i = 0; i < mappings.size(); i++) {
+				this.logger.debug(LogMessage.format("Mapping %s is evaluated using mode %s",
+						mappings.get(i).getRequestMatcher(), this.index.getMode(i)));
+			}
+		}
 	}
 
 	/**
@@ -69,23 +79,49 @@ public final class RequestMatcherDelegatingAuthorizationManager implements Autho
 		if (this.logger.isTraceEnabled()) {
 			this.logger.trace(LogMessage.format("Authorizing %s", request));
 		}
+		if (this.index != null) {
+			RequestMatcherIndex.Match<AuthorizationManager<RequestAuthorizationContext>> match = this.index
+					.findFirstMatch(request);
+			if (match != null) {
+				return check(match.getEntry(), match.getMatchResult(), authentication, request);
+			}
+			this.logger.trace("Abstaining since did not find matching RequestMatcher");
+			return null;
+		}
 		for (RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>> mapping : this.mappings) {
 
 			RequestMatcher matcher = mapping.getRequestMatcher();
 			MatchResult matchResult = matcher.matcher(request);
 			if (matchResult.isMatch()) {
-				AuthorizationManager<RequestAuthorizationContext> manager = mapping.getEntry();
-				if (this.logger.isTraceEnabled()) {
-					this.logger.trace(LogMessage.format("Checking authorization on %s using %s", request, manager));
-				}
-				return manager.check(authentication,
-						new RequestAuthorizationContext(request, matchResult.getVariables()));
+				return check(mapping, matchResult, authentication, request);
 			}
 		}
 		this.logger.trace("Abstaining since did not find matching RequestMatcher");
 		return null;
 	}
 
+	private AuthorizationDecision check(
+			RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>> mapping, MatchResult matchResult,
+			Supplier<Authentication> authentication, HttpServletRequest request) {
+		AuthorizationManager<RequestAuthorizationContext> manager = mapping.getEntry();
+		if (this.logger.isTraceEnabled()) {
+			this.logger.trace(LogMessage.format("Checking authorization on %s using %s", request, manager));
+		}
+		return manager.check(authentication, new RequestAuthorizationContext(request, matchResult.getVariables()));
+	}
+
+	/**
+	 * Returns the {@link RequestMatcherIndex} used to find the mapping for a request,
+	 * which exposes the {@link RequestMatcherIndex.Mode} each mapping ended up in.
+	 * @return the {@link RequestMatcherIndex}, or {@code null} if the mappings are not
+	 * indexed
+	 * @since 5.8
+	 * @see Builder#indexMappings(boolean)
+	 */
+	public RequestMatcherIndex<AuthorizationManager<RequestAuthorizationContext>> getMappingIndex() {
+		return this.index;
+	}
+
 	/**
 	 * Creates a builder for {@link RequestMatcherDelegatingAuthorizationManager}.
 	 * @return the new {@link Builder} instance
@@ -101,6 +137,8 @@ public final class RequestMatcherDelegatingAuthorizationManager implements Autho
 
 		private final List<RequestMatcherEntry<AuthorizationManager<RequestAuthorizationContext>>> mappings = new ArrayList<>();
 
+		private boolean indexMappings;
+
 		/**
 		 * Maps a {@link RequestMatcher} to an {@link AuthorizationManager}.
 		 * @param matcher the {@link RequestMatcher} to use
@@ -129,12 +167,27 @@ public final class RequestMatcherDelegatingAuthorizationManager implements Autho
 			return this;
 		}
 
+		/**
+		 * Whether to find the mapping for a request through a {@link RequestMatcherIndex}
+		 * which groups the mappings by HTTP method and literal path prefix, instead of
+		 * evaluating each mapping in turn. Mappings are still matched in declaration
+		 * order. This is useful for large numbers of mappings.
+		 * @param indexMappings {@code true} to index the mappings. Default is
+		 * {@code false}
+		 * @return the {@link Builder} for further customizations
+		 * @since 5.8
+		 */
+		public Builder indexMappings(boolean indexMappings) {
+			this.indexMappings = indexMappings;
+			return this;
+		}
+
 		/**
 		 * Creates a {@link RequestMatcherDelegatingAuthorizationManager} instance.
 		 * @return the {@link RequestMatcherDelegatingAuthorizationManager} instance
 		 */
 		public RequestMatcherDelegatingAuthorizationManager build() {
-			return new RequestMatcherDelegatingAuthorizationManager(this.mappings);
+			return new RequestMatcherDelegatingAuthorizationManager(this.mappings, this.indexMappings);
 		}
 
 	}
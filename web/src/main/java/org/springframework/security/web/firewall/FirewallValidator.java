@@ -0,0 +1,200 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.firewall;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Validates the URL of a request for the {@link StrictHttpFirewall} by walking each of
+ * its parts once, detecting blocklisted strings, {@code "."} and {@code ".."} path
+ * segments and, for the request URI, characters that are not printable ASCII in the same
+ * pass.
+ * <p>
+ * The validator only tells whether a request is valid. The {@link StrictHttpFirewall}
+ * runs its individual checks on invalid requests, so that the
+ * {@link RequestRejectedException} describes the first problem found.
+ *
+ * @since 5.8
+ */
+final class FirewallValidator {
+
+	private final Blocklist encodedBlocklist;
+
+	private final Blocklist decodedBlocklist;
+
+	private FirewallValidator(Blocklist encodedBlocklist, Blocklist decodedBlocklist) {
+		this.encodedBlocklist = encodedBlocklist;
+		this.decodedBlocklist = decodedBlocklist;
+	}
+
+	/**
+	 * Compiles the given blocklists into a {@link FirewallValidator}.
+	 * @param encodedUrlBlocklist the strings which may not occur in the context path and
+	 * request URI
+	 * @param decodedUrlBlocklist the strings which may not occur in the servlet path and
+	 * path info
+	 * @return the {@link FirewallValidator}
+	 */
+	static FirewallValidator compile(Collection<String> encodedUrlBlocklist,
+			Collection<String> decodedUrlBlocklist) {
+		return new FirewallValidator(new Blocklist(encodedUrlBlocklist), new Blocklist(decodedUrlBlocklist));
+	}
+
+	/**
+	 * Whether the request URI, context path, servlet path and path info are free of
+	 * blocklisted strings and normalized, and the request URI only contains printable
+	 * ASCII characters.
+	 * @param request the request to validate
+	 * @return {@code true} if the request is valid
+	 */
+	boolean isValid(HttpServletRequest request) {
+		return isValid(request.getRequestURI(), this.encodedBlocklist, true)
+				&& isValid(request.getContextPath(), this.encodedBlocklist, false)
+				&& isValid(request.getServletPath(), this.decodedBlocklist, false)
+				&& isValid(request.getPathInfo(), this.decodedBlocklist, false);
+	}
+
+	private static boolean isValid(String value, Blocklist blocklist, boolean printableAsciiOnly) {
+		if (value == null) {
+			return true;
+		}
+		if (blocklist.containsEmpty) {
+			return false;
+		}
+		int length = value.length();
+		int segmentStart = 0;
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if (c < 128) {
+				if (printableAsciiOnly && (c < '\u0020' || c > '\u007e')) {
+					return false;
+				}
+				String[] candidates = blocklist.byAsciiFirstChar[c];
+				if (candidates != null && startsWithAny(value, i, candidates)) {
+					return false;
+				}
+				if (c == '/') {
+					if (isDotSegment(value, segmentStart, i)) {
+						return false;
+					}
+					segmentStart = i + 1;
+				}
+			}
+			else {
+				if (printableAsciiOnly) {
+					return false;
+				}
+				if (blocklist.nonAsciiFirstChar.length > 0 && startsWithAny(value, i, blocklist.nonAsciiFirstChar)) {
+					return false;
+				}
+			}
+		}
+		return !isDotSegment(value, segmentStart, length);
+	}
+
+	private static boolean startsWithAny(String value, int offset, String[] candidates) {
+		for (String candidate : candidates) {
+			if (value.startsWith(candidate, offset)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isDotSegment(String value, int start, int end) {
+		int length = end - start;
+		if (length == 1) {
+			return value.charAt(start) == '.';
+		}
+		return length == 2 && value.charAt(start) == '.' && value.charAt(start + 1) == '.';
+	}
+
+	/**
+	 * Whether every code point of the value is assigned and not an ISO control character,
+	 * which is the same as matching {@code [\p{IsAssigned}&&[^\p{IsControl}]]*}.
+	 * @param value the value to check
+	 * @return {@code true} if the value only contains assigned, non-control characters
+	 */
+	static boolean isAssignedAndNotIsoControl(String value) {
+		int length = value.length();
+		int i = 0;
+		while (i < length) {
+			char c = value.charAt(i);
+			if (c < 128) {
+				if (c < '\u0020' || c == '\u007f') {
+					return false;
+				}
+				i++;
+				continue;
+			}
+			int codePoint = value.codePointAt(i);
+			if (Character.getType(codePoint) == Character.UNASSIGNED || Character.isISOControl(codePoint)) {
+				return false;
+			}
+			i += Character.charCount(codePoint);
+		}
+		return true;
+	}
+
+	/**
+	 * Blocklisted strings grouped by their first character.
+	 */
+	private static final class Blocklist {
+
+		private final String[][] byAsciiFirstChar = new String[128][];
+
+		private final String[] nonAsciiFirstChar;
+
+		private final boolean containsEmpty;
+
+		private Blocklist(Collection<String> values) {
+			List<String> nonAscii = new ArrayList<>();
+			boolean containsEmpty = false;
+			for (String value : values) {
+				if (value.isEmpty()) {
+					containsEmpty = true;
+					continue;
+				}
+				char first = value.charAt(0);
+				if (first < 128) {
+					this.byAsciiFirstChar[first] = append(this.byAsciiFirstChar[first], value);
+				}
+				else {
+					nonAscii.add(value);
+				}
+			}
+			this.nonAsciiFirstChar = nonAscii.toArray(new String[0]);
+			this.containsEmpty = containsEmpty;
+		}
+
+		private static String[] append(String[] values, String value) {
+			if (values == null) {
+				return new String[] { value };
+			}
+			String[] result = new String[values.length + 1];
+			System.arraycopy(values, 0, result, 0, values.length);
+			result[values.length] = value;
+			return result;
+		}
+
+	}
+
+}
@@ -16,17 +16,21 @@
 
 package org.springframework.security.web.firewall;
 
+import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
-import java.util.regex.Pattern;
 
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestWrapper;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -72,6 +76,11 @@ import org.springframework.util.Assert;
  * <li>Reject parameter values that are not allowed. See
  * {@link #setAllowedParameterValues(Predicate)}</li>
  * </ul>
+ * <p>
+ * The URL rules are compiled, whenever the blocklists change, into a validator which
+ * inspects the request URI, context path, servlet path and path info a single time. Only
+ * requests which it finds invalid are checked rule by rule to report the rejection.
+ * </p>
  *
  * @author Rob Winch
  * @author Eddú Meléndez
@@ -116,19 +125,18 @@ public class StrictHttpFirewall implements HttpFirewall {
 	private static final List<String> FORBIDDEN_PARAGRAPH_SEPARATOR = Collections
 			.unmodifiableList(Arrays.asList("\u2029"));
 
-	private Set<String> encodedUrlBlocklist = new HashSet<>();
+	private Set<String> encodedUrlBlocklist = new Blocklist();
+
+	private Set<String> decodedUrlBlocklist = new Blocklist();
 
-	private Set<String> decodedUrlBlocklist = new HashSet<>();
+	private volatile FirewallValidator validator;
 
 	private Set<String> allowedHttpMethods = createDefaultAllowedHttpMethods();
 
 	private Predicate<String> allowedHostnames = (hostname) -> true;
 
-	private static final Pattern ASSIGNED_AND_NOT_ISO_CONTROL_PATTERN = Pattern
-			.compile("[\\p{IsAssigned}&&[^\\p{IsControl}]]*");
-
 	private static final Predicate<String> ASSIGNED_AND_NOT_ISO_CONTROL_PREDICATE = (
-			s) -> ASSIGNED_AND_NOT_ISO_CONTROL_PATTERN.matcher(s).matches();
+			s) -> FirewallValidator.isAssignedAndNotIsoControl(s);
 
 	private Predicate<String> allowedHeaderNames = ASSIGNED_AND_NOT_ISO_CONTROL_PREDICATE;
 
@@ -136,7 +144,11 @@ public class StrictHttpFirewall implements HttpFirewall {
 
 	private Predicate<String> allowedParameterNames = ASSIGNED_AND_NOT_ISO_CONTROL_PREDICATE;
 
-	private Predicate<String> allowedParameterValues = (value) -> true;
+	private static final Predicate<String> ALLOW_ANY_PARAMETER_VALUE = (value) -> true;
+
+	private Predicate<String> allowedParameterValues = ALLOW_ANY_PARAMETER_VALUE;
+
+	private boolean countHeaderReads;
 
 	public StrictHttpFirewall() {
 		urlBlocklistsAddAll(FORBIDDEN_SEMICOLON);
@@ -489,6 +501,19 @@ public class StrictHttpFirewall implements HttpFirewall {
 		this.allowedHostnames = allowedHostnames;
 	}
 
+	/**
+	 * <p>
+	 * Determines whether firewalled requests count how many times each header is read,
+	 * as reported by {@link #getHeaderReadCounts(HttpServletRequest)}. The default is
+	 * false, since counting costs a map update on every header read.
+	 * </p>
+	 * @param countHeaderReads whether to count header reads
+	 * @since 5.8
+	 */
+	public void setCountHeaderReads(boolean countHeaderReads) {
+		this.countHeaderReads = countHeaderReads;
+	}
+
 	private void urlBlocklistsAddAll(Collection<String> values) {
 		this.encodedUrlBlocklist.addAll(values);
 		this.decodedUrlBlocklist.addAll(values);
@@ -502,6 +527,10 @@ public class StrictHttpFirewall implements HttpFirewall {
 	@Override
 	public FirewalledRequest getFirewalledRequest(HttpServletRequest request) throws RequestRejectedException {
 		rejectForbiddenHttpMethod(request);
+		if (getValidator().isValid(request)) {
+			rejectedUntrustedHosts(request);
+			return new StrictFirewalledRequest(request);
+		}
 		rejectedBlocklistedUrls(request);
 		rejectedUntrustedHosts(request);
 		if (!isNormalized(request)) {
@@ -511,6 +540,15 @@ public class StrictHttpFirewall implements HttpFirewall {
 		return new StrictFirewalledRequest(request);
 	}
 
+	private FirewallValidator getValidator() {
+		FirewallValidator validator = this.validator;
+		if (validator == null) {
+			validator = FirewallValidator.compile(this.encodedUrlBlocklist, this.decodedUrlBlocklist);
+			this.validator = validator;
+		}
+		return validator;
+	}
+
 	private void rejectNonPrintableAsciiCharactersInFieldName(String toCheck, String propertyName) {
 		if (!containsOnlyPrintableAsciiCharacters(toCheck)) {
 			throw new RequestRejectedException(String.format(
@@ -682,10 +720,112 @@ public class StrictHttpFirewall implements HttpFirewall {
 	}
 
 	/**
-	 * Strict {@link FirewalledRequest}.
+	 * A blocklist which discards the compiled {@link FirewallValidator} whenever it is
+	 * modified, including through {@link #getEncodedUrlBlocklist()} and
+	 * {@link #getDecodedUrlBlocklist()}.
+	 */
+	private final class Blocklist extends AbstractSet<String> {
+
+		private final Set<String> values = new HashSet<>();
+
+		@Override
+		public Iterator<String> iterator() {
+			Iterator<String> iterator = this.values.iterator();
+			return new Iterator<String>() {
+
+				@Override
+				public boolean hasNext() {
+					return iterator.hasNext();
+				}
+
+				@Override
+				public String next() {
+					return iterator.next();
+				}
+
+				@Override
+				public void remove() {
+					iterator.remove();
+					StrictHttpFirewall.this.validator = null;
+				}
+
+			};
+		}
+
+		@Override
+		public int size() {
+			return this.values.size();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return this.values.contains(o);
+		}
+
+		@Override
+		public boolean add(String value) {
+			boolean added = this.values.add(value);
+			StrictHttpFirewall.this.validator = null;
+			return added;
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			boolean removed = this.values.remove(o);
+			StrictHttpFirewall.this.validator = null;
+			return removed;
+		}
+
+		@Override
+		public void clear() {
+			this.values.clear();
+			StrictHttpFirewall.this.validator = null;
+		}
+
+	}
+
+	/**
+	 * Provides how many times each header was read from the given request through
+	 * {@link HttpServletRequest#getHeader(String)},
+	 * {@link HttpServletRequest#getHeaders(String)},
+	 * {@link HttpServletRequest#getDateHeader(String)} or
+	 * {@link HttpServletRequest#getIntHeader(String)} since it was firewalled by a
+	 * {@link StrictHttpFirewall}. The header names are the ones which were asked for.
+	 * @param request the request, or a wrapper of the request, returned by
+	 * {@link #getFirewalledRequest(HttpServletRequest)}
+	 * @return the number of reads by header name, or an empty map if the request was not
+	 * firewalled by a {@link StrictHttpFirewall} counting header reads
+	 * @since 5.8
+	 * @see #setCountHeaderReads(boolean)
+	 */
+	public static Map<String, Integer> getHeaderReadCounts(HttpServletRequest request) {
+		ServletRequest current = request;
+		while (current instanceof ServletRequestWrapper) {
+			if (current instanceof StrictFirewalledRequest) {
+				return ((StrictFirewalledRequest) current).getHeaderReadCounts();
+			}
+			current = ((ServletRequestWrapper) current).getRequest();
+		}
+		return Collections.emptyMap();
+	}
+
+	/**
+	 * Strict {@link FirewalledRequest}. Header and parameter names and values are only
+	 * validated the first time they are seen. The sets remembering them are only
+	 * allocated once something is read.
 	 */
 	private class StrictFirewalledRequest extends FirewalledRequest {
 
+		private Map<String, Integer> headerReads;
+
+		private Set<String> allowedHeaderNames;
+
+		private Set<String> allowedHeaderValues;
+
+		private Set<String> allowedParameterNames;
+
+		private Set<String> allowedParameterValues;
+
 		StrictFirewalledRequest(HttpServletRequest request) {
 			super(request);
 		}
@@ -693,7 +833,7 @@ public class StrictHttpFirewall implements HttpFirewall {
 		@Override
 		public long getDateHeader(String name) {
 			if (name != null) {
-				validateAllowedHeaderName(name);
+				readHeader(name);
 			}
 			return super.getDateHeader(name);
 		}
@@ -701,7 +841,7 @@ public class StrictHttpFirewall implements HttpFirewall {
 		@Override
 		public int getIntHeader(String name) {
 			if (name != null) {
-				validateAllowedHeaderName(name);
+				readHeader(name);
 			}
 			return super.getIntHeader(name);
 		}
@@ -709,7 +849,7 @@ public class StrictHttpFirewall implements HttpFirewall {
 		@Override
 		public String getHeader(String name) {
 			if (name != null) {
-				validateAllowedHeaderName(name);
+				readHeader(name);
 			}
 			String value = super.getHeader(name);
 			if (value != null) {
@@ -721,7 +861,7 @@ public class StrictHttpFirewall implements HttpFirewall {
 		@Override
 		public Enumeration<String> getHeaders(String name) {
 			if (name != null) {
-				validateAllowedHeaderName(name);
+				readHeader(name);
 			}
 			Enumeration<String> headers = super.getHeaders(name);
 			return new Enumeration<String>() {
@@ -821,32 +961,78 @@ public class StrictHttpFirewall implements HttpFirewall {
 			return values;
 		}
 
+		private Map<String, Integer> getHeaderReadCounts() {
+			if (this.headerReads == null) {
+				return Collections.emptyMap();
+			}
+			return Collections.unmodifiableMap(new HashMap<>(this.headerReads));
+		}
+
+		private void readHeader(String name) {
+			validateAllowedHeaderName(name);
+			if (StrictHttpFirewall.this.countHeaderReads) {
+				if (this.headerReads == null) {
+					this.headerReads = new HashMap<>();
+				}
+				this.headerReads.merge(name, 1, Integer::sum);
+			}
+		}
+
 		private void validateAllowedHeaderName(String headerNames) {
+			if (this.allowedHeaderNames != null && this.allowedHeaderNames.contains(headerNames)) {
+				return;
+			}
 			if (!StrictHttpFirewall.this.allowedHeaderNames.test(headerNames)) {
 				throw new RequestRejectedException(
 						"The request was rejected because the header name \"" + headerNames + "\" is not allowed.");
 			}
+			if (this.allowedHeaderNames == null) {
+				this.allowedHeaderNames = new HashSet<>();
+			}
+			this.allowedHeaderNames.add(headerNames);
 		}
 
 		private void validateAllowedHeaderValue(String value) {
+			if (this.allowedHeaderValues != null && this.allowedHeaderValues.contains(value)) {
+				return;
+			}
 			if (!StrictHttpFirewall.this.allowedHeaderValues.test(value)) {
 				throw new RequestRejectedException(
 						"The request was rejected because the header value \"" + value + "\" is not allowed.");
 			}
+			if (this.allowedHeaderValues == null) {
+				this.allowedHeaderValues = new HashSet<>();
+			}
+			this.allowedHeaderValues.add(value);
 		}
 
 		private void validateAllowedParameterName(String name) {
+			if (this.allowedParameterNames != null && this.allowedParameterNames.contains(name)) {
+				return;
+			}
 			if (!StrictHttpFirewall.this.allowedParameterNames.test(name)) {
 				throw new RequestRejectedException(
 						"The request was rejected because the parameter name \"" + name + "\" is not allowed.");
 			}
+			if (this.allowedParameterNames == null) {
+				this.allowedParameterNames = new HashSet<>();
+			}
+			this.allowedParameterNames.add(name);
 		}
 
 		private void validateAllowedParameterValue(String value) {
+			if (StrictHttpFirewall.this.allowedParameterValues == ALLOW_ANY_PARAMETER_VALUE
+					|| (this.allowedParameterValues != null && this.allowedParameterValues.contains(value))) {
+				return;
+			}
 			if (!StrictHttpFirewall.this.allowedParameterValues.test(value)) {
 				throw new RequestRejectedException(
 						"The request was rejected because the parameter value \"" + value + "\" is not allowed.");
 			}
+			if (this.allowedParameterValues == null) {
+				this.allowedParameterValues = new HashSet<>();
+			}
+			this.allowedParameterValues.add(value);
 		}
 
 		@Override
@@ -17,6 +17,7 @@
 package org.springframework.security.web.session;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 
 import javax.servlet.FilterChain;
@@ -77,6 +78,8 @@ public class ConcurrentSessionFilter extends GenericFilterBean {
 
 	private SessionInformationExpiredStrategy sessionInformationExpiredStrategy;
 
+	private long refreshLastRequestInterval;
+
 	public ConcurrentSessionFilter(SessionRegistry sessionRegistry) {
 		Assert.notNull(sessionRegistry, "SessionRegistry required");
 		this.sessionRegistry = sessionRegistry;
@@ -141,12 +144,23 @@ public class ConcurrentSessionFilter extends GenericFilterBean {
 					return;
 				}
 				// Non-expired - update last request date/time
-				this.sessionRegistry.refreshLastRequest(info.getSessionId());
+				if (isRefreshLastRequestDue(info)) {
+					this.sessionRegistry.refreshLastRequest(info.getSessionId());
+				}
 			}
 		}
 		chain.doFilter(request, response);
 	}
 
+	private boolean isRefreshLastRequestDue(SessionInformation info) {
+		if (this.refreshLastRequestInterval == 0) {
+			return true;
+		}
+		long elapsed = System.currentTimeMillis() - info.getLastRequest().getTime();
+		// a negative value means that the clock was set back
+		return elapsed < 0 || elapsed >= this.refreshLastRequestInterval;
+	}
+
 	/**
 	 * Determine the URL for expiration
 	 * @param request the HttpServletRequest
@@ -180,6 +194,21 @@ public class ConcurrentSessionFilter extends GenericFilterBean {
 		this.handlers = new CompositeLogoutHandler(handlers);
 	}
 
+	/**
+	 * Sets the minimum time between two refreshes of the last request of a session. A
+	 * request which arrives sooner after the last refresh does not invoke
+	 * {@link SessionRegistry#refreshLastRequest(String)}, which avoids a write to the
+	 * {@link SessionRegistry} on every request. The default is {@link Duration#ZERO},
+	 * which refreshes the last request on every request.
+	 * @param refreshLastRequestInterval the minimum time between two refreshes
+	 * @since 5.8
+	 */
+	public void setRefreshLastRequestInterval(Duration refreshLastRequestInterval) {
+		Assert.notNull(refreshLastRequestInterval, "refreshLastRequestInterval cannot be null");
+		Assert.isTrue(!refreshLastRequestInterval.isNegative(), "refreshLastRequestInterval cannot be negative");
+		this.refreshLastRequestInterval = refreshLastRequestInterval.toMillis();
+	}
+
 	/**
 	 * Sets the {@link RedirectStrategy} used with
 	 * {@link #ConcurrentSessionFilter(SessionRegistry, String)}
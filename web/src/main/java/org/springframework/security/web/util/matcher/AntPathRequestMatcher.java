@@ -16,7 +16,10 @@
 
 package org.springframework.security.web.util.matcher;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -40,9 +43,11 @@ import org.springframework.web.util.UrlPathHelper;
  * {@code /aaa/bbb/ccc}.
  * </p>
  * <p>
- * For all other cases, Spring's {@link AntPathMatcher} is used to perform the match. See
- * the Spring documentation for this class for comprehensive information on the syntax
- * used.
+ * For all other cases, the semantics of Spring's {@link AntPathMatcher} are used to
+ * perform the match. See the Spring documentation for this class for comprehensive
+ * information on the syntax used. Patterns without URI template variables are parsed
+ * once into segments which are matched against the {@code servletPath} and
+ * {@code pathInfo} in place, without building the request path.
  * </p>
  *
  * @author Luke Taylor
@@ -125,6 +130,9 @@ public final class AntPathRequestMatcher implements RequestMatcher, RequestVaria
 					&& pattern.indexOf("*") == pattern.length() - 2) {
 				this.matcher = new SubpathMatcher(pattern.substring(0, pattern.length() - 3), caseSensitive);
 			}
+			else if (SegmentMatcher.supports(pattern)) {
+				this.matcher = new SegmentMatcher(pattern, caseSensitive);
+			}
 			else {
 				this.matcher = new SpringAntMatcher(pattern, caseSensitive);
 			}
@@ -149,8 +157,10 @@ public final class AntPathRequestMatcher implements RequestMatcher, RequestVaria
 		if (this.pattern.equals(MATCH_ALL)) {
 			return true;
 		}
-		String url = getRequestPath(request);
-		return this.matcher.matches(url);
+		if (this.urlPathHelper != null) {
+			return this.matcher.matches(this.urlPathHelper.getPathWithinApplication(request));
+		}
+		return this.matcher.matches(nullSafe(request.getServletPath()), nullSafe(request.getPathInfo()));
 	}
 
 	@Override
@@ -164,7 +174,7 @@ public final class AntPathRequestMatcher implements RequestMatcher, RequestVaria
 		if (!matches(request)) {
 			return MatchResult.notMatch();
 		}
-		if (this.matcher == null) {
+		if (this.matcher == null || !this.matcher.hasUriTemplateVariables()) {
 			return MatchResult.match();
 		}
 		String url = getRequestPath(request);
@@ -183,10 +193,59 @@ public final class AntPathRequestMatcher implements RequestMatcher, RequestVaria
 		return url;
 	}
 
+	private static String nullSafe(String path) {
+		return (path != null) ? path : "";
+	}
+
 	public String getPattern() {
 		return this.pattern;
 	}
 
+	HttpMethod getHttpMethod() {
+		return this.httpMethod;
+	}
+
+	/**
+	 * Returns the literal segments that lead this matcher's pattern, up to (but
+	 * excluding) the first segment that contains a wildcard or a URI template variable.
+	 * Any path matched by this matcher starts with these segments. For case-insensitive
+	 * matchers the segments must be compared ignoring case.
+	 * @return the leading literal segments, or {@code null} if the request path used by
+	 * this matcher cannot be described this way
+	 */
+	String[] getLiteralPathSegments() {
+		if (this.urlPathHelper != null) {
+			return null;
+		}
+		if (this.pattern.equals(MATCH_ALL)) {
+			return new String[0];
+		}
+		if (!this.pattern.startsWith("/")) {
+			return null;
+		}
+		List<String> segments = new ArrayList<>();
+		for (String segment : StringUtils.tokenizeToStringArray(this.pattern, "/", false, true)) {
+			if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1 || segment.indexOf('{') != -1) {
+				break;
+			}
+			if (!this.caseSensitive && !isAscii(segment)) {
+				// lower-casing non-ASCII characters is locale-sensitive
+				break;
+			}
+			segments.add(segment);
+		}
+		return StringUtils.toStringArray(segments);
+	}
+
+	private static boolean isAscii(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) > 127) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (!(obj instanceof AntPathRequestMatcher)) {
@@ -220,8 +279,19 @@ public final class AntPathRequestMatcher implements RequestMatcher, RequestVaria
 
 		boolean matches(String path);
 
+		/**
+		 * Matches {@code servletPath + pathInfo}.
+		 */
+		default boolean matches(String servletPath, String pathInfo) {
+			return matches(StringUtils.hasLength(servletPath) ? servletPath + pathInfo : pathInfo);
+		}
+
 		Map<String, String> extractUriTemplateVariables(String path);
 
+		default boolean hasUriTemplateVariables() {
+			return true;
+		}
+
 	}
 
 	private static final class SpringAntMatcher implements Matcher {
@@ -265,19 +335,64 @@ public final class AntPathRequestMatcher implements RequestMatcher, RequestVaria
 
 		private final boolean caseSensitive;
 
+		private final boolean asciiSubpath;
+
 		private SubpathMatcher(String subpath, boolean caseSensitive) {
 			Assert.isTrue(!subpath.contains("*"), "subpath cannot contain \"*\"");
 			this.subpath = caseSensitive ? subpath : subpath.toLowerCase();
 			this.length = subpath.length();
 			this.caseSensitive = caseSensitive;
+			this.asciiSubpath = this.subpath.length() == this.length && isAscii(this.subpath);
 		}
 
 		@Override
 		public boolean matches(String path) {
-			if (!this.caseSensitive) {
+			return matches(path, "");
+		}
+
+		@Override
+		public boolean matches(String servletPath, String pathInfo) {
+			if (!this.caseSensitive && !isAsciiLowerCaseEquivalent(servletPath, pathInfo)) {
+				String path = StringUtils.hasLength(servletPath) ? servletPath + pathInfo : pathInfo;
 				path = path.toLowerCase();
+				return path.startsWith(this.subpath)
+						&& (path.length() == this.length || path.charAt(this.length) == '/');
 			}
-			return path.startsWith(this.subpath) && (path.length() == this.length || path.charAt(this.length) == '/');
+			int pathLength = servletPath.length() + pathInfo.length();
+			if (pathLength < this.length) {
+				return false;
+			}
+			for (int i = 0; i < this.length; i++) {
+				char c = charAt(servletPath, pathInfo, i);
+				if ((this.caseSensitive ? c : toLowerCaseAscii(c)) != this.subpath.charAt(i)) {
+					return false;
+				}
+			}
+			return pathLength == this.length || charAt(servletPath, pathInfo, this.length) == '/';
+		}
+
+		/**
+		 * Whether lower-casing the compared part of the path with the default locale,
+		 * as {@link String#toLowerCase()} does, is the same as lower-casing each ASCII
+		 * character on its own.
+		 */
+		private boolean isAsciiLowerCaseEquivalent(String servletPath, String pathInfo) {
+			if (!this.asciiSubpath) {
+				return false;
+			}
+			int end = Math.min(servletPath.length() + pathInfo.length(), this.length + 1);
+			for (int i = 0; i < end; i++) {
+				char c = charAt(servletPath, pathInfo, i);
+				if (c > 127 || (c == 'I' && isDottedLowerCaseI())) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean isDottedLowerCaseI() {
+			String language = Locale.getDefault().getLanguage();
+			return "tr".equals(language) || "az".equals(language);
 		}
 
 		@Override
@@ -285,6 +400,346 @@ public final class AntPathRequestMatcher implements RequestMatcher, RequestVaria
 			return Collections.emptyMap();
 		}
 
+		@Override
+		public boolean hasUriTemplateVariables() {
+			return false;
+		}
+
+	}
+
+	/**
+	 * Matcher for patterns without URI template variables. The pattern is parsed once
+	 * into segments which are matched against the request path in place, following the
+	 * semantics of an {@link AntPathMatcher} that does not trim tokens.
+	 */
+	private static final class SegmentMatcher implements Matcher {
+
+		private final Segment[] segments;
+
+		private final boolean startsWithSeparator;
+
+		private final boolean endsWithSeparator;
+
+		private SegmentMatcher(String pattern, boolean caseSensitive) {
+			String[] tokens = StringUtils.tokenizeToStringArray(pattern, "/", false, true);
+			this.segments = new Segment[tokens.length];
+			for (int i = 0; i < tokens.length; i++) {
+				this.segments[i] = new Segment(tokens[i], caseSensitive);
+			}
+			this.startsWithSeparator = pattern.startsWith("/");
+			this.endsWithSeparator = pattern.endsWith("/");
+		}
+
+		/**
+		 * Whether the pattern can be matched by a {@link SegmentMatcher}, that is it has
+		 * no URI template variables and no line terminators.
+		 */
+		private static boolean supports(String pattern) {
+			for (int i = 0; i < pattern.length(); i++) {
+				char c = pattern.charAt(i);
+				if (c == '{' || c == '}' || isLineTerminator(c)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public boolean matches(String path) {
+			return matches(path, "");
+		}
+
+		/**
+		 * Port of {@code AntPathMatcher#doMatch} which addresses path segments by their
+		 * offsets in {@code servletPath + pathInfo} instead of tokenizing the path.
+		 */
+		@Override
+		public boolean matches(String servletPath, String pathInfo) {
+			int length = servletPath.length() + pathInfo.length();
+			boolean pathStartsWithSeparator = length > 0 && charAt(servletPath, pathInfo, 0) == '/';
+			if (pathStartsWithSeparator != this.startsWithSeparator) {
+				return false;
+			}
+			boolean pathEndsWithSeparator = length > 0 && charAt(servletPath, pathInfo, length - 1) == '/';
+			int patternStart = 0;
+			int patternEnd = this.segments.length - 1;
+			int pathStart = skipSeparatorsForward(servletPath, pathInfo, 0, length);
+			int pathEnd = skipSeparatorsBackward(servletPath, pathInfo, length, pathStart);
+			// Match all segments up to the first **
+			while (patternStart <= patternEnd && pathStart < pathEnd) {
+				Segment segment = this.segments[patternStart];
+				if (segment.doubleWildcard) {
+					break;
+				}
+				int segmentEnd = segmentEnd(servletPath, pathInfo, pathStart, pathEnd);
+				if (!segment.matches(servletPath, pathInfo, pathStart, segmentEnd)) {
+					return false;
+				}
+				patternStart++;
+				pathStart = skipSeparatorsForward(servletPath, pathInfo, segmentEnd, pathEnd);
+			}
+			if (pathStart >= pathEnd) {
+				// Path is exhausted, only match if rest of pattern is * or **'s
+				if (patternStart > patternEnd) {
+					return this.endsWithSeparator == pathEndsWithSeparator;
+				}
+				if (patternStart == patternEnd && this.segments[patternStart].singleWildcard
+						&& pathEndsWithSeparator) {
+					return true;
+				}
+				return onlyDoubleWildcards(patternStart, patternEnd);
+			}
+			if (patternStart > patternEnd) {
+				// Pattern is exhausted, path is not
+				return false;
+			}
+			// Match all segments after the last **
+			while (patternStart <= patternEnd && pathStart < pathEnd) {
+				Segment segment = this.segments[patternEnd];
+				if (segment.doubleWildcard) {
+					break;
+				}
+				int segmentStart = segmentStart(servletPath, pathInfo, pathEnd, pathStart);
+				if (!segment.matches(servletPath, pathInfo, segmentStart, pathEnd)) {
+					return false;
+				}
+				if (patternEnd == this.segments.length - 1 && this.endsWithSeparator != pathEndsWithSeparator) {
+					return false;
+				}
+				patternEnd--;
+				pathEnd = skipSeparatorsBackward(servletPath, pathInfo, segmentStart, pathStart);
+			}
+			if (pathStart >= pathEnd) {
+				return onlyDoubleWildcards(patternStart, patternEnd);
+			}
+			// Find the segments between each pair of **'s in the remaining path
+			while (patternStart != patternEnd && pathStart < pathEnd) {
+				int nextDoubleWildcard = patternStart + 1;
+				while (!this.segments[nextDoubleWildcard].doubleWildcard) {
+					nextDoubleWildcard++;
+				}
+				if (nextDoubleWildcard == patternStart + 1) {
+					// '**/**' situation, so skip one
+					patternStart++;
+					continue;
+				}
+				int found = find(servletPath, pathInfo, patternStart + 1, nextDoubleWildcard, pathStart, pathEnd);
+				if (found == -1) {
+					return false;
+				}
+				patternStart = nextDoubleWildcard;
+				pathStart = found;
+			}
+			return onlyDoubleWildcards(patternStart, patternEnd);
+		}
+
+		/**
+		 * Finds the first position in the path where the segments {@code [from, to)}
+		 * match consecutive path segments.
+		 * @return the position after the matched path segments, or {@code -1}
+		 */
+		private int find(String servletPath, String pathInfo, int from, int to, int pathStart, int pathEnd) {
+			int candidate = pathStart;
+			while (candidate < pathEnd) {
+				int position = candidate;
+				boolean matched = true;
+				for (int i = from; i < to && matched; i++) {
+					if (position >= pathEnd) {
+						// not enough path segments left for any later candidate either
+						return -1;
+					}
+					int segmentEnd = segmentEnd(servletPath, pathInfo, position, pathEnd);
+					matched = this.segments[i].matches(servletPath, pathInfo, position, segmentEnd);
+					position = skipSeparatorsForward(servletPath, pathInfo, segmentEnd, pathEnd);
+				}
+				if (matched) {
+					return position;
+				}
+				candidate = skipSeparatorsForward(servletPath, pathInfo,
+						segmentEnd(servletPath, pathInfo, candidate, pathEnd), pathEnd);
+			}
+			return -1;
+		}
+
+		private boolean onlyDoubleWildcards(int from, int to) {
+			for (int i = from; i <= to; i++) {
+				if (!this.segments[i].doubleWildcard) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Map<String, String> extractUriTemplateVariables(String path) {
+			return Collections.emptyMap();
+		}
+
+		@Override
+		public boolean hasUriTemplateVariables() {
+			return false;
+		}
+
+		private static int skipSeparatorsForward(String servletPath, String pathInfo, int index, int limit) {
+			while (index < limit && charAt(servletPath, pathInfo, index) == '/') {
+				index++;
+			}
+			return index;
+		}
+
+		private static int skipSeparatorsBackward(String servletPath, String pathInfo, int index, int limit) {
+			while (index > limit && charAt(servletPath, pathInfo, index - 1) == '/') {
+				index--;
+			}
+			return index;
+		}
+
+		private static int segmentEnd(String servletPath, String pathInfo, int start, int limit) {
+			int end = start;
+			while (end < limit && charAt(servletPath, pathInfo, end) != '/') {
+				end++;
+			}
+			return end;
+		}
+
+		private static int segmentStart(String servletPath, String pathInfo, int end, int limit) {
+			int start = end;
+			while (start > limit && charAt(servletPath, pathInfo, start - 1) != '/') {
+				start--;
+			}
+			return start;
+		}
+
+	}
+
+	/**
+	 * A single segment of a {@link SegmentMatcher} pattern. Segments without wildcards
+	 * are compared like {@link String#equals(Object)} or
+	 * {@link String#equalsIgnoreCase(String)}, other segments like the regular expression
+	 * {@code AntPathMatcher} would generate for them: {@code ?} and {@code *} do not match
+	 * line terminators, {@code ?} matches a single code point and case-insensitive
+	 * comparison only considers ASCII characters.
+	 */
+	private static final class Segment {
+
+		private final String value;
+
+		private final boolean caseSensitive;
+
+		private final boolean doubleWildcard;
+
+		private final boolean singleWildcard;
+
+		private final boolean literal;
+
+		private Segment(String value, boolean caseSensitive) {
+			this.value = value;
+			this.caseSensitive = caseSensitive;
+			this.doubleWildcard = "**".equals(value);
+			this.singleWildcard = "*".equals(value);
+			this.literal = value.indexOf('*') == -1 && value.indexOf('?') == -1;
+		}
+
+		private boolean matches(String servletPath, String pathInfo, int start, int end) {
+			return this.literal ? matchesLiteral(servletPath, pathInfo, start, end)
+					: matchesWildcards(servletPath, pathInfo, start, end);
+		}
+
+		private boolean matchesLiteral(String servletPath, String pathInfo, int start, int end) {
+			if (end - start != this.value.length()) {
+				return false;
+			}
+			for (int i = 0; i < this.value.length(); i++) {
+				char expected = this.value.charAt(i);
+				char actual = charAt(servletPath, pathInfo, start + i);
+				if (expected != actual && (this.caseSensitive || !equalsIgnoreCase(expected, actual))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean matchesWildcards(String servletPath, String pathInfo, int start, int end) {
+			for (int i = start; i < end; i++) {
+				if (isLineTerminator(charAt(servletPath, pathInfo, i))) {
+					return false;
+				}
+			}
+			int patternIndex = 0;
+			int pathIndex = start;
+			int starPatternIndex = -1;
+			int starPathIndex = -1;
+			while (pathIndex < end) {
+				if (patternIndex < this.value.length()) {
+					char expected = this.value.charAt(patternIndex);
+					if (expected == '*') {
+						starPatternIndex = patternIndex++;
+						starPathIndex = pathIndex;
+						continue;
+					}
+					if (expected == '?') {
+						pathIndex += charCount(servletPath, pathInfo, pathIndex, end);
+						patternIndex++;
+						continue;
+					}
+					if (charEquals(expected, charAt(servletPath, pathInfo, pathIndex))) {
+						pathIndex++;
+						patternIndex++;
+						continue;
+					}
+				}
+				if (starPatternIndex == -1) {
+					return false;
+				}
+				// let the last * consume one more code point
+				starPathIndex += charCount(servletPath, pathInfo, starPathIndex, end);
+				pathIndex = starPathIndex;
+				patternIndex = starPatternIndex + 1;
+			}
+			while (patternIndex < this.value.length() && this.value.charAt(patternIndex) == '*') {
+				patternIndex++;
+			}
+			return patternIndex == this.value.length();
+		}
+
+		private boolean charEquals(char expected, char actual) {
+			if (expected == actual) {
+				return true;
+			}
+			return !this.caseSensitive && expected < 128 && actual < 128
+					&& toLowerCaseAscii(expected) == toLowerCaseAscii(actual);
+		}
+
+		private static boolean equalsIgnoreCase(char c1, char c2) {
+			char u1 = Character.toUpperCase(c1);
+			char u2 = Character.toUpperCase(c2);
+			return u1 == u2 || Character.toLowerCase(u1) == Character.toLowerCase(u2);
+		}
+
+		private static int charCount(String servletPath, String pathInfo, int index, int end) {
+			if (index + 1 < end && Character.isHighSurrogate(charAt(servletPath, pathInfo, index))
+					&& Character.isLowSurrogate(charAt(servletPath, pathInfo, index + 1))) {
+				return 2;
+			}
+			return 1;
+		}
+
+	}
+
+	/**
+	 * Returns the character at the given index of {@code servletPath + pathInfo}.
+	 */
+	private static char charAt(String servletPath, String pathInfo, int index) {
+		int servletPathLength = servletPath.length();
+		return (index < servletPathLength) ? servletPath.charAt(index) : pathInfo.charAt(index - servletPathLength);
+	}
+
+	private static char toLowerCaseAscii(char c) {
+		return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
 	}
 
 }
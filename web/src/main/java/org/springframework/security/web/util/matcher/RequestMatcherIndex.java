@@ -0,0 +1,430 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.util.matcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * An index over an ordered list of {@link RequestMatcherEntry} instances which finds the
+ * first entry whose {@link RequestMatcher} matches a request without consulting every
+ * entry.
+ * <p>
+ * Entries using an {@link AntPathRequestMatcher} (without a custom
+ * {@link org.springframework.web.util.UrlPathHelper}) or the {@link AnyRequestMatcher}
+ * are {@link Mode#INDEXED indexed}: they are grouped by HTTP method and placed into a
+ * path-segment trie keyed by the literal segments that lead their pattern. Any other
+ * entry is {@link Mode#LINEAR evaluated linearly}, that is for every request. For a given
+ * request only the entries found along its path in the trie, together with the linear
+ * entries, are evaluated, and they are evaluated in declaration order, so the result is
+ * always the same as evaluating all of the entries in order.
+ *
+ * @param <T> the type of the entries
+ * @since 5.8
+ * @see RequestMatcherEntry
+ */
+public final class RequestMatcherIndex<T> {
+
+	private final List<RequestMatcherEntry<T>> entries;
+
+	private final Mode[] modes;
+
+	private final Map<String, Node> methodRoots;
+
+	private final Node anyMethodRoot;
+
+	private final Node allMethodsRoot;
+
+	private final LongAdder indexedMatches = new LongAdder();
+
+	private final LongAdder linearMatches = new LongAdder();
+
+	private final LongAdder noMatches = new LongAdder();
+
+	private RequestMatcherIndex(List<RequestMatcherEntry<T>> entries) {
+		this.entries = new ArrayList<>(entries);
+		int size = this.entries.size();
+		this.modes = new Mode[size];
+		String[][] segments = new String[size][];
+		String[] methods = new String[size];
+		Set<String> distinctMethods = new LinkedHashSet<>();
+		for (int i = 0; i < size; i++) {
+			RequestMatcher matcher = this.entries.get(i).getRequestMatcher();
+			if (matcher instanceof AnyRequestMatcher) {
+				segments[i] = new String[0];
+			}
+			else if (matcher instanceof AntPathRequestMatcher) {
+				AntPathRequestMatcher antMatcher = (AntPathRequestMatcher) matcher;
+				HttpMethod method = antMatcher.getHttpMethod();
+				segments[i] = antMatcher.getLiteralPathSegments();
+				methods[i] = (method != null) ? method.name() : null;
+			}
+			this.modes[i] = (segments[i] != null) ? Mode.INDEXED : Mode.LINEAR;
+			if (segments[i] != null && methods[i] != null) {
+				distinctMethods.add(methods[i]);
+			}
+		}
+		Map<String, Node> methodRoots = new HashMap<>();
+		for (String method : distinctMethods) {
+			methodRoots.put(method, createRoot(segments, methods, method, false));
+		}
+		this.methodRoots = methodRoots;
+		this.anyMethodRoot = createRoot(segments, methods, null, false);
+		this.allMethodsRoot = createRoot(segments, methods, null, true);
+	}
+
+	/**
+	 * Creates an index over the given entries. The order of the entries is the order in
+	 * which they are matched.
+	 * @param entries the entries to index
+	 * @param <T> the type of the entries
+	 * @return the {@link RequestMatcherIndex}
+	 */
+	public static <T> RequestMatcherIndex<T> compile(List<RequestMatcherEntry<T>> entries) {
+		Assert.notNull(entries, "entries cannot be null");
+		Assert.noNullElements(entries, "entries cannot contain null values");
+		return new RequestMatcherIndex<>(entries);
+	}
+
+	/**
+	 * Finds the first entry, in declaration order, whose {@link RequestMatcher} matches
+	 * the request.
+	 * @param request the request to match
+	 * @return the first matching entry, or {@code null} if no entry matches
+	 */
+	public RequestMatcherEntry<T> findFirst(HttpServletRequest request) {
+		Node node = findNode(findRoot(request), request);
+		for (int index : node.candidates) {
+			RequestMatcherEntry<T> entry = this.entries.get(index);
+			if (entry.getRequestMatcher().matches(request)) {
+				countMatch(index);
+				return entry;
+			}
+		}
+		this.noMatches.increment();
+		return null;
+	}
+
+	/**
+	 * Finds the first entry, in declaration order, whose {@link RequestMatcher} matches
+	 * the request, together with the {@link RequestMatcher.MatchResult} of that
+	 * {@link RequestMatcher}. Each candidate is evaluated once, through
+	 * {@link RequestMatcher#matcher(HttpServletRequest)}, so the variables of the
+	 * matching entry do not require to evaluate it again.
+	 * @param request the request to match
+	 * @return the first matching entry and its {@link RequestMatcher.MatchResult}, or
+	 * {@code null} if no entry matches
+	 */
+	public Match<T> findFirstMatch(HttpServletRequest request) {
+		Node node = findNode(findRoot(request), request);
+		for (int index : node.candidates) {
+			RequestMatcherEntry<T> entry = this.entries.get(index);
+			RequestMatcher.MatchResult result = entry.getRequestMatcher().matcher(request);
+			if (result.isMatch()) {
+				countMatch(index);
+				return new Match<>(entry, result);
+			}
+		}
+		this.noMatches.increment();
+		return null;
+	}
+
+	private void countMatch(int index) {
+		if (this.modes[index] == Mode.INDEXED) {
+			this.indexedMatches.increment();
+		}
+		else {
+			this.linearMatches.increment();
+		}
+	}
+
+	/**
+	 * Returns the indexed entries, in declaration order.
+	 * @return the entries
+	 */
+	public List<RequestMatcherEntry<T>> getEntries() {
+		return Collections.unmodifiableList(this.entries);
+	}
+
+	/**
+	 * Returns how the entry at the given position is evaluated.
+	 * @param index the position of the entry
+	 * @return the {@link Mode} of the entry
+	 */
+	public Mode getMode(int index) {
+		return this.modes[index];
+	}
+
+	/**
+	 * Returns the number of requests which were matched by an {@link Mode#INDEXED} entry.
+	 * @return the number of requests matched through the index
+	 */
+	public long getIndexedMatchCount() {
+		return this.indexedMatches.sum();
+	}
+
+	/**
+	 * Returns the number of requests which were matched by a {@link Mode#LINEAR} entry.
+	 * @return the number of requests matched by linear evaluation
+	 */
+	public long getLinearMatchCount() {
+		return this.linearMatches.sum();
+	}
+
+	/**
+	 * Returns the number of requests which were not matched by any entry.
+	 * @return the number of unmatched requests
+	 */
+	public long getNoMatchCount() {
+		return this.noMatches.sum();
+	}
+
+	@Override
+	public String toString() {
+		int indexed = 0;
+		for (Mode mode : this.modes) {
+			if (mode == Mode.INDEXED) {
+				indexed++;
+			}
+		}
+		return getClass().getSimpleName() + " [Indexed=" + indexed + ", Linear=" + (this.modes.length - indexed)
+				+ "]";
+	}
+
+	private Node findRoot(HttpServletRequest request) {
+		String method = request.getMethod();
+		if (!StringUtils.hasText(method)) {
+			// method specific matchers match any request without a method
+			return this.allMethodsRoot;
+		}
+		Node root = this.methodRoots.get(method);
+		return (root != null) ? root : this.anyMethodRoot;
+	}
+
+	/**
+	 * Walks the trie along the request path ({@code servletPath + pathInfo}) without
+	 * creating intermediate strings and returns the deepest node reached.
+	 */
+	private static Node findNode(Node root, HttpServletRequest request) {
+		String servletPath = request.getServletPath();
+		String pathInfo = request.getPathInfo();
+		RequestPath path = new RequestPath((servletPath != null) ? servletPath : "",
+				(pathInfo != null) ? pathInfo : "");
+		Node node = root;
+		int start = 0;
+		while (start < path.length() && node.childKeys.length > 0) {
+			if (path.charAt(start) == '/') {
+				start++;
+				continue;
+			}
+			int end = start + 1;
+			while (end < path.length() && path.charAt(end) != '/') {
+				end++;
+			}
+			Node child = node.findChild(path, start, end);
+			if (child == null) {
+				return node;
+			}
+			node = child;
+			start = end;
+		}
+		return node;
+	}
+
+	private static Node createRoot(String[][] segments, String[] methods, String method, boolean allMethods) {
+		Node root = new Node();
+		Set<Integer> linear = new TreeSet<>();
+		for (int i = 0; i < segments.length; i++) {
+			if (segments[i] == null) {
+				linear.add(i);
+				continue;
+			}
+			if (!allMethods && methods[i] != null && !methods[i].equals(method)) {
+				continue;
+			}
+			Node node = root;
+			for (String segment : segments[i]) {
+				node = node.children.computeIfAbsent(fold(segment), (key) -> new Node());
+			}
+			node.entries.add(i);
+		}
+		root.compile(linear);
+		return root;
+	}
+
+	/**
+	 * Folds a segment so that segments which are equal ignoring case fold to the same
+	 * value. This is the same comparison as {@link String#equalsIgnoreCase(String)}.
+	 */
+	private static String fold(String segment) {
+		StringBuilder folded = new StringBuilder(segment.length());
+		for (int i = 0; i < segment.length(); i++) {
+			folded.append(fold(segment.charAt(i)));
+		}
+		return folded.toString();
+	}
+
+	private static char fold(char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	/**
+	 * Describes how an entry is evaluated by a {@link RequestMatcherIndex}.
+	 */
+	public enum Mode {
+
+		/**
+		 * The entry is only evaluated for requests whose method and path can match it.
+		 */
+		INDEXED,
+
+		/**
+		 * The entry is evaluated for every request.
+		 */
+		LINEAR
+
+	}
+
+	/**
+	 * An entry found by {@link #findFirstMatch(HttpServletRequest)}, together with the
+	 * {@link RequestMatcher.MatchResult} of its {@link RequestMatcher}.
+	 *
+	 * @param <T> the type of the entry
+	 */
+	public static final class Match<T> {
+
+		private final RequestMatcherEntry<T> entry;
+
+		private final RequestMatcher.MatchResult matchResult;
+
+		private Match(RequestMatcherEntry<T> entry, RequestMatcher.MatchResult matchResult) {
+			this.entry = entry;
+			this.matchResult = matchResult;
+		}
+
+		/**
+		 * Returns the matching entry.
+		 * @return the entry
+		 */
+		public RequestMatcherEntry<T> getEntry() {
+			return this.entry;
+		}
+
+		/**
+		 * Returns the result of matching the request against the entry's
+		 * {@link RequestMatcher}.
+		 * @return the {@link RequestMatcher.MatchResult}
+		 */
+		public RequestMatcher.MatchResult getMatchResult() {
+			return this.matchResult;
+		}
+
+	}
+
+	private static final class Node {
+
+		private final Map<String, Node> children = new LinkedHashMap<>();
+
+		private final List<Integer> entries = new ArrayList<>();
+
+		private String[] childKeys;
+
+		private Node[] childNodes;
+
+		private int[] candidates;
+
+		private void compile(Set<Integer> inherited) {
+			Set<Integer> candidates = new TreeSet<>(inherited);
+			candidates.addAll(this.entries);
+			this.candidates = candidates.stream().mapToInt(Integer::intValue).toArray();
+			this.childKeys = new String[this.children.size()];
+			this.childNodes = new Node[this.children.size()];
+			int i = 0;
+			for (Map.Entry<String, Node> child : this.children.entrySet()) {
+				this.childKeys[i] = child.getKey();
+				this.childNodes[i] = child.getValue();
+				child.getValue().compile(candidates);
+				i++;
+			}
+		}
+
+		private Node findChild(RequestPath path, int start, int end) {
+			for (int i = 0; i < this.childKeys.length; i++) {
+				if (path.regionEquals(start, end, this.childKeys[i])) {
+					return this.childNodes[i];
+				}
+			}
+			return null;
+		}
+
+	}
+
+	/**
+	 * A view of {@code servletPath + pathInfo} which does not concatenate the two.
+	 */
+	private static final class RequestPath {
+
+		private final String servletPath;
+
+		private final String pathInfo;
+
+		private final int servletPathLength;
+
+		private RequestPath(String servletPath, String pathInfo) {
+			this.servletPath = servletPath;
+			this.pathInfo = pathInfo;
+			this.servletPathLength = servletPath.length();
+		}
+
+		private int length() {
+			return this.servletPathLength + this.pathInfo.length();
+		}
+
+		private char charAt(int index) {
+			return (index < this.servletPathLength) ? this.servletPath.charAt(index)
+					: this.pathInfo.charAt(index - this.servletPathLength);
+		}
+
+		private boolean regionEquals(int start, int end, String foldedSegment) {
+			if (end - start != foldedSegment.length()) {
+				return false;
+			}
+			for (int i = start; i < end; i++) {
+				if (fold(charAt(i)) != foldedSegment.charAt(i - start)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+}
@@ -40,7 +40,9 @@ import org.springframework.security.web.firewall.FirewalledRequest;
 import org.springframework.security.web.firewall.HttpFirewall;
 import org.springframework.security.web.firewall.RequestRejectedException;
 import org.springframework.security.web.firewall.RequestRejectedHandler;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcherIndex;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
@@ -252,4 +254,31 @@ public class FilterChainProxyTests {
 		verify(rjh).handle(eq(this.request), eq(this.response), eq((requestRejectedException)));
 	}
 
+	@Test
+	public void doFilterWhenIndexFilterChainsThenFirstMatchingChainIsUsed() throws Exception {
+		Filter apiFilter = mock(Filter.class);
+		this.fcp = new FilterChainProxy(Arrays.asList(
+				new DefaultSecurityFilterChain(new AntPathRequestMatcher("/api/**"), apiFilter),
+				new DefaultSecurityFilterChain(this.matcher, this.filter)));
+		this.fcp.setIndexFilterChains(true);
+		given(this.matcher.matches(any())).willReturn(true);
+		this.request.setServletPath("/api/a");
+		this.fcp.doFilter(this.request, this.response, this.chain);
+		verify(apiFilter).doFilter(any(), any(), any());
+		verifyZeroInteractions(this.matcher);
+		this.request.setServletPath("/path");
+		this.fcp.doFilter(this.request, this.response, this.chain);
+		verify(this.filter).doFilter(any(), any(), any());
+		RequestMatcherIndex<SecurityFilterChain> index = this.fcp.getFilterChainIndex();
+		assertThat(index.getMode(0)).isEqualTo(RequestMatcherIndex.Mode.INDEXED);
+		assertThat(index.getMode(1)).isEqualTo(RequestMatcherIndex.Mode.LINEAR);
+		assertThat(index.getIndexedMatchCount()).isEqualTo(1);
+		assertThat(index.getLinearMatchCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void getFilterChainIndexWhenNotIndexedThenNull() {
+		assertThat(this.fcp.getFilterChainIndex()).isNull();
+	}
+
 }
@@ -16,6 +16,7 @@
 
 package org.springframework.security.web.access.intercept;
 
+import java.util.Collections;
 import java.util.function.Supplier;
 
 import org.junit.jupiter.api.Test;
@@ -26,11 +27,20 @@ import org.springframework.security.authorization.AuthorityAuthorizationManager;
 import org.springframework.security.authorization.AuthorizationDecision;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.web.servlet.util.matcher.MvcRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher.MatchResult;
 import org.springframework.security.web.util.matcher.RequestMatcherEntry;
+import org.springframework.security.web.util.matcher.RequestMatcherIndex;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests for {@link RequestMatcherDelegatingAuthorizationManager}.
@@ -122,4 +132,69 @@ public class RequestMatcherDelegatingAuthorizationManagerTests {
 				.withMessage("mappingsConsumer cannot be null");
 	}
 
+	@Test
+	public void checkWhenIndexMappingsThenDelegatesFirstMatchingManager() {
+		RequestMatcherDelegatingAuthorizationManager manager = RequestMatcherDelegatingAuthorizationManager.builder()
+				.add(new AntPathRequestMatcher("/users/{id}", "GET"),
+						(a, o) -> new AuthorizationDecision("1".equals(o.getVariables().get("id"))))
+				.add(new MvcRequestMatcher(null, "/grant"), (a, o) -> new AuthorizationDecision(true))
+				.add(new AntPathRequestMatcher("/users/**"), (a, o) -> null)
+				.add(AnyRequestMatcher.INSTANCE, AuthorityAuthorizationManager.hasRole("ADMIN")).indexMappings(true)
+				.build();
+		RequestMatcherIndex<?> index = manager.getMappingIndex();
+		assertThat(index.getMode(0)).isEqualTo(RequestMatcherIndex.Mode.INDEXED);
+		assertThat(index.getMode(1)).isEqualTo(RequestMatcherIndex.Mode.LINEAR);
+		assertThat(index.getMode(2)).isEqualTo(RequestMatcherIndex.Mode.INDEXED);
+		assertThat(index.getMode(3)).isEqualTo(RequestMatcherIndex.Mode.INDEXED);
+
+		Supplier<Authentication> authentication = () -> new TestingAuthenticationToken("user", "password", "ROLE_USER");
+
+		AuthorizationDecision granted = manager.check(authentication, request("GET", "/users/1"));
+		assertThat(granted).isNotNull();
+		assertThat(granted.isGranted()).isTrue();
+
+		AuthorizationDecision denied = manager.check(authentication, request("GET", "/users/2"));
+		assertThat(denied).isNotNull();
+		assertThat(denied.isGranted()).isFalse();
+
+		AuthorizationDecision neutral = manager.check(authentication, request("POST", "/users/1"));
+		assertThat(neutral).isNull();
+
+		AuthorizationDecision grant = manager.check(authentication, new MockHttpServletRequest(null, "/grant"));
+		assertThat(grant).isNotNull();
+		assertThat(grant.isGranted()).isTrue();
+
+		AuthorizationDecision unmapped = manager.check(authentication, request("GET", "/unmapped"));
+		assertThat(unmapped).isNotNull();
+		assertThat(unmapped.isGranted()).isFalse();
+	}
+
+	@Test
+	public void checkWhenIndexMappingsThenMatchingRequestMatcherEvaluatedOnce() {
+		RequestMatcher matcher = mock(RequestMatcher.class);
+		given(matcher.matcher(any())).willReturn(MatchResult.match(Collections.singletonMap("id", "1")));
+		RequestMatcherDelegatingAuthorizationManager manager = RequestMatcherDelegatingAuthorizationManager.builder()
+				.add(matcher, (a, o) -> new AuthorizationDecision("1".equals(o.getVariables().get("id"))))
+				.indexMappings(true).build();
+		AuthorizationDecision decision = manager.check(
+				() -> new TestingAuthenticationToken("user", "password", "ROLE_USER"), request("GET", "/users/1"));
+		assertThat(decision).isNotNull();
+		assertThat(decision.isGranted()).isTrue();
+		verify(matcher).matcher(any());
+		verify(matcher, never()).matches(any());
+	}
+
+	@Test
+	public void getMappingIndexWhenNotIndexedThenNull() {
+		RequestMatcherDelegatingAuthorizationManager manager = RequestMatcherDelegatingAuthorizationManager.builder()
+				.add(AnyRequestMatcher.INSTANCE, (a, o) -> null).build();
+		assertThat(manager.getMappingIndex()).isNull();
+	}
+
+	private static MockHttpServletRequest request(String method, String servletPath) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, servletPath);
+		request.setServletPath(servletPath);
+		return request;
+	}
+
 }
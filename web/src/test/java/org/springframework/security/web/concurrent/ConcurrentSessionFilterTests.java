@@ -16,6 +16,7 @@
 
 package org.springframework.security.web.concurrent;
 
+import java.time.Duration;
 import java.util.Date;
 import java.util.List;
 
@@ -47,6 +48,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
@@ -156,6 +158,41 @@ public class ConcurrentSessionFilterTests {
 		assertThat(registry.getSessionInformation(session.getId()).getLastRequest().after(lastRequest)).isTrue();
 	}
 
+	@Test
+	public void doFilterWhenRefreshLastRequestIntervalNotElapsedThenNotRefreshed() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setSession(new MockHttpSession());
+		SessionRegistry registry = mock(SessionRegistry.class);
+		SessionInformation information = new SessionInformation("user", "sessionId",
+				new Date(System.currentTimeMillis() - 1000));
+		given(registry.getSessionInformation(anyString())).willReturn(information);
+		ConcurrentSessionFilter filter = new ConcurrentSessionFilter(registry);
+		filter.setRefreshLastRequestInterval(Duration.ofMinutes(1));
+		filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+		verify(registry, never()).refreshLastRequest(anyString());
+	}
+
+	@Test
+	public void doFilterWhenRefreshLastRequestIntervalElapsedThenRefreshed() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setSession(new MockHttpSession());
+		SessionRegistry registry = mock(SessionRegistry.class);
+		SessionInformation information = new SessionInformation("user", "sessionId",
+				new Date(System.currentTimeMillis() - 120000));
+		given(registry.getSessionInformation(anyString())).willReturn(information);
+		ConcurrentSessionFilter filter = new ConcurrentSessionFilter(registry);
+		filter.setRefreshLastRequestInterval(Duration.ofMinutes(1));
+		filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+		verify(registry).refreshLastRequest("sessionId");
+	}
+
+	@Test
+	public void setRefreshLastRequestIntervalWhenNegativeThenException() {
+		ConcurrentSessionFilter filter = new ConcurrentSessionFilter(new SessionRegistryImpl());
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> filter.setRefreshLastRequestInterval(Duration.ofSeconds(-1)));
+	}
+
 	@Test
 	public void doFilterWhenNoSessionThenChainIsContinued() throws Exception {
 		MockHttpServletRequest request = new MockHttpServletRequest();
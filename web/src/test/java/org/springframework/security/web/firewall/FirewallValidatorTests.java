@@ -0,0 +1,102 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.firewall;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link FirewallValidator}.
+ */
+public class FirewallValidatorTests {
+
+	private static final Pattern ASSIGNED_AND_NOT_ISO_CONTROL_PATTERN = Pattern
+			.compile("[\\p{IsAssigned}&&[^\\p{IsControl}]]*");
+
+	@Test
+	public void isValidWhenBlocklistedInEncodedPartsThenFalse() {
+		FirewallValidator validator = FirewallValidator.compile(Arrays.asList(";", "%2e"), Collections.emptyList());
+		assertThat(validator.isValid(request("/a;b", "", "/a", null))).isFalse();
+		assertThat(validator.isValid(request("/a", "/c%2e", "/a", null))).isFalse();
+		assertThat(validator.isValid(request("/a", "", "/a;b", "/%2e"))).isTrue();
+	}
+
+	@Test
+	public void isValidWhenBlocklistedInDecodedPartsThenFalse() {
+		FirewallValidator validator = FirewallValidator.compile(Collections.emptyList(),
+				Arrays.asList("%", " "));
+		assertThat(validator.isValid(request("/a", "", "/a%", null))).isFalse();
+		assertThat(validator.isValid(request("/a", "", "/a", "/b "))).isFalse();
+		assertThat(validator.isValid(request("/a%25", "", "/a", "/b"))).isTrue();
+	}
+
+	@Test
+	public void isValidWhenEmptyBlocklistEntryThenFalse() {
+		FirewallValidator validator = FirewallValidator.compile(Collections.singleton(""), Collections.emptyList());
+		assertThat(validator.isValid(request("/a", "", "/a", null))).isFalse();
+	}
+
+	@Test
+	public void isValidWhenDotSegmentThenFalse() {
+		FirewallValidator validator = FirewallValidator.compile(Collections.emptyList(), Collections.emptyList());
+		for (String path : Arrays.asList(".", "..", "/.", "/..", "./a", "../a", "/a/./b", "/a/../b", "/a/.",
+				"/a/..")) {
+			assertThat(validator.isValid(request("/a", "", path, null))).describedAs(path).isFalse();
+			assertThat(validator.isValid(request("/a", "", "/a", path))).describedAs(path).isFalse();
+			assertThat(validator.isValid(request(path, "", "/a", null))).describedAs(path).isFalse();
+		}
+		for (String path : Arrays.asList("", "/", "/...", "/.a", "/a.", "/a..b", "//", "/a/")) {
+			assertThat(validator.isValid(request(path, path, path, path))).describedAs(path).isTrue();
+		}
+	}
+
+	@Test
+	public void isValidWhenRequestUriNotPrintableAsciiThenFalse() {
+		FirewallValidator validator = FirewallValidator.compile(Collections.emptyList(), Collections.emptyList());
+		assertThat(validator.isValid(request("/\u00e9", "", "/a", null))).isFalse();
+		assertThat(validator.isValid(request("/\t", "", "/a", null))).isFalse();
+		assertThat(validator.isValid(request("/a", "", "/\u00e9", null))).isTrue();
+	}
+
+	@Test
+	public void isAssignedAndNotIsoControlWhenAnyCodePointThenSameAsPattern() {
+		for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; codePoint++) {
+			String value = "a" + new String(Character.toChars(codePoint));
+			assertThat(FirewallValidator.isAssignedAndNotIsoControl(value)).describedAs("U+%04X", codePoint)
+					.isEqualTo(ASSIGNED_AND_NOT_ISO_CONTROL_PATTERN.matcher(value).matches());
+		}
+		assertThat(FirewallValidator.isAssignedAndNotIsoControl("\ud800")).isTrue();
+		assertThat(FirewallValidator.isAssignedAndNotIsoControl("")).isTrue();
+	}
+
+	private static MockHttpServletRequest request(String requestUri, String contextPath, String servletPath,
+			String pathInfo) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", requestUri);
+		request.setContextPath(contextPath);
+		request.setServletPath(servletPath);
+		request.setPathInfo(pathInfo);
+		return request;
+	}
+
+}
@@ -16,10 +16,12 @@
 
 package org.springframework.security.web.firewall;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 
 import org.junit.jupiter.api.Test;
 
@@ -884,4 +886,100 @@ public class StrictHttpFirewallTests {
 		assertThat(request.getDateHeader(null)).isEqualTo(-1);
 	}
 
+	@Test
+	public void getFirewalledRequestWhenBlocklistModifiedAfterFirstRequestThenModificationApplied() {
+		this.request.setPathInfo("/a/b//c");
+		assertThatExceptionOfType(RequestRejectedException.class)
+				.isThrownBy(() -> this.firewall.getFirewalledRequest(this.request));
+		this.firewall.getDecodedUrlBlocklist().removeAll(Arrays.asList("//"));
+		this.firewall.getFirewalledRequest(this.request);
+		this.firewall.getDecodedUrlBlocklist().add("b");
+		assertThatExceptionOfType(RequestRejectedException.class)
+				.isThrownBy(() -> this.firewall.getFirewalledRequest(this.request))
+				.withMessage("The request was rejected because the URL contained a potentially malicious String \"b\"");
+	}
+
+	@Test
+	public void getFirewalledRequestWhenBlocklistClearedThenOnlyNormalizationChecked() {
+		this.firewall.getEncodedUrlBlocklist().clear();
+		this.firewall.getDecodedUrlBlocklist().clear();
+		this.request.setRequestURI("/a;b%2F%25");
+		this.request.setServletPath("/a;b/%");
+		this.firewall.getFirewalledRequest(this.request);
+		this.request.setServletPath("/a/../b");
+		assertThatExceptionOfType(RequestRejectedException.class)
+				.isThrownBy(() -> this.firewall.getFirewalledRequest(this.request))
+				.withMessage("The request was rejected because the URL was not normalized.");
+	}
+
+	@Test
+	public void getFirewalledRequestWhenNonPrintableRequestUriThenSameRejection() {
+		this.request.setRequestURI("/\u00e9");
+		assertThatExceptionOfType(RequestRejectedException.class)
+				.isThrownBy(() -> this.firewall.getFirewalledRequest(this.request))
+				.withMessage("The requestURI was rejected because it can only contain printable ASCII characters.");
+	}
+
+	@Test
+	public void getFirewalledRequestGetHeaderWhenReadTwiceThenValidatedOnce() {
+		this.request.addHeader("name", "value");
+		List<String> tested = new ArrayList<>();
+		this.firewall.setAllowedHeaderNames((name) -> tested.add(name));
+		this.firewall.setAllowedHeaderValues((value) -> tested.add(value));
+		HttpServletRequest request = this.firewall.getFirewalledRequest(this.request);
+		assertThat(request.getHeader("name")).isEqualTo("value");
+		assertThat(request.getHeader("name")).isEqualTo("value");
+		assertThat(request.getHeaders("name").nextElement()).isEqualTo("value");
+		assertThat(tested).containsExactly("name", "value");
+	}
+
+	@Test
+	public void getFirewalledRequestGetParameterWhenReadTwiceThenValidatedOnce() {
+		this.request.addParameter("name", "value");
+		List<String> tested = new ArrayList<>();
+		this.firewall.setAllowedParameterNames((name) -> tested.add(name));
+		this.firewall.setAllowedParameterValues((value) -> tested.add(value));
+		HttpServletRequest request = this.firewall.getFirewalledRequest(this.request);
+		assertThat(request.getParameter("name")).isEqualTo("value");
+		assertThat(request.getParameterValues("name")).containsExactly("value");
+		assertThat(request.getParameterMap()).containsKey("name");
+		assertThat(tested).containsExactly("name", "value");
+	}
+
+	@Test
+	public void getFirewalledRequestGetHeaderWhenNotAllowedTwiceThenExceptionTwice() {
+		this.request.addHeader("good name", "bad value");
+		this.firewall.setAllowedHeaderValues((value) -> !value.equals("bad value"));
+		HttpServletRequest request = this.firewall.getFirewalledRequest(this.request);
+		assertThatExceptionOfType(RequestRejectedException.class).isThrownBy(() -> request.getHeader("good name"));
+		assertThatExceptionOfType(RequestRejectedException.class).isThrownBy(() -> request.getHeader("good name"));
+	}
+
+	@Test
+	public void getHeaderReadCountsWhenHeadersReadThenCounted() {
+		this.firewall.setCountHeaderReads(true);
+		this.request.addHeader("Authorization", "Bearer token");
+		HttpServletRequest request = new HttpServletRequestWrapper(this.firewall.getFirewalledRequest(this.request));
+		request.getHeader("Authorization");
+		request.getHeaders("Authorization");
+		request.getHeader("X-Requested-With");
+		request.getIntHeader("X-Requested-With");
+		request.getHeader(null);
+		assertThat(StrictHttpFirewall.getHeaderReadCounts(request)).containsEntry("Authorization", 2)
+				.containsEntry("X-Requested-With", 2).hasSize(2);
+	}
+
+	@Test
+	public void getHeaderReadCountsWhenNotCountingHeaderReadsThenEmpty() {
+		this.request.addHeader("Authorization", "Bearer token");
+		HttpServletRequest request = this.firewall.getFirewalledRequest(this.request);
+		request.getHeader("Authorization");
+		assertThat(StrictHttpFirewall.getHeaderReadCounts(request)).isEmpty();
+	}
+
+	@Test
+	public void getHeaderReadCountsWhenNotFirewalledThenEmpty() {
+		assertThat(StrictHttpFirewall.getHeaderReadCounts(this.request)).isEmpty();
+	}
+
 }
@@ -24,6 +24,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.util.UrlPathHelper;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -205,6 +206,73 @@ public class AntPathRequestMatcherTests {
 		assertThat(matcher.matcher(request).isMatch()).isTrue();
 	}
 
+	@Test
+	public void matchesWhenServletPathAndPathInfoThenSameAsRequestPath() {
+		AntPathRequestMatcher matcher = new AntPathRequestMatcher("/a/**/c");
+		MockHttpServletRequest request = createRequest("/a");
+		request.setPathInfo("/b/c");
+		assertThat(matcher.matches(request)).isTrue();
+		request.setPathInfo("/b/d");
+		assertThat(matcher.matches(request)).isFalse();
+		request.setServletPath("");
+		request.setPathInfo("/a/c");
+		assertThat(matcher.matches(request)).isTrue();
+	}
+
+	@Test
+	public void matcherWhenPatternWithoutVariablesThenEmptyVariables() {
+		AntPathRequestMatcher matcher = new AntPathRequestMatcher("/a/*/c");
+		assertThat(matcher.matcher(createRequest("/a/b/c")).getVariables()).isEmpty();
+		assertThat(matcher.matcher(createRequest("/a/b/d")).isMatch()).isFalse();
+	}
+
+	// the precompiled matchers must give the same result as AntPathMatcher, and as the
+	// sub-path match for patterns ending in /**, for any split into servletPath and
+	// pathInfo
+	@Test
+	public void matchesWhenPrecompiledThenSameAsAntPathMatcher() {
+		String[] patterns = { "/login.html", "/a/b", "/a/b/", "/a/*", "/a/*/", "/a/*/c", "/*", "/**/c", "/a/**/c",
+				"/a/**/b/**/c", "/a/**/**/c", "/a?c/**", "/a*", "/*.html", "/a/b*c/d", "/**/*.css", "a/b", "/A/B",
+				"/a/**/", "/**/", "/a/b/**", "/A/b/**", "/ab?/*d", "/**/a/**", "/a/**/b*", "*", "/\u00e9/**",
+				"/\u00c9", "/?/c", "/a/*/**/c" };
+		String[] paths = { "", "/", "/a", "/a/", "/a/b", "/a/b/", "/A/B", "/a//b", "//a/b", "/a/b/c", "/a/x/c",
+				"/a/x/y/c", "/a/x/b/y/c", "/abc", "/aXc/d", "/login.html", "/LOGIN.html", "/login.html/",
+				"/style.css", "/x/y/style.css", "/a/bxyzc/d", "/a/bc/d", "a/b", "/\u00e9", "/\u00c9",
+				"/a/b\nc", "/a\u2028/c", "/\ud83d\ude00/c", "/abd/xd", "/ab\ud83d\ude00/xd", "/\u0131",
+				"/A/b/c", "/a/b/c/", "/a/b/b/c" };
+		for (boolean caseSensitive : new boolean[] { true, false }) {
+			AntPathMatcher antPathMatcher = new AntPathMatcher();
+			antPathMatcher.setTrimTokens(false);
+			antPathMatcher.setCaseSensitive(caseSensitive);
+			for (String pattern : patterns) {
+				AntPathRequestMatcher matcher = new AntPathRequestMatcher(pattern, null, caseSensitive);
+				for (String path : paths) {
+					boolean expected = isSubpathPattern(pattern) ? subpathMatches(pattern, path, caseSensitive)
+							: antPathMatcher.match(pattern, path);
+					for (int i = 0; i <= path.length(); i++) {
+						MockHttpServletRequest request = createRequest(path.substring(0, i));
+						request.setPathInfo((i < path.length()) ? path.substring(i) : null);
+						assertThat(matcher.matches(request)).as("%s matching %s (caseSensitive=%s, split at %d)",
+								pattern, path, caseSensitive, i).isEqualTo(expected);
+					}
+				}
+			}
+		}
+	}
+
+	private static boolean isSubpathPattern(String pattern) {
+		return pattern.endsWith("/**") && pattern.indexOf('?') == -1 && pattern.indexOf('*') == pattern.length() - 2;
+	}
+
+	private static boolean subpathMatches(String pattern, String path, boolean caseSensitive) {
+		String subpath = pattern.substring(0, pattern.length() - 3);
+		if (!caseSensitive) {
+			subpath = subpath.toLowerCase();
+			path = path.toLowerCase();
+		}
+		return path.startsWith(subpath) && (path.length() == subpath.length() || path.charAt(subpath.length()) == '/');
+	}
+
 	private HttpServletRequest createRequestWithNullMethod(String path) {
 		given(this.request.getServletPath()).willReturn(path);
 		return this.request;
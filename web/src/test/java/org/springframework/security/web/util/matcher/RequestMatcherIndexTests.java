@@ -0,0 +1,164 @@
+/*
+ * Copyright 2002-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.security.web.util.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.util.UrlPathHelper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link RequestMatcherIndex}.
+ */
+public class RequestMatcherIndexTests {
+
+	@Test
+	public void compileWhenEntriesNullThenException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> RequestMatcherIndex.compile(null))
+				.withMessage("entries cannot be null");
+	}
+
+	@Test
+	public void compileWhenAntPathAndAnyRequestThenIndexed() {
+		RequestMatcherIndex<String> index = RequestMatcherIndex.compile(entries(new AntPathRequestMatcher("/api/**"),
+				new AntPathRequestMatcher("/**", "GET"), AnyRequestMatcher.INSTANCE));
+		assertThat(index.getMode(0)).isEqualTo(RequestMatcherIndex.Mode.INDEXED);
+		assertThat(index.getMode(1)).isEqualTo(RequestMatcherIndex.Mode.INDEXED);
+		assertThat(index.getMode(2)).isEqualTo(RequestMatcherIndex.Mode.INDEXED);
+	}
+
+	@Test
+	public void compileWhenOtherMatchersThenLinear() {
+		RequestMatcherIndex<String> index = RequestMatcherIndex.compile(
+				entries(new RegexRequestMatcher("/api/.*", null),
+						new AntPathRequestMatcher("/api/**", null, true, new UrlPathHelper()),
+						new AntPathRequestMatcher("api/**")));
+		assertThat(index.getMode(0)).isEqualTo(RequestMatcherIndex.Mode.LINEAR);
+		assertThat(index.getMode(1)).isEqualTo(RequestMatcherIndex.Mode.LINEAR);
+		assertThat(index.getMode(2)).isEqualTo(RequestMatcherIndex.Mode.LINEAR);
+	}
+
+	@Test
+	public void findFirstWhenPathMatchesThenFirstMatchingEntry() {
+		RequestMatcherIndex<String> index = RequestMatcherIndex.compile(entries(new AntPathRequestMatcher("/api/a/**"),
+				new AntPathRequestMatcher("/api/**"), new AntPathRequestMatcher("/api/a/b"),
+				new AntPathRequestMatcher("/other/*"), AnyRequestMatcher.INSTANCE));
+		assertThat(index.findFirst(request("GET", "/api/a/b")).getEntry()).isEqualTo("0");
+		assertThat(index.findFirst(request("GET", "/api/b")).getEntry()).isEqualTo("1");
+		assertThat(index.findFirst(request("GET", "/other/x")).getEntry()).isEqualTo("3");
+		assertThat(index.findFirst(request("GET", "/other/x/y")).getEntry()).isEqualTo("4");
+		assertThat(index.findFirst(request("GET", "/")).getEntry()).isEqualTo("4");
+		assertThat(index.findFirst(request("GET", "")).getEntry()).isEqualTo("4");
+	}
+
+	@Test
+	public void findFirstWhenDeclaredBeforeMoreSpecificThenDeclarationOrderWins() {
+		RequestMatcherIndex<String> index = RequestMatcherIndex.compile(
+				entries(new AntPathRequestMatcher("/**"), new AntPathRequestMatcher("/api/**")));
+		assertThat(index.findFirst(request("GET", "/api/a")).getEntry()).isEqualTo("0");
+	}
+
+	@Test
+	public void findFirstWhenNoMatchThenNull() {
+		RequestMatcherIndex<String> index = RequestMatcherIndex.compile(
+				entries(new AntPathRequestMatcher("/api/**"), new AntPathRequestMatcher("/admin/{id}")));
+		assertThat(index.findFirst(request("GET", "/apix"))).isNull();
+		assertThat(index.findFirst(request("GET", "/admin/1/2"))).isNull();
+		assertThat(index.getNoMatchCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void findFirstWhenCaseInsensitiveThenMatchesIgnoringCase() {
+		RequestMatcherIndex<String> index = RequestMatcherIndex.compile(entries(
+				new AntPathRequestMatcher("/Api/Admin/**", null, false), new AntPathRequestMatcher("/Api/**")));
+		assertThat(index.findFirst(request("GET", "/API/ADMIN/x")).getEntry()).isEqualTo("0");
+		assertThat(index.findFirst(request("GET", "/API/x"))).isNull();
+		assertThat(index.findFirst(request("GET", "/Api/x")).getEntry()).isEqualTo("1");
+	}
+
+	@Test
+	public void findFirstWhenHttpMethodThenMatchesOnlyThatMethod() {
+		RequestMatcherIndex<String> index = RequestMatcherIndex.compile(entries(
+				new AntPathRequestMatcher("/api/**", "POST"), new AntPathRequestMatcher("/api/**", "GET"),
+				new AntPathRequestMatcher("/api/**")));
+		assertThat(index.findFirst(request("POST", "/api/a")).getEntry()).isEqualTo("0");
+		assertThat(index.findFirst(request("GET", "/api/a")).getEntry()).isEqualTo("1");
+		assertThat(index.findFirst(request("DELETE", "/api/a")).getEntry()).isEqualTo("2");
+		assertThat(index.findFirst(request("", "/api/a")).getEntry()).isEqualTo("0");
+	}
+
+	@Test
+	public void findFirstWhenPathInfoThenMatchesServletPathAndPathInfo() {
+		RequestMatcherIndex<String> index = RequestMatcherIndex
+				.compile(entries(new AntPathRequestMatcher("/blah/blah/**"), AnyRequestMatcher.INSTANCE));
+		MockHttpServletRequest request = request("GET", "/blah/");
+		request.setPathInfo("blah/bleh");
+		assertThat(index.findFirst(request).getEntry()).isEqualTo("0");
+		request = request("GET", "/blah");
+		request.setPathInfo("/blah");
+		assertThat(index.findFirst(request).getEntry()).isEqualTo("0");
+	}
+
+	@Test
+	public void findFirstWhenLinearEntryThenEvaluatedInDeclarationOrder() {
+		RequestMatcher linear = mock(RequestMatcher.class);
+		given(linear.matches(any())).willReturn(true);
+		RequestMatcherIndex<String> index = RequestMatcherIndex
+				.compile(entries(new AntPathRequestMatcher("/api/**"), linear, new AntPathRequestMatcher("/**")));
+		assertThat(index.findFirst(request("GET", "/api/a")).getEntry()).isEqualTo("0");
+		assertThat(index.findFirst(request("GET", "/other")).getEntry()).isEqualTo("1");
+		assertThat(index.getIndexedMatchCount()).isEqualTo(1);
+		assertThat(index.getLinearMatchCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void findFirstMatchWhenPathMatchesThenEntryAndVariables() {
+		RequestMatcherIndex<String> index = RequestMatcherIndex.compile(
+				entries(new AntPathRequestMatcher("/users/{id}/edit"), new AntPathRequestMatcher("/users/{id}")));
+		RequestMatcherIndex.Match<String> match = index.findFirstMatch(request("GET", "/users/1"));
+		assertThat(match.getEntry().getEntry()).isEqualTo("1");
+		assertThat(match.getMatchResult().getVariables()).containsEntry("id", "1");
+		assertThat(index.findFirstMatch(request("GET", "/other"))).isNull();
+		assertThat(index.getIndexedMatchCount()).isEqualTo(1);
+		assertThat(index.getNoMatchCount()).isEqualTo(1);
+	}
+
+	private static List<RequestMatcherEntry<String>> entries(RequestMatcher... matchers) {
+		List<RequestMatcherEntry<String>> entries = new ArrayList<>();
+		for (RequestMatcher matcher : Arrays.asList(matchers)) {
+			entries.add(new RequestMatcherEntry<>(matcher, String.valueOf(entries.size())));
+		}
+		return entries;
+	}
+
+	private static MockHttpServletRequest request(String method, String servletPath) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, servletPath);
+		request.setServletPath(servletPath);
+		return request;
+	}
+
+}